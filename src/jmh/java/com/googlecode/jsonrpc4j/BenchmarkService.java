@@ -0,0 +1,76 @@
+package com.googlecode.jsonrpc4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The service called by the benchmarks.
+ */
+public interface BenchmarkService {
+
+	int add(int a, int b);
+
+	String greet(@JsonRpcParam("first") String first, @JsonRpcParam("last") String last);
+
+	String overloaded();
+
+	String overloaded(String value);
+
+	String overloaded(int value);
+
+	String overloaded(String first, String second);
+
+	List<Item> echo(List<Item> items);
+
+	void fail(String message);
+
+	class Item {
+		public int id;
+		public String name;
+		public double price;
+		public List<String> tags = new ArrayList<>();
+	}
+
+	class Impl implements BenchmarkService {
+
+		@Override
+		public int add(int a, int b) {
+			return a + b;
+		}
+
+		@Override
+		public String greet(String first, String last) {
+			return first + " " + last;
+		}
+
+		@Override
+		public String overloaded() {
+			return "none";
+		}
+
+		@Override
+		public String overloaded(String value) {
+			return value;
+		}
+
+		@Override
+		public String overloaded(int value) {
+			return String.valueOf(value);
+		}
+
+		@Override
+		public String overloaded(String first, String second) {
+			return first + second;
+		}
+
+		@Override
+		public List<Item> echo(List<Item> items) {
+			return items;
+		}
+
+		@Override
+		public void fail(String message) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.googlecode.jsonrpc4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side: building and writing requests with
+ * {@link JsonRpcClient#createRequest(String, Object, String)} and reading the
+ * responses with {@link JsonRpcClient#readResponse(Type, java.io.InputStream)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientSerializationBenchmark {
+
+	private static final Type ITEMS = new TypeReference<List<BenchmarkService.Item>>() {}.getType();
+
+	@Param({ "1000" })
+	public int payloadItems;
+
+	private ObjectMapper mapper;
+	private JsonRpcClient client;
+	private ByteArrayOutputStream output;
+	private Object[] positional;
+	private Map<String, Object> named;
+	private Object[] largePayload;
+	private byte[] intResponse;
+	private byte[] itemsResponse;
+	private byte[] errorResponse;
+
+	@Setup
+	public void setUp() throws IOException {
+		mapper = new ObjectMapper();
+		client = new JsonRpcClient(mapper);
+		output = new ByteArrayOutputStream(64 * 1024);
+		positional = new Object[] { 1, 2 };
+		named = new HashMap<>();
+		named.put("first", "John");
+		named.put("last", "Doe");
+		largePayload = new Object[] { ServerDispatchBenchmark.items(payloadItems) };
+
+		JsonRpcBasicServer server = new JsonRpcBasicServer(mapper, new BenchmarkService.Impl(), BenchmarkService.class);
+		intResponse = respond(server, client.createRequest("add", positional, "1"));
+		itemsResponse = respond(server, client.createRequest("echo", largePayload, "1"));
+		errorResponse = respond(server, client.createRequest("fail", new Object[] { "failed" }, "1"));
+	}
+
+	private byte[] respond(JsonRpcBasicServer server, ObjectNode request) throws IOException {
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		server.handleRequest(new ByteArrayInputStream(mapper.writeValueAsBytes(request)), response);
+		return response.toByteArray();
+	}
+
+	@Benchmark
+	public ObjectNode createPositionalRequest() {
+		return client.createRequest("add", positional, "1");
+	}
+
+	@Benchmark
+	public ObjectNode createNamedRequest() {
+		return client.createRequest("greet", named, "1");
+	}
+
+	@Benchmark
+	public int writeLargeRequest() throws IOException {
+		output.reset();
+		client.invoke("echo", largePayload, output);
+		return output.size();
+	}
+
+	@Benchmark
+	public Object readResponse() throws Throwable {
+		return client.readResponse(Integer.class, new ByteArrayInputStream(intResponse));
+	}
+
+	@Benchmark
+	public Object readLargeResponse() throws Throwable {
+		return client.readResponse(ITEMS, new ByteArrayInputStream(itemsResponse));
+	}
+
+	@Benchmark
+	public Throwable readErrorResponse() {
+		try {
+			client.readResponse(Integer.class, new ByteArrayInputStream(errorResponse));
+		} catch (Throwable t) {
+			return t;
+		}
+		throw new IllegalStateException("the error response was not raised");
+	}
+}
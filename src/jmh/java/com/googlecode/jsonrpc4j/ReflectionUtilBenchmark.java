@@ -0,0 +1,45 @@
+package com.googlecode.jsonrpc4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the method lookup of {@link ReflectionUtil#findCandidateMethods(Class[], String)},
+ * which the server does for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionUtilBenchmark {
+
+	private final Class<?>[] classes = { BenchmarkService.class };
+
+	@Benchmark
+	public Set<Method> singleMethod() {
+		return ReflectionUtil.findCandidateMethods(classes, "add");
+	}
+
+	@Benchmark
+	public Set<Method> overloadedMethod() {
+		return ReflectionUtil.findCandidateMethods(classes, "overloaded");
+	}
+
+	@Benchmark
+	public Set<Method> missingMethod() {
+		return ReflectionUtil.findCandidateMethods(classes, "missing");
+	}
+}
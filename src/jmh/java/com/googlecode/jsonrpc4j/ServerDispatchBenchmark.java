@@ -0,0 +1,136 @@
+package com.googlecode.jsonrpc4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JsonRpcBasicServer#handleRequest(java.io.InputStream, java.io.OutputStream)}
+ * on requests encoded once up front, so only parsing, dispatch and writing the response count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerDispatchBenchmark {
+
+	@Param({ "10" })
+	public int batchSize;
+
+	@Param({ "1000" })
+	public int payloadItems;
+
+	private JsonRpcBasicServer server;
+	private ByteArrayOutputStream output;
+	private byte[] positional;
+	private byte[] named;
+	private byte[] overloaded;
+	private byte[] batch;
+	private byte[] largePayload;
+	private byte[] thrownError;
+	private byte[] methodNotFound;
+	private byte[] parseError;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		server = new JsonRpcBasicServer(mapper, new BenchmarkService.Impl(), BenchmarkService.class);
+		output = new ByteArrayOutputStream(64 * 1024);
+		JsonRpcClient client = new JsonRpcClient(mapper);
+
+		positional = mapper.writeValueAsBytes(client.createRequest("add", new Object[] { 1, 2 }, "1"));
+		ObjectNode params = mapper.createObjectNode().put("first", "John").put("last", "Doe");
+		named = mapper.writeValueAsBytes(client.createRequest("greet", params, "1"));
+		overloaded = mapper.writeValueAsBytes(client.createRequest("overloaded", new Object[] { "a", "b" }, "1"));
+		ArrayNode requests = mapper.createArrayNode();
+		for (int i = 0; i < batchSize; i++) {
+			requests.add(client.createRequest("add", new Object[] { i, i }, String.valueOf(i)));
+		}
+		batch = mapper.writeValueAsBytes(requests);
+		largePayload = mapper.writeValueAsBytes(client.createRequest("echo", new Object[] { items(payloadItems) }, "1"));
+		thrownError = mapper.writeValueAsBytes(client.createRequest("fail", new Object[] { "failed" }, "1"));
+		methodNotFound = mapper.writeValueAsBytes(client.createRequest("missing", new Object[] { 1 }, "1"));
+		parseError = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":".getBytes("UTF-8");
+	}
+
+	static List<BenchmarkService.Item> items(int count) {
+		List<BenchmarkService.Item> items = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			BenchmarkService.Item item = new BenchmarkService.Item();
+			item.id = i;
+			item.name = "item " + i;
+			item.price = i * 1.5;
+			item.tags.addAll(Arrays.asList("a", "b", "c"));
+			items.add(item);
+		}
+		return items;
+	}
+
+	private int handle(byte[] request) throws IOException {
+		output.reset();
+		server.handleRequest(new ByteArrayInputStream(request), output);
+		return output.size();
+	}
+
+	@Benchmark
+	public int positionalParams() throws IOException {
+		return handle(positional);
+	}
+
+	@Benchmark
+	public int namedParams() throws IOException {
+		return handle(named);
+	}
+
+	@Benchmark
+	public int overloadedMethod() throws IOException {
+		return handle(overloaded);
+	}
+
+	@Benchmark
+	public int batch() throws IOException {
+		return handle(batch);
+	}
+
+	@Benchmark
+	public int largePayload() throws IOException {
+		return handle(largePayload);
+	}
+
+	@Benchmark
+	public int thrownError() throws IOException {
+		return handle(thrownError);
+	}
+
+	@Benchmark
+	public int methodNotFound() throws IOException {
+		return handle(methodNotFound);
+	}
+
+	@Benchmark
+	public int parseError() throws IOException {
+		return handle(parseError);
+	}
+}
@@ -0,0 +1,96 @@
+package com.googlecode.jsonrpc4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ServerSocketFactory;
+
+/**
+ * Measures round-trips over a loopback socket to a {@link StreamServer}, each
+ * benchmark thread on its own connection.  Run with {@code -t} to add clients.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamServerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ServerState {
+
+		@Param({ "false", "true" })
+		public boolean pipelined;
+
+		StreamServer streamServer;
+		ServerSocket serverSocket;
+		private ExecutorService pipelineExecutor;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException {
+			serverSocket = ServerSocketFactory.getDefault().createServerSocket(0, 0, InetAddress.getLoopbackAddress());
+			JsonRpcBasicServer server = new JsonRpcBasicServer(new BenchmarkService.Impl(), BenchmarkService.class);
+			streamServer = new StreamServer(server, 64, serverSocket);
+			if (pipelined) {
+				pipelineExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+				streamServer.setPipelineExecutor(pipelineExecutor);
+			}
+			streamServer.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() throws InterruptedException {
+			streamServer.stop();
+			if (pipelineExecutor != null) pipelineExecutor.shutdown();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ClientState {
+
+		JsonRpcClient client;
+		Socket socket;
+		OutputStream output;
+		InputStream input;
+
+		@Setup(Level.Trial)
+		public void connect(ServerState server) throws IOException {
+			client = new JsonRpcClient();
+			socket = new Socket(server.serverSocket.getInetAddress(), server.serverSocket.getLocalPort());
+			socket.setTcpNoDelay(true);
+			output = socket.getOutputStream();
+			input = socket.getInputStream();
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	@Benchmark
+	public Object roundTrip(ClientState state) throws Throwable {
+		return state.client.invokeAndReadResponse("add", new Object[] { 1, 2 }, Integer.class, state.output, state.input);
+	}
+}
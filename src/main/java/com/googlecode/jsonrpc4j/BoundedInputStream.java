@@ -0,0 +1,74 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails once more than a given number of bytes have been read from the wrapped stream, so
+ * that a small compressed body cannot inflate without bound.
+ */
+class BoundedInputStream extends FilterInputStream {
+
+	private final long maxSize;
+	private long count;
+	private boolean exceeded;
+
+	BoundedInputStream(InputStream in, long maxSize) {
+		super(in);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) count(1);
+		return b;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int read = super.read(b, off, len);
+		if (read > 0) count(read);
+		return read;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	/**
+	 * Marks are not supported, a reset would let the stream be read past its bound.
+	 */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void count(long read) throws IOException {
+		count += read;
+		if (count > maxSize) {
+			exceeded = true;
+			throw new IOException("body exceeds the maximum size of " + maxSize + " bytes");
+		}
+	}
+
+	/**
+	 * @return {@code true} if more than the maximum size has been read
+	 */
+	boolean isExceeded() {
+		return exceeded;
+	}
+}
@@ -0,0 +1,82 @@
+package com.googlecode.jsonrpc4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A thread safe pool of byte arrays of a fixed size, used by the servers and
+ * {@link JsonRpcHttpClient} to read requests and buffer responses without
+ * allocating fresh buffers for every connection and request.  Buffers are
+ * acquired and released explicitly, a buffer that is never released is simply
+ * collected, and when the pool is empty a new buffer is allocated.
+ * <pre>
+ * server.setBufferPool(new BufferPool(64 * 1024, 128));
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class BufferPool {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	public static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+
+	private static final BufferPool DEFAULT = new BufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+
+	private final int bufferSize;
+	private final ArrayBlockingQueue<byte[]> buffers;
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param bufferSize        the size of the buffers in bytes
+	 * @param maxPooledBuffers  the number of released buffers kept for reuse, {@code 0} to keep none
+	 */
+	public BufferPool(int bufferSize, int maxPooledBuffers) {
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be positive");
+		if (maxPooledBuffers < 0) throw new IllegalArgumentException("maxPooledBuffers must not be negative");
+		this.bufferSize = bufferSize;
+		this.buffers = maxPooledBuffers > 0 ? new ArrayBlockingQueue<byte[]>(maxPooledBuffers) : null;
+	}
+
+	/**
+	 * @return the pool shared by default, with buffers of {@value #DEFAULT_BUFFER_SIZE} bytes
+	 */
+	public static BufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Takes a buffer from the pool, or allocates one if the pool is empty.
+	 * The content of the buffer is undefined.
+	 *
+	 * @return a buffer of {@link #getBufferSize()} bytes
+	 */
+	public byte[] acquire() {
+		byte[] buffer = buffers != null ? buffers.poll() : null;
+		return buffer != null ? buffer : new byte[bufferSize];
+	}
+
+	/**
+	 * Returns a buffer to the pool, it must not be used afterwards.  Buffers of
+	 * another size and buffers beyond the capacity of the pool are dropped.
+	 *
+	 * @param buffer the buffer, may be {@code null}
+	 */
+	public void release(byte[] buffer) {
+		if (buffers != null && buffer != null && buffer.length == bufferSize) {
+			buffers.offer(buffer);
+		}
+	}
+
+	/**
+	 * @return the size of the buffers in bytes
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of buffers available for reuse
+	 */
+	public int getPooledCount() {
+		return buffers != null ? buffers.size() : 0;
+	}
+}
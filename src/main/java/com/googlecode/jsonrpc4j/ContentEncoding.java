@@ -0,0 +1,343 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The HTTP content codings bodies are compressed with: {@link #GZIP} and {@link #DEFLATE}.
+ * <p>
+ * Bodies are compressed and decompressed as they are streamed, with {@link Deflater}s and
+ * {@link Inflater}s kept in a pool per coding and buffers from {@link BufferPool#getDefault()},
+ * so that a request costs no native zlib state of its own.  Clients offer both codings in
+ * {@code Accept-Encoding}, servers answer in the one preferred and list the codings they
+ * accept in the {@code Accept-Encoding} header of their responses, from which clients learn
+ * that they may compress their requests.  Only bodies larger than a threshold are compressed,
+ * small ones rarely shrink enough to pay for the work.
+ * <pre>
+ * server.setCompressionThreshold(4096);
+ * client.setCompressionThreshold(4096);
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public final class ContentEncoding {
+
+	/**
+	 * The size in bytes above which bodies are compressed by default.
+	 */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+	/**
+	 * The value of the {@code Accept-Encoding} header listing every supported coding.
+	 */
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	/**
+	 * The gzip format of RFC 1952.
+	 */
+	public static final ContentEncoding GZIP = new ContentEncoding("gzip", true);
+
+	/**
+	 * The zlib format of RFC 1950, which is what HTTP calls {@code deflate}.
+	 */
+	public static final ContentEncoding DEFLATE = new ContentEncoding("deflate", false);
+
+	private static final int MAX_POOLED = 64;
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final String name;
+	private final boolean gzip;
+	private final ArrayBlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(MAX_POOLED);
+	private final ArrayBlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(MAX_POOLED);
+
+	private ContentEncoding(String name, boolean gzip) {
+		this.name = name;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Finds the coding named in a {@code Content-Encoding} header.
+	 *
+	 * @param contentEncoding the header, may be {@code null}
+	 * @return the coding, or {@code null} if the header is missing, {@code identity} or not supported
+	 */
+	public static ContentEncoding forName(String contentEncoding) {
+		if (contentEncoding == null) return null;
+		String name = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+		if (name.equals("gzip") || name.equals("x-gzip")) return GZIP;
+		if (name.equals("deflate")) return DEFLATE;
+		return null;
+	}
+
+	/**
+	 * @param contentEncoding the {@code Content-Encoding} header, may be {@code null}
+	 * @return {@code true} if the body is not encoded or in a coding {@link #forName(String)} knows
+	 */
+	static boolean isSupported(String contentEncoding) {
+		return contentEncoding == null || contentEncoding.trim().isEmpty() || contentEncoding.trim().equalsIgnoreCase("identity") || forName(contentEncoding) != null;
+	}
+
+	/**
+	 * Picks the coding with the highest quality in an {@code Accept-Encoding} header,
+	 * gzip on a tie.  Codings with a quality of {@code 0} are refused, {@code *} matches both.
+	 *
+	 * @param acceptEncoding the {@code Accept-Encoding} header, may be {@code null}
+	 * @return the coding, or {@code null} if neither is acceptable
+	 */
+	public static ContentEncoding forAcceptEncoding(String acceptEncoding) {
+		if (acceptEncoding == null) return null;
+		double gzip = -1;
+		double deflate = -1;
+		double any = -1;
+		for (String element : acceptEncoding.split(",")) {
+			String[] parts = element.split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+			double quality = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].trim();
+				if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+					try {
+						quality = Double.parseDouble(parameter.substring(2).trim());
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			if (coding.equals("gzip") || coding.equals("x-gzip")) {
+				gzip = quality;
+			} else if (coding.equals("deflate")) {
+				deflate = quality;
+			} else if (coding.equals("*")) {
+				any = quality;
+			}
+		}
+		if (gzip < 0) gzip = any;
+		if (deflate < 0) deflate = any;
+		if (gzip > 0 && gzip >= deflate) return GZIP;
+		if (deflate > 0) return DEFLATE;
+		return null;
+	}
+
+	/**
+	 * @return the name of the coding as used in HTTP headers
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Wraps a stream so that what is written to it reaches the given stream compressed.
+	 * The returned stream must be closed to write the end of the compressed data and to give
+	 * its {@link Deflater} back to the pool, closing it closes the given stream too.
+	 *
+	 * @param output the {@link OutputStream} receiving the compressed bytes
+	 * @return the {@link OutputStream} to write the uncompressed bytes to
+	 * @throws IOException on error
+	 */
+	public OutputStream compress(OutputStream output) throws IOException {
+		return new CompressingOutputStream(output, this);
+	}
+
+	/**
+	 * Wraps a stream of compressed bytes.  The returned stream gives its {@link Inflater}
+	 * back to the pool when it is closed, closing it closes the given stream too.
+	 *
+	 * @param input the {@link InputStream} of compressed bytes
+	 * @return the {@link InputStream} of the uncompressed bytes
+	 * @throws IOException on error, such as a malformed gzip header
+	 */
+	public InputStream decompress(InputStream input) throws IOException {
+		Inflater inflater = acquireInflater();
+		try {
+			if (gzip) readGzipHeader(input);
+		} catch (IOException | RuntimeException e) {
+			releaseInflater(inflater);
+			throw e;
+		}
+		return new DecompressingInputStream(input, this, inflater);
+	}
+
+	private Deflater acquireDeflater() {
+		Deflater deflater = deflaters.poll();
+		return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+	}
+
+	private void releaseDeflater(Deflater deflater) {
+		deflater.reset();
+		if (!deflaters.offer(deflater)) deflater.end();
+	}
+
+	private Inflater acquireInflater() {
+		Inflater inflater = inflaters.poll();
+		return inflater != null ? inflater : new Inflater(gzip);
+	}
+
+	private void releaseInflater(Inflater inflater) {
+		inflater.reset();
+		if (!inflaters.offer(inflater)) inflater.end();
+	}
+
+	private static void readGzipHeader(InputStream input) throws IOException {
+		if (readByte(input) != 0x1f || readByte(input) != 0x8b) throw new ZipException("Not in GZIP format");
+		if (readByte(input) != Deflater.DEFLATED) throw new ZipException("Unsupported compression method");
+		int flags = readByte(input);
+		skip(input, 6);
+		if ((flags & FEXTRA) != 0) skip(input, readByte(input) | readByte(input) << 8);
+		if ((flags & FNAME) != 0) skipString(input);
+		if ((flags & FCOMMENT) != 0) skipString(input);
+		if ((flags & FHCRC) != 0) skip(input, 2);
+	}
+
+	private static int readByte(InputStream input) throws IOException {
+		int b = input.read();
+		if (b < 0) throw new EOFException("Unexpected end of GZIP input stream");
+		return b;
+	}
+
+	private static void skip(InputStream input, int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			readByte(input);
+		}
+	}
+
+	private static void skipString(InputStream input) throws IOException {
+		int b;
+		do {
+			b = readByte(input);
+		} while (b != 0);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Deflates into the given stream, framed as gzip or zlib by the {@link Deflater}
+	 * of the coding, with the gzip header and trailer written here.
+	 */
+	private static final class CompressingOutputStream extends DeflaterOutputStream {
+
+		private final ContentEncoding encoding;
+		private final CRC32 crc;
+		private boolean released;
+
+		CompressingOutputStream(OutputStream output, ContentEncoding encoding) throws IOException {
+			super(output, encoding.acquireDeflater(), 1);
+			this.encoding = encoding;
+			this.buf = BufferPool.getDefault().acquire();
+			this.crc = encoding.gzip ? new CRC32() : null;
+			if (crc != null) output.write(GZIP_HEADER);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			super.write(b, off, len);
+			if (crc != null) crc.update(b, off, len);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (def.finished()) return;
+			super.finish();
+			if (crc != null) {
+				writeInt(crc.getValue());
+				writeInt(def.getBytesRead());
+			}
+		}
+
+		private void writeInt(long value) throws IOException {
+			out.write((int) value & 0xff);
+			out.write((int) (value >> 8) & 0xff);
+			out.write((int) (value >> 16) & 0xff);
+			out.write((int) (value >> 24) & 0xff);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (!released) {
+					released = true;
+					encoding.releaseDeflater(def);
+					BufferPool.getDefault().release(buf);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inflates the given stream, whose gzip header has been read already, and checks
+	 * the gzip trailer at the end.
+	 */
+	private static final class DecompressingInputStream extends InflaterInputStream {
+
+		private final ContentEncoding encoding;
+		private final CRC32 crc;
+		private boolean ended;
+		private boolean released;
+
+		DecompressingInputStream(InputStream input, ContentEncoding encoding, Inflater inflater) {
+			super(input, inflater, 1);
+			this.encoding = encoding;
+			this.buf = BufferPool.getDefault().acquire();
+			this.crc = encoding.gzip ? new CRC32() : null;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (ended) return -1;
+			int read = super.read(b, off, len);
+			if (read < 0) {
+				ended = true;
+				if (crc != null) readGzipTrailer();
+			} else if (crc != null) {
+				crc.update(b, off, read);
+			}
+			return read;
+		}
+
+		private void readGzipTrailer() throws IOException {
+			byte[] trailer = new byte[8];
+			int buffered = Math.min(inf.getRemaining(), trailer.length);
+			System.arraycopy(buf, len - inf.getRemaining(), trailer, 0, buffered);
+			for (int i = buffered; i < trailer.length; i++) {
+				trailer[i] = (byte) readByte(in);
+			}
+			if (readInt(trailer, 0) != crc.getValue() || readInt(trailer, 4) != (inf.getBytesWritten() & 0xffffffffL)) {
+				throw new ZipException("Corrupt GZIP trailer");
+			}
+		}
+
+		private static long readInt(byte[] bytes, int offset) {
+			return (bytes[offset] & 0xffL) | (bytes[offset + 1] & 0xffL) << 8 | (bytes[offset + 2] & 0xffL) << 16 | (bytes[offset + 3] & 0xffL) << 24;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (!released) {
+					released = true;
+					encoding.releaseInflater(inf);
+					BufferPool.getDefault().release(buf);
+				}
+			}
+		}
+	}
+}
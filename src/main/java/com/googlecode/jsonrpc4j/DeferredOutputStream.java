@@ -0,0 +1,171 @@
+package com.googlecode.jsonrpc4j;
+
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Buffers the responses to a request while some of them are still being computed.
+ * A response that completes later reserves its place in the buffer, so that the
+ * responses of a batch keep the order of the requests however they complete.
+ */
+class DeferredOutputStream extends OutputStream {
+
+	private final List<ByteArrayOutputStream> segments = new ArrayList<>();
+	private final List<CompletableFuture<JsonError>> pending = new ArrayList<>();
+	private ByteArrayOutputStream current;
+	private int reserved;
+	private boolean batch;
+
+	DeferredOutputStream() {
+		current = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * Creates a buffer whose first segment is taken from the given pool,
+	 * {@link #release()} gives it back.
+	 *
+	 * @param pool the {@link BufferPool}
+	 */
+	DeferredOutputStream(BufferPool pool) {
+		current = new PooledByteArrayOutputStream(pool);
+	}
+
+	@Override
+	public void write(int b) {
+		current.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		current.write(b, off, len);
+	}
+
+	/**
+	 * Reserves the place of a response that is written later.
+	 *
+	 * @return the stream the response is written to once it is known
+	 */
+	OutputStream reserve() {
+		segments.add(current);
+		ByteArrayOutputStream slot = new ByteArrayOutputStream();
+		segments.add(slot);
+		reserved++;
+		current = new ByteArrayOutputStream();
+		return slot;
+	}
+
+	/**
+	 * Registers a response that is still being computed, the future must write the
+	 * response to its reserved stream before it completes and must not complete exceptionally.
+	 *
+	 * @param response the future of the response
+	 */
+	void defer(CompletableFuture<JsonError> response) {
+		pending.add(response);
+	}
+
+	/**
+	 * Marks the buffer as holding the responses to a batch request.
+	 */
+	void markBatch() {
+		batch = true;
+	}
+
+	/**
+	 * Moves the content and the pending responses of the given buffer to the end of this one.
+	 *
+	 * @param other the buffer of a single request of a batch
+	 */
+	void append(DeferredOutputStream other) {
+		segments.add(current);
+		segments.addAll(other.segments);
+		segments.add(other.current);
+		pending.addAll(other.pending);
+		reserved += other.reserved;
+		current = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * @return the number of bytes buffered so far
+	 */
+	long size() {
+		long size = current.size();
+		for (ByteArrayOutputStream segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if nothing has been written or reserved
+	 */
+	boolean isEmpty() {
+		if (reserved > 0 || current.size() > 0) return false;
+		for (ByteArrayOutputStream segment : segments) {
+			if (segment.size() > 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return {@code true} if responses are still being computed
+	 */
+	boolean hasPending() {
+		for (CompletableFuture<JsonError> response : pending) {
+			if (!response.isDone()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the future of the error code of the whole request, which completes
+	 * once all responses are known.
+	 *
+	 * @param code the error code returned when the request was handled
+	 * @return the future error code
+	 */
+	CompletableFuture<Integer> completion(final int code) {
+		if (pending.isEmpty()) return CompletableFuture.completedFuture(code);
+		return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()])).thenApply(new Function<Void, Integer>() {
+			@Override
+			public Integer apply(Void ignored) {
+				if (code != JsonError.OK.code) return code;
+				for (CompletableFuture<JsonError> response : pending) {
+					JsonError error = response.join();
+					if (error.code != JsonError.OK.code) return batch ? JsonError.BULK_ERROR.code : error.code;
+				}
+				return code;
+			}
+		});
+	}
+
+	/**
+	 * Writes the buffered responses, all pending responses must have completed.
+	 *
+	 * @param output the {@link OutputStream} to write to
+	 * @throws IOException on error
+	 */
+	void writeTo(OutputStream output) throws IOException {
+		for (ByteArrayOutputStream segment : segments) {
+			segment.writeTo(output);
+		}
+		current.writeTo(output);
+	}
+
+	/**
+	 * Gives the pooled buffers back, the content is lost.
+	 */
+	void release() {
+		for (ByteArrayOutputStream segment : segments) {
+			if (segment instanceof PooledByteArrayOutputStream) ((PooledByteArrayOutputStream) segment).release();
+		}
+		if (current instanceof PooledByteArrayOutputStream) ((PooledByteArrayOutputStream) current).release();
+	}
+}
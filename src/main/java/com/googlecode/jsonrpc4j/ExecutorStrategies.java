@@ -0,0 +1,93 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link ExecutorStrategy}s provided by jsonrpc4j.
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" })
+public final class ExecutorStrategies {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExecutorStrategies.class);
+
+	/**
+	 * {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up reflectively
+	 * so that the library still runs on JDKs without virtual threads.
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+	private static final ExecutorStrategy FIXED_THREAD_POOL = new ExecutorStrategy() {
+		@Override
+		public ExecutorService createExecutor(int maxThreads) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+			executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+			return executor;
+		}
+	};
+
+	private static final ExecutorStrategy VIRTUAL_THREAD_PER_TASK = new ExecutorStrategy() {
+		@Override
+		public ExecutorService createExecutor(int maxThreads) {
+			if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+				try {
+					return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+				} catch (ReflectiveOperationException | RuntimeException e) {
+					logger.warn("Could not create a virtual thread executor, falling back to a fixed thread pool", e);
+				}
+			}
+			return FIXED_THREAD_POOL.createExecutor(maxThreads);
+		}
+	};
+
+	private ExecutorStrategies() {
+	}
+
+	private static Method findVirtualThreadPerTaskExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			logger.debug("Virtual threads are not supported by this JDK");
+			return null;
+		}
+	}
+
+	/**
+	 * A fixed pool of {@code maxThreads} threads, the default of {@link StreamServer}.
+	 * Every connection occupies a thread of the pool for as long as it is open.
+	 *
+	 * @return the strategy
+	 */
+	public static ExecutorStrategy fixedThreadPool() {
+		return FIXED_THREAD_POOL;
+	}
+
+	/**
+	 * One virtual thread per task on JDKs that support virtual threads, a fixed
+	 * pool of {@code maxThreads} threads elsewhere.  With virtual threads the number
+	 * of connections is not limited by {@code maxThreads}, blocking service code does
+	 * not have to change.
+	 * <p>
+	 * The executor can also be passed to {@link JsonRpcBasicServer#setBatchExecutor(java.util.concurrent.Executor)},
+	 * the request threads of the servlet path are managed by the servlet container.
+	 *
+	 * @return the strategy
+	 */
+	public static ExecutorStrategy virtualThreadPerTask() {
+		return VIRTUAL_THREAD_PER_TASK;
+	}
+
+	/**
+	 * @return whether this JDK supports virtual threads
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+}
@@ -0,0 +1,20 @@
+package com.googlecode.jsonrpc4j;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the {@link ExecutorService} a {@link StreamServer} runs its accept loop
+ * and client connections on.  Implementations for common strategies are provided
+ * by {@link ExecutorStrategies}.
+ */
+public interface ExecutorStrategy {
+
+	/**
+	 * Creates the executor.
+	 *
+	 * @param maxThreads the max number of threads requested by the server,
+	 *                   strategies that do not pool threads may ignore it
+	 * @return the executor
+	 */
+	ExecutorService createExecutor(int maxThreads);
+}
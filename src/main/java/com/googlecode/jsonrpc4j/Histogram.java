@@ -0,0 +1,119 @@
+package com.googlecode.jsonrpc4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe histogram of non-negative {@code long} values such as latencies in
+ * nanoseconds.  Values are counted in buckets whose width grows with the value, every
+ * bucket being at most 1/32nd of its lower bound wide, so percentiles are exact to
+ * about 3% across the whole range.  Recording a value is lock free and allocates nothing.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = 64 - SUB_BUCKET_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT * SUB_BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Records a value, negative values are recorded as {@code 0}.
+	 *
+	 * @param value the value
+	 */
+	public void record(long value) {
+		if (value < 0) value = 0;
+		counts.incrementAndGet(indexOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current;
+		while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+			// retry
+		}
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry
+		}
+	}
+
+	static int indexOf(long value) {
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		if (highestBit < SUB_BUCKET_BITS) return (int) value;
+		int bucket = highestBit - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> (bucket - 1)) & (SUB_BUCKET_COUNT - 1);
+		return bucket * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long lowestValueAt(int index) {
+		int bucket = index / SUB_BUCKET_COUNT;
+		int subBucket = index % SUB_BUCKET_COUNT;
+		if (bucket == 0) return subBucket;
+		return (long) (SUB_BUCKET_COUNT + subBucket) << (bucket - 1);
+	}
+
+	static long highestValueAt(int index) {
+		int bucket = index / SUB_BUCKET_COUNT;
+		return bucket == 0 ? lowestValueAt(index) : lowestValueAt(index) + (1L << (bucket - 1)) - 1;
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the smallest value recorded, or {@code 0} if none
+	 */
+	public long getMin() {
+		return count.get() == 0 ? 0 : min.get();
+	}
+
+	/**
+	 * @return the largest value recorded, or {@code 0} if none
+	 */
+	public long getMax() {
+		return count.get() == 0 ? 0 : max.get();
+	}
+
+	/**
+	 * @return the mean of the values recorded, or {@code 0} if none
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded values fall.
+	 *
+	 * @param percentile the percentile, between {@code 0} and {@code 100}
+	 * @return the highest value of the bucket holding the percentile, or {@code 0} if none
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank) return Math.min(highestValueAt(i), getMax());
+		}
+		return getMax();
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", min=" + getMin() + ", mean=" + (long) getMean() + ", p50=" + getValueAtPercentile(50)
+				+ ", p99=" + getValueAtPercentile(99) + ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMax();
+	}
+}
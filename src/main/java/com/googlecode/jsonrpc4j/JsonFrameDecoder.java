@@ -0,0 +1,157 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a stream of UTF-8 encoded bytes into complete top level JSON values
+ * without parsing them.  Bytes are fed in whatever chunks they arrive in, the
+ * decoder remembers the nesting depth and string state between calls so that
+ * every byte is only scanned once.
+ */
+class JsonFrameDecoder {
+
+	private static final int INITIAL_CAPACITY = 512;
+
+	private final int maxFrameSize;
+	private byte[] buffer = new byte[0];
+	private int start;
+	private int position;
+	private int limit;
+	private int depth;
+	private boolean inString;
+	private boolean escaped;
+	private boolean inScalar;
+
+	/**
+	 * @param maxFrameSize the maximum size of a single value in bytes
+	 */
+	JsonFrameDecoder(int maxFrameSize) {
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	/**
+	 * Appends the remaining bytes of the given buffer and collects the values completed by them.
+	 *
+	 * @param input  the bytes read
+	 * @param frames the list the completed values are added to
+	 * @throws IOException if a value exceeds the maximum frame size
+	 */
+	void decode(ByteBuffer input, List<byte[]> frames) throws IOException {
+		append(input);
+		while (position < limit) {
+			byte b = buffer[position];
+			if (inString) {
+				position++;
+				if (escaped) {
+					escaped = false;
+				} else if (b == '\\') {
+					escaped = true;
+				} else if (b == '"') {
+					inString = false;
+					if (depth == 0) frames.add(completeFrame());
+				}
+			} else if (inScalar) {
+				if (isDelimiter(b)) {
+					inScalar = false;
+					frames.add(completeFrame());
+				} else {
+					position++;
+				}
+			} else {
+				position++;
+				switch (b) {
+					case ' ':
+					case '\t':
+					case '\r':
+					case '\n':
+						if (depth == 0) start = position;
+						break;
+					case '{':
+					case '[':
+						depth++;
+						break;
+					case '}':
+					case ']':
+						depth--;
+						if (depth <= 0) {
+							depth = 0;
+							frames.add(completeFrame());
+						}
+						break;
+					case '"':
+						inString = true;
+						break;
+					case ',':
+					case ':':
+						if (depth == 0) frames.add(completeFrame());
+						break;
+					default:
+						if (depth == 0) inScalar = true;
+				}
+			}
+		}
+		if (limit - start > maxFrameSize) {
+			throw new IOException("request exceeds the maximum size of " + maxFrameSize + " bytes");
+		}
+		if (start == limit) {
+			// idle connections should not hold on to the buffer of a large request
+			start = position = limit = 0;
+			if (buffer.length > INITIAL_CAPACITY) buffer = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+	/**
+	 * Returns the incomplete value left over when the stream ended, if any.
+	 *
+	 * @return the remaining bytes or {@code null}
+	 */
+	byte[] finish() {
+		byte[] remaining = start < limit ? Arrays.copyOfRange(buffer, start, limit) : null;
+		start = position = limit = depth = 0;
+		inString = escaped = inScalar = false;
+		return remaining;
+	}
+
+	private static boolean isDelimiter(byte b) {
+		switch (b) {
+			case ' ':
+			case '\t':
+			case '\r':
+			case '\n':
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+			case '"':
+			case ',':
+			case ':':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private byte[] completeFrame() {
+		byte[] frame = Arrays.copyOfRange(buffer, start, position);
+		start = position;
+		return frame;
+	}
+
+	private void append(ByteBuffer input) {
+		int length = input.remaining();
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, limit - start);
+			position -= start;
+			limit -= start;
+			start = 0;
+		}
+		if (limit + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(INITIAL_CAPACITY, Math.max(limit + length, buffer.length * 2)));
+		}
+		input.get(buffer, limit, length);
+		limit += length;
+	}
+}
@@ -1,42 +1,67 @@
 package com.googlecode.jsonrpc4j;
 
 import static com.googlecode.jsonrpc4j.ErrorResolver.JsonError.ERROR_NOT_HANDLED;
-import static com.googlecode.jsonrpc4j.ReflectionUtil.findCandidateMethods;
-import static com.googlecode.jsonrpc4j.ReflectionUtil.getParameterTypes;
 import static com.googlecode.jsonrpc4j.Util.hasNonNullData;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+import com.googlecode.jsonrpc4j.MethodDispatchTable.DispatchKey;
+import com.googlecode.jsonrpc4j.MethodDispatchTable.MethodEntry;
+import com.googlecode.jsonrpc4j.ResultCache.CachedResult;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.lang.reflect.Type;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import net.iharder.Base64;
@@ -71,6 +96,7 @@ public class JsonRpcBasicServer {
 	public static final String NAME = "name";
 	public static final String NULL = "null";
 	private static final Logger logger = LoggerFactory.getLogger(JsonRpcBasicServer.class);
+	private static final JsonNode NULL_ID = TextNode.valueOf(NULL);
 	private static final ErrorResolver DEFAULT_ERROR_RESOLVER = new MultipleErrorResolver(AnnotationsErrorResolver.INSTANCE, DefaultErrorResolver.INSTANCE);
 	private static Class<? extends Annotation> WEB_PARAM_ANNOTATION_CLASS;
 	private static Method WEB_PARAM_NAME_METHOD;
@@ -90,8 +116,16 @@ public class JsonRpcBasicServer {
 	private RequestInterceptor requestInterceptor = null;
 	private ErrorResolver errorResolver = null;
 	private InvocationListener invocationListener = null;
+	private JsonRpcMetrics metrics = null;
+	private BufferPool bufferPool = BufferPool.getDefault();
+	private final List<WireFormat> wireFormats = new CopyOnWriteArrayList<>();
 	private ConvertedParameterTransformer convertedParameterTransformer = null;
 	private boolean shouldLogInvocationErrors = true;
+	private boolean streamingRequestParsing = false;
+	private Executor batchExecutor = null;
+	private int maxBatchConcurrency = Integer.MAX_VALUE;
+	private volatile MethodDispatchTable defaultDispatchTable = null;
+	private final ConcurrentMap<String, MethodDispatchTable> dispatchTables = new ConcurrentHashMap<>();
 
 	/**
 	 * Creates the server with the given {@link ObjectMapper} delegating
@@ -117,7 +151,10 @@ public class JsonRpcBasicServer {
 		this.mapper = mapper;
 		this.handler = handler;
 		this.remoteInterface = remoteInterface;
-		if (handler != null) logger.debug("created server for interface {} with handler {}", remoteInterface, handler.getClass());
+		if (handler != null) {
+			this.defaultDispatchTable = new MethodDispatchTable(getHandlerInterfaces(handler, remoteInterface));
+			logger.debug("created server for interface {} with handler {}", remoteInterface, handler.getClass());
+		}
 	}
 
 	/**
@@ -253,13 +290,117 @@ public class JsonRpcBasicServer {
 	 * @throws IOException on error
 	 */
 	public int handleRequest(final InputStream input, final OutputStream output) throws IOException {
-		final ReadContext readContext = ReadContext.getReadContext(input, mapper);
+		return handleRequest(input, output, WireFormat.JSON, WireFormat.JSON);
+	}
+
+	/**
+	 * Handles a single request like {@link #handleRequest(InputStream, OutputStream)}
+	 * reading and writing the given {@link WireFormat}s.
+	 *
+	 * @param input          the {@link InputStream}
+	 * @param output         the {@link OutputStream}
+	 * @param requestFormat  the format of the request
+	 * @param responseFormat the format of the responses
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	public int handleRequest(final InputStream input, final OutputStream output, final WireFormat requestFormat, final WireFormat responseFormat) throws IOException {
+		if (metrics == null) return readAndHandleRequest(input, output, requestFormat, responseFormat);
+		CountingInputStream countedInput = new CountingInputStream(input);
+		// deferred responses are counted once they are written
+		CountingOutputStream countedOutput = output instanceof DeferredOutputStream ? null : new CountingOutputStream(output);
+		try {
+			return readAndHandleRequest(countedInput, countedOutput != null ? countedOutput : output, requestFormat, responseFormat);
+		} finally {
+			metrics.bytesRead(countedInput.getCount());
+			if (countedOutput != null) metrics.bytesWritten(countedOutput.getCount());
+		}
+	}
+
+	private int readAndHandleRequest(final InputStream input, final OutputStream output, final WireFormat requestFormat, final WireFormat format) throws IOException {
+		final ReadContext readContext = ReadContext.getReadContext(input, mapper, requestFormat);
 		try {
 			readContext.assertReadable();
+			if (streamingRequestParsing && requestInterceptor == null) {
+				return handleStreamedRequest(readContext, output, format).code;
+			}
 			final JsonNode jsonNode = readContext.nextValue();
-			return handleJsonNodeRequest(jsonNode, output).code;
+			return dispatchJsonNode(jsonNode, output, format).code;
 		} catch (JsonParseException e) {
-			return writeAndFlushValueError(output, createResponseError(JSONRPC, NULL, JsonError.PARSE_ERROR)).code;
+			return writeAndFlushError(output, format, JSONRPC, NULL_ID, JsonError.PARSE_ERROR).code;
+		}
+	}
+
+	/**
+	 * Handles a single request like {@link #handleRequest(InputStream, OutputStream)}, but
+	 * does not wait for methods returning a {@link CompletionStage}.  The responses are
+	 * written to the given {@link OutputStream} once all of them are known, by the thread
+	 * completing the last future.  Methods returning a plain {@link Future} are waited for.
+	 *
+	 * @param input  the {@link InputStream}
+	 * @param output the {@link OutputStream}
+	 * @return the future error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	public CompletableFuture<Integer> handleRequestAsync(final InputStream input, final OutputStream output) throws IOException {
+		return handleRequestAsync(input, output, WireFormat.JSON, WireFormat.JSON);
+	}
+
+	/**
+	 * Handles a single request like {@link #handleRequestAsync(InputStream, OutputStream)}
+	 * reading and writing the given {@link WireFormat}s.
+	 *
+	 * @param input          the {@link InputStream}
+	 * @param output         the {@link OutputStream}
+	 * @param requestFormat  the format of the request
+	 * @param responseFormat the format of the responses
+	 * @return the future error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	public CompletableFuture<Integer> handleRequestAsync(final InputStream input, final OutputStream output, final WireFormat requestFormat, final WireFormat responseFormat) throws IOException {
+		final DeferredOutputStream responses = new DeferredOutputStream(bufferPool);
+		int code;
+		try {
+			code = handleRequest(input, responses, requestFormat, responseFormat);
+		} catch (Throwable e) {
+			// nothing will be written, the buffer goes back to the pool
+			responses.release();
+			throw e;
+		}
+		return responses.completion(code).thenApply(new Function<Integer, Integer>() {
+			@Override
+			public Integer apply(Integer result) {
+				try {
+					responses.writeTo(output);
+					output.flush();
+					if (metrics != null) metrics.bytesWritten(responses.size());
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				} finally {
+					responses.release();
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Reads the next request from the given {@link ReadContext} token by token.  Request
+	 * objects are dispatched without building a tree of their parameters, anything else
+	 * is read as a tree and handled by {@link #handleJsonNodeRequest(JsonNode, OutputStream, WireFormat)}.
+	 *
+	 * @param readContext the {@link ReadContext}
+	 * @param output      the {@link OutputStream}
+	 * @param format      the {@link WireFormat} of the responses
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	private JsonError handleStreamedRequest(final ReadContext readContext, final OutputStream output, final WireFormat format) throws IOException {
+		try (JsonParser parser = readContext.createParser()) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return dispatchJsonNode(mapper.readValue(parser, JsonNode.class), output, format);
+			}
+			return handleStreamedObject(StreamedRequest.read(parser, mapper), output, format);
 		}
 	}
 
@@ -270,6 +411,10 @@ public class JsonRpcBasicServer {
 	 * @return the class
 	 */
 	protected Class<?>[] getHandlerInterfaces(final String serviceName) {
+		return getHandlerInterfaces(handler, remoteInterface);
+	}
+
+	private static Class<?>[] getHandlerInterfaces(final Object handler, final Class<?> remoteInterface) {
 		if (remoteInterface != null) {
 			return new Class<?>[] { remoteInterface };
 		} else if (Proxy.isProxyClass(handler.getClass())) {
@@ -279,6 +424,47 @@ public class JsonRpcBasicServer {
 		}
 	}
 
+	/**
+	 * Returns the {@link MethodDispatchTable} of the given service.  The table of the
+	 * handler passed to the constructor is built eagerly, tables of other services
+	 * are built from {@link #getHandlerInterfaces(String)} the first time they are used.
+	 *
+	 * @param serviceName the optional name of a service
+	 * @return the dispatch table
+	 */
+	private MethodDispatchTable getDispatchTable(final String serviceName) {
+		if (serviceName == null) {
+			MethodDispatchTable table = defaultDispatchTable;
+			if (table == null) {
+				table = new MethodDispatchTable(getHandlerInterfaces(null));
+				defaultDispatchTable = table;
+			}
+			return table;
+		}
+		MethodDispatchTable table = dispatchTables.get(serviceName);
+		if (table == null) {
+			table = new MethodDispatchTable(getHandlerInterfaces(serviceName));
+			MethodDispatchTable existing = dispatchTables.putIfAbsent(serviceName, table);
+			if (existing != null) table = existing;
+		}
+		return table;
+	}
+
+	/**
+	 * Rebuilds the dispatch table of the given service.  Subclasses must call this
+	 * whenever the result of {@link #getHandlerInterfaces(String)} changes for a service.
+	 *
+	 * @param serviceName the optional name of a service
+	 */
+	protected void refreshDispatchTable(final String serviceName) {
+		MethodDispatchTable table = new MethodDispatchTable(getHandlerInterfaces(serviceName));
+		if (serviceName == null) {
+			defaultDispatchTable = table;
+		} else {
+			dispatchTables.put(serviceName, table);
+		}
+	}
+
 	/**
 	 * Handles the given {@link JsonNode} and writes the responses to the given {@link OutputStream}.
 	 *
@@ -288,39 +474,178 @@ public class JsonRpcBasicServer {
 	 * @throws IOException on error
 	 */
 	protected JsonError handleJsonNodeRequest(final JsonNode node, final OutputStream output) throws IOException {
-		if (node.isArray()) return handleArray(ArrayNode.class.cast(node), output);
-		if (node.isObject()) return handleObject(ObjectNode.class.cast(node), output);
-		return this.writeAndFlushValueError(output, this.createResponseError(VERSION, NULL, JsonError.INVALID_REQUEST));
+		return handleJsonNodeRequest(node, output, WireFormat.JSON);
+	}
+
+	/**
+	 * Handles the given {@link JsonNode} and writes the responses to the given {@link OutputStream}
+	 * in the given {@link WireFormat}.
+	 *
+	 * @param node   the {@link JsonNode}
+	 * @param output the {@link OutputStream}
+	 * @param format the {@link WireFormat} of the responses
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	protected JsonError handleJsonNodeRequest(final JsonNode node, final OutputStream output, final WireFormat format) throws IOException {
+		if (node.isArray()) return handleArray(ArrayNode.class.cast(node), output, format);
+		if (node.isObject()) return handleObject(ObjectNode.class.cast(node), output, format);
+		return writeAndFlushError(output, format, VERSION, NULL_ID, JsonError.INVALID_REQUEST);
+	}
+
+	/**
+	 * Hands a request to {@link #handleJsonNodeRequest(JsonNode, OutputStream)} if its responses
+	 * are JSON text, so that subclasses overriding it still see every request, and to
+	 * {@link #handleJsonNodeRequest(JsonNode, OutputStream, WireFormat)} otherwise.
+	 */
+	private JsonError dispatchJsonNode(final JsonNode node, final OutputStream output, final WireFormat format) throws IOException {
+		if (format == WireFormat.JSON) return handleJsonNodeRequest(node, output);
+		return handleJsonNodeRequest(node, output, format);
 	}
 
 	/**
 	 * Handles the given {@link ArrayNode} and writes the
-	 * responses to the given {@link OutputStream}.
+	 * responses to the given {@link OutputStream}.  Notifications
+	 * have no element in the response array.
 	 *
 	 * @param node   the {@link JsonNode}
 	 * @param output the {@link OutputStream}
+	 * @param format the {@link WireFormat} of the responses
 	 * @return the error code, or {@code 0} if none
 	 * @throws IOException on error
 	 */
-	private JsonError handleArray(ArrayNode node, OutputStream output) throws IOException {
+	private JsonError handleArray(ArrayNode node, OutputStream output, WireFormat format) throws IOException {
+		if (output instanceof DeferredOutputStream) ((DeferredOutputStream) output).markBatch();
+		if (metrics != null) metrics.batchReceived(node.size());
+		if (batchExecutor != null && node.size() > 1) return handleArrayInParallel(node, output, format);
 		logger.debug("Handling {} requests", node.size());
 		JsonError result = JsonError.OK;
-		output.write('[');
+		format.writeBatchStart(output);
 		int errorCount = 0;
+		boolean written = false;
 		for (int i = 0; i < node.size(); i++) {
-			JsonError nodeResult = handleJsonNodeRequest(node.get(i), output);
+			OutputStream response = createElementStream(output);
+			JsonError nodeResult = dispatchJsonNode(node.get(i), response, format.getElementFormat());
 			if (isError(nodeResult)) {
 				result = JsonError.BULK_ERROR;
 				errorCount += 1;
 			}
-			if (i != node.size() - 1) output.write(',');
+			written |= appendElement(output, format, response, written);
 		}
-		output.write(']');
+		format.writeBatchEnd(output);
 		logger.debug("served {} requests, error {}, result {}", node.size(), errorCount, result);
 		// noinspection unchecked
 		return result;
 	}
 
+	/**
+	 * Handles the elements of the given {@link ArrayNode} concurrently on the batch
+	 * {@link Executor} and writes the responses to the given {@link OutputStream} in
+	 * the order of the requests.  At most {@code maxBatchConcurrency} elements are
+	 * handled at the same time, the calling thread takes part in the work so that the
+	 * batch completes even if the executor rejects or delays the tasks.
+	 *
+	 * @param node   the {@link JsonNode}
+	 * @param output the {@link OutputStream}
+	 * @param format the {@link WireFormat} of the responses
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	private JsonError handleArrayInParallel(final ArrayNode node, final OutputStream output, final WireFormat format) throws IOException {
+		final int size = node.size();
+		logger.debug("Handling {} requests in parallel", size);
+		final OutputStream[] responses = new OutputStream[size];
+		final JsonError[] results = new JsonError[size];
+		final Throwable[] failures = new Throwable[size];
+		final AtomicInteger nextIndex = new AtomicInteger();
+		final CountDownLatch completed = new CountDownLatch(size);
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int index;
+				while ((index = nextIndex.getAndIncrement()) < size) {
+					OutputStream response = createElementStream(output);
+					try {
+						results[index] = dispatchJsonNode(node.get(index), response, format.getElementFormat());
+					} catch (Throwable e) {
+						failures[index] = e;
+					} finally {
+						responses[index] = response;
+						completed.countDown();
+					}
+				}
+			}
+		};
+		int workers = Math.min(size, Math.max(1, maxBatchConcurrency));
+		for (int i = 1; i < workers; i++) {
+			try {
+				batchExecutor.execute(worker);
+			} catch (RejectedExecutionException e) {
+				logger.debug("batch executor rejected worker {} of {}", i, workers);
+				break;
+			}
+		}
+		worker.run();
+		try {
+			completed.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for batch requests");
+		}
+
+		JsonError result = JsonError.OK;
+		int errorCount = 0;
+		boolean written = false;
+		format.writeBatchStart(output);
+		for (int i = 0; i < size; i++) {
+			written |= appendElement(output, format, responses[i], written);
+			if (failures[i] != null) rethrow(failures[i]);
+			if (isError(results[i])) {
+				result = JsonError.BULK_ERROR;
+				errorCount += 1;
+			}
+		}
+		format.writeBatchEnd(output);
+		logger.debug("served {} requests, error {}, result {}", size, errorCount, result);
+		return result;
+	}
+
+	private static OutputStream createElementStream(OutputStream output) {
+		return output instanceof DeferredOutputStream ? new DeferredOutputStream() : new ByteArrayOutputStream();
+	}
+
+	/**
+	 * Appends the response to an element of a batch, if there is one.
+	 *
+	 * @param output   the {@link OutputStream} of the batch
+	 * @param format   the {@link WireFormat} of the responses
+	 * @param response the stream made by {@link #createElementStream(OutputStream)}
+	 * @param separate whether a response has been appended before
+	 * @return {@code true} if a response was appended
+	 * @throws IOException on error
+	 */
+	private static boolean appendElement(OutputStream output, WireFormat format, OutputStream response, boolean separate) throws IOException {
+		if (response instanceof DeferredOutputStream) {
+			DeferredOutputStream deferred = (DeferredOutputStream) response;
+			if (deferred.isEmpty()) return false;
+			if (separate) format.writeBatchSeparator(output);
+			((DeferredOutputStream) output).append(deferred);
+		} else {
+			ByteArrayOutputStream buffered = (ByteArrayOutputStream) response;
+			if (buffered.size() == 0) return false;
+			if (separate) format.writeBatchSeparator(output);
+			buffered.writeTo(output);
+		}
+		return true;
+	}
+
+	private static void rethrow(Throwable e) throws IOException {
+		if (e instanceof IOException) throw (IOException) e;
+		if (e instanceof RuntimeException) throw (RuntimeException) e;
+		if (e instanceof Error) throw (Error) e;
+		throw new UndeclaredThrowableException(e);
+	}
+
 	private boolean isError(JsonError result) {
 		return result.code != JsonError.OK.code;
 	}
@@ -331,46 +656,234 @@ public class JsonRpcBasicServer {
 	 *
 	 * @param node   the {@link JsonNode}
 	 * @param output the {@link OutputStream}
+	 * @param format the {@link WireFormat} of the responses
 	 * @return the error code, or {@code 0} if none
 	 * @throws IOException on error
 	 */
-	private JsonError handleObject(final ObjectNode node, final OutputStream output) throws IOException {
+	private JsonError handleObject(final ObjectNode node, final OutputStream output, final WireFormat format) throws IOException {
 		logger.debug("Request: {}", node);
 
 		if (!isValidRequest(node))
-			return writeAndFlushValueError(output, createResponseError(VERSION, NULL, JsonError.INVALID_REQUEST));
-		Object id = parseId(node.get(ID));
+			return writeAndFlushError(output, format, VERSION, NULL_ID, JsonError.INVALID_REQUEST);
+		JsonNode id = readId(node.get(ID));
 
 		String jsonRpc = hasNonNullData(node, JSONRPC) ? node.get(JSONRPC).asText() : VERSION;
 		if (!hasNonNullData(node, METHOD))
-			return writeAndFlushValueError(output, createResponseError(jsonRpc, id, JsonError.METHOD_NOT_FOUND));
+			return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_NOT_FOUND);
 
 		final String fullMethodName = node.get(METHOD).asText();
 		final String partialMethodName = getMethodName(fullMethodName);
 		final String serviceName = getServiceName(fullMethodName);
 
-		Set<Method> methods = findCandidateMethods(getHandlerInterfaces(serviceName), partialMethodName);
+		MethodDispatchTable dispatchTable = getDispatchTable(serviceName);
+		List<MethodEntry> methods = dispatchTable.getMethods(partialMethodName);
+		if (methods.isEmpty())
+			return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_NOT_FOUND);
+		AMethodWithItsArgs methodArgs = findBestMethodByParamsNode(dispatchTable, partialMethodName, methods, node.get(PARAMS));
+		if (methodArgs == null) return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_PARAMS_INVALID);
+		return invokeAndWriteResponse(output, format, node, id, jsonRpc, fullMethodName, serviceName, methodArgs);
+	}
+
+	/**
+	 * Handles the given {@link StreamedRequest} and writes the response to the given
+	 * {@link OutputStream}.  Requests whose overloads can only be told apart by the
+	 * types of their parameter values are handed to {@link #handleObject(ObjectNode, OutputStream, WireFormat)}.
+	 *
+	 * @param request the {@link StreamedRequest}
+	 * @param output  the {@link OutputStream}
+	 * @param format  the {@link WireFormat} of the responses
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	private JsonError handleStreamedObject(final StreamedRequest request, final OutputStream output, final WireFormat format) throws IOException {
+		logger.debug("Request: {}", request);
+
+		if (backwardsCompatible && !request.hasMethodAndVersion())
+			return writeAndFlushError(output, format, VERSION, NULL_ID, JsonError.INVALID_REQUEST);
+		JsonNode id = readId(request.id);
+
+		String jsonRpc = isNullNodeOrValue(request.jsonRpc) ? VERSION : request.jsonRpc.asText();
+		if (isNullNodeOrValue(request.method))
+			return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_NOT_FOUND);
+
+		final String fullMethodName = request.method.asText();
+		final String partialMethodName = getMethodName(fullMethodName);
+		final String serviceName = getServiceName(fullMethodName);
+
+		MethodDispatchTable dispatchTable = getDispatchTable(serviceName);
+		List<MethodEntry> methods = dispatchTable.getMethods(partialMethodName);
 		if (methods.isEmpty())
-			return writeAndFlushValueError(output, createResponseError(jsonRpc, id, JsonError.METHOD_NOT_FOUND));
-		AMethodWithItsArgs methodArgs = findBestMethodByParamsNode(methods, node.get(PARAMS));
-		if (methodArgs == null) return writeAndFlushValueError(output, createResponseError(jsonRpc, id, JsonError.METHOD_PARAMS_INVALID));
-		try (InvokeListenerHandler handler = new InvokeListenerHandler(methodArgs, invocationListener)) {
+			return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_NOT_FOUND);
+
+		List<MethodEntry> matchedMethods;
+		AMethodWithItsArgs methodArgs = null;
+		if (request.positionalParams != null) {
+			int paramCount = request.positionalParams.size();
+			matchedMethods = resolveByParamCount(dispatchTable, partialMethodName, methods, paramCount);
+			if (matchedMethods.size() == 1 || (paramCount == 0 && !matchedMethods.isEmpty())) {
+				methodArgs = new AMethodWithItsArgs(mapper, matchedMethods.get(0), request.positionalParams);
+			}
+		} else if (request.namedParams != null) {
+			matchedMethods = resolveByParamNames(dispatchTable, partialMethodName, methods, request.namedParams.keySet());
+			if (matchedMethods.size() == 1) {
+				methodArgs = new AMethodWithItsArgs(mapper, matchedMethods.get(0), request.namedParams);
+			}
+		} else if (hasNoParameters(request.params)) {
+			matchedMethods = resolveByParamCount(dispatchTable, partialMethodName, methods, 0);
+			if (!matchedMethods.isEmpty()) {
+				methodArgs = new AMethodWithItsArgs(mapper, matchedMethods.get(0), Collections.<TokenBuffer>emptyList());
+			}
+		} else {
+			matchedMethods = null;
+		}
+		if (matchedMethods != null && matchedMethods.isEmpty())
+			return writeAndFlushError(output, format, jsonRpc, id, JsonError.METHOD_PARAMS_INVALID);
+		if (methodArgs == null) return handleObject(request.toObjectNode(mapper), output, format);
+		return invokeAndWriteResponse(output, format, null, id, jsonRpc, fullMethodName, serviceName, methodArgs);
+	}
+
+	/**
+	 * Invokes the resolved method and writes the response to the given {@link OutputStream}.
+	 *
+	 * @param output      the {@link OutputStream}
+	 * @param format      the {@link WireFormat} of the responses
+	 * @param node        the request passed to the {@link RequestInterceptor}, {@code null} for streamed requests
+	 * @param id          the id of the request
+	 * @param jsonRpc     the version string
+	 * @param methodName  the name the method was called by, with the service prefix
+	 * @param serviceName the optional name of the service
+	 * @param methodArgs  the method and its arguments
+	 * @return the error code, or {@code 0} if none
+	 * @throws IOException on error
+	 */
+	private JsonError invokeAndWriteResponse(OutputStream output, WireFormat format, ObjectNode node, JsonNode id, String jsonRpc, String methodName, String serviceName, AMethodWithItsArgs methodArgs) throws IOException {
+		try (InvokeListenerHandler handler = new InvokeListenerHandler(methodName, methodArgs, invocationListener, metrics)) {
 			try {
-				if (this.requestInterceptor != null) this.requestInterceptor.interceptRequest(node);
-				handler.result = invoke(getHandler(serviceName), methodArgs.method, methodArgs.arguments);
-				if (!isNotificationRequest(id)) {
-					ObjectNode response = createResponseSuccess(jsonRpc, id, handler.result);
-					writeAndFlushValue(output, response);
+				if (this.requestInterceptor != null && node != null) this.requestInterceptor.interceptRequest(node);
+				JsonNode cacheKey = methodArgs.entry.resultCache != null ? methodArgs.getCacheKey() : null;
+				CachedResult cached = cacheKey != null ? methodArgs.entry.resultCache.get(cacheKey) : null;
+				if (cached != null) {
+					writeCachedResult(output, format, handler, id, jsonRpc, cached);
+					return JsonError.OK;
 				}
+				Object result = invoke(getHandler(serviceName), methodArgs);
+				if (methodArgs.entry.async && result instanceof CompletionStage && output instanceof DeferredOutputStream) {
+					return deferResponse((DeferredOutputStream) output, format, handler, id, jsonRpc, methodArgs, cacheKey, (CompletionStage<?>) result);
+				}
+				if (methodArgs.entry.async) result = awaitResult(result);
+				writeInvocationResult(output, format, handler, id, jsonRpc, methodArgs, cacheKey, result);
 				return JsonError.OK;
 			} catch (Throwable e) {
 				handler.error = e;
-				return handleError(output, id, jsonRpc, methodArgs, e);
+				return handleError(output, format, id, jsonRpc, methodArgs, e);
 			}
 		}
 	}
 
-	private JsonError handleError(OutputStream output, Object id, String jsonRpc, AMethodWithItsArgs methodArgs, Throwable e) throws IOException {
+	/**
+	 * Writes the response to an asynchronous method once the future it returned completes.
+	 *
+	 * @param output     the {@link DeferredOutputStream} the response is reserved in
+	 * @param format     the {@link WireFormat} of the responses
+	 * @param handler    the listener notification, sent when the future completes
+	 * @param id         the id of the request
+	 * @param jsonRpc    the version string
+	 * @param methodArgs the method and its arguments
+	 * @param cacheKey   the key the result is cached under, {@code null} if it is not cached
+	 * @param stage      the future returned by the method
+	 * @return {@link JsonError#OK}, the error of the response is known later
+	 */
+	private JsonError deferResponse(DeferredOutputStream output, final WireFormat format, final InvokeListenerHandler handler, final JsonNode id, final String jsonRpc, final AMethodWithItsArgs methodArgs, final JsonNode cacheKey, CompletionStage<?> stage) {
+		handler.deferred = true;
+		final OutputStream response = isNotificationRequest(id) ? new ByteArrayOutputStream() : output.reserve();
+		output.defer(stage.handle(new BiFunction<Object, Throwable, JsonError>() {
+			@Override
+			public JsonError apply(Object result, Throwable failure) {
+				try {
+					if (failure != null) throw failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+					writeInvocationResult(response, format, handler, id, jsonRpc, methodArgs, cacheKey, result);
+					return JsonError.OK;
+				} catch (Throwable e) {
+					handler.error = e;
+					try {
+						return writeError(isNotificationRequest(id) ? new ByteArrayOutputStream() : response, format, id, jsonRpc, methodArgs, e);
+					} catch (IOException ioe) {
+						logger.error("Failed to write the error response", ioe);
+						return JsonError.INTERNAL_ERROR;
+					}
+				} finally {
+					handler.notifyListener();
+				}
+			}
+		}).toCompletableFuture());
+		return JsonError.OK;
+	}
+
+	/**
+	 * Writes the result of an invocation, caching it first if the method is {@link JsonRpcCacheable}.
+	 *
+	 * @param output     the {@link OutputStream}
+	 * @param format     the {@link WireFormat} of the responses
+	 * @param handler    the listener notification, given the result
+	 * @param id         the id of the request
+	 * @param jsonRpc    the version string
+	 * @param methodArgs the method and its arguments
+	 * @param cacheKey   the key the result is cached under, {@code null} if it is not cached
+	 * @param result     the result
+	 * @throws IOException on error
+	 */
+	private void writeInvocationResult(OutputStream output, WireFormat format, InvokeListenerHandler handler, JsonNode id, String jsonRpc, AMethodWithItsArgs methodArgs, JsonNode cacheKey, Object result) throws IOException {
+		if (cacheKey != null) {
+			CachedResult cached = new CachedResult(mapper, methodArgs.entry.getResultWriter(mapper), result);
+			methodArgs.entry.resultCache.put(cacheKey, cached);
+			writeCachedResult(output, format, handler, id, jsonRpc, cached);
+		} else if (invocationListener != null) {
+			handler.result = hasReturnValue(methodArgs.method) ? mapper.valueToTree(result) : null;
+			if (!isNotificationRequest(id)) writeAndFlushResult(output, format, jsonRpc, id, mapper.writer(), handler.result);
+		} else if (!isNotificationRequest(id)) {
+			writeAndFlushResult(output, format, jsonRpc, id, methodArgs.entry.getResultWriter(mapper), result);
+		}
+	}
+
+	private void writeCachedResult(OutputStream output, WireFormat format, InvokeListenerHandler handler, JsonNode id, String jsonRpc, CachedResult cached) throws IOException {
+		if (invocationListener != null) handler.result = cached.toTree(mapper);
+		if (isNotificationRequest(id)) return;
+		logger.debug("Response: id {}, cached result", id);
+		JsonGenerator generator = createGenerator(output, format);
+		generator.writeStartObject();
+		generator.writeStringField(JSONRPC, jsonRpc);
+		writeId(generator, id);
+		generator.writeFieldName(RESULT);
+		cached.writeTo(mapper, format, generator);
+		generator.writeEndObject();
+		generator.close();
+		format.writeTerminator(output);
+	}
+
+	/**
+	 * Waits for the result of an asynchronous method.
+	 *
+	 * @param result the future returned by the method
+	 * @return the value of the future
+	 * @throws Throwable the exception the future completed with
+	 */
+	private Object awaitResult(Object result) throws Throwable {
+		if (result == null) return null;
+		Future<?> future = result instanceof CompletionStage ? ((CompletionStage<?>) result).toCompletableFuture() : (Future<?>) result;
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() != null ? e.getCause() : e;
+		}
+	}
+
+	private JsonError handleError(OutputStream output, WireFormat format, JsonNode id, String jsonRpc, AMethodWithItsArgs methodArgs, Throwable e) throws IOException {
+		JsonError error = writeError(output, format, id, jsonRpc, methodArgs, e);
+		if (rethrowExceptions) { throw new RuntimeException(getException(e)); }
+		return error;
+	}
+
+	private JsonError writeError(OutputStream output, WireFormat format, JsonNode id, String jsonRpc, AMethodWithItsArgs methodArgs, Throwable e) throws IOException {
 		Throwable unwrappedException = getException(e);
 
 		if (shouldLogInvocationErrors) {
@@ -378,8 +891,7 @@ public class JsonRpcBasicServer {
 		}
 
 		JsonError error = resolveError(methodArgs, unwrappedException);
-		writeAndFlushValueError(output, createResponseError(jsonRpc, id, error));
-		if (rethrowExceptions) { throw new RuntimeException(unwrappedException); }
+		writeAndFlushError(output, format, jsonRpc, id, error);
 		return error;
 	}
 
@@ -399,14 +911,14 @@ public class JsonRpcBasicServer {
 	private JsonError resolveError(AMethodWithItsArgs methodArgs, Throwable e) {
 		JsonError error;
 		final ErrorResolver currentResolver = errorResolver == null ? DEFAULT_ERROR_RESOLVER : errorResolver;
-		error = currentResolver.resolveError(e, methodArgs.method, methodArgs.arguments);
+		error = currentResolver.resolveError(e, methodArgs.method, methodArgs.getArguments());
 		if (error == null) {
 			error = new JsonError(ERROR_NOT_HANDLED.code, e.getMessage(), e.getClass().getName());
 		}
 		return error;
 	}
 
-	private boolean isNotificationRequest(Object id) {
+	private boolean isNotificationRequest(JsonNode id) {
 		return id == null;
 	}
 
@@ -455,117 +967,79 @@ public class JsonRpcBasicServer {
 	 * the given params (after converting them to beans\objects)
 	 * to it.
 	 *
-	 * @param target optional service name used to locate the target object
-	 *               to invoke the Method on
-	 * @param method      the method to invoke
-	 * @param params the params to pass to the method
+	 * @param target     optional service name used to locate the target object
+	 *                   to invoke the Method on
+	 * @param methodArgs the method to invoke and the params to pass to it
 	 * @return the return value (or null if no return)
 	 * @throws IOException               on error
 	 * @throws IllegalAccessException    on error
 	 * @throws InvocationTargetException on error
 	 */
-	private JsonNode invoke(Object target, Method method, List<JsonNode> params) throws IOException, IllegalAccessException, InvocationTargetException {
-		logger.debug("Invoking method: {} with args {}", method.getName(), params);
-		Object[] convertedParams = convertJsonToParameters(method, params);
+	private Object invoke(Object target, AMethodWithItsArgs methodArgs) throws IOException, IllegalAccessException, InvocationTargetException {
+		final Method method = methodArgs.method;
+		logger.debug("Invoking method: {} with args {}", method.getName(), methodArgs);
+		Object[] convertedParams = methodArgs.bufferedArguments == null ?
+				convertJsonToParameters(methodArgs.entry, methodArgs.arguments) :
+				convertBufferedParameters(methodArgs.entry, methodArgs.bufferedArguments);
 		if (convertedParameterTransformer != null) {
 			convertedParams = convertedParameterTransformer.transformConvertedParameters(target, convertedParams);
 		}
-		Object result = method.invoke(target, convertedParams);
+		Object result = methodArgs.invoker.invoke(target, convertedParams);
 		logger.debug("Invoked method: {}, result {}", method.getName(), result);
-		return hasReturnValue(method) ? mapper.valueToTree(result) : null;
+		return result;
 	}
 
 	private boolean hasReturnValue(Method m) {
 		return m.getGenericReturnType() != null;
 	}
 
-	private Object[] convertJsonToParameters(Method m, List<JsonNode> params) throws IOException {
+	private Object[] convertJsonToParameters(MethodEntry entry, List<JsonNode> params) throws IOException {
 		Object[] convertedParams = new Object[params.size()];
-		Type[] parameterTypes = m.getGenericParameterTypes();
+		ObjectReader[] parameterReaders = entry.getParameterReaders(mapper);
 
-		for (int i = 0; i < parameterTypes.length; i++) {
+		for (int i = 0; i < parameterReaders.length; i++) {
 			JsonParser paramJsonParser = mapper.treeAsTokens(params.get(i));
-			JavaType paramJavaType = mapper.getTypeFactory().constructType(parameterTypes[i]);
-			convertedParams[i] = mapper.readValue(paramJsonParser, paramJavaType);
+			convertedParams[i] = parameterReaders[i].readValue(paramJsonParser);
 		}
 		return convertedParams;
 	}
 
 	/**
-	 * Convenience method for creating an error response.
+	 * Binds buffered parameters directly to the parameter types of the given method.
+	 * Missing parameters are represented by {@code null} buffers and bound like a JSON {@code null}.
 	 *
-	 * @param jsonRpc the jsonrpc string
-	 * @param id      the id
-	 * @param errorObject    the error data (if any)
-	 * @return the error response
-	 */
-	private ErrorObjectWithJsonError createResponseError(String jsonRpc, Object id, JsonError errorObject) {
-		ObjectNode response = mapper.createObjectNode();
-		ObjectNode error = mapper.createObjectNode();
-		error.put(ERROR_CODE, errorObject.code);
-		error.put(ERROR_MESSAGE, errorObject.message);
-		if (errorObject.data != null) {
-			error.set(DATA, mapper.valueToTree(errorObject.data));
-		}
-		response.put(JSONRPC, jsonRpc);
-		if (Integer.class.isInstance(id)) {
-			response.put(ID, Integer.class.cast(id).intValue());
-		} else if (Long.class.isInstance(id)) {
-			response.put(ID, Long.class.cast(id).longValue());
-		} else if (Float.class.isInstance(id)) {
-			response.put(ID, Float.class.cast(id).floatValue());
-		} else if (Double.class.isInstance(id)) {
-			response.put(ID, Double.class.cast(id).doubleValue());
-		} else if (BigDecimal.class.isInstance(id)) {
-			response.put(ID, BigDecimal.class.cast(id));
-		} else {
-			response.put(ID, String.class.cast(id));
-		}
-		response.set(ERROR, error);
-		return new ErrorObjectWithJsonError(response, errorObject);
-	}
+	 * @param entry  the method
+	 * @param params the buffered params
+	 * @return the converted params
+	 * @throws IOException on error
+	 */
+	private Object[] convertBufferedParameters(MethodEntry entry, List<TokenBuffer> params) throws IOException {
+		Object[] convertedParams = new Object[params.size()];
+		ObjectReader[] parameterReaders = entry.getParameterReaders(mapper);
 
-	/**
-	 * Creates a success response.
-	 *
-	 * @param jsonRpc the version string
-	 * @param id the id of the request
-	 * @param result the result object
-	 * @return the response object
-	 */
-	private ObjectNode createResponseSuccess(String jsonRpc, Object id, JsonNode result) {
-		ObjectNode response = mapper.createObjectNode();
-		response.put(JSONRPC, jsonRpc);
-		if (Integer.class.isInstance(id)) {
-			response.put(ID, Integer.class.cast(id).intValue());
-		} else if (Long.class.isInstance(id)) {
-			response.put(ID, Long.class.cast(id).longValue());
-		} else if (Float.class.isInstance(id)) {
-			response.put(ID, Float.class.cast(id).floatValue());
-		} else if (Double.class.isInstance(id)) {
-			response.put(ID, Double.class.cast(id).doubleValue());
-		} else if (BigDecimal.class.isInstance(id)) {
-			response.put(ID, BigDecimal.class.cast(id));
-		} else {
-			response.put(ID, String.class.cast(id));
+		for (int i = 0; i < parameterReaders.length; i++) {
+			TokenBuffer param = params.get(i);
+			JsonParser paramJsonParser = param == null ? mapper.treeAsTokens(NullNode.getInstance()) : param.asParser(mapper);
+			convertedParams[i] = parameterReaders[i].readValue(paramJsonParser);
 		}
-		response.set(RESULT, result);
-		return response;
+		return convertedParams;
 	}
 
 	/**
-	 * Finds the {@link Method} from the supplied {@link Set} that
+	 * Finds the {@link Method} from the supplied candidates that
 	 * best matches the rest of the arguments supplied and returns
 	 * it as a {@link AMethodWithItsArgs} class.
 	 *
-	 * @param methods    the {@link Method}s
-	 * @param paramsNode the {@link JsonNode} passed as the parameters
+	 * @param dispatchTable the {@link MethodDispatchTable} the candidates belong to
+	 * @param methodName    the method name
+	 * @param methods       the candidate methods
+	 * @param paramsNode    the {@link JsonNode} passed as the parameters
 	 * @return the {@link AMethodWithItsArgs}
 	 */
-	private AMethodWithItsArgs findBestMethodByParamsNode(Set<Method> methods, JsonNode paramsNode) {
-		if (hasNoParameters(paramsNode)) return findBestMethodUsingParamIndexes(methods, 0, null);
-		if (paramsNode.isArray()) return findBestMethodUsingParamIndexes(methods, paramsNode.size(), ArrayNode.class.cast(paramsNode));
-		if (paramsNode.isObject()) return findBestMethodUsingParamNames(methods, collectFieldNames(paramsNode), ObjectNode.class.cast(paramsNode));
+	private AMethodWithItsArgs findBestMethodByParamsNode(MethodDispatchTable dispatchTable, String methodName, List<MethodEntry> methods, JsonNode paramsNode) {
+		if (hasNoParameters(paramsNode)) return findBestMethodUsingParamIndexes(dispatchTable, methodName, methods, 0, null);
+		if (paramsNode.isArray()) return findBestMethodUsingParamIndexes(dispatchTable, methodName, methods, paramsNode.size(), ArrayNode.class.cast(paramsNode));
+		if (paramsNode.isObject()) return findBestMethodUsingParamNames(dispatchTable, methodName, methods, collectFieldNames(paramsNode), ObjectNode.class.cast(paramsNode));
 		throw new IllegalArgumentException("Unknown params node type: " + paramsNode.toString());
 	}
 
@@ -583,31 +1057,59 @@ public class JsonRpcBasicServer {
 	}
 
 	/**
-	 * Finds the {@link Method} from the supplied {@link Set} that
+	 * Encodes the parameter count settings so that they can be part of a {@link DispatchKey}.
+	 *
+	 * @return the parameter count policy
+	 */
+	private int getParamCountPolicy() {
+		return (allowExtraParams ? 1 : 0) | (allowLessParams ? 2 : 0);
+	}
+
+	/**
+	 * Finds the {@link Method} from the supplied candidates that
 	 * best matches the rest of the arguments supplied and returns
 	 * it as a {@link AMethodWithItsArgs} class.
 	 *
-	 * @param methods    the {@link Method}s
-	 * @param paramCount the number of expect parameters
-	 * @param paramNodes the parameters for matching types
+	 * @param dispatchTable the {@link MethodDispatchTable} the candidates belong to
+	 * @param methodName    the method name
+	 * @param methods       the candidate methods
+	 * @param paramCount    the number of expect parameters
+	 * @param paramNodes    the parameters for matching types
 	 * @return the {@link AMethodWithItsArgs}
 	 */
-	private AMethodWithItsArgs findBestMethodUsingParamIndexes(Set<Method> methods, int paramCount, ArrayNode paramNodes) {
+	private AMethodWithItsArgs findBestMethodUsingParamIndexes(MethodDispatchTable dispatchTable, String methodName, List<MethodEntry> methods, int paramCount, ArrayNode paramNodes) {
 		int numParams = isNullNodeOrValue(paramNodes) ? 0 : paramNodes.size();
-		int bestParamNumDiff = Integer.MAX_VALUE;
-		Set<Method> matchedMethods = collectMethodsMatchingParamCount(methods, paramCount, bestParamNumDiff);
+		List<MethodEntry> matchedMethods = resolveByParamCount(dispatchTable, methodName, methods, paramCount);
 		if (matchedMethods.isEmpty()) return null;
-		Method bestMethod = getBestMatchingArgTypeMethod(paramNodes, numParams, matchedMethods);
+		MethodEntry bestMethod = getBestMatchingArgTypeMethod(paramNodes, numParams, matchedMethods);
 		return new AMethodWithItsArgs(bestMethod, paramCount, paramNodes);
 	}
 
-	private Method getBestMatchingArgTypeMethod(ArrayNode paramNodes, int numParams, Set<Method> matchedMethods) {
-		if (matchedMethods.size() == 1 || numParams == 0) return matchedMethods.iterator().next();
-		Method bestMethod = null;
+	/**
+	 * Returns the candidates whose parameter count is closest to the given count,
+	 * remembering the outcome in the {@link MethodDispatchTable}.
+	 *
+	 * @param dispatchTable the {@link MethodDispatchTable} the candidates belong to
+	 * @param methodName    the method name
+	 * @param methods       the candidate methods
+	 * @param paramCount    the number of positional parameters
+	 * @return the matching methods
+	 */
+	private List<MethodEntry> resolveByParamCount(MethodDispatchTable dispatchTable, String methodName, List<MethodEntry> methods, int paramCount) {
+		DispatchKey key = new DispatchKey(methodName, paramCount, null, getParamCountPolicy());
+		List<MethodEntry> matchedMethods = dispatchTable.getResolution(key);
+		if (matchedMethods == null) {
+			matchedMethods = dispatchTable.putResolution(key, collectMethodsMatchingParamCount(methods, paramCount, Integer.MAX_VALUE));
+		}
+		return matchedMethods;
+	}
+
+	private MethodEntry getBestMatchingArgTypeMethod(ArrayNode paramNodes, int numParams, List<MethodEntry> matchedMethods) {
+		if (matchedMethods.size() == 1 || numParams == 0) return matchedMethods.get(0);
+		MethodEntry bestMethod = null;
 		int mostMatches = Integer.MIN_VALUE;
-		for (Method method : matchedMethods) {
-			List<Class<?>> parameterTypes = getParameterTypes(method);
-			int numMatches = getNumArgTypeMatches(paramNodes, numParams, parameterTypes);
+		for (MethodEntry method : matchedMethods) {
+			int numMatches = getNumArgTypeMatches(paramNodes, numParams, method.parameterTypes);
 			if (hasMoreMatches(mostMatches, numMatches)) {
 				mostMatches = numMatches;
 				bestMethod = method;
@@ -626,12 +1128,11 @@ public class JsonRpcBasicServer {
 		return numMatches;
 	}
 
-	private Set<Method> collectMethodsMatchingParamCount(Set<Method> methods, int paramCount, int bestParamNumDiff) {
-		Set<Method> matchedMethods = new HashSet<>();
+	private List<MethodEntry> collectMethodsMatchingParamCount(List<MethodEntry> methods, int paramCount, int bestParamNumDiff) {
+		List<MethodEntry> matchedMethods = new ArrayList<>();
 		// check every method
-		for (Method method : methods) {
-			Class<?>[] paramTypes = method.getParameterTypes();
-			final int paramNumDiff = paramTypes.length - paramCount;
+		for (MethodEntry method : methods) {
+			final int paramNumDiff = method.parameterTypes.size() - paramCount;
 			if (hasLessOrEqualAbsParamDiff(bestParamNumDiff, paramNumDiff) && acceptParamCount(paramNumDiff)) {
 				if (hasLessAbsParamDiff(bestParamNumDiff, paramNumDiff)) matchedMethods.clear();
 				matchedMethods.add(method);
@@ -666,30 +1167,97 @@ public class JsonRpcBasicServer {
 	}
 
 	/**
-	 * Finds the {@link Method} from the supplied {@link Set} that best matches the rest of the arguments supplied and
+	 * Finds the {@link Method} from the supplied candidates that best matches the rest of the arguments supplied and
 	 * returns it as a {@link AMethodWithItsArgs} class.
 	 *
-	 * @param methods the {@link Method}s
-	 * @param paramNames the parameter allNames
-	 * @param paramNodes the parameters for matching types
+	 * @param dispatchTable the {@link MethodDispatchTable} the candidates belong to
+	 * @param methodName    the method name
+	 * @param methods       the candidate methods
+	 * @param paramNames    the parameter allNames
+	 * @param paramNodes    the parameters for matching types
 	 * @return the {@link AMethodWithItsArgs}
 	 */
-	private AMethodWithItsArgs findBestMethodUsingParamNames(Set<Method> methods, Set<String> paramNames, ObjectNode paramNodes) {
-		ParameterCount max = new ParameterCount();
+	private AMethodWithItsArgs findBestMethodUsingParamNames(MethodDispatchTable dispatchTable, String methodName, List<MethodEntry> methods, Set<String> paramNames, ObjectNode paramNodes) {
+		List<MethodEntry> matchedMethods = resolveByParamNames(dispatchTable, methodName, methods, paramNames);
+		if (matchedMethods.isEmpty()) return null;
+
+		MethodEntry bestMethod = matchedMethods.get(0);
+		if (matchedMethods.size() > 1) {
+			int mostMatches = -1;
+			for (MethodEntry method : matchedMethods) {
+				int numMatches = getNumNamedArgTypeMatches(paramNames, paramNodes, method);
+				if (hasMoreMatches(mostMatches, numMatches)) {
+					mostMatches = numMatches;
+					bestMethod = method;
+				}
+			}
+		}
+		return new AMethodWithItsArgs(bestMethod, paramNames, paramNodes);
+	}
 
-		for (Method method : methods) {
-			List<Class<?>> parameterTypes = getParameterTypes(method);
+	/**
+	 * Returns the candidates that match the most of the given parameter names,
+	 * remembering the outcome in the {@link MethodDispatchTable}.
+	 *
+	 * @param dispatchTable the {@link MethodDispatchTable} the candidates belong to
+	 * @param methodName    the method name
+	 * @param methods       the candidate methods
+	 * @param paramNames    the parameter names
+	 * @return the matching methods
+	 */
+	private List<MethodEntry> resolveByParamNames(MethodDispatchTable dispatchTable, String methodName, List<MethodEntry> methods, Set<String> paramNames) {
+		DispatchKey key = new DispatchKey(methodName, -1, paramNames, getParamCountPolicy());
+		List<MethodEntry> matchedMethods = dispatchTable.getResolution(key);
+		if (matchedMethods == null) {
+			matchedMethods = dispatchTable.putResolution(key, collectMethodsMatchingParamNames(methods, paramNames));
+		}
+		return matchedMethods;
+	}
 
-			int typeNameCountDiff = parameterTypes.size() - paramNames.size();
+	/**
+	 * Collects the methods that accept the given parameter names and match the most of them.
+	 *
+	 * @param methods    the candidate methods
+	 * @param paramNames the parameter names
+	 * @return the methods with the most matching parameter names
+	 */
+	private List<MethodEntry> collectMethodsMatchingParamNames(List<MethodEntry> methods, Set<String> paramNames) {
+		List<MethodEntry> matchedMethods = new ArrayList<>();
+		int mostNameMatches = -1;
+		for (MethodEntry method : methods) {
+			int typeNameCountDiff = method.parameterTypes.size() - paramNames.size();
 			if (!acceptParamCount(typeNameCountDiff)) continue;
 
-			ParameterCount parStat = new ParameterCount(paramNames, paramNodes, parameterTypes, method);
-			if (!acceptParamCount(parStat.nameCount - paramNames.size())) continue;
-			if (hasMoreMatches(max.nameCount, parStat.nameCount) || parStat.nameCount == max.nameCount && hasMoreMatches(max.typeCount, parStat.typeCount)) max = parStat;
+			int nameCount = getNumParamNameMatches(paramNames, method.parameterNames);
+			if (!acceptParamCount(nameCount - paramNames.size())) continue;
+			if (hasMoreMatches(mostNameMatches, nameCount)) {
+				matchedMethods.clear();
+				mostNameMatches = nameCount;
+			}
+			if (nameCount == mostNameMatches) matchedMethods.add(method);
+		}
+		return matchedMethods;
+	}
+
+	private int getNumParamNameMatches(Set<String> paramNames, List<JsonRpcParam> allNames) {
+		int nameCount = 0;
+		for (JsonRpcParam name : allNames) {
+			if (missingAnnotation(name)) continue;
+			if (paramNames.contains(name.value())) nameCount += 1;
 		}
-		if (max.method == null) return null;
-		return new AMethodWithItsArgs(max.method, paramNames, max.allNames, paramNodes);
+		return nameCount;
+	}
 
+	private int getNumNamedArgTypeMatches(Set<String> paramNames, ObjectNode paramNodes, MethodEntry method) {
+		int typeCount = 0;
+		int at = 0;
+		for (JsonRpcParam name : method.parameterNames) {
+			if (missingAnnotation(name)) continue;
+			String paramName = name.value();
+			if (paramNames.contains(paramName) && isMatchingType(paramNodes.get(paramName), method.parameterTypes.get(at))) typeCount += 1;
+			at += 1;
+		}
+		return typeCount;
 	}
 
 	private boolean hasMoreMatches(int maxMatchingParams, int numMatchingParams) {
@@ -734,34 +1302,157 @@ public class JsonRpcBasicServer {
 				|| long.class.isAssignableFrom(type) || float.class.isAssignableFrom(type) || double.class.isAssignableFrom(type);
 	}
 
-	private JsonError writeAndFlushValueError(OutputStream output, ErrorObjectWithJsonError value) throws IOException {
-		logger.debug("failed {}", value);
-		writeAndFlushValue(output, value.node);
-		return value.error;
+	/**
+	 * Writes an error response to no request in particular, as when a request could not be answered in time.
+	 *
+	 * @param output the {@link OutputStream}
+	 * @param format the {@link WireFormat} of the response
+	 * @param error  the error
+	 * @return the error
+	 * @throws IOException on error
+	 */
+	JsonError writeAndFlushError(OutputStream output, WireFormat format, JsonError error) throws IOException {
+		return writeAndFlushError(output, format, VERSION, NULL_ID, error);
 	}
 
 	/**
-	 * Writes and flushes a value to the given {@link OutputStream}
-	 * and prevents Jackson from closing it. Also writes newline.
+	 * Answers a request with an error without handling it, as when it could not be answered
+	 * in time.  Notifications are not answered, batches and unreadable requests are answered
+	 * to no request in particular.
 	 *
+	 * @param input  the {@link InputStream} of the request
 	 * @param output the {@link OutputStream}
-	 * @param value  the value to write
+	 * @param format the {@link WireFormat} of the request and the response
+	 * @param error  the error
 	 * @throws IOException on error
 	 */
-	private void writeAndFlushValue(OutputStream output, Object value) throws IOException {
-		logger.debug("Response: {}", value);
-		mapper.writeValue(new NoCloseOutputStream(output), value);
-		output.write('\n');
+	void writeAndFlushErrorFor(InputStream input, OutputStream output, WireFormat format, JsonError error) throws IOException {
+		JsonNode id = NULL_ID;
+		try {
+			JsonNode node = ReadContext.getReadContext(input, mapper, format).nextValue();
+			if (node != null && node.isObject()) {
+				id = readId(node.get(ID));
+				if (id == null) return;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			logger.debug("failed to read the id of the request", e);
+			id = NULL_ID;
+		}
+		writeAndFlushError(output, format, VERSION, id, error);
+	}
+
+	/**
+	 * Writes an error response straight to the given {@link OutputStream} without building
+	 * a tree of it first.  Also writes newline.
+	 *
+	 * @param output  the {@link OutputStream}
+	 * @param format  the {@link WireFormat} of the response
+	 * @param jsonRpc the version string
+	 * @param id      the id of the request
+	 * @param error   the error
+	 * @return the error
+	 * @throws IOException on error
+	 */
+	private JsonError writeAndFlushError(OutputStream output, WireFormat format, String jsonRpc, JsonNode id, JsonError error) throws IOException {
+		logger.debug("failed id {}, {}", id, error);
+		if (metrics != null) metrics.errorResponse(error.code);
+		JsonGenerator generator = createGenerator(output, format);
+		generator.writeStartObject();
+		generator.writeStringField(JSONRPC, jsonRpc);
+		writeId(generator, id);
+		generator.writeObjectFieldStart(ERROR);
+		generator.writeNumberField(ERROR_CODE, error.code);
+		generator.writeStringField(ERROR_MESSAGE, error.message);
+		if (error.data != null) {
+			generator.writeFieldName(DATA);
+			mapper.writeValue(generator, error.data);
+		}
+		generator.writeEndObject();
+		generator.writeEndObject();
+		generator.close();
+		format.writeTerminator(output);
+		return error;
+	}
+
+	/**
+	 * Writes a success response to the given {@link OutputStream}, serializing the result
+	 * with the given {@link ObjectWriter} instead of converting it to a tree first.  Also
+	 * writes newline.
+	 * <p>
+	 * The response is serialized into a pooled buffer and copied to the output once it is
+	 * complete, so that nothing is written if the result can not be serialized and an error
+	 * response can be written instead.
+	 *
+	 * @param output  the {@link OutputStream}
+	 * @param format  the {@link WireFormat} of the response
+	 * @param jsonRpc the version string
+	 * @param id      the id of the request
+	 * @param writer  the {@link ObjectWriter} for the result
+	 * @param result  the result object
+	 * @throws IOException on error
+	 */
+	private void writeAndFlushResult(OutputStream output, WireFormat format, String jsonRpc, JsonNode id, ObjectWriter writer, Object result) throws IOException {
+		logger.debug("Response: id {}, result {}", id, result);
+		PooledByteArrayOutputStream buffer = new PooledByteArrayOutputStream(bufferPool);
+		try {
+			try (JsonGenerator generator = format.createGenerator(mapper, buffer)) {
+				generator.writeStartObject();
+				generator.writeStringField(JSONRPC, jsonRpc);
+				writeId(generator, id);
+				generator.writeFieldName(RESULT);
+				writer.writeValue(generator, result);
+				generator.writeEndObject();
+			}
+			buffer.writeTo(output);
+		} finally {
+			buffer.release();
+		}
+		format.writeTerminator(output);
 	}
 
-	private Object parseId(JsonNode node) {
+	private JsonGenerator createGenerator(OutputStream output, WireFormat format) throws IOException {
+		return format.createGenerator(mapper, new NoCloseOutputStream(output));
+	}
+
+	/**
+	 * Echoes the id of the request with the number type or text it was read with, large
+	 * integers and decimals are written back without being narrowed.  Notifications that
+	 * end in an error are answered with a {@code null} id.
+	 *
+	 * @param generator the {@link JsonGenerator}
+	 * @param id        the id node returned by {@link #readId(JsonNode)}, may be {@code null}
+	 * @throws IOException on error
+	 */
+	private void writeId(JsonGenerator generator, JsonNode id) throws IOException {
+		generator.writeFieldName(ID);
+		if (isNullNodeOrValue(id)) {
+			generator.writeNull();
+		} else if (id.isTextual()) {
+			generator.writeString(id.textValue());
+		} else if (id.isInt() || id.isShort()) {
+			generator.writeNumber(id.intValue());
+		} else if (id.isLong()) {
+			generator.writeNumber(id.longValue());
+		} else if (id.isBigInteger()) {
+			generator.writeNumber(id.bigIntegerValue());
+		} else if (id.isFloat()) {
+			generator.writeNumber(id.floatValue());
+		} else if (id.isDouble()) {
+			generator.writeNumber(id.doubleValue());
+		} else {
+			generator.writeNumber(id.decimalValue());
+		}
+	}
+
+	/**
+	 * Checks the id of a request, the node is kept as read so that the response can echo it.
+	 *
+	 * @param node the id node of the request
+	 * @return the id node, or {@code null} for notifications
+	 */
+	private JsonNode readId(JsonNode node) {
 		if (isNullNodeOrValue(node)) return null;
-		if (node.isDouble()) return node.asDouble();
-		if (node.isFloatingPointNumber()) return node.asDouble();
-		if (node.isInt()) return node.asInt();
-		if (node.isIntegralNumber()) return node.asInt();
-		if (node.isLong()) return node.asLong();
-		if (node.isTextual()) return node.asText();
+		if (node.isNumber() || node.isTextual()) return node;
 		throw new IllegalArgumentException("Unknown id type");
 	}
 
@@ -834,6 +1525,59 @@ public class JsonRpcBasicServer {
 		this.invocationListener = invocationListener;
 	}
 
+	/**
+	 * @return the {@link JsonRpcMetrics} the server reports to, or {@code null}
+	 */
+	public JsonRpcMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the {@link JsonRpcMetrics} the server reports latencies, errors,
+	 * batch sizes and bytes to, see {@link JsonRpcMetricsRegistry}.
+	 *
+	 * @param metrics the metrics, or {@code null} to measure nothing
+	 */
+	public void setMetrics(JsonRpcMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Accepts requests in the given binary {@link WireFormat} besides JSON.  {@link JsonRpcServer}
+	 * picks the format by the {@code Content-Type} and {@code Accept} headers of a request,
+	 * other callers pass it to {@link #handleRequest(InputStream, OutputStream, WireFormat, WireFormat)}.
+	 *
+	 * @param format the format, such as {@link WireFormat#cbor()}
+	 */
+	public void addWireFormat(WireFormat format) {
+		if (!format.isText() && !wireFormats.contains(format)) wireFormats.add(format);
+	}
+
+	/**
+	 * @return the binary {@link WireFormat}s accepted besides JSON
+	 */
+	public List<WireFormat> getWireFormats() {
+		return Collections.unmodifiableList(wireFormats);
+	}
+
+	/**
+	 * @return the {@link BufferPool} requests are read and responses buffered with
+	 */
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Sets the {@link BufferPool} the server buffers responses with, also used by
+	 * {@link JsonRpcServer}, {@link StreamServer} and {@link NioStreamServer} for
+	 * their connections.  Defaults to {@link BufferPool#getDefault()}.
+	 *
+	 * @param bufferPool the buffer pool
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
 	/**
 	 * Sets the {@link HttpStatusCodeProvider} instance to use for HTTP error results.
 	 *
@@ -865,38 +1609,135 @@ public class JsonRpcBasicServer {
 		this.shouldLogInvocationErrors = shouldLogInvocationErrors;
 	}
 
-	private static class ErrorObjectWithJsonError {
-		private final ObjectNode node;
-		private final JsonError error;
+	/**
+	 * Sets the {@link Executor} used to handle the elements of batch requests concurrently.
+	 * The responses are still written in the order of the requests.  When {@code null}, the
+	 * default, the elements are handled one after another on the calling thread.
+	 *
+	 * @param batchExecutor the executor, a {@link java.util.concurrent.ForkJoinPool} for example
+	 */
+	public void setBatchExecutor(Executor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
 
-		public ErrorObjectWithJsonError(ObjectNode node, JsonError error) {
-			this.node = node;
-			this.error = error;
-		}
+	/**
+	 * Sets the maximum number of elements of a single batch request that are handled
+	 * at the same time when a batch {@link Executor} is set.
+	 *
+	 * @param maxBatchConcurrency the maximum number of concurrently handled elements, at least 1
+	 */
+	public void setMaxBatchConcurrency(int maxBatchConcurrency) {
+		this.maxBatchConcurrency = maxBatchConcurrency;
+	}
 
-		@Override
-		public String toString() {
-			return "ErrorObjectWithJsonError{" +
-					"node=" + node +
-					", error=" + error +
-					'}';
-		}
+	/**
+	 * If true, request objects read by {@link #handleRequest(InputStream, OutputStream)} are
+	 * parsed token by token and their parameters are bound directly to the parameter types of
+	 * the invoked method instead of being read into a {@link JsonNode} tree first.  Requests
+	 * are always read as a tree while a {@link RequestInterceptor} is set, and overloads that
+	 * can only be told apart by the types of the parameter values still fall back to the tree.
+	 * Request objects parsed this way do not pass through {@link #handleJsonNodeRequest(JsonNode, OutputStream)}.
+	 * <p>
+	 * The parameters are still read into trees, once per call, for methods annotated with
+	 * {@link JsonRpcCacheable} and while an {@link InvocationListener} is set: cache keys compare
+	 * objects regardless of the order of their fields, and the listener is passed {@link JsonNode}s.
+	 * The arguments of the method are bound from the tokens either way.
+	 *
+	 * @param streamingRequestParsing true or false
+	 */
+	public void setStreamingRequestParsing(boolean streamingRequestParsing) {
+		this.streamingRequestParsing = streamingRequestParsing;
 	}
 
 	/**
 	 * Simple inner class for the {@code findXXX} methods.
 	 */
 	private static class AMethodWithItsArgs {
-		private final List<JsonNode> arguments = new ArrayList<>();
+		private List<JsonNode> arguments = new ArrayList<>();
+		private final MethodEntry entry;
 		private final Method method;
+		private final MethodInvoker invoker;
+		private final List<TokenBuffer> bufferedArguments;
+		private final ObjectMapper mapper;
 
-		public AMethodWithItsArgs(Method method, int paramCount, ArrayNode paramNodes) {
-			this(method);
+		public AMethodWithItsArgs(MethodEntry entry, int paramCount, ArrayNode paramNodes) {
+			this(entry);
 			collectArgumentsBasedOnCount(method, paramCount, paramNodes);
 		}
 
-		public AMethodWithItsArgs(Method method) {
-			this.method = method;
+		public AMethodWithItsArgs(MethodEntry entry) {
+			this.entry = entry;
+			this.method = entry.method;
+			this.invoker = entry.invoker;
+			this.bufferedArguments = null;
+			this.mapper = null;
+		}
+
+		public AMethodWithItsArgs(ObjectMapper mapper, MethodEntry entry, List<TokenBuffer> paramBuffers) {
+			this.entry = entry;
+			this.method = entry.method;
+			this.invoker = entry.invoker;
+			this.mapper = mapper;
+			this.arguments = null;
+			this.bufferedArguments = new ArrayList<>();
+			int numParameters = entry.parameterTypes.size();
+			for (int i = 0; i < numParameters; i++) {
+				bufferedArguments.add(i < paramBuffers.size() ? paramBuffers.get(i) : null);
+			}
+		}
+
+		public AMethodWithItsArgs(ObjectMapper mapper, MethodEntry entry, Map<String, TokenBuffer> paramBuffers) {
+			this.entry = entry;
+			this.method = entry.method;
+			this.invoker = entry.invoker;
+			this.mapper = mapper;
+			this.arguments = null;
+			this.bufferedArguments = new ArrayList<>();
+			int numParameters = entry.parameterTypes.size();
+			for (int i = 0; i < numParameters; i++) {
+				JsonRpcParam param = entry.parameterNames.get(i);
+				bufferedArguments.add(param != null ? paramBuffers.get(param.value()) : null);
+			}
+		}
+
+		/**
+		 * Returns the arguments as {@link JsonNode}s, buffered arguments are only read
+		 * into trees when a cache key, an {@link InvocationListener} or {@link ErrorResolver}
+		 * needs them, and then only once.
+		 *
+		 * @return the arguments
+		 */
+		List<JsonNode> getArguments() {
+			if (arguments == null) {
+				List<JsonNode> nodes = new ArrayList<>(bufferedArguments.size());
+				for (TokenBuffer buffer : bufferedArguments) {
+					try {
+						nodes.add(buffer == null ? NullNode.getInstance() : StreamedRequest.toNode(buffer, mapper));
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				arguments = nodes;
+			}
+			return arguments;
+		}
+
+		/**
+		 * Returns the arguments as the key of a {@link ResultCache}.
+		 *
+		 * @return the arguments as an array
+		 */
+		JsonNode getCacheKey() {
+			ArrayNode key = JsonNodeFactory.instance.arrayNode();
+			for (JsonNode argument : getArguments()) {
+				key.add(argument);
+			}
+			return key;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(bufferedArguments == null ? arguments : bufferedArguments);
 		}
 
 		private void collectArgumentsBasedOnCount(Method method, int paramCount, ArrayNode paramNodes) {
@@ -910,9 +1751,9 @@ public class JsonRpcBasicServer {
 			}
 		}
 
-		public AMethodWithItsArgs(Method method, Set<String> paramNames, List<JsonRpcParam> allNames, ObjectNode paramNodes) {
-			this(method);
-			collectArgumentsBasedOnName(method, paramNames, allNames, paramNodes);
+		public AMethodWithItsArgs(MethodEntry entry, Set<String> paramNames, ObjectNode paramNodes) {
+			this(entry);
+			collectArgumentsBasedOnName(method, paramNames, entry.parameterNames, paramNodes);
 		}
 
 		private void collectArgumentsBasedOnName(Method method, Set<String> paramNames, List<JsonRpcParam> allNames, ObjectNode paramNodes) {
@@ -930,104 +1771,85 @@ public class JsonRpcBasicServer {
 
 	private static class InvokeListenerHandler implements AutoCloseable {
 
-		private final long startMs = System.currentTimeMillis();
+		private final long startNanos = System.nanoTime();
+		private final String methodName;
 		private final AMethodWithItsArgs methodArgs;
 		private final InvocationListener invocationListener;
+		private final JsonRpcMetrics metrics;
 		public Throwable error = null;
 		public JsonNode result = null;
+		public boolean deferred = false;
 
-		public InvokeListenerHandler(AMethodWithItsArgs methodArgs, InvocationListener invocationListener) {
+		public InvokeListenerHandler(String methodName, AMethodWithItsArgs methodArgs, InvocationListener invocationListener, JsonRpcMetrics metrics) {
+			this.methodName = methodName;
 			this.methodArgs = methodArgs;
 			this.invocationListener = invocationListener;
+			this.metrics = metrics;
+			if (this.metrics != null) {
+				this.metrics.invocationStarted(methodName, methodArgs.method);
+			}
 			if (this.invocationListener != null) {
-				this.invocationListener.willInvoke(methodArgs.method, methodArgs.arguments);
+				this.invocationListener.willInvoke(methodArgs.method, methodArgs.getArguments());
 			}
 		}
 
 		@Override
 		public void close() {
-			if (invocationListener != null) {
-				invocationListener.didInvoke(methodArgs.method, methodArgs.arguments, result, error, System.currentTimeMillis() - startMs);
-			}
+			if (!deferred) notifyListener();
 		}
-	}
 
-	private class ParameterCount {
-		private final int typeCount;
-		private final int nameCount;
-		private final List<JsonRpcParam> allNames;
-		private final Method method;
-
-		public ParameterCount(Set<String> paramNames, ObjectNode paramNodes, List<Class<?>> parameterTypes, Method method) {
-			this.allNames = getAnnotatedParameterNames(method);
-			this.method = method;
-			int typeCount = 0;
-			int nameCount = 0;
-			int at = 0;
-
-			for (JsonRpcParam name : this.allNames) {
-				if (missingAnnotation(name)) continue;
-				String paramName = name.value();
-				boolean hasParamName = paramNames.contains(paramName);
-				if (hasParamName) nameCount += 1;
-				if (hasParamName && isMatchingType(paramNodes.get(paramName), parameterTypes.get(at))) typeCount += 1;
-				at += 1;
+		public void notifyListener() {
+			long durationNanos = System.nanoTime() - startNanos;
+			if (metrics != null) {
+				metrics.invocationCompleted(methodName, methodArgs.method, durationNanos, error);
 			}
-			this.typeCount = typeCount;
-			this.nameCount = nameCount;
-		}
-
-		@SuppressWarnings("Convert2streamapi")
-		private List<JsonRpcParam> getAnnotatedParameterNames(Method method) {
-			List<JsonRpcParam> parameterNames = new ArrayList<>();
-			for (List<? extends Annotation> webParamAnnotation : getWebParameterAnnotations(method)) {
-				if (!webParamAnnotation.isEmpty()) parameterNames.add(createNewJsonRcpParamType(webParamAnnotation.get(0)));
-			}
-			for (List<JsonRpcParam> annotation : getJsonRpcParamAnnotations(method)) {
-				if (!annotation.isEmpty()) parameterNames.add(annotation.get(0));
+			if (invocationListener != null) {
+				invocationListener.didInvoke(methodArgs.method, methodArgs.getArguments(), result, error, TimeUnit.NANOSECONDS.toMillis(durationNanos));
 			}
-			return parameterNames;
 		}
+	}
 
-		private List<? extends List<? extends Annotation>> getWebParameterAnnotations(Method method) {
-			if (WEB_PARAM_ANNOTATION_CLASS == null) return new ArrayList<>();
-			return ReflectionUtil.getParameterAnnotations(method, WEB_PARAM_ANNOTATION_CLASS);
+	/**
+	 * Returns the parameter names declared by {@link JsonRpcParam} or {@code javax.jws.WebParam}
+	 * annotations of the given {@link Method}.
+	 *
+	 * @param method the {@link Method}
+	 * @return the parameter names
+	 */
+	@SuppressWarnings("Convert2streamapi")
+	static List<JsonRpcParam> getAnnotatedParameterNames(Method method) {
+		List<JsonRpcParam> parameterNames = new ArrayList<>();
+		for (List<? extends Annotation> webParamAnnotation : getWebParameterAnnotations(method)) {
+			if (!webParamAnnotation.isEmpty()) parameterNames.add(createNewJsonRcpParamType(webParamAnnotation.get(0)));
 		}
-
-		private JsonRpcParam createNewJsonRcpParamType(final Annotation annotation) {
-			return new JsonRpcParam() {
-				public Class<? extends Annotation> annotationType() {
-					return JsonRpcParam.class;
-				}
-
-				public String value() {
-					try {
-						return (String) WEB_PARAM_NAME_METHOD.invoke(annotation);
-					} catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-				}
-			};
-		}
-
-		private List<List<JsonRpcParam>> getJsonRpcParamAnnotations(Method method) {
-			return ReflectionUtil.getParameterAnnotations(method, JsonRpcParam.class);
+		for (List<JsonRpcParam> annotation : getJsonRpcParamAnnotations(method)) {
+			if (!annotation.isEmpty()) parameterNames.add(annotation.get(0));
 		}
+		return parameterNames;
+	}
 
-		public ParameterCount() {
-			typeCount = -1;
-			nameCount = -1;
-			allNames = null;
-			method = null;
-		}
+	private static List<? extends List<? extends Annotation>> getWebParameterAnnotations(Method method) {
+		if (WEB_PARAM_ANNOTATION_CLASS == null) return new ArrayList<>();
+		return ReflectionUtil.getParameterAnnotations(method, WEB_PARAM_ANNOTATION_CLASS);
+	}
 
-		public int getTypeCount() {
-			return typeCount;
-		}
+	private static JsonRpcParam createNewJsonRcpParamType(final Annotation annotation) {
+		return new JsonRpcParam() {
+			public Class<? extends Annotation> annotationType() {
+				return JsonRpcParam.class;
+			}
 
-		public int getNameCount() {
-			return nameCount;
-		}
+			public String value() {
+				try {
+					return (String) WEB_PARAM_NAME_METHOD.invoke(annotation);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+	}
 
+	private static List<List<JsonRpcParam>> getJsonRpcParamAnnotations(Method method) {
+		return ReflectionUtil.getParameterAnnotations(method, JsonRpcParam.class);
 	}
 }
@@ -0,0 +1,172 @@
+package com.googlecode.jsonrpc4j;
+
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.ID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects calls into a single JSON-RPC batch request.  Every call gets a future that
+ * completes when the response with its {@code id} is read, whatever the order of the
+ * responses in the array.  A batch is sent once, with
+ * {@link JsonRpcHttpClient#invokeBatch(JsonRpcBatch)} or
+ * {@link JsonRpcClient#invokeBatch(JsonRpcBatch, java.io.OutputStream, java.io.InputStream)}:
+ * <pre>
+ * JsonRpcBatch batch = new JsonRpcBatch(client);
+ * CompletableFuture&lt;Integer&gt; sum = batch.add("add", new Object[] { 1, 2 }, Integer.class);
+ * batch.addNotification("log", new Object[] { "added" });
+ * client.invokeBatch(batch);
+ * </pre>
+ * A batch is not thread safe, see {@link JsonRpcCoalescingClient} to batch the calls of
+ * many threads.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcBatch {
+
+	private static final AtomicLong nextId = new AtomicLong();
+
+	private final JsonRpcClient client;
+	private final ArrayNode requests;
+	private final Map<String, Call> calls = new LinkedHashMap<>();
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param client the client creating the requests and reading the responses
+	 */
+	public JsonRpcBatch(JsonRpcClient client) {
+		this.client = client;
+		this.requests = client.getObjectMapper().createArrayNode();
+	}
+
+	/**
+	 * Adds a call to the batch.
+	 *
+	 * @param methodName the method to invoke
+	 * @param argument   the arguments to the method
+	 * @param returnType the return type
+	 * @return the future result of the call
+	 */
+	public CompletableFuture<Object> add(String methodName, Object argument, Type returnType) {
+		String id = "b" + nextId.getAndIncrement();
+		Call call = new Call(returnType);
+		requests.add(client.createRequest(methodName, argument, id));
+		calls.put(id, call);
+		return call.result;
+	}
+
+	/**
+	 * Adds a call to the batch.
+	 *
+	 * @param methodName the method to invoke
+	 * @param argument   the arguments to the method
+	 * @param returnType the return type
+	 * @param <T>        the return type
+	 * @return the future result of the call
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> add(String methodName, Object argument, Class<T> returnType) {
+		return (CompletableFuture<T>) (CompletableFuture<?>) add(methodName, argument, (Type) returnType);
+	}
+
+	/**
+	 * Adds a notification to the batch, no response is expected.
+	 *
+	 * @param methodName the method to invoke
+	 * @param argument   the arguments to the method
+	 */
+	public void addNotification(String methodName, Object argument) {
+		requests.add(client.createRequest(methodName, argument, null));
+	}
+
+	/**
+	 * @return the number of requests in the batch, notifications included
+	 */
+	public int size() {
+		return requests.size();
+	}
+
+	/**
+	 * @return {@code true} if no request has been added
+	 */
+	public boolean isEmpty() {
+		return requests.size() == 0;
+	}
+
+	/**
+	 * @return {@code true} if a call waits for a response, {@code false} if the batch holds only notifications
+	 */
+	boolean expectsResponse() {
+		return !calls.isEmpty();
+	}
+
+	ArrayNode getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Completes the futures of the calls from the response to the batch.  The server answers
+	 * a batch it could not read with a single error, which fails all calls.  Calls left
+	 * without a response fail too.
+	 *
+	 * @param response the array of responses, or a single response
+	 */
+	void complete(JsonNode response) {
+		if (response != null && response.isArray()) {
+			for (JsonNode element : response) {
+				completeCall(element);
+			}
+		} else if (response != null && response.isObject() && !completeCall(response)) {
+			try {
+				client.readResponse(Object.class, (ObjectNode) response);
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+		for (Map.Entry<String, Call> entry : calls.entrySet()) {
+			entry.getValue().result.completeExceptionally(new JsonRpcClientException(0, "No response to request " + entry.getKey(), response));
+		}
+		calls.clear();
+	}
+
+	private boolean completeCall(JsonNode response) {
+		JsonNode id = response.isObject() ? response.get(ID) : null;
+		Call call = id != null && !id.isNull() ? calls.remove(id.asText()) : null;
+		if (call == null) return false;
+		try {
+			call.result.complete(client.readResponse(call.returnType, (ObjectNode) response));
+		} catch (Throwable t) {
+			call.result.completeExceptionally(t);
+		}
+		return true;
+	}
+
+	/**
+	 * Fails the calls that have not completed yet.
+	 *
+	 * @param failure the cause
+	 */
+	void fail(Throwable failure) {
+		for (Call call : calls.values()) {
+			call.result.completeExceptionally(failure);
+		}
+		calls.clear();
+	}
+
+	private static class Call {
+
+		final Type returnType;
+		final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		Call(Type returnType) {
+			this.returnType = returnType;
+		}
+	}
+}
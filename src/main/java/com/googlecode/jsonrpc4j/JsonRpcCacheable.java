@@ -0,0 +1,50 @@
+package com.googlecode.jsonrpc4j;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotation for service methods whose results depend on their arguments only.
+ * The server answers repeated calls with the same arguments from a bounded cache
+ * for {@link #ttl()} instead of invoking the method, the cached result is written
+ * as it was serialized the first time.  Exceptions are not cached.
+ * <p>
+ * Arguments are compared as JSON values after they have been matched to the
+ * parameters of the method, so named and positional calls share their results
+ * and the order of the fields of an object does not matter.  The results are
+ * shared by all callers, a {@link RequestInterceptor} still sees every request.
+ * <p>
+ * Client proxies made with {@link ProxyUtil} or by the Spring integration cache the
+ * results of annotated methods of the proxied interface as well, see
+ * {@link JsonRpcClientCache}.  A result may then be as old as the ttl of the client
+ * plus the ttl of the server.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonRpcCacheable {
+
+	/**
+	 * @return how long a result is served from the cache
+	 */
+	long ttl();
+
+	/**
+	 * @return the unit of {@link #ttl()}
+	 */
+	TimeUnit unit() default TimeUnit.SECONDS;
+
+	/**
+	 * @return the number of results kept, the least recently used are evicted first
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * @return how long a client keeps returning an expired result while it fetches a new
+	 * one in the background, in {@link #unit()}.  Servers ignore it.
+	 */
+	long staleWhileRevalidate() default 0;
+
+}
@@ -12,13 +12,15 @@ import static com.googlecode.jsonrpc4j.Util.hasNonNullData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -37,10 +39,12 @@ public class JsonRpcClient {
 	private static final Logger logger = LoggerFactory.getLogger(JsonRpcClient.class);
 
 	private final ObjectMapper mapper;
+	private final ObjectReaderCache readers;
 	private final Random random;
 	private RequestListener requestListener;
 	private ExceptionResolver exceptionResolver = DefaultExceptionResolver.INSTANCE;
 	private Map<String, Object> additionalJsonContent = new HashMap<>();
+	private WireFormat wireFormat = WireFormat.JSON;
 
 	/**
 	 * Creates a client that uses the default {@link ObjectMapper}
@@ -57,6 +61,7 @@ public class JsonRpcClient {
 	 */
 	public JsonRpcClient(ObjectMapper mapper) {
 		this.mapper = mapper;
+		this.readers = new ObjectReaderCache(mapper);
 		this.random = new Random(System.currentTimeMillis());
 	}
 
@@ -169,7 +174,7 @@ public class JsonRpcClient {
 	 */
 	private Object readResponse(Type returnType, InputStream input, String id) throws Throwable {
 
-		ReadContext context = ReadContext.getReadContext(input, mapper);
+		ReadContext context = ReadContext.getReadContext(input, mapper, wireFormat);
 		ObjectNode jsonObject = getValidResponse(id, context);
 		notifyAnswerListener(jsonObject);
 		handleErrorResponse(jsonObject);
@@ -265,8 +270,7 @@ public class JsonRpcClient {
 
 	private Object constructResponseObject(Type returnType, ObjectNode jsonObject) throws IOException {
 		JsonParser returnJsonParser = mapper.treeAsTokens(jsonObject.get(RESULT));
-		JavaType returnJavaType = mapper.getTypeFactory().constructType(returnType);
-		return mapper.readValue(returnJsonParser, returnJavaType);
+		return readers.forType(returnType).readValue(returnJsonParser);
 	}
 
 	/**
@@ -328,10 +332,41 @@ public class JsonRpcClient {
 	 * @throws IOException on error
 	 */
 	private void writeAndFlushValue(OutputStream output, Object value) throws IOException {
-		mapper.writeValue(new NoCloseOutputStream(output), value);
+		if (wireFormat.isText()) {
+			mapper.writeValue(new NoCloseOutputStream(output), value);
+		} else {
+			try (JsonGenerator generator = wireFormat.createGenerator(mapper, new NoCloseOutputStream(output))) {
+				mapper.writeValue(generator, value);
+			}
+		}
 		output.flush();
 	}
 
+	/**
+	 * Encodes a value in the {@link WireFormat} of the client.
+	 *
+	 * @param value the value
+	 * @return the encoded value
+	 * @throws IOException on error
+	 */
+	byte[] writeValueAsBytes(Object value) throws IOException {
+		if (wireFormat.isText()) return mapper.writeValueAsBytes(value);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		writeAndFlushValue(output, value);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decodes a tree in the {@link WireFormat} of the client.
+	 *
+	 * @param content the encoded tree
+	 * @return the tree
+	 * @throws IOException on error
+	 */
+	JsonNode readTree(byte[] content) throws IOException {
+		return ReadContext.getReadContext(new ByteArrayInputStream(content), mapper, wireFormat).nextValue();
+	}
+
 	private boolean isInvalidResponse(JsonNode response) {
 		return !response.isObject();
 	}
@@ -456,6 +491,31 @@ public class JsonRpcClient {
 		invoke(methodName, argument, output, generateRandomId());
 	}
 
+	/**
+	 * Writes the requests of the given {@link JsonRpcBatch} as a single
+	 * JSON-RPC array and completes its calls from the array read back.
+	 * Nothing is read if the batch holds only notifications.  On error
+	 * the calls of the batch fail too.
+	 *
+	 * @param batch the {@link JsonRpcBatch}
+	 * @param output the {@link OutputStream} to write to
+	 * @param input the {@link InputStream} to read from
+	 * @throws IOException on error
+	 */
+	public void invokeBatch(JsonRpcBatch batch, OutputStream output, InputStream input) throws IOException {
+		if (batch.isEmpty()) return;
+		try {
+			logger.debug("Batch request {}", batch.getRequests());
+			writeAndFlushValue(output, batch.getRequests());
+			if (batch.expectsResponse()) {
+				batch.complete(readResponseNode(ReadContext.getReadContext(input, mapper, wireFormat)));
+			}
+		} catch (IOException | RuntimeException e) {
+			batch.fail(e);
+			throw e;
+		}
+	}
+
 	/**
 	 * Invokes the given method on the remote service passing
 	 * the given argument without reading or expecting a return
@@ -565,6 +625,25 @@ public class JsonRpcClient {
 		return mapper;
 	}
 
+	/**
+	 * @return the {@link WireFormat} requests are written and responses read in
+	 */
+	public WireFormat getWireFormat() {
+		return wireFormat;
+	}
+
+	/**
+	 * Sets the {@link WireFormat} requests are written and responses read in, the
+	 * server must accept it, see {@link JsonRpcBasicServer#addWireFormat(WireFormat)}.
+	 * Binary formats need streams that end with each response, such as HTTP bodies.
+	 * Defaults to {@link WireFormat#JSON}.
+	 *
+	 * @param wireFormat the format
+	 */
+	public void setWireFormat(WireFormat wireFormat) {
+		this.wireFormat = wireFormat;
+	}
+
 	/**
 	 * @param exceptionResolver the exceptionResolver to set
 	 */
@@ -0,0 +1,247 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the results of the methods of a client proxy annotated with {@link JsonRpcCacheable}.
+ * Calls are told apart by their arguments converted to JSON.  Concurrent calls with the same
+ * arguments make a single remote call and share its result or exception.  Once a result is
+ * older than the ttl it is still returned for {@link JsonRpcCacheable#staleWhileRevalidate()},
+ * while a new one is fetched on the refresh {@link Executor}.
+ * <p>
+ * Cached results are returned to every caller as the same instance and must not be modified.
+ * Methods returning futures are not cached.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcClientCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcClientCache.class);
+
+	private static final MethodCache NOT_CACHEABLE = new MethodCache(null);
+	private static final int REFRESH_THREADS = 4;
+
+	private static volatile ExecutorService defaultRefreshExecutor;
+
+	private final ObjectMapper mapper;
+	private final ConcurrentMap<Method, MethodCache> methods = new ConcurrentHashMap<>();
+	private volatile Executor refreshExecutor = getDefaultRefreshExecutor();
+
+	/**
+	 * @param mapper the {@link ObjectMapper} converting the arguments of a call to its key
+	 */
+	public JsonRpcClientCache(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param type the proxied interface
+	 * @return {@code true} if a method of the interface is {@link JsonRpcCacheable}
+	 */
+	public static boolean hasCacheableMethods(Class<?> type) {
+		for (Method method : type.getMethods()) {
+			if (isCacheable(method, ReflectionUtil.getAnnotation(method, JsonRpcCacheable.class))) return true;
+		}
+		return false;
+	}
+
+	private static boolean isCacheable(Method method, JsonRpcCacheable cacheable) {
+		return cacheable != null && method.getReturnType() != void.class && !ReflectionUtil.isAsyncMethod(method);
+	}
+
+	/**
+	 * Returns the cached result of the call or makes it.
+	 *
+	 * @param method    the method of the proxied interface
+	 * @param arguments the arguments of the call
+	 * @param call      the remote call
+	 * @return the result
+	 * @throws Throwable the exception of the remote call
+	 */
+	public Object invoke(Method method, Object[] arguments, Call call) throws Throwable {
+		MethodCache methodCache = getMethodCache(method);
+		if (methodCache == NOT_CACHEABLE) return call.call();
+		JsonNode key = mapper.valueToTree(arguments == null ? new Object[0] : arguments);
+		ResultCache.Entry<Object> entry = methodCache.results.getEntry(key);
+		if (entry == null) return methodCache.load(key, call);
+		if (!entry.isFresh()) {
+			Executor executor = refreshExecutor;
+			if (executor == null) return methodCache.load(key, call);
+			methodCache.refresh(key, call, executor);
+		}
+		return entry.value;
+	}
+
+	private MethodCache getMethodCache(Method method) {
+		MethodCache methodCache = methods.get(method);
+		if (methodCache == null) {
+			JsonRpcCacheable cacheable = ReflectionUtil.getAnnotation(method, JsonRpcCacheable.class);
+			methodCache = isCacheable(method, cacheable) ? new MethodCache(cacheable) : NOT_CACHEABLE;
+			MethodCache existing = methods.putIfAbsent(method, methodCache);
+			if (existing != null) methodCache = existing;
+		}
+		return methodCache;
+	}
+
+	/**
+	 * Drops all cached results.
+	 */
+	public void clear() {
+		methods.clear();
+	}
+
+	/**
+	 * @return the {@link Executor} stale results are refreshed on
+	 */
+	public Executor getRefreshExecutor() {
+		return refreshExecutor;
+	}
+
+	/**
+	 * Sets the {@link Executor} stale results are refreshed on.  A refresh blocks until it is
+	 * answered, so by default it runs on a pool of {@value #REFRESH_THREADS} daemon threads
+	 * shared by all caches rather than on the common pool.  With {@code null} a call finding a
+	 * stale result waits for a new one, which clients that must not make calls from two threads
+	 * at a time need.
+	 *
+	 * @param refreshExecutor the {@link Executor}
+	 */
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	private static ExecutorService getDefaultRefreshExecutor() {
+		ExecutorService executor = defaultRefreshExecutor;
+		if (executor == null) {
+			synchronized (JsonRpcClientCache.class) {
+				executor = defaultRefreshExecutor;
+				if (executor == null) {
+					ThreadPoolExecutor pool = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "jsonrpc-cache-refresh-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+					pool.allowCoreThreadTimeOut(true);
+					defaultRefreshExecutor = executor = pool;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * A remote call.
+	 */
+	public interface Call {
+
+		/**
+		 * @return the result
+		 * @throws Throwable on error
+		 */
+		Object call() throws Throwable;
+	}
+
+	private static class MethodCache {
+
+		private final ResultCache<Object> results;
+		private final ConcurrentMap<JsonNode, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+		MethodCache(JsonRpcCacheable cacheable) {
+			if (cacheable == null) {
+				results = null;
+			} else {
+				TimeUnit unit = cacheable.unit();
+				results = new ResultCache<>(unit.toNanos(cacheable.ttl()), unit.toNanos(cacheable.staleWhileRevalidate()), cacheable.maxEntries());
+			}
+		}
+
+		/**
+		 * Makes the call, unless a call with the same arguments is under way already.
+		 */
+		Object load(JsonNode key, Call call) throws Throwable {
+			CompletableFuture<Object> future = new CompletableFuture<>();
+			CompletableFuture<Object> running = calls.putIfAbsent(key, future);
+			if (running != null) return await(running);
+			try {
+				ResultCache.Entry<Object> cached = results.getEntry(key);
+				Object result;
+				if (cached != null && cached.isFresh()) {
+					result = cached.value;
+				} else {
+					result = call.call();
+					results.put(key, result);
+				}
+				future.complete(result);
+				return result;
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+				throw t;
+			} finally {
+				calls.remove(key, future);
+			}
+		}
+
+		/**
+		 * Fetches a new result on the given {@link Executor}, unless a call with the same
+		 * arguments is under way already.  The stale result stays cached if the call fails.
+		 */
+		void refresh(final JsonNode key, final Call call, Executor executor) {
+			final CompletableFuture<Object> future = new CompletableFuture<>();
+			if (calls.putIfAbsent(key, future) != null) return;
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Object result = call.call();
+							results.put(key, result);
+							future.complete(result);
+						} catch (Throwable t) {
+							logger.debug("Refreshing a cached result failed", t);
+							future.completeExceptionally(t);
+						} finally {
+							calls.remove(key, future);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				calls.remove(key, future);
+				future.completeExceptionally(e);
+			}
+		}
+
+		private static Object await(CompletableFuture<Object> running) throws Throwable {
+			try {
+				return running.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() != null ? e.getCause() : e;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while waiting for the same call");
+			}
+		}
+	}
+}
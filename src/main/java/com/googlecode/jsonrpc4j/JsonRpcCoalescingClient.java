@@ -0,0 +1,308 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the calls of any number of threads into JSON-RPC batch requests sent with a
+ * {@link JsonRpcHttpClient}.  A batch is sent once it holds {@code maxBatchSize} calls or
+ * once its first call has waited {@code maxDelay}, whichever comes first, so chatty
+ * clients make one HTTP request for many calls at the cost of a bounded delay.
+ * <p>
+ * Calls with extra headers can't share a request and are sent on their own.  The client
+ * implements {@link IJsonRpcClient}, so it can back a proxy made with {@link ProxyUtil}.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcCoalescingClient implements IJsonRpcClient, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcCoalescingClient.class);
+
+	private static final int DEFAULT_SENDER_THREADS = 4;
+	// the default connect and read timeouts of JsonRpcHttpClient
+	private static final long DEFAULT_TIMEOUT_MILLIS = 3 * 60 * 1000;
+
+	private final JsonRpcHttpClient client;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+	private final int maxBatchSize;
+	private final long maxDelayMicros;
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong callCount = new AtomicLong();
+	private JsonRpcBatch pending;
+	private ScheduledFuture<?> timer;
+	private boolean closed;
+	private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	/**
+	 * Creates the client with its own sender threads.
+	 *
+	 * @param client       the client sending the batches
+	 * @param maxBatchSize the number of calls sent in a batch at most
+	 * @param maxDelay     the time a call waits for more calls at most
+	 * @param unit         the unit of {@code maxDelay}
+	 */
+	public JsonRpcCoalescingClient(JsonRpcHttpClient client, int maxBatchSize, long maxDelay, TimeUnit unit) {
+		this(client, maxBatchSize, maxDelay, unit, Executors.newScheduledThreadPool(DEFAULT_SENDER_THREADS, new SenderThreadFactory()), true);
+	}
+
+	/**
+	 * Creates the client sending the batches on the given {@link ScheduledExecutorService},
+	 * which is not shut down when the client is closed.
+	 *
+	 * @param client       the client sending the batches
+	 * @param maxBatchSize the number of calls sent in a batch at most
+	 * @param maxDelay     the time a call waits for more calls at most
+	 * @param unit         the unit of {@code maxDelay}
+	 * @param scheduler    the {@link ScheduledExecutorService} sending the batches
+	 */
+	public JsonRpcCoalescingClient(JsonRpcHttpClient client, int maxBatchSize, long maxDelay, TimeUnit unit, ScheduledExecutorService scheduler) {
+		this(client, maxBatchSize, maxDelay, unit, scheduler, false);
+	}
+
+	private JsonRpcCoalescingClient(JsonRpcHttpClient client, int maxBatchSize, long maxDelay, TimeUnit unit, ScheduledExecutorService scheduler, boolean ownScheduler) {
+		if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be positive");
+		if (maxDelay < 0) throw new IllegalArgumentException("maxDelay must not be negative");
+		this.client = client;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayMicros = unit.toMicros(maxDelay);
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+	}
+
+	/**
+	 * Adds a call to the next batch.
+	 *
+	 * @param methodName the method to invoke
+	 * @param argument   the arguments to the method
+	 * @param returnType the return type
+	 * @return the future result of the call
+	 */
+	public CompletableFuture<Object> invokeAsync(String methodName, Object argument, Type returnType) {
+		JsonRpcBatch full = null;
+		CompletableFuture<Object> result;
+		synchronized (this) {
+			if (closed) throw new IllegalStateException("Client closed");
+			boolean unscheduled = false;
+			if (pending == null) {
+				pending = new JsonRpcBatch(client);
+				if (maxBatchSize > 1) {
+					timer = schedule(pending);
+					// without a timer the batch would wait until it is full or flushed
+					unscheduled = timer == null;
+				}
+			}
+			result = pending.add(methodName, argument, returnType);
+			if (pending.size() >= maxBatchSize || unscheduled) {
+				full = takePending();
+			}
+		}
+		callCount.incrementAndGet();
+		if (full != null) send(full);
+		return result;
+	}
+
+	/**
+	 * Adds a call to the next batch.
+	 *
+	 * @param methodName the method to invoke
+	 * @param argument   the arguments to the method
+	 * @param returnType the return type
+	 * @param <T>        the return type
+	 * @return the future result of the call
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> invokeAsync(String methodName, Object argument, Class<T> returnType) {
+		return (CompletableFuture<T>) (CompletableFuture<?>) invokeAsync(methodName, argument, (Type) returnType);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invoke(String methodName, Object argument) throws Throwable {
+		invoke(methodName, argument, (Type) null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object invoke(String methodName, Object argument, Type returnType) throws Throwable {
+		CompletableFuture<Object> result = invokeAsync(methodName, argument, returnType);
+		long timeout = timeoutMillis;
+		try {
+			return timeout > 0 ? result.get(timeout, TimeUnit.MILLISECONDS) : result.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() != null ? e.getCause() : e;
+		} catch (TimeoutException e) {
+			throw new SocketTimeoutException("No response to " + methodName + " within " + timeout + " ms");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Calls with extra headers are not coalesced.
+	 */
+	@Override
+	public Object invoke(String methodName, Object argument, Type returnType, Map<String, String> extraHeaders) throws Throwable {
+		if (extraHeaders == null || extraHeaders.isEmpty()) return invoke(methodName, argument, returnType);
+		return client.invoke(methodName, argument, returnType, extraHeaders);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T invoke(String methodName, Object argument, Class<T> clazz) throws Throwable {
+		return (T) invoke(methodName, argument, (Type) clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Calls with extra headers are not coalesced.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T invoke(String methodName, Object argument, Class<T> clazz, Map<String, String> extraHeaders) throws Throwable {
+		return (T) invoke(methodName, argument, (Type) clazz, extraHeaders);
+	}
+
+	/**
+	 * Sends the calls collected so far without waiting for more.
+	 */
+	public void flush() {
+		JsonRpcBatch batch;
+		synchronized (this) {
+			batch = takePending();
+		}
+		if (batch != null) send(batch);
+	}
+
+	/**
+	 * Sends the calls collected so far and stops accepting new ones.  The sender
+	 * threads created by the client finish the batches being sent and stop.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+		}
+		flush();
+		if (ownScheduler) scheduler.shutdown();
+	}
+
+	/**
+	 * @return the time {@code invoke} waits for the result of a call, in milliseconds
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Sets the time {@code invoke} waits for the result of a call, 3 minutes by default,
+	 * zero or less to wait for ever.  The futures of {@code invokeAsync} are not timed out.
+	 *
+	 * @param timeoutMillis the timeout in milliseconds
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @return the number of batches sent
+	 */
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * @return the number of calls made
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	private JsonRpcBatch takePending() {
+		JsonRpcBatch batch = pending;
+		pending = null;
+		if (timer != null) {
+			timer.cancel(false);
+			timer = null;
+		}
+		return batch;
+	}
+
+	private ScheduledFuture<?> schedule(final JsonRpcBatch batch) {
+		try {
+			return scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					synchronized (JsonRpcCoalescingClient.this) {
+						if (pending != batch) return;
+						pending = null;
+						timer = null;
+					}
+					sendNow(batch);
+				}
+			}, maxDelayMicros, TimeUnit.MICROSECONDS);
+		} catch (RejectedExecutionException e) {
+			// the caller sends the batch at once
+			logger.debug("Scheduler rejected batch timer", e);
+			return null;
+		}
+	}
+
+	private void send(final JsonRpcBatch batch) {
+		try {
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					sendNow(batch);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			batch.fail(e);
+		}
+	}
+
+	private void sendNow(JsonRpcBatch batch) {
+		batchCount.incrementAndGet();
+		try {
+			client.invokeBatch(batch);
+		} catch (IOException | RuntimeException e) {
+			// the calls of the batch have failed with the exception
+			logger.debug("Failed to send batch of {} requests", batch.size(), e);
+		}
+	}
+
+	private static class SenderThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "jsonrpc4j-coalescing-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package com.googlecode.jsonrpc4j;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides when a {@link JsonRpcHttpClient} sends a second, hedged request for a call that
+ * is taking long, so that one stalled server does not hold the caller until the read timeout.
+ * Only methods registered as idempotent are hedged, see {@link JsonRpcIdempotent}.
+ * <p>
+ * The hedge is sent once the call has taken longer than a percentile of the recent latencies
+ * of the method, the 95th by default, and goes to another endpoint of the
+ * {@link JsonRpcLoadBalancer} if the client has one.  The first answer wins, the other request
+ * is cancelled.  Until enough calls have been measured nothing is hedged.  Hedges are paid for
+ * from a budget that every hedgeable call adds {@link #getBudgetPercent()} percent of a request
+ * to, so that hedging adds at most that much load even when every server is slow.
+ * <pre>
+ * JsonRpcHedging hedging = new JsonRpcHedging();
+ * hedging.addIdempotentMethods(MyService.class);
+ * client.setHedging(hedging);
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcHedging {
+
+	private static final int MIN_SAMPLES = 20;
+	private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+	private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final double MAX_TOKENS = 10;
+
+	private static volatile ExecutorService defaultExecutor;
+
+	private final Set<String> methods = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final ConcurrentMap<String, Latencies> latencies = new ConcurrentHashMap<>();
+	private volatile double percentile = 95;
+	private volatile long minDelayMillis = 5;
+	private volatile int budgetPercent = 10;
+	private volatile Executor executor;
+	private double tokens;
+
+	/**
+	 * @param type the proxied interface
+	 * @return {@code true} if a method of the interface is {@link JsonRpcIdempotent}
+	 */
+	public static boolean hasIdempotentMethods(Class<?> type) {
+		for (Method method : type.getMethods()) {
+			if (ReflectionUtil.getAnnotation(method, JsonRpcIdempotent.class) != null) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Registers the methods of the given interface annotated with {@link JsonRpcIdempotent},
+	 * by the name they are called with.
+	 *
+	 * @param type the proxied interface
+	 */
+	public void addIdempotentMethods(Class<?> type) {
+		for (Method method : type.getMethods()) {
+			if (ReflectionUtil.getAnnotation(method, JsonRpcIdempotent.class) != null) {
+				methods.add(ProxyUtil.getMethodName(method));
+			}
+		}
+	}
+
+	/**
+	 * Registers a remote method as safe to call twice.
+	 *
+	 * @param methodName the name of the JSON-RPC method
+	 */
+	public void addIdempotentMethod(String methodName) {
+		methods.add(methodName);
+	}
+
+	/**
+	 * @param methodName the name of the JSON-RPC method
+	 * @return {@code true} if calls of the method may be hedged
+	 */
+	public boolean isIdempotent(String methodName) {
+		return methods.contains(methodName);
+	}
+
+	/**
+	 * Returns how long to wait for an answer before hedging a call, and adds the share of the
+	 * call to the budget.
+	 *
+	 * @param methodName the name of the JSON-RPC method
+	 * @return the delay in nanoseconds, or {@code -1} if too few calls have been measured
+	 */
+	long getDelayNanos(String methodName) {
+		synchronized (this) {
+			tokens = Math.min(MAX_TOKENS, tokens + budgetPercent / 100.0);
+		}
+		return delayNanos(methodName);
+	}
+
+	/**
+	 * @param methodName the name of the JSON-RPC method
+	 * @return how long a call of the method is waited for before it is hedged, in milliseconds,
+	 * or {@code -1} if too few calls have been measured
+	 */
+	public long getDelayMillis(String methodName) {
+		long delay = delayNanos(methodName);
+		return delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+	}
+
+	private long delayNanos(String methodName) {
+		Latencies method = latencies.get(methodName);
+		if (method == null) return -1;
+		long delay = method.getPercentile(percentile);
+		return delay < 0 ? -1 : Math.max(delay, TimeUnit.MILLISECONDS.toNanos(minDelayMillis));
+	}
+
+	/**
+	 * Takes a hedge from the budget.
+	 *
+	 * @return {@code true} if the budget allows another request
+	 */
+	synchronized boolean acquireHedge() {
+		if (tokens < 1) return false;
+		tokens -= 1;
+		return true;
+	}
+
+	/**
+	 * Records the latency of an answered call, from its start to its first answer.  The
+	 * latencies of the attempts themselves are not recorded: a hedge that wins started late,
+	 * and the attempt it beat has not finished, so both would hide the slow calls.
+	 *
+	 * @param methodName   the name of the JSON-RPC method
+	 * @param latencyNanos the time until the answer
+	 */
+	void record(String methodName, long latencyNanos) {
+		Latencies method = latencies.get(methodName);
+		if (method == null) {
+			Latencies created = new Latencies();
+			method = latencies.putIfAbsent(methodName, created);
+			if (method == null) method = created;
+		}
+		method.record(latencyNanos);
+	}
+
+	/**
+	 * @return the percentile of the latencies after which a call is hedged
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * @param percentile the percentile of the latencies after which a call is hedged, 95 by default
+	 */
+	public void setPercentile(double percentile) {
+		if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("percentile must be in (0, 100]");
+		this.percentile = percentile;
+	}
+
+	/**
+	 * @return the shortest time a call is waited for before it is hedged
+	 */
+	public long getMinDelayMillis() {
+		return minDelayMillis;
+	}
+
+	/**
+	 * @param minDelayMillis the shortest time a call is waited for before it is hedged, 5 ms by default
+	 */
+	public void setMinDelayMillis(long minDelayMillis) {
+		this.minDelayMillis = minDelayMillis;
+	}
+
+	/**
+	 * @return the most hedges sent, in percent of the hedgeable calls
+	 */
+	public int getBudgetPercent() {
+		return budgetPercent;
+	}
+
+	/**
+	 * @param budgetPercent the most hedges sent, in percent of the hedgeable calls, 10 by default
+	 */
+	public void setBudgetPercent(int budgetPercent) {
+		this.budgetPercent = budgetPercent;
+	}
+
+	/**
+	 * @return the {@link Executor} the requests of hedged calls run on
+	 */
+	public Executor getExecutor() {
+		Executor executor = this.executor;
+		return executor != null ? executor : getDefaultExecutor();
+	}
+
+	/**
+	 * Sets the {@link Executor} the requests of hedged calls run on.  The requests block until
+	 * they are answered, so it must not be a small or shared pool.  By default a cached pool of
+	 * daemon threads shared by all instances.
+	 *
+	 * @param executor the {@link Executor}
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	private static ExecutorService getDefaultExecutor() {
+		ExecutorService executor = defaultExecutor;
+		if (executor == null) {
+			synchronized (JsonRpcHedging.class) {
+				executor = defaultExecutor;
+				if (executor == null) {
+					defaultExecutor = executor = Executors.newCachedThreadPool(new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "jsonrpc-hedging-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * The latencies of a method over the current and the previous window, so that old
+	 * latencies are forgotten.  Once there are enough of them the percentile is computed at
+	 * most once a second.
+	 */
+	private static class Latencies {
+
+		private volatile Histogram current = new Histogram();
+		private volatile Histogram previous;
+		private volatile long windowStart = System.nanoTime();
+		private volatile long delay = -1;
+		private volatile long delayComputed = System.nanoTime() - DELAY_REFRESH_NANOS;
+
+		void record(long latencyNanos) {
+			long now = System.nanoTime();
+			if (now - windowStart > WINDOW_NANOS) {
+				synchronized (this) {
+					if (now - windowStart > WINDOW_NANOS) {
+						previous = current;
+						current = new Histogram();
+						windowStart = now;
+					}
+				}
+			}
+			current.record(latencyNanos);
+		}
+
+		long getPercentile(double percentile) {
+			long now = System.nanoTime();
+			if (now - delayComputed < DELAY_REFRESH_NANOS) return delay;
+			Histogram histogram = current;
+			if (histogram.getCount() < MIN_SAMPLES) histogram = previous;
+			if (histogram == null || histogram.getCount() < MIN_SAMPLES) return -1;
+			delay = histogram.getValueAtPercentile(percentile);
+			delayComputed = now;
+			return delay;
+		}
+	}
+}
@@ -7,6 +7,8 @@ import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.METHOD;
 import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.PARAMS;
 import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.RESULT;
 
+import org.apache.http.Header;
+import org.apache.http.HttpConnection;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
@@ -31,7 +33,11 @@ import org.apache.http.nio.protocol.HttpAsyncRequester;
 import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
 import org.apache.http.protocol.HttpProcessor;
 import org.apache.http.protocol.ImmutableHttpProcessor;
 import org.apache.http.protocol.RequestConnControl;
@@ -42,29 +48,35 @@ import org.apache.http.protocol.RequestUserAgent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.googlecode.jsonrpc4j.JsonRpcClient.RequestListener;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
 
 /**
  * Implements an asynchronous JSON-RPC 2.0 HTTP client. This class has a
@@ -95,10 +107,11 @@ import javax.net.ssl.SSLContext;
  * @author Brett Wooldridge
  */
 @SuppressWarnings({ "WeakerAccess", "unused" })
-public class JsonRpcHttpAsyncClient {
+public class JsonRpcHttpAsyncClient implements Closeable {
 
 	private static final Logger logger = LoggerFactory.getLogger(JsonRpcHttpAsyncClient.class);
 
+	private static final long SHUTDOWN_WAIT_MILLIS = 2000;
 	private static final AtomicBoolean initialized = new AtomicBoolean();
 	private static final AtomicLong nextId = new AtomicLong();
 	private static HttpAsyncRequester requester;
@@ -107,7 +120,17 @@ public class JsonRpcHttpAsyncClient {
 	private final ExceptionResolver exceptionResolver = DefaultExceptionResolver.INSTANCE;
 	private final Map<String, String> headers = new HashMap<>();
 	private final ObjectMapper mapper;
+	private final ObjectReaderCache readers;
 	private final URL serviceUrl;
+	private volatile WireFormat wireFormat = WireFormat.JSON;
+	private volatile int compressionThreshold = ContentEncoding.DEFAULT_COMPRESSION_THRESHOLD;
+	private volatile ContentEncoding requestEncoding;
+	private volatile String contentType;
+	private volatile RequestListener requestListener;
+	private volatile SSLContext clientSslContext;
+	private volatile HostnameVerifier hostNameVerifier;
+	private BasicNIOConnPool clientPool;
+	private volatile boolean closed;
 
 	{
 		initialize();
@@ -133,6 +156,7 @@ public class JsonRpcHttpAsyncClient {
 	 */
 	public JsonRpcHttpAsyncClient(ObjectMapper mapper, URL serviceUrl, Map<String, String> headers) {
 		this.mapper = mapper;
+		this.readers = new ObjectReaderCache(mapper);
 		this.serviceUrl = serviceUrl;
 		this.headers.putAll(headers);
 	}
@@ -160,6 +184,85 @@ public class JsonRpcHttpAsyncClient {
 		JsonRpcHttpAsyncClient.sslContext = sslContext;
 	}
 
+	/**
+	 * Sets the {@link SSLContext} of the connections of this client only, unlike
+	 * {@link #setSSLContext(SSLContext)}.  The client then has a pool of connections of its
+	 * own, so it must be set before the first call, and the pool is shut down by {@link #close()}.
+	 *
+	 * @param sslContext the {@code SSLContext to use}
+	 */
+	public void setSslContext(SSLContext sslContext) {
+		this.clientSslContext = sslContext;
+	}
+
+	/**
+	 * Sets the {@link HostnameVerifier} the certificates of HTTPS servers are checked with,
+	 * by default they are not.  The client then has a pool of connections of its own, so it
+	 * must be set before the first call, and the pool is shut down by {@link #close()}.
+	 *
+	 * @param hostNameVerifier the {@link HostnameVerifier}
+	 */
+	public void setHostNameVerifier(HostnameVerifier hostNameVerifier) {
+		this.hostNameVerifier = hostNameVerifier;
+	}
+
+	/**
+	 * Sets the {@code Content-Type} of requests in a text {@link WireFormat}, by default
+	 * {@code application/json}.
+	 *
+	 * @param contentType the content type
+	 */
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Sets the {@link RequestListener} that sees every request before it is sent and every
+	 * response before it is read.  This client is not a {@link JsonRpcClient}, the listener
+	 * is passed {@code null} as the client.
+	 *
+	 * @param requestListener the {@link RequestListener}
+	 */
+	public void setRequestListener(RequestListener requestListener) {
+		this.requestListener = requestListener;
+	}
+
+	/**
+	 * @return the {@link WireFormat} requests are written and responses read in
+	 */
+	public WireFormat getWireFormat() {
+		return wireFormat;
+	}
+
+	/**
+	 * Sets the {@link WireFormat} requests are written and responses read in, the
+	 * server must accept it.  Defaults to {@link WireFormat#JSON}.
+	 *
+	 * @param wireFormat the format
+	 */
+	public void setWireFormat(WireFormat wireFormat) {
+		this.wireFormat = wireFormat;
+	}
+
+	/**
+	 * @return the size in bytes above which requests are compressed
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Sets the size in bytes above which requests are compressed, once the server has listed
+	 * gzip or deflate in the {@code Accept-Encoding} header of a response.  Defaults to
+	 * {@value ContentEncoding#DEFAULT_COMPRESSION_THRESHOLD}, a negative threshold disables the
+	 * compression of requests.  Compressed responses are decompressed in any case.
+	 *
+	 * @param compressionThreshold the threshold in bytes
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
 	/**
 	 * Invokes the given method with the given arguments and returns
 	 * immediately. The {@code Future} object that is returned can be used to
@@ -187,7 +290,82 @@ public class JsonRpcHttpAsyncClient {
 	 * @return the response {@code Future<T>}
 	 */
 	private <T> Future<T> invoke(String methodName, Object argument, Class<T> returnType, Map<String, String> extraHeaders) {
-		return doInvoke(methodName, argument, returnType, extraHeaders, new JsonRpcFuture<T>());
+		return invokeAsync(methodName, argument, returnType, extraHeaders);
+	}
+
+	/**
+	 * Invokes the given method with the given arguments and returns
+	 * immediately. The returned {@code CompletableFuture} is completed
+	 * with the result, or exceptionally, once the response arrives.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument the arguments to the method
+	 * @return the response {@code CompletableFuture}
+	 * @see #invokeAsync(String, Object, Class, Map)
+	 */
+	public CompletableFuture<Object> invokeAsync(String methodName, Object argument) {
+		return invokeAsync(methodName, argument, Object.class, new HashMap<String, String>());
+	}
+
+	/**
+	 * Invokes the given method with the given arguments and returns
+	 * immediately. The returned {@code CompletableFuture} is completed
+	 * with the result cast to the given {@code returnType}, or null if
+	 * void, or exceptionally, once the response arrives.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument the arguments to the method
+	 * @param returnType the return type
+	 * @param <T> the return type
+	 * @return the response {@code CompletableFuture}
+	 * @see #invokeAsync(String, Object, Class, Map)
+	 */
+	public <T> CompletableFuture<T> invokeAsync(String methodName, Object argument, Class<T> returnType) {
+		return invokeAsync(methodName, argument, returnType, new HashMap<String, String>());
+	}
+
+	/**
+	 * Invokes the given method with the given arguments and returns
+	 * immediately. The {@code extraHeaders} are added to the request.
+	 * The returned {@code CompletableFuture} is completed with the result
+	 * cast to the given {@code returnType}, or null if void, or
+	 * exceptionally, once the response arrives.
+	 * <p>
+	 * Cancelling the future aborts the HTTP exchange: a request still
+	 * waiting for a pooled connection is not sent, and the response of a
+	 * request already sent is discarded.  Dependent stages that are not
+	 * added with one of the {@code *Async} methods run on the I/O reactor
+	 * thread and must not block.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument the arguments to the method
+	 * @param returnType the return type
+	 * @param extraHeaders extra headers to add to the request
+	 * @param <T> the return type
+	 * @return the response {@code CompletableFuture}
+	 */
+	public <T> CompletableFuture<T> invokeAsync(String methodName, Object argument, Class<T> returnType, Map<String, String> extraHeaders) {
+		JsonRpcFuture<T> future = new JsonRpcFuture<>();
+		doInvoke(methodName, argument, returnType, extraHeaders, future);
+		return future;
+	}
+
+	/**
+	 * Invokes the given method with the given arguments and returns
+	 * immediately, like {@link #invokeAsync(String, Object, Class, Map)}
+	 * but for a generic {@code returnType}, such as the type argument of
+	 * the {@code Future} returned by a proxied method.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument the arguments to the method
+	 * @param returnType the return type
+	 * @param extraHeaders extra headers to add to the request
+	 * @return the response {@code CompletableFuture}
+	 */
+	public CompletableFuture<Object> invokeAsync(String methodName, Object argument, Type returnType, Map<String, String> extraHeaders) {
+		JsonRpcFuture<Object> future = new JsonRpcFuture<>();
+		doInvoke(methodName, argument, returnType, extraHeaders, future);
+		return future;
 	}
 
 	/**
@@ -202,8 +380,7 @@ public class JsonRpcHttpAsyncClient {
 	 * @param returnType the return type
 	 * @param callback the {@code JsonRpcCallback}
 	 */
-	@SuppressWarnings("unchecked")
-	private <T> Future<T> doInvoke(String methodName, Object argument, Class<T> returnType, Map<String, String> extraHeaders, JsonRpcCallback<T> callback) {
+	private <T> void doInvoke(String methodName, Object argument, Type returnType, Map<String, String> extraHeaders, JsonRpcCallback<T> callback) {
 
 		String path = serviceUrl.getPath() + (serviceUrl.getQuery() != null ? "?" + serviceUrl.getQuery() : "");
 		int port = serviceUrl.getPort() != -1 ? serviceUrl.getPort() : serviceUrl.getDefaultPort();
@@ -216,6 +393,7 @@ public class JsonRpcHttpAsyncClient {
 			writeRequest(methodName, argument, request);
 		} catch (IOException e) {
 			callback.onError(e);
+			return;
 		}
 
 		HttpHost target = new HttpHost(serviceUrl.getHost(), port, serviceUrl.getProtocol());
@@ -225,9 +403,11 @@ public class JsonRpcHttpAsyncClient {
 		RequestAsyncFuture<T> futureCallback = new RequestAsyncFuture<>(returnType, callback);
 
 		BasicHttpContext httpContext = new BasicHttpContext();
-		requester.execute(asyncRequestProducer, asyncResponseConsumer, pool, httpContext, futureCallback);
+		Future<HttpResponse> exchange = requester.execute(asyncRequestProducer, asyncResponseConsumer, getPool(), httpContext, futureCallback);
 
-		return (callback instanceof JsonRpcFuture ? (Future<T>) callback : null);
+		if (callback instanceof JsonRpcFuture) {
+			((JsonRpcFuture<T>) callback).attach(exchange, asyncResponseConsumer, httpContext);
+		}
 	}
 
 	/**
@@ -273,17 +453,50 @@ public class JsonRpcHttpAsyncClient {
 			request.set(PARAMS, mapper.valueToTree(arguments));
 		}
 
+		RequestListener listener = requestListener;
+		if (listener != null) {
+			listener.onBeforeRequestSent(null, request);
+		}
+
 		logger.debug("JSON-PRC Request: {}", request);
 
+		WireFormat format = wireFormat;
 		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(512);
-		mapper.writeValue(byteArrayOutputStream, request);
+		if (format.isText()) {
+			mapper.writeValue(byteArrayOutputStream, request);
+		} else {
+			try (JsonGenerator generator = format.createGenerator(mapper, byteArrayOutputStream)) {
+				mapper.writeValue(generator, request);
+			}
+		}
 		HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) httpRequest;
+		if (entityRequest.getFirstHeader("Accept-Encoding") == null) {
+			entityRequest.addHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+		}
+
+		byte[] body = byteArrayOutputStream.toByteArray();
+		ContentEncoding encoding = requestEncoding;
+		int threshold = compressionThreshold;
+		if (encoding != null && threshold >= 0 && body.length > threshold) {
+			byteArrayOutputStream.reset();
+			try (OutputStream compressed = encoding.compress(byteArrayOutputStream)) {
+				compressed.write(body);
+			}
+			body = byteArrayOutputStream.toByteArray();
+			entityRequest.addHeader("Content-Encoding", encoding.getName());
+		}
 
 		HttpEntity entity;
-		if (entityRequest.getFirstHeader("Content-Type") == null) {
-			entity = new ByteArrayEntity(byteArrayOutputStream.toByteArray(), ContentType.APPLICATION_JSON);
+		if (!format.isText()) {
+			if (entityRequest.getFirstHeader("Accept") == null) {
+				entityRequest.addHeader("Accept", format.getContentType());
+			}
+			entity = new ByteArrayEntity(body, ContentType.create(format.getContentType()));
+		} else if (entityRequest.getFirstHeader("Content-Type") == null) {
+			String type = contentType;
+			entity = new ByteArrayEntity(body, type != null ? ContentType.parse(type) : ContentType.APPLICATION_JSON);
 		} else {
-			entity = new ByteArrayEntity(byteArrayOutputStream.toByteArray());
+			entity = new ByteArrayEntity(body);
 		}
 		entityRequest.setEntity(entity);
 	}
@@ -356,10 +569,14 @@ public class JsonRpcHttpAsyncClient {
 	 * @throws Throwable on error
 	 */
 	private <T> T readResponse(Type returnType, InputStream ips) throws Throwable {
-		JsonNode response = mapper.readTree(new NoCloseInputStream(ips));
+		JsonNode response = ReadContext.getReadContext(new NoCloseInputStream(ips), mapper, wireFormat).nextValue();
 		logger.debug("JSON-PRC Response: {}", response);
 		if (!response.isObject()) { throw new JsonRpcClientException(0, "Invalid JSON-RPC response", response); }
 		ObjectNode jsonObject = ObjectNode.class.cast(response);
+		RequestListener listener = requestListener;
+		if (listener != null) {
+			listener.onBeforeResponseProcessed(null, jsonObject);
+		}
 
 		if (jsonObject.has(ERROR) && jsonObject.get(ERROR) != null && !jsonObject.get(ERROR).isNull()) {
 
@@ -372,23 +589,66 @@ public class JsonRpcHttpAsyncClient {
 		if (jsonObject.has(RESULT) && !jsonObject.get(RESULT).isNull() && jsonObject.get(RESULT) != null) {
 
 			JsonParser returnJsonParser = mapper.treeAsTokens(jsonObject.get(RESULT));
-			JavaType returnJavaType = mapper.getTypeFactory().constructType(returnType);
-
-			return mapper.readValue(returnJsonParser, returnJavaType);
+			return readers.forType(returnType).readValue(returnJsonParser);
 		}
 		return null;
 	}
 
 	private void initialize() {
 		if (initialized.getAndSet(true)) { return; }
+		createSslContext();
+		pool = createPool(sslContext, null);
+
+		HttpProcessor httpProcessor = new ImmutableHttpProcessor(new RequestContent(), new RequestTargetHost(), new RequestConnControl(), new RequestUserAgent(), new RequestExpectContinue(false));
+		requester = new HttpAsyncRequester(httpProcessor, new DefaultConnectionReuseStrategy());
+	}
+
+	/**
+	 * @return the shared pool, or the pool of this client if it has its own SSL settings
+	 */
+	private BasicNIOConnPool getPool() {
+		SSLContext ownSslContext = clientSslContext;
+		HostnameVerifier verifier = hostNameVerifier;
+		if (closed) { throw new IllegalStateException("The client is closed"); }
+		if (ownSslContext == null && verifier == null) { return pool; }
+		synchronized (this) {
+			if (closed) { throw new IllegalStateException("The client is closed"); }
+			if (clientPool == null) {
+				clientPool = createPool(ownSslContext != null ? ownSslContext : sslContext, verifier != null ? verifying(verifier) : null);
+			}
+			return clientPool;
+		}
+	}
+
+	/**
+	 * Shuts down the pool of connections of this client, and with it its I/O reactor thread,
+	 * if it has one of its own.  The pool shared by the clients without SSL settings of their
+	 * own is left running.  The client must not be used afterwards.
+	 *
+	 * @throws IOException on error
+	 */
+	@Override
+	public void close() throws IOException {
+		BasicNIOConnPool ownPool;
+		synchronized (this) {
+			if (closed) { return; }
+			closed = true;
+			ownPool = clientPool;
+			clientPool = null;
+		}
+		if (ownPool != null) {
+			ownPool.shutdown(SHUTDOWN_WAIT_MILLIS);
+		}
+	}
+
+	private static BasicNIOConnPool createPool(final SSLContext sslContext, final SSLSetupHandler sslSetupHandler) {
 		IOReactorConfig.Builder config = createConfig();
 		// params.setParameter(CoreProtocolPNames.USER_AGENT, "jsonrpc4j/1.0");
 		final ConnectingIOReactor ioReactor = createIoReactor(config);
-		createSslContext();
 		int socketBufferSize = Integer.getInteger("com.googlecode.jsonrpc4j.async.socket.buffer", 8 * 1024);
 		final ConnectionConfig connectionConfig = ConnectionConfig.custom().setBufferSize(socketBufferSize).build();
-		BasicNIOConnFactory nioConnFactory = new BasicNIOConnFactory(sslContext, null, connectionConfig);
-		pool = new BasicNIOConnPool(ioReactor, nioConnFactory, Integer.getInteger("com.googlecode.jsonrpc4j.async.connect.timeout", 30000));
+		BasicNIOConnFactory nioConnFactory = new BasicNIOConnFactory(sslContext, sslSetupHandler, connectionConfig);
+		BasicNIOConnPool pool = new BasicNIOConnPool(ioReactor, nioConnFactory, Integer.getInteger("com.googlecode.jsonrpc4j.async.connect.timeout", 30000));
 		pool.setDefaultMaxPerRoute(Integer.getInteger("com.googlecode.jsonrpc4j.async.max.inflight.route", 500));
 		pool.setMaxTotal(Integer.getInteger("com.googlecode.jsonrpc4j.async.max.inflight.total", 500));
 
@@ -397,7 +657,7 @@ public class JsonRpcHttpAsyncClient {
 			public void run() {
 				try {
 					HttpAsyncRequestExecutor protocolHandler = new HttpAsyncRequestExecutor();
-					IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(protocolHandler, sslContext, connectionConfig);
+					IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(protocolHandler, sslContext, sslSetupHandler, connectionConfig);
 					ioReactor.execute(ioEventDispatch);
 				} catch (InterruptedIOException ex) {
 					System.err.println("Interrupted");
@@ -409,12 +669,30 @@ public class JsonRpcHttpAsyncClient {
 
 		t.setDaemon(true);
 		t.start();
+		return pool;
+	}
 
-		HttpProcessor httpProcessor = new ImmutableHttpProcessor(new RequestContent(), new RequestTargetHost(), new RequestConnControl(), new RequestUserAgent(), new RequestExpectContinue(false));
-		requester = new HttpAsyncRequester(httpProcessor, new DefaultConnectionReuseStrategy());
+	/**
+	 * @param verifier the {@link HostnameVerifier}
+	 * @return the {@link SSLSetupHandler} checking the certificate of the server with it
+	 */
+	private static SSLSetupHandler verifying(final HostnameVerifier verifier) {
+		return new SSLSetupHandler() {
+			@Override
+			public void initalize(SSLEngine sslEngine) {
+			}
+
+			@Override
+			public void verify(IOSession session, SSLSession sslSession) throws SSLPeerUnverifiedException {
+				String host = ((InetSocketAddress) session.getRemoteAddress()).getHostString();
+				if (!verifier.verify(host, sslSession)) {
+					throw new SSLPeerUnverifiedException("Certificate does not match the host name " + host);
+				}
+			}
+		};
 	}
 
-	private IOReactorConfig.Builder createConfig() {
+	private static IOReactorConfig.Builder createConfig() {
 		IOReactorConfig.Builder config = IOReactorConfig.custom();
 		config = config.setSoTimeout(Integer.getInteger("com.googlecode.jsonrpc4j.async.socket.timeout", 30000));
 		config = config.setConnectTimeout(Integer.getInteger("com.googlecode.jsonrpc4j.async.connect.timeout", 30000));
@@ -423,7 +701,7 @@ public class JsonRpcHttpAsyncClient {
 		return config;
 	}
 
-	private ConnectingIOReactor createIoReactor(IOReactorConfig.Builder config) {
+	private static ConnectingIOReactor createIoReactor(IOReactorConfig.Builder config) {
 		final ConnectingIOReactor ioReactor;
 		try {
 			ioReactor = new DefaultConnectingIOReactor(config.build());
@@ -443,57 +721,67 @@ public class JsonRpcHttpAsyncClient {
 		}
 	}
 
-	private static class JsonRpcFuture<T> implements Future<T>, JsonRpcCallback<T> {
-
-		private T object;
-		private boolean done;
-		private ExecutionException exception;
-
-		public boolean cancel(boolean mayInterruptIfRunning) {
-			return false;
-		}
-
-		public boolean isCancelled() {
-			return false;
-		}
-
-		public synchronized boolean isDone() {
-			return done;
+	/**
+	 * The future of an invocation, cancelling it aborts the HTTP exchange.  A request already
+	 * sent can not be taken back, its connection is shut down so that the server sees the
+	 * call abandoned and the connection is not returned to the pool with a response pending.
+	 *
+	 * @param <T> the return type
+	 */
+	private static class JsonRpcFuture<T> extends CompletableFuture<T> implements JsonRpcCallback<T> {
+
+		private volatile Future<HttpResponse> exchange;
+		private volatile BasicAsyncResponseConsumer responseConsumer;
+		private volatile HttpContext httpContext;
+
+		void attach(Future<HttpResponse> exchange, BasicAsyncResponseConsumer responseConsumer, HttpContext httpContext) {
+			this.exchange = exchange;
+			this.responseConsumer = responseConsumer;
+			this.httpContext = httpContext;
+			// the future may have been cancelled before the exchange was started
+			if (isCancelled()) {
+				abort();
+			}
 		}
 
-		public synchronized T get() throws InterruptedException,
-				ExecutionException {
-			while (!done) {
-				this.wait();
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				abort();
 			}
-
-			if (exception != null) { throw exception; }
-
-			return object;
+			return cancelled;
 		}
 
-		public synchronized T get(long timeout, TimeUnit unit)
-				throws InterruptedException, ExecutionException,
-				TimeoutException {
-			while (!done) {
-				this.wait(unit.toMillis(timeout));
+		private void abort() {
+			Future<HttpResponse> exchange = this.exchange;
+			if (exchange != null) {
+				exchange.cancel(true);
+			}
+			BasicAsyncResponseConsumer responseConsumer = this.responseConsumer;
+			if (responseConsumer != null) {
+				responseConsumer.cancel();
+			}
+			// set once the request is generated, before that cancelling the exchange keeps it from starting
+			HttpContext httpContext = this.httpContext;
+			Object connection = httpContext != null ? httpContext.getAttribute(HttpCoreContext.HTTP_CONNECTION) : null;
+			if (connection instanceof HttpConnection) {
+				try {
+					((HttpConnection) connection).shutdown();
+				} catch (IOException e) {
+					logger.debug("Shutting down the connection of a cancelled call failed", e);
+				}
 			}
-
-			if (exception != null) { throw exception; }
-
-			return object;
 		}
 
-		public synchronized void onComplete(T result) {
-			object = result;
-			done = true;
-			this.notify();
+		@Override
+		public void onComplete(T result) {
+			complete(result);
 		}
 
-		public synchronized void onError(Throwable t) {
-			exception = new ExecutionException(t);
-			done = true;
-			this.notify();
+		@Override
+		public void onError(Throwable t) {
+			completeExceptionally(t);
 		}
 	}
 
@@ -504,9 +792,9 @@ public class JsonRpcHttpAsyncClient {
 	 */
 	private class RequestAsyncFuture<T> implements FutureCallback<HttpResponse> {
 		private final JsonRpcCallback<T> callBack;
-		private final Class<T> type;
+		private final Type type;
 
-		RequestAsyncFuture(Class<T> type, JsonRpcCallback<T> callBack) {
+		RequestAsyncFuture(Type type, JsonRpcCallback<T> callBack) {
 			this.type = type;
 			this.callBack = callBack;
 		}
@@ -515,6 +803,11 @@ public class JsonRpcHttpAsyncClient {
 			try {
 				StatusLine statusLine = response.getStatusLine();
 				int statusCode = statusLine.getStatusCode();
+				Header acceptEncoding = response.getFirstHeader("Accept-Encoding");
+				if (acceptEncoding != null) {
+					// the server takes compressed requests
+					requestEncoding = ContentEncoding.forAcceptEncoding(acceptEncoding.getValue());
+				}
 
 				InputStream stream;
 				if (statusCode == 200) {
@@ -526,7 +819,17 @@ public class JsonRpcHttpAsyncClient {
 						return;
 					}
 
-					callBack.onComplete(type.cast(readResponse(type, stream)));
+					Header contentEncoding = response.getFirstHeader("Content-Encoding");
+					ContentEncoding encoding = contentEncoding != null ? ContentEncoding.forName(contentEncoding.getValue()) : null;
+					T result;
+					if (encoding == null) {
+						result = JsonRpcHttpAsyncClient.this.<T>readResponse(type, stream);
+					} else {
+						try (InputStream decompressed = encoding.decompress(stream)) {
+							result = JsonRpcHttpAsyncClient.this.<T>readResponse(type, decompressed);
+						}
+					}
+					callBack.onComplete(result);
 				} else {
 					callBack.onError(new RuntimeException(
 							"Unexpected response code: " + statusCode));
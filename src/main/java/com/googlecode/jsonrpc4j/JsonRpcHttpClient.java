@@ -2,9 +2,9 @@ package com.googlecode.jsonrpc4j;
 
 import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.JSONRPC_CONTENT_TYPE;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.googlecode.jsonrpc4j.spring.sleuth.JsonRpcHttpClientSpanInjector;
-import org.apache.commons.collections.MapUtils;
 import org.kopitubruk.util.json.JSONUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,20 +18,33 @@ import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.Proxy;
+import java.net.URI;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -44,6 +57,7 @@ import javax.net.ssl.SSLContext;
 public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonRpcHttpClient.class);
+    private static final int MAX_INSTANCE_URLS = 256;
 
     private final Map<String, String> headers = new HashMap<>();
     private URL serviceUrl;
@@ -53,9 +67,17 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
     private SSLContext sslContext = null;
     private HostnameVerifier hostNameVerifier = null;
     private String contentType = JSONRPC_CONTENT_TYPE;
+    private JsonRpcHttpTransport transport;
+    private BufferPool bufferPool = BufferPool.getDefault();
+    private volatile int compressionThreshold = ContentEncoding.DEFAULT_COMPRESSION_THRESHOLD;
+    private volatile ContentEncoding requestEncoding;
 
 
     private LoadBalancerClient loadBalancerClient;
+    // keyed by the instance and the service path the URL was resolved with
+    private final ConcurrentMap<List<Object>, URL> instanceUrls = new ConcurrentHashMap<>();
+    private volatile JsonRpcLoadBalancer loadBalancer;
+    private volatile JsonRpcHedging hedging;
     //服务名称
     private String serviceId;
     //rpc 路径
@@ -157,34 +179,327 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         Map<String, String> spanHeaders = JsonRpcHttpClientSpanInjector.sleuthHeaders(span);
         spanHeaders.putAll(extraHeaders);
         logger.debug("connection with extraHeaders:{}", spanHeaders);
-        HttpURLConnection connection = prepareConnection(spanHeaders);
-        connection.connect();
+        JsonRpcHedging hedging = this.hedging;
+        boolean hedged = hedging != null && hedging.isIdempotent(methodName);
+        PooledByteArrayOutputStream body = bufferRequest(methodName, argument, hedged);
         try {
-            try (OutputStream send = connection.getOutputStream()) {
-                super.invoke(methodName, argument, send);
+            ContentEncoding encoding = body != null ? getRequestEncoding(body.size()) : null;
+            if (encoding != null) {
+                spanHeaders.put("Content-Encoding", encoding.getName());
+            }
+            JsonRpcLoadBalancer balancer = loadBalancer;
+            if (hedged) {
+                // the attempts release the body once none of them needs it any more
+                Attempt first = new Attempt(hedging, balancer, balancer != null ? balancer.choose() : null, methodName, argument, body, encoding, returnType, spanHeaders);
+                body = null;
+                return response = invokeHedged(first);
+            }
+            if (balancer == null) {
+                return response = invoke(getServiceUrl(), methodName, argument, body, encoding, returnType, spanHeaders, null);
+            }
+            JsonRpcLoadBalancer.Endpoint endpoint = balancer.choose();
+            long start = System.nanoTime();
+            boolean answered = true;
+            try {
+                return response = invoke(endpoint.getUrl(), methodName, argument, body, encoding, returnType, spanHeaders, null);
+            } catch (IOException | HttpException e) {
+                answered = false;
+                throw e;
+            } finally {
+                balancer.release(endpoint, System.nanoTime() - start, answered);
+            }
+        } finally {
+            if (body != null) {
+                body.release();
             }
-            final boolean useGzip = useGzip(connection);
+            if (tracer != null && tracer.isTracing()) {
+                span.tag("result", JSONUtil.toJSON(response));
+                span.logEvent(Span.CLIENT_RECV);
+                tracer.close(span);
+            }
+        }
+
+    }
+
+    /**
+     * Invokes the method at the given URL.
+     *
+     * @param url          the service end-point URL
+     * @param methodName   the method to invoke
+     * @param argument     the arguments
+     * @param body         the request when it has been serialized already, or {@code null}
+     * @param encoding     the coding to compress the request with, or {@code null}
+     * @param returnType   the return type
+     * @param extraHeaders extra headers to add to the request
+     * @param attempt      the attempt of a hedged call that may cancel the request, or {@code null}
+     * @return the result
+     * @throws Throwable on error
+     */
+    private Object invoke(URL url, String methodName, Object argument, PooledByteArrayOutputStream body, ContentEncoding encoding, Type returnType, Map<String, String> extraHeaders, Attempt attempt) throws Throwable {
+        if (transport != null) {
+            return invokeWithTransport(url, methodName, argument, body, encoding, returnType, extraHeaders);
+        }
+        HttpURLConnection connection = prepareConnection(url, extraHeaders);
+        if (attempt != null && !attempt.open(connection)) {
+            throw new InterruptedIOException("Hedged request cancelled");
+        }
+        connection.connect();
+        try {
+            writeRequest(connection.getOutputStream(), methodName, argument, body, encoding);
+            final ContentEncoding responseEncoding = negotiate(connection.getHeaderField("Content-Encoding"), connection.getHeaderField("Accept-Encoding"));
             // read and return value
             try {
-                try (InputStream answer = getStream(connection.getInputStream(), useGzip)) {
-                    return response = super.readResponse(returnType, answer);
+                try (InputStream answer = getStream(connection.getInputStream(), responseEncoding)) {
+                    return super.readResponse(returnType, answer);
                 }
             } catch (IOException e) {
-                try (InputStream answer = getStream(connection.getErrorStream(), useGzip)) {
-                    return response = super.readResponse(returnType, answer);
+                try (InputStream answer = getStream(connection.getErrorStream(), responseEncoding)) {
+                    return super.readResponse(returnType, answer);
                 } catch (IOException ef) {
                     throw new HttpException(readErrorString(connection), ef);
                 }
             }
         } finally {
-            if (tracer != null && tracer.isTracing()) {
-                span.tag("result", JSONUtil.toJSON(response));
-                span.logEvent(Span.CLIENT_RECV);
-                tracer.close(span);
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Runs the first attempt of a hedged call and, if it has not been answered within the
+     * delay of the {@link JsonRpcHedging} and the budget allows, a second one on another
+     * endpoint.  The first answer is returned and the other attempt cancelled, a failure to
+     * reach one server waits for the other attempt.
+     *
+     * @param first the first {@link Attempt}
+     * @return the result
+     * @throws Throwable on error
+     */
+    private Object invokeHedged(final Attempt first) throws Throwable {
+        // one latency per call, from its start to the first answer: when the first attempt
+        // loses this is how long it had taken so far, a lower bound of its own latency
+        long start = System.nanoTime();
+        boolean answered = false;
+        try {
+            Object result = invokeAttempts(first);
+            answered = true;
+            return result;
+        } catch (Throwable t) {
+            answered = !(t instanceof IOException || t instanceof HttpException);
+            throw t;
+        } finally {
+            if (answered) {
+                first.hedging.record(first.methodName, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private Object invokeAttempts(final Attempt first) throws Throwable {
+        JsonRpcHedging hedging = first.hedging;
+        long delay = hedging.getDelayNanos(first.methodName);
+        if (delay < 0 || !first.submit()) {
+            // too few latencies known to tell a slow call: just measure this one
+            first.run();
+            first.releaseBody(null);
+            return await(first.result);
+        }
+        Attempt second = null;
+        try {
+            try {
+                return first.result.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                second = first.hedge();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+            if (second == null) {
+                return await(first.result);
+            }
+            final CompletableFuture<Object> winner = new CompletableFuture<>();
+            final AtomicInteger unreachable = new AtomicInteger();
+            BiConsumer<Object, Throwable> race = new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object result, Throwable error) {
+                    if (error == null) {
+                        winner.complete(result);
+                    } else if (!(error instanceof IOException || error instanceof HttpException) || unreachable.incrementAndGet() == 2) {
+                        winner.completeExceptionally(error);
+                    }
+                }
+            };
+            first.result.whenComplete(race);
+            second.result.whenComplete(race);
+            return await(winner);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + first.methodName);
+        } finally {
+            first.cancel();
+            first.releaseBody(second);
+            if (second != null) {
+                second.cancel();
+            }
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> result) throws Throwable {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Invokes the method over the {@link JsonRpcHttpTransport}.
+     *
+     * @param url          the service end-point URL
+     * @param methodName   the method to invoke
+     * @param argument     the arguments
+     * @param body         the request when it has been serialized already, or {@code null}
+     * @param encoding     the coding to compress the request with, or {@code null}
+     * @param returnType   the return type
+     * @param extraHeaders extra headers to add to the request
+     * @return the result
+     * @throws Throwable on error
+     */
+    private Object invokeWithTransport(URL url, String methodName, Object argument, PooledByteArrayOutputStream body, ContentEncoding encoding, Type returnType, Map<String, String> extraHeaders) throws Throwable {
+        Map<String, String> requestHeaders = new HashMap<>();
+        addFormatHeaders(requestHeaders);
+        requestHeaders.putAll(headers);
+        requestHeaders.putAll(extraHeaders);
+        try (JsonRpcHttpTransport.Exchange exchange = transport.open(url, requestHeaders)) {
+            writeRequest(exchange.getRequestBody(), methodName, argument, body, encoding);
+            final ContentEncoding responseEncoding = negotiate(exchange.getHeader("Content-Encoding"), exchange.getHeader("Accept-Encoding"));
+            if (exchange.getStatusCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+                try (InputStream answer = getStream(exchange.getResponseBody(), responseEncoding)) {
+                    return super.readResponse(returnType, answer);
+                }
+            }
+            // error responses may still carry a JSON-RPC error
+            byte[] error = readFully(exchange.getResponseBody());
+            try (InputStream answer = getStream(new ByteArrayInputStream(error), responseEncoding)) {
+                return super.readResponse(returnType, answer);
+            } catch (IOException e) {
+                throw new HttpException(new String(error, "UTF-8"), e);
+            }
+        }
+    }
+
+    /**
+     * Sends the requests of the given {@link JsonRpcBatch} in a single HTTP request
+     * and completes its calls from the array of responses.
+     *
+     * @param batch the {@link JsonRpcBatch}
+     * @throws IOException on error, the calls of the batch fail too
+     */
+    public void invokeBatch(JsonRpcBatch batch) throws IOException {
+        invokeBatch(batch, new HashMap<String, String>());
+    }
+
+    /**
+     * Sends the requests of the given {@link JsonRpcBatch} in a single HTTP request
+     * and completes its calls from the array of responses.
+     *
+     * @param batch        the {@link JsonRpcBatch}
+     * @param extraHeaders extra headers to add to the request
+     * @throws IOException on error, the calls of the batch fail too
+     */
+    public void invokeBatch(JsonRpcBatch batch, Map<String, String> extraHeaders) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            logger.debug("Batch request {}", batch.getRequests());
+            byte[] response = post(writeValueAsBytes(batch.getRequests()), extraHeaders);
+            if (!batch.expectsResponse()) {
+                return;
             }
+            JsonNode responses;
+            try {
+                responses = readTree(response);
+            } catch (IOException e) {
+                // binary bodies are not decoded as text
+                WireFormat format = getWireFormat();
+                throw new HttpException(format.isText() ? new String(response, "UTF-8") : "Unreadable " + format.getName() + " response of " + response.length + " bytes", e);
+            }
+            batch.complete(responses);
+        } catch (IOException | RuntimeException e) {
+            batch.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Posts the given request body and returns the response body, whatever the status code.
+     *
+     * @param request      the request body
+     * @param extraHeaders extra headers to add to the request
+     * @return the response body
+     * @throws IOException on error
+     */
+    private byte[] post(byte[] request, Map<String, String> extraHeaders) throws IOException {
+        ContentEncoding encoding = getRequestEncoding(request.length);
+        if (encoding != null) {
+            extraHeaders = new HashMap<>(extraHeaders);
+            extraHeaders.put("Content-Encoding", encoding.getName());
+        }
+        JsonRpcLoadBalancer balancer = loadBalancer;
+        if (balancer == null) {
+            return post(getServiceUrl(), request, encoding, extraHeaders);
+        }
+        JsonRpcLoadBalancer.Endpoint endpoint = balancer.choose();
+        long start = System.nanoTime();
+        boolean answered = true;
+        try {
+            return post(endpoint.getUrl(), request, encoding, extraHeaders);
+        } catch (IOException | HttpException e) {
+            answered = false;
+            throw e;
+        } finally {
+            balancer.release(endpoint, System.nanoTime() - start, answered);
+        }
+    }
+
+    private byte[] post(URL url, byte[] request, ContentEncoding encoding, Map<String, String> extraHeaders) throws IOException {
+        if (transport != null) {
+            Map<String, String> requestHeaders = new HashMap<>();
+            addFormatHeaders(requestHeaders);
+            requestHeaders.putAll(headers);
+            requestHeaders.putAll(extraHeaders);
+            try (JsonRpcHttpTransport.Exchange exchange = transport.open(url, requestHeaders)) {
+                try (OutputStream send = compress(exchange.getRequestBody(), encoding)) {
+                    send.write(request);
+                }
+                final ContentEncoding responseEncoding = negotiate(exchange.getHeader("Content-Encoding"), exchange.getHeader("Accept-Encoding"));
+                return readFully(getStream(exchange.getResponseBody(), responseEncoding));
+            }
+        }
+        HttpURLConnection connection = prepareConnection(url, extraHeaders);
+        connection.connect();
+        try {
+            try (OutputStream send = compress(connection.getOutputStream(), encoding)) {
+                send.write(request);
+            }
+            final ContentEncoding responseEncoding = negotiate(connection.getHeaderField("Content-Encoding"), connection.getHeaderField("Accept-Encoding"));
+            InputStream answer = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+            return answer == null ? new byte[0] : readFully(getStream(answer, responseEncoding));
+        } finally {
             connection.disconnect();
         }
+    }
 
+    private byte[] readFully(InputStream input) throws IOException {
+        PooledByteArrayOutputStream output = new PooledByteArrayOutputStream(bufferPool);
+        byte[] buffer = bufferPool.acquire();
+        try (InputStream stream = input) {
+            for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            bufferPool.release(buffer);
+            output.release();
+        }
     }
 
     /**
@@ -208,14 +523,15 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
     /**
      * Prepares a connection to the server.
      *
+     * @param url          the service end-point URL
      * @param extraHeaders extra headers to add to the request
      * @return the unopened connection
      * @throws IOException
      */
-    private HttpURLConnection prepareConnection(Map<String, String> extraHeaders) throws IOException {
+    private HttpURLConnection prepareConnection(URL url, Map<String, String> extraHeaders) throws IOException {
 
         // create URLConnection
-        HttpURLConnection connection = (HttpURLConnection) getServiceUrl().openConnection(connectionProxy);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(connectionProxy);
         connection.setConnectTimeout(connectionTimeoutMillis);
         connection.setReadTimeout(readTimeoutMillis);
         connection.setAllowUserInteraction(false);
@@ -232,13 +548,62 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         return connection;
     }
 
-    private InputStream getStream(final InputStream inputStream, final boolean useGzip) throws IOException {
-        return useGzip ? new GZIPInputStream(inputStream) : inputStream;
+    private InputStream getStream(final InputStream inputStream, final ContentEncoding encoding) throws IOException {
+        return encoding != null ? encoding.decompress(inputStream) : inputStream;
+    }
+
+    private static OutputStream compress(final OutputStream outputStream, final ContentEncoding encoding) throws IOException {
+        return encoding != null ? encoding.compress(outputStream) : outputStream;
+    }
+
+    /**
+     * Serializes the request ahead of sending it when it may be compressed, so that its
+     * size is known before the headers are sent, or when it may be sent twice.
+     *
+     * @param always {@code true} to serialize it even if it is not to be compressed
+     * @return the request, or {@code null} if it is to be streamed
+     */
+    private PooledByteArrayOutputStream bufferRequest(String methodName, Object argument, boolean always) throws IOException {
+        if (!always && (requestEncoding == null || compressionThreshold < 0)) {
+            return null;
+        }
+        PooledByteArrayOutputStream body = new PooledByteArrayOutputStream(bufferPool);
+        super.invoke(methodName, argument, body);
+        return body;
+    }
+
+    private void writeRequest(OutputStream send, String methodName, Object argument, PooledByteArrayOutputStream body, ContentEncoding encoding) throws IOException {
+        try (OutputStream output = compress(send, encoding)) {
+            if (body != null) {
+                body.writeTo(output);
+            } else {
+                super.invoke(methodName, argument, output);
+            }
+        }
     }
 
-    private boolean useGzip(final HttpURLConnection connection) {
-        String contentEncoding = connection.getHeaderField("Content-Encoding");
-        return contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip");
+    /**
+     * @param size the size of the request in bytes
+     * @return the coding to compress the request with, or {@code null} to send it as is
+     */
+    private ContentEncoding getRequestEncoding(int size) {
+        int threshold = compressionThreshold;
+        return threshold >= 0 && size > threshold ? requestEncoding : null;
+    }
+
+    /**
+     * Learns from the {@code Accept-Encoding} header of a response whether the server takes
+     * compressed requests.
+     *
+     * @param contentEncoding the {@code Content-Encoding} header of the response
+     * @param acceptEncoding  the {@code Accept-Encoding} header of the response
+     * @return the coding of the response, or {@code null} if it is not compressed
+     */
+    private ContentEncoding negotiate(String contentEncoding, String acceptEncoding) {
+        if (acceptEncoding != null) {
+            requestEncoding = ContentEncoding.forAcceptEncoding(acceptEncoding);
+        }
+        return ContentEncoding.forName(contentEncoding);
     }
 
     private static String readErrorString(final HttpURLConnection connection) {
@@ -267,8 +632,28 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         }
     }
 
+    /**
+     * Sets {@code Content-Type}, {@code Accept-Encoding} and, for binary {@link WireFormat}s, {@code Accept}.
+     *
+     * @param requestHeaders the headers of the request
+     */
+    private void addFormatHeaders(Map<String, String> requestHeaders) {
+        requestHeaders.put("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+        WireFormat format = getWireFormat();
+        if (format.isText()) {
+            requestHeaders.put("Content-Type", contentType);
+        } else {
+            requestHeaders.put("Content-Type", format.getContentType());
+            requestHeaders.put("Accept", format.getContentType());
+        }
+    }
+
     private void addHeaders(Map<String, String> extraHeaders, HttpURLConnection connection) {
-        connection.setRequestProperty("Content-Type", contentType);
+        Map<String, String> requestHeaders = new HashMap<>();
+        addFormatHeaders(requestHeaders);
+        for (Entry<String, String> entry : requestHeaders.entrySet()) {
+            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        }
         for (Entry<String, String> entry : headers.entrySet()) {
             connection.setRequestProperty(entry.getKey(), entry.getValue());
         }
@@ -278,6 +663,11 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
     }
 
     /**
+     * Returns the URL of the service.  With a {@code serviceId} it is the URL of the instance
+     * the {@link LoadBalancerClient} chooses, the URLs are resolved once per instance.
+     * A {@link #setLoadBalancer(JsonRpcLoadBalancer) JsonRpcLoadBalancer} takes precedence
+     * over both when calls are made.
+     *
      * @return the serviceUrl
      */
     public URL getServiceUrl() throws MalformedURLException {
@@ -285,8 +675,18 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
             Assert.notNull(loadBalancerClient, "loadBalancerClient is null,need ribbon in the classpath!");
             ServiceInstance serviceInstance = loadBalancerClient.choose(serviceId);
             Assert.notNull(serviceInstance, "can't find service of [" + serviceId + "],eureka is on the right way ?");
-            URL url = new URL(serviceInstance.getUri().toURL(), MapUtils.getString(serviceInstance.getMetadata(), "context-path", "") + Util.addPrefixAndDistinct(servicePath));
-            logger.debug("lb rpc url :{}", url.toString());
+            URI uri = serviceInstance.getUri();
+            String path = servicePath;
+            List<Object> key = Arrays.<Object>asList(uri, path);
+            URL url = instanceUrls.get(key);
+            if (url == null) {
+                if (instanceUrls.size() >= MAX_INSTANCE_URLS) {
+                    instanceUrls.clear();
+                }
+                url = Util.serviceInstanceUrl(uri, serviceInstance.getMetadata(), path);
+                instanceUrls.put(key, url);
+            }
+            logger.debug("lb rpc url :{}", url);
             return url;
         }
         return serviceUrl;
@@ -297,6 +697,40 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         return loadBalancerClient;
     }
 
+    /**
+     * @return the {@link JsonRpcLoadBalancer} choosing the endpoint of each call, or {@code null}
+     */
+    public JsonRpcLoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    /**
+     * Sets the {@link JsonRpcLoadBalancer} choosing the endpoint of each call, instead of the
+     * {@code serviceUrl} or the Ribbon {@link LoadBalancerClient}.  The balancer learns the
+     * latency of each endpoint from the calls and ejects endpoints that cannot be reached.
+     *
+     * @param loadBalancer the balancer, {@code null} to use the {@code serviceUrl} again
+     */
+    public void setLoadBalancer(JsonRpcLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    public JsonRpcHedging getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Sets the {@link JsonRpcHedging} deciding when a slow call of an idempotent method is
+     * sent a second time.  Only the methods registered with it are hedged, see
+     * {@link JsonRpcHedging#addIdempotentMethods(Class)}.  Proxies sharing this client are
+     * all hedged by it, creating a proxy does not install one.
+     *
+     * @param hedging the {@link JsonRpcHedging}, {@code null} to never hedge
+     */
+    public void setHedging(JsonRpcHedging hedging) {
+        this.hedging = hedging;
+    }
+
     public void setLoadBalancerClient(LoadBalancerClient loadBalancerClient) {
         this.loadBalancerClient = loadBalancerClient;
     }
@@ -387,6 +821,67 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         this.contentType = contentType;
     }
 
+    /**
+     * @return the transport, {@code null} if a new {@link HttpURLConnection} is used for every call
+     */
+    public JsonRpcHttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport the requests are sent with, for instance a {@link PooledHttpTransport}
+     * that reuses connections.  The connection proxy, SSL and timeout settings of this client
+     * only apply when no transport is set.
+     *
+     * @param transport the transport to set
+     */
+    public void setTransport(JsonRpcHttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * @return the {@link BufferPool} response bodies are read with
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Sets the {@link BufferPool} used to read the bodies of batch and error responses.
+     * Defaults to {@link BufferPool#getDefault()}.
+     *
+     * @param bufferPool the buffer pool
+     */
+    public void setBufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * @return the size in bytes above which requests are compressed
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the size in bytes above which requests are compressed, once the server has listed
+     * gzip or deflate in the {@code Accept-Encoding} header of a response.  Defaults to
+     * {@value ContentEncoding#DEFAULT_COMPRESSION_THRESHOLD}, a negative threshold disables the
+     * compression of requests.  Compressed responses are decompressed in any case.
+     *
+     * @param compressionThreshold the threshold in bytes
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return the coding requests are compressed with, learnt from the server, or {@code null}
+     */
+    public ContentEncoding getRequestEncoding() {
+        return requestEncoding;
+    }
+
     public String getServicePath() {
         return servicePath;
     }
@@ -403,4 +898,149 @@ public class JsonRpcHttpClient extends JsonRpcClient implements IJsonRpcClient {
         this.tracer = tracer;
     }
 
+    /**
+     * A request of a hedged call, run on the {@link JsonRpcHedging#getExecutor()} or by the
+     * caller.  Cancelling it disconnects its {@link HttpURLConnection}, requests sent over a
+     * {@link JsonRpcHttpTransport} are left to finish and their answer is dropped.
+     */
+    private class Attempt implements Runnable {
+
+        private final JsonRpcHedging hedging;
+        private final JsonRpcLoadBalancer balancer;
+        private final JsonRpcLoadBalancer.Endpoint endpoint;
+        private final String methodName;
+        private final Object argument;
+        private final PooledByteArrayOutputStream body;
+        private final ContentEncoding encoding;
+        private final Type returnType;
+        private final Map<String, String> extraHeaders;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private HttpURLConnection connection;
+        private boolean cancelled;
+
+        Attempt(JsonRpcHedging hedging, JsonRpcLoadBalancer balancer, JsonRpcLoadBalancer.Endpoint endpoint, String methodName, Object argument,
+                PooledByteArrayOutputStream body, ContentEncoding encoding, Type returnType, Map<String, String> extraHeaders) {
+            this.hedging = hedging;
+            this.balancer = balancer;
+            this.endpoint = endpoint;
+            this.methodName = methodName;
+            this.argument = argument;
+            this.body = body;
+            this.encoding = encoding;
+            this.returnType = returnType;
+            this.extraHeaders = extraHeaders;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            boolean answered = true;
+            try {
+                URL url = endpoint != null ? endpoint.getUrl() : getServiceUrl();
+                result.complete(invoke(url, methodName, argument, body, encoding, returnType, extraHeaders, this));
+            } catch (IOException | HttpException e) {
+                answered = false;
+                result.completeExceptionally(e);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                long latency = System.nanoTime() - start;
+                boolean cancelled = isCancelled();
+                if (endpoint != null) {
+                    if (cancelled) {
+                        balancer.cancel(endpoint);
+                    } else {
+                        balancer.release(endpoint, latency, answered);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} if the attempt was started, {@code false} if the executor refused it
+         */
+        boolean submit() {
+            try {
+                hedging.getExecutor().execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Hedged request of {} rejected", methodName, e);
+                return false;
+            }
+        }
+
+        /**
+         * Starts a second attempt of the same call, on another endpoint if there is one.
+         *
+         * @return the started {@link Attempt}, or {@code null} if the budget is spent or it could not be started
+         */
+        Attempt hedge() {
+            if (!hedging.acquireHedge()) {
+                return null;
+            }
+            JsonRpcLoadBalancer.Endpoint other = null;
+            if (balancer != null) {
+                try {
+                    other = balancer.choose(endpoint);
+                } catch (IOException e) {
+                    logger.debug("No endpoint to hedge {} on", methodName, e);
+                    return null;
+                }
+            }
+            Attempt hedge = new Attempt(hedging, balancer, other, methodName, argument, body, encoding, returnType, extraHeaders);
+            if (hedge.submit()) {
+                logger.debug("Hedging {}", methodName);
+                return hedge;
+            }
+            if (other != null) {
+                balancer.cancel(other);
+            }
+            return null;
+        }
+
+        synchronized boolean open(HttpURLConnection connection) {
+            if (cancelled) {
+                return false;
+            }
+            this.connection = connection;
+            return true;
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Cancels the attempt unless it has been answered already.
+         */
+        void cancel() {
+            HttpURLConnection connection;
+            synchronized (this) {
+                if (cancelled || result.isDone()) {
+                    return;
+                }
+                cancelled = true;
+                connection = this.connection;
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        /**
+         * Gives the request body back to its pool once this attempt and the other are done with it.
+         *
+         * @param other the other {@link Attempt} of the call, or {@code null}
+         */
+        void releaseBody(Attempt other) {
+            CompletableFuture<?> done = other != null ? CompletableFuture.allOf(result, other.result) : result;
+            done.whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object ignored, Throwable error) {
+                    body.release();
+                }
+            });
+        }
+    }
+
 }
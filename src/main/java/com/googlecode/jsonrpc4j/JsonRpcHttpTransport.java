@@ -0,0 +1,66 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Sends the HTTP requests of a {@link JsonRpcHttpClient}.  Without a transport the
+ * client opens a new {@link java.net.HttpURLConnection} for every call, a transport
+ * can keep connections open and reuse them, see {@link PooledHttpTransport}.
+ */
+public interface JsonRpcHttpTransport {
+
+	/**
+	 * Opens an exchange for a single {@code POST} request.
+	 *
+	 * @param url     the service end-point URL
+	 * @param headers the request headers, including the {@code Content-Type}
+	 * @return the exchange, which must be closed by the caller
+	 * @throws IOException on error
+	 */
+	Exchange open(URL url, Map<String, String> headers) throws IOException;
+
+	/**
+	 * A single request and its response.  The request is sent once the
+	 * first part of the response is asked for.
+	 */
+	interface Exchange extends Closeable {
+
+		/**
+		 * @return the stream the request body is written to
+		 * @throws IOException on error
+		 */
+		OutputStream getRequestBody() throws IOException;
+
+		/**
+		 * @return the HTTP status code of the response
+		 * @throws IOException on error
+		 */
+		int getStatusCode() throws IOException;
+
+		/**
+		 * @param name the header name
+		 * @return the first value of the response header or {@code null}
+		 * @throws IOException on error
+		 */
+		String getHeader(String name) throws IOException;
+
+		/**
+		 * @return the response body, whatever the status code
+		 * @throws IOException on error
+		 */
+		InputStream getResponseBody() throws IOException;
+
+		/**
+		 * Releases the exchange, a connection that may be reused is kept open.
+		 *
+		 * @throws IOException on error
+		 */
+		@Override
+		void close() throws IOException;
+	}
+}
@@ -0,0 +1,18 @@
+package com.googlecode.jsonrpc4j;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for service methods that may be called twice with the same arguments
+ * to the same effect as once, such as reads.  A {@link JsonRpcHttpClient} with
+ * {@link JsonRpcHedging} sends a second request for these methods when the first
+ * one is slow and takes whichever answers first.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonRpcIdempotent {
+
+}
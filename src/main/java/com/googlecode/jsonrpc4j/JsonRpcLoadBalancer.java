@@ -0,0 +1,416 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the calls of a {@link JsonRpcHttpClient} over the endpoints of a service, without
+ * Ribbon or any other library.  Each call picks two endpoints at random and takes the one with
+ * the lower cost: its latency, a moving average that jumps up at once on a slow response and
+ * decays over {@link #setDecayMillis(long)}, multiplied by the calls it has in flight.  So slow
+ * and busy endpoints get little traffic, and an idle one is tried again as its average decays.
+ * <p>
+ * An endpoint failing {@link #setConsecutiveFailures(int)} calls in a row, that is failing to
+ * answer with a JSON-RPC response at all, is ejected for {@link #setEjectionMillis(long)} times
+ * the number of times it has been ejected in a row, while at most
+ * {@link #setMaxEjectionPercent(int)} of the endpoints are out at a time.
+ * <p>
+ * The endpoints come from an {@link EndpointList}, which is asked again every
+ * {@link #setRefreshMillis(long)}.  The statistics of an endpoint are kept as long as the list
+ * returns its URL.
+ * <pre>
+ * client.setLoadBalancer(new JsonRpcLoadBalancer(Arrays.asList(
+ *     new URL("http://10.0.0.1:8080/rpc"), new URL("http://10.0.0.2:8080/rpc"))));
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcLoadBalancer {
+
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcLoadBalancer.class);
+
+	/**
+	 * The cost of an endpoint that has calls in flight but no latency measured yet, per call.
+	 */
+	private static final double UNMEASURED_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+	private final EndpointList endpointList;
+	private final Object refreshLock = new Object();
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private volatile Endpoint[] endpoints = new Endpoint[0];
+	private volatile long refreshedAtNanos;
+	private volatile boolean resolved;
+
+	private volatile long refreshMillis = TimeUnit.SECONDS.toMillis(30);
+	private volatile long decayMillis = TimeUnit.SECONDS.toMillis(10);
+	private volatile int consecutiveFailures = 5;
+	private volatile long ejectionMillis = TimeUnit.SECONDS.toMillis(30);
+	private volatile int maxEjectionPercent = 50;
+
+	/**
+	 * Creates a balancer over a fixed list of endpoints.
+	 *
+	 * @param urls the URLs of the endpoints
+	 */
+	public JsonRpcLoadBalancer(List<URL> urls) {
+		this(fixed(urls));
+	}
+
+	/**
+	 * Creates a balancer over the endpoints returned by the given list.
+	 *
+	 * @param endpointList the {@link EndpointList}
+	 */
+	public JsonRpcLoadBalancer(EndpointList endpointList) {
+		this.endpointList = endpointList;
+	}
+
+	private static EndpointList fixed(List<URL> urls) {
+		final List<URL> copy = Collections.unmodifiableList(new ArrayList<>(urls));
+		return new EndpointList() {
+			@Override
+			public List<URL> getEndpoints() {
+				return copy;
+			}
+		};
+	}
+
+	/**
+	 * Picks the endpoint for a call and counts the call as in flight on it.  Every endpoint
+	 * returned must be given back to {@link #release(Endpoint, long, boolean)}.
+	 *
+	 * @return the {@link Endpoint}
+	 * @throws IOException if there is no endpoint or the list could not be fetched
+	 */
+	public Endpoint choose() throws IOException {
+		return choose(null);
+	}
+
+	/**
+	 * Picks the endpoint for a call like {@link #choose()}, other than the given one if
+	 * there is another, as for a second attempt.
+	 *
+	 * @param exclude the {@link Endpoint} to avoid, may be {@code null}
+	 * @return the {@link Endpoint}
+	 * @throws IOException if there is no endpoint or the list could not be fetched
+	 */
+	public Endpoint choose(Endpoint exclude) throws IOException {
+		Endpoint[] all = getResolvedEndpoints();
+		if (all.length == 0) throw new IOException("No endpoint available");
+		long now = System.nanoTime();
+		List<Endpoint> candidates = new ArrayList<>(all.length);
+		for (Endpoint endpoint : all) {
+			if (endpoint != exclude && !endpoint.isEjected(now)) candidates.add(endpoint);
+		}
+		if (candidates.isEmpty()) {
+			// all of them are ejected, or there is just the excluded one: better try than fail
+			candidates.addAll(Arrays.asList(all));
+			if (candidates.size() > 1) candidates.remove(exclude);
+		}
+		Endpoint chosen;
+		if (candidates.size() == 1) {
+			chosen = candidates.get(0);
+		} else {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(candidates.size());
+			int second = random.nextInt(candidates.size() - 1);
+			if (second >= first) second++;
+			Endpoint a = candidates.get(first);
+			Endpoint b = candidates.get(second);
+			chosen = a.cost(now, decayNanos()) <= b.cost(now, decayNanos()) ? a : b;
+		}
+		chosen.inFlight.incrementAndGet();
+		return chosen;
+	}
+
+	/**
+	 * Records the outcome of a call.
+	 *
+	 * @param endpoint     the {@link Endpoint} returned by {@link #choose()}
+	 * @param latencyNanos how long the call took
+	 * @param success      {@code true} if the endpoint answered with a JSON-RPC response,
+	 *                     even an error, {@code false} if it could not be reached or did not
+	 */
+	public void release(Endpoint endpoint, long latencyNanos, boolean success) {
+		endpoint.inFlight.decrementAndGet();
+		long now = System.nanoTime();
+		if (success) {
+			endpoint.succeeded(now, latencyNanos, decayNanos());
+		} else if (endpoint.failed() >= consecutiveFailures) {
+			eject(endpoint, now);
+		}
+	}
+
+	/**
+	 * Gives back an endpoint whose call was abandoned, as when another attempt answered first,
+	 * without counting the call as a success or a failure.
+	 *
+	 * @param endpoint the {@link Endpoint} returned by {@link #choose()}
+	 */
+	public void cancel(Endpoint endpoint) {
+		endpoint.inFlight.decrementAndGet();
+	}
+
+	private void eject(Endpoint endpoint, long now) {
+		Endpoint[] all = endpoints;
+		synchronized (refreshLock) {
+			if (endpoint.isEjected(now)) return;
+			int ejected = 0;
+			for (Endpoint other : all) {
+				if (other.isEjected(now)) ejected++;
+			}
+			if ((ejected + 1) * 100 > maxEjectionPercent * all.length) {
+				logger.debug("Not ejecting {}, too many endpoints are ejected already", endpoint);
+				return;
+			}
+			endpoint.eject(now, TimeUnit.MILLISECONDS.toNanos(ejectionMillis));
+		}
+		logger.warn("Ejected {} after {} consecutive failures", endpoint, consecutiveFailures);
+	}
+
+	private long decayNanos() {
+		return Math.max(1, TimeUnit.MILLISECONDS.toNanos(decayMillis));
+	}
+
+	/**
+	 * @return the endpoints as last fetched, fetching them if they are due
+	 * @throws IOException if they were never fetched and cannot be
+	 */
+	public List<Endpoint> getEndpoints() throws IOException {
+		return Collections.unmodifiableList(Arrays.asList(getResolvedEndpoints()));
+	}
+
+	private Endpoint[] getResolvedEndpoints() throws IOException {
+		if (resolved) {
+			// one caller refreshes, the others go on with the endpoints known
+			if (System.nanoTime() - refreshedAtNanos >= TimeUnit.MILLISECONDS.toNanos(refreshMillis) && refreshing.compareAndSet(false, true)) {
+				try {
+					fetch();
+				} finally {
+					refreshing.set(false);
+				}
+			}
+			return endpoints;
+		}
+		synchronized (refreshLock) {
+			if (!resolved) fetch();
+			return endpoints;
+		}
+	}
+
+	private void fetch() throws IOException {
+		List<URL> urls;
+		try {
+			urls = endpointList.getEndpoints();
+		} catch (IOException | RuntimeException e) {
+			if (!resolved) throw e instanceof IOException ? (IOException) e : new IOException("Could not fetch the endpoints", e);
+			logger.warn("Could not refresh the endpoints, keeping the last ones", e);
+			refreshedAtNanos = System.nanoTime();
+			return;
+		}
+		synchronized (refreshLock) {
+			refresh(urls);
+		}
+	}
+
+	private void refresh(List<URL> urls) {
+		Map<String, Endpoint> known = new HashMap<>();
+		for (Endpoint endpoint : endpoints) {
+			known.put(endpoint.key, endpoint);
+		}
+		List<Endpoint> refreshed = new ArrayList<>(urls.size());
+		for (URL url : urls) {
+			String key = url.toExternalForm();
+			Endpoint endpoint = known.remove(key);
+			refreshed.add(endpoint != null ? endpoint : new Endpoint(url, key));
+		}
+		endpoints = refreshed.toArray(new Endpoint[refreshed.size()]);
+		refreshedAtNanos = System.nanoTime();
+		resolved = true;
+	}
+
+	/**
+	 * Fetches the endpoints again on the next call.
+	 */
+	public void invalidate() {
+		resolved = false;
+	}
+
+	/**
+	 * @param refreshMillis how often the {@link EndpointList} is asked for the endpoints, 30 seconds by default
+	 */
+	public void setRefreshMillis(long refreshMillis) {
+		this.refreshMillis = refreshMillis;
+	}
+
+	public long getRefreshMillis() {
+		return refreshMillis;
+	}
+
+	/**
+	 * @param decayMillis how fast the latency of an endpoint forgets past responses, 10 seconds by default
+	 */
+	public void setDecayMillis(long decayMillis) {
+		this.decayMillis = decayMillis;
+	}
+
+	public long getDecayMillis() {
+		return decayMillis;
+	}
+
+	/**
+	 * @param consecutiveFailures the failures in a row that get an endpoint ejected, 5 by default
+	 */
+	public void setConsecutiveFailures(int consecutiveFailures) {
+		this.consecutiveFailures = consecutiveFailures;
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * @param ejectionMillis how long an endpoint is ejected the first time, 30 seconds by default
+	 */
+	public void setEjectionMillis(long ejectionMillis) {
+		this.ejectionMillis = ejectionMillis;
+	}
+
+	public long getEjectionMillis() {
+		return ejectionMillis;
+	}
+
+	/**
+	 * @param maxEjectionPercent the share of the endpoints that may be ejected at a time, 50 by default
+	 */
+	public void setMaxEjectionPercent(int maxEjectionPercent) {
+		this.maxEjectionPercent = maxEjectionPercent;
+	}
+
+	public int getMaxEjectionPercent() {
+		return maxEjectionPercent;
+	}
+
+	/**
+	 * Supplies the endpoints of a service, from configuration or a discovery service.
+	 */
+	public interface EndpointList {
+
+		/**
+		 * @return the URLs of the endpoints
+		 * @throws IOException if they cannot be fetched
+		 */
+		List<URL> getEndpoints() throws IOException;
+	}
+
+	/**
+	 * An endpoint of the service and its statistics.
+	 */
+	public static class Endpoint {
+
+		private final URL url;
+		private final String key;
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private double latencyNanos;
+		private long measuredAtNanos;
+		private boolean measured;
+		private int failures;
+		private int ejections;
+		private volatile boolean ejected;
+		private volatile long ejectedUntilNanos;
+
+		Endpoint(URL url, String key) {
+			this.url = url;
+			this.key = key;
+		}
+
+		/**
+		 * @return the URL of the endpoint
+		 */
+		public URL getUrl() {
+			return url;
+		}
+
+		/**
+		 * @return the calls in flight on the endpoint
+		 */
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		/**
+		 * @return the average latency in milliseconds as of the last response, {@code 0} if none was measured yet
+		 */
+		public synchronized double getLatencyMillis() {
+			return latencyNanos / 1e6;
+		}
+
+		/**
+		 * @return {@code true} if the endpoint is ejected for failing
+		 */
+		public boolean isEjected() {
+			return isEjected(System.nanoTime());
+		}
+
+		boolean isEjected(long now) {
+			return ejected && now - ejectedUntilNanos < 0;
+		}
+
+		synchronized double cost(long now, long decayNanos) {
+			int calls = inFlight.get();
+			if (!measured) return calls * UNMEASURED_PENALTY_NANOS;
+			return decayed(now, decayNanos) * (calls + 1);
+		}
+
+		private double decayed(long now, long decayNanos) {
+			return latencyNanos * Math.exp(-(double) (now - measuredAtNanos) / decayNanos);
+		}
+
+		synchronized void succeeded(long now, long latency, long decayNanos) {
+			if (!measured || latency > latencyNanos) {
+				// a slow response counts at once, a fast one only as much as the decay allows
+				latencyNanos = latency;
+			} else {
+				double weight = Math.exp(-(double) (now - measuredAtNanos) / decayNanos);
+				latencyNanos = latencyNanos * weight + latency * (1 - weight);
+			}
+			measured = true;
+			measuredAtNanos = now;
+			failures = 0;
+			ejections = 0;
+			ejected = false;
+		}
+
+		synchronized int failed() {
+			return ++failures;
+		}
+
+		/**
+		 * Ejects the endpoint for longer each time it is ejected again without a success in between.
+		 */
+		synchronized void eject(long now, long ejectionNanos) {
+			ejections = Math.min(ejections + 1, MAX_EJECTION_MULTIPLIER);
+			ejectedUntilNanos = now + ejectionNanos * ejections;
+			ejected = true;
+		}
+
+		@Override
+		public String toString() {
+			return key;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.googlecode.jsonrpc4j;
+
+import java.lang.reflect.Method;
+
+/**
+ * Receives the measurements of a {@link JsonRpcBasicServer}, see
+ * {@link JsonRpcBasicServer#setMetrics(JsonRpcMetrics)}.  {@link JsonRpcMetricsRegistry}
+ * keeps them in memory, other implementations can forward them to a monitoring system.
+ * The methods are called on the threads handling the requests and must be thread safe
+ * and cheap.
+ */
+public interface JsonRpcMetrics {
+
+	/**
+	 * Called before a method is invoked.
+	 *
+	 * @param methodName the JSON-RPC name the method was called by, including the service
+	 *                   prefix of a {@link JsonRpcMultiServer}
+	 * @param method     the method
+	 */
+	void invocationStarted(String methodName, Method method);
+
+	/**
+	 * Called once a method has returned or thrown, or once the future it returned has completed.
+	 *
+	 * @param methodName    the JSON-RPC name the method was called by, including the service
+	 *                      prefix of a {@link JsonRpcMultiServer}
+	 * @param method        the method
+	 * @param durationNanos the time the invocation took in nanoseconds
+	 * @param error         the exception thrown, or {@code null}
+	 */
+	void invocationCompleted(String methodName, Method method, long durationNanos, Throwable error);
+
+	/**
+	 * Called for every error response written, including parse errors and unknown methods.
+	 *
+	 * @param code the JSON-RPC error code
+	 */
+	void errorResponse(int code);
+
+	/**
+	 * Called for every batch request.
+	 *
+	 * @param size the number of requests in the batch
+	 */
+	void batchReceived(int size);
+
+	/**
+	 * Called once a request has been read.
+	 *
+	 * @param bytes the size of the request in bytes
+	 */
+	void bytesRead(long bytes);
+
+	/**
+	 * Called once the responses to a request have been written.
+	 *
+	 * @param bytes the size of the responses in bytes
+	 */
+	void bytesWritten(long bytes);
+}
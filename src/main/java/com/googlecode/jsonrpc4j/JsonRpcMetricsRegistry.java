@@ -0,0 +1,172 @@
+package com.googlecode.jsonrpc4j;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the measurements of one or more servers in memory:
+ * <ul>
+ * <li>a latency {@link Histogram} in nanoseconds per JSON-RPC method name, as called: with the
+ * service prefix of a {@link JsonRpcMultiServer}, so that the same method name in two services
+ * is told apart.  Overloads share the name they are called by and its histogram.</li>
+ * <li>the number of error responses per JSON-RPC error code</li>
+ * <li>the number of invocations in flight</li>
+ * <li>a {@link Histogram} of batch sizes</li>
+ * <li>the bytes read and written</li>
+ * </ul>
+ * <pre>
+ * JsonRpcMetricsRegistry metrics = new JsonRpcMetricsRegistry();
+ * server.setMetrics(metrics);
+ * ...
+ * long p99 = metrics.getLatency("add").getValueAtPercentile(99);
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcMetricsRegistry implements JsonRpcMetrics {
+
+	private final ConcurrentMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder failedInvocations = new LongAdder();
+	private final Histogram batchSizes = new Histogram();
+	private final LongAdder bytesRead = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invocationStarted(String methodName, Method method) {
+		inFlight.incrementAndGet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invocationCompleted(String methodName, Method method, long durationNanos, Throwable error) {
+		inFlight.decrementAndGet();
+		Histogram latency = latencies.get(methodName);
+		if (latency == null) {
+			Histogram created = new Histogram();
+			latency = latencies.putIfAbsent(methodName, created);
+			if (latency == null) latency = created;
+		}
+		latency.record(durationNanos);
+		if (error != null) failedInvocations.increment();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void errorResponse(int code) {
+		LongAdder count = errors.get(code);
+		if (count == null) {
+			LongAdder created = new LongAdder();
+			count = errors.putIfAbsent(code, created);
+			if (count == null) count = created;
+		}
+		count.increment();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void batchReceived(int size) {
+		batchSizes.record(size);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bytesRead(long bytes) {
+		bytesRead.add(bytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bytesWritten(long bytes) {
+		bytesWritten.add(bytes);
+	}
+
+	/**
+	 * @param methodName the JSON-RPC method name, with the service prefix if it has one
+	 * @return the latencies of the method in nanoseconds, or {@code null} if it has not been invoked
+	 */
+	public Histogram getLatency(String methodName) {
+		return latencies.get(methodName);
+	}
+
+	/**
+	 * @return the latencies in nanoseconds by method name
+	 */
+	public Map<String, Histogram> getLatencies() {
+		return Collections.unmodifiableMap(new TreeMap<>(latencies));
+	}
+
+	/**
+	 * @return the number of error responses by JSON-RPC error code
+	 */
+	public Map<Integer, Long> getErrorCounts() {
+		Map<Integer, Long> counts = new TreeMap<>();
+		for (Map.Entry<Integer, LongAdder> entry : errors.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().sum());
+		}
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @param code the JSON-RPC error code
+	 * @return the number of error responses with the code
+	 */
+	public long getErrorCount(int code) {
+		LongAdder count = errors.get(code);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * @return the number of invocations that threw an exception or whose future failed
+	 */
+	public long getFailedInvocations() {
+		return failedInvocations.sum();
+	}
+
+	/**
+	 * @return the number of invocations in flight
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the sizes of the batch requests
+	 */
+	public Histogram getBatchSizes() {
+		return batchSizes;
+	}
+
+	/**
+	 * @return the number of request bytes read
+	 */
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * @return the number of response bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+}
@@ -68,6 +68,7 @@ public class JsonRpcMultiServer extends JsonRpcServer {
 		if (remoteInterface != null) {
 			interfaceMap.put(name, remoteInterface);
 		}
+		refreshDispatchTable(name);
 		return this;
 	}
 
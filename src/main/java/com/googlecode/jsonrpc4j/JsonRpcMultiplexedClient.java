@@ -0,0 +1,341 @@
+package com.googlecode.jsonrpc4j;
+
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.ERROR;
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.ID;
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.NULL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JSON-RPC client that lets any number of threads share one socket connection,
+ * for instance to a {@link StreamServer} or a {@link NioStreamServer}.  Requests
+ * are written as they are made, a single reader thread hands every response to the
+ * call waiting for its {@code id}, so the responses may arrive in any order.
+ * <p>
+ * Closing the client closes the socket, calls that are still waiting fail.  An error
+ * response without an {@code id}, such as the answer to a request the server could not
+ * parse, fails every call waiting, since any of them may be the one it answers.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class JsonRpcMultiplexedClient extends JsonRpcClient implements IJsonRpcClient, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(JsonRpcMultiplexedClient.class);
+
+	private static final int DEFAULT_MAX_RESPONSE_SIZE = 16 * 1024 * 1024;
+	private static final long DEFAULT_TIMEOUT_MILLIS = 30 * 1000;
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private final Socket socket;
+	private final OutputStream output;
+	private final Map<String, PendingCall> pendingCalls = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private volatile IOException closeCause;
+	private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	/**
+	 * Creates the {@link JsonRpcMultiplexedClient} on the given connected {@link Socket}
+	 * and starts the thread reading its responses.
+	 *
+	 * @param socket the {@link Socket}
+	 * @throws IOException if the socket streams can't be opened
+	 */
+	public JsonRpcMultiplexedClient(Socket socket) throws IOException {
+		this(new ObjectMapper(), socket);
+	}
+
+	/**
+	 * Creates the {@link JsonRpcMultiplexedClient} on the given connected {@link Socket}
+	 * and starts the thread reading its responses.
+	 *
+	 * @param mapper the {@link ObjectMapper} to use for json&lt;-&gt;java conversion
+	 * @param socket the {@link Socket}
+	 * @throws IOException if the socket streams can't be opened
+	 */
+	public JsonRpcMultiplexedClient(ObjectMapper mapper, Socket socket) throws IOException {
+		super(mapper);
+		this.socket = socket;
+		this.output = socket.getOutputStream();
+		Thread reader = new Thread(new ResponseReader(socket.getInputStream()), "jsonrpc4j-multiplexed-" + socket.getRemoteSocketAddress());
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void invoke(String methodName, Object argument) throws Throwable {
+		invoke(methodName, argument, null, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object invoke(String methodName, Object argument, Type returnType) throws Throwable {
+		return invoke(methodName, argument, returnType, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Sockets have no headers, the {@code extraHeaders} are ignored.
+	 */
+	@Override
+	public Object invoke(String methodName, Object argument, Type returnType, Map<String, String> extraHeaders) throws Throwable {
+		return invoke(methodName, argument, returnType, timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T invoke(String methodName, Object argument, Class<T> clazz) throws Throwable {
+		return (T) invoke(methodName, argument, Type.class.cast(clazz));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Sockets have no headers, the {@code extraHeaders} are ignored.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T invoke(String methodName, Object argument, Class<T> clazz, Map<String, String> extraHeaders) throws Throwable {
+		return (T) invoke(methodName, argument, Type.class.cast(clazz));
+	}
+
+	/**
+	 * Invokes the given method and waits at most the given time for its response.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument   the arguments to the method
+	 * @param returnType the return type
+	 * @param timeout    the maximum time to wait, {@code 0} to wait as long as the connection is open
+	 * @param unit       the unit of the {@code timeout}
+	 * @return the result
+	 * @throws SocketTimeoutException if no response arrived in time
+	 * @throws Throwable              on error
+	 */
+	public Object invoke(String methodName, Object argument, Type returnType, long timeout, TimeUnit unit) throws Throwable {
+		String id = String.valueOf(nextId.getAndIncrement());
+		byte[] request = getObjectMapper().writeValueAsBytes(createRequest(methodName, argument, id));
+		PendingCall call = new PendingCall();
+		pendingCalls.put(id, call);
+		try {
+			send(request);
+			return readResponse(returnType, call.await(id, timeout, unit));
+		} finally {
+			pendingCalls.remove(id);
+		}
+	}
+
+	/**
+	 * Sends a notification, no response is expected.
+	 *
+	 * @param methodName the name of the method to invoke
+	 * @param argument   the arguments to the method
+	 * @throws IOException on error
+	 */
+	public void invokeNotification(String methodName, Object argument) throws IOException {
+		send(getObjectMapper().writeValueAsBytes(createRequest(methodName, argument, null)));
+	}
+
+	private void send(byte[] request) throws IOException {
+		if (closed.get()) {
+			throw connectionClosed();
+		}
+		synchronized (output) {
+			output.write(request);
+			output.flush();
+		}
+	}
+
+	private IOException connectionClosed() {
+		IOException cause = closeCause;
+		return cause != null ? new IOException("Connection closed", cause) : new IOException("Connection closed");
+	}
+
+	/**
+	 * Closes the socket, calls waiting for a response fail.
+	 *
+	 * @throws IOException on error
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed.compareAndSet(false, true)) {
+			socket.close();
+			failPendingCalls();
+		}
+	}
+
+	private void failPendingCalls() {
+		for (PendingCall call : pendingCalls.values()) {
+			call.fail(connectionClosed());
+		}
+	}
+
+	/**
+	 * @return {@code true} if the connection has been closed by either side
+	 */
+	public boolean isClosed() {
+		return closed.get();
+	}
+
+	/**
+	 * @return the number of calls waiting for their response
+	 */
+	public int getPendingCallCount() {
+		return pendingCalls.size();
+	}
+
+	/**
+	 * @return the default time a call waits for its response, 30 seconds by default, {@code 0} to wait as long as the connection is open
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @param timeoutMillis the default time a call waits for its response, {@code 0} to wait as long as the connection is open
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	private void dispatch(JsonNode response) {
+		if (response.isArray()) {
+			for (JsonNode element : response) {
+				dispatch(element);
+			}
+			return;
+		}
+		JsonNode id = response.isObject() ? response.get(ID) : null;
+		if (isNullId(id) && response.isObject() && response.has(ERROR)) {
+			logger.warn("Failing {} waiting calls on an error response without an id: {}", pendingCalls.size(), response);
+			for (PendingCall call : pendingCalls.values()) {
+				call.complete(ObjectNode.class.cast(response));
+			}
+			return;
+		}
+		PendingCall call = !isNullId(id) ? pendingCalls.get(id.asText()) : null;
+		if (call != null) {
+			call.complete(ObjectNode.class.cast(response));
+		} else {
+			logger.warn("Dropping response without a waiting call: {}", response);
+		}
+	}
+
+	/**
+	 * The server writes the id of errors to no request in particular as {@code null} or as the
+	 * text {@code "null"}, which no call of this client is given.
+	 */
+	private static boolean isNullId(JsonNode id) {
+		return id == null || id.isNull() || (id.isTextual() && NULL.equals(id.textValue()));
+	}
+
+	/**
+	 * A call waiting for its response.
+	 */
+	private static class PendingCall {
+
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile ObjectNode response;
+		private volatile IOException failure;
+
+		void complete(ObjectNode response) {
+			this.response = response;
+			done.countDown();
+		}
+
+		void fail(IOException failure) {
+			this.failure = failure;
+			done.countDown();
+		}
+
+		ObjectNode await(String id, long timeout, TimeUnit unit) throws IOException {
+			try {
+				if (timeout <= 0) {
+					done.await();
+				} else if (!done.await(timeout, unit)) {
+					throw new SocketTimeoutException("No response to request " + id + " within " + unit.toMillis(timeout) + " ms");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the response to request " + id);
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * Reads the responses off the socket and hands them to the waiting calls.
+	 */
+	private class ResponseReader implements Runnable {
+
+		private final InputStream input;
+
+		ResponseReader(InputStream input) {
+			this.input = input;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			JsonFrameDecoder decoder = new JsonFrameDecoder(DEFAULT_MAX_RESPONSE_SIZE);
+			List<byte[]> frames = new ArrayList<>();
+			byte[] chunk = new byte[READ_BUFFER_SIZE];
+			try {
+				for (int read = input.read(chunk); read >= 0; read = input.read(chunk)) {
+					frames.clear();
+					decoder.decode(ByteBuffer.wrap(chunk, 0, read), frames);
+					for (byte[] frame : frames) {
+						dispatch(getObjectMapper().readTree(frame));
+					}
+				}
+				logger.debug("Connection closed by the server");
+			} catch (IOException e) {
+				if (!closed.get()) {
+					logger.debug("Failed to read responses, closing connection", e);
+					closeCause = e;
+				}
+			} finally {
+				try {
+					close();
+				} catch (IOException e) {
+					logger.debug("Failed to close socket", e);
+				}
+				// calls registered while the connection was closing
+				failPendingCalls();
+			}
+		}
+	}
+}
@@ -9,7 +9,13 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -25,6 +31,16 @@ public class JsonRpcServer extends JsonRpcBasicServer {
 	private static final Logger logger = LoggerFactory.getLogger(JsonRpcServer.class);
 
 	private String contentType = JSONRPC_CONTENT_TYPE;
+	private int compressionThreshold = ContentEncoding.DEFAULT_COMPRESSION_THRESHOLD;
+	private long asyncTimeoutMillis = 30 * 1000;
+	private long maxDecompressedRequestSize = DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE;
+
+	/**
+	 * The size in bytes a compressed request may inflate to by default.
+	 */
+	public static final long DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE = 16 * 1024 * 1024;
+
+	private static final ErrorResolver.JsonError ASYNC_TIMEOUT = new ErrorResolver.JsonError(ErrorResolver.JsonError.INTERNAL_ERROR.code, "request timed out", null);
 
 	/**
 	 * Creates the server with the given {@link ObjectMapper} delegating
@@ -104,29 +120,169 @@ public class JsonRpcServer extends JsonRpcBasicServer {
 	}
 
 	/**
-	 * Handles a servlet request.
+	 * Handles a servlet request.  When a method returns a {@link java.util.concurrent.CompletionStage}
+	 * that has not completed yet and the request supports it, the request is put in asynchronous
+	 * mode and the response is written by the thread completing the future, so the container
+	 * thread is released at once.
+	 * <p>
+	 * Requests in one of the {@link #getWireFormats() binary formats} are recognized by their
+	 * {@code Content-Type}, the responses are written in the first format the {@code Accept}
+	 * header lists, or else in the format of the request.
+	 * <p>
+	 * Request bodies compressed with one of the {@link ContentEncoding codings} are decompressed
+	 * as they are read, up to the {@link #setMaxDecompressedRequestSize(long) maximum size}, responses larger than the {@link #setCompressionThreshold(int) threshold}
+	 * are compressed with the coding the {@code Accept-Encoding} header prefers.
 	 *
 	 * @param request the {@link HttpServletRequest}
 	 * @param response the {@link HttpServletResponse}
 	 * @throws IOException on error
 	 */
-	public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+	public void handle(HttpServletRequest request, final HttpServletResponse response) throws IOException {
 		logger.debug("Handling HttpServletRequest {}", request);
-		response.setContentType(contentType);
-		OutputStream output = response.getOutputStream();
-		InputStream input = getRequestStream(request);
+		WireFormat requestFormat = WireFormat.JSON;
+		if (request.getMethod().equals("POST")) {
+			WireFormat format = WireFormat.forMediaType(request.getContentType(), getWireFormats());
+			if (format != null) requestFormat = format;
+		}
+		WireFormat responseFormat = WireFormat.forAccept(request.getHeader("Accept"), getWireFormats());
+		if (responseFormat == null) responseFormat = requestFormat;
+		String contentEncoding = request.getMethod().equals("POST") ? request.getHeader("Content-Encoding") : null;
+		if (!ContentEncoding.isSupported(contentEncoding) || (maxDecompressedRequestSize <= 0 && ContentEncoding.forName(contentEncoding) != null)) {
+			logger.debug("Unsupported Content-Encoding {}", contentEncoding);
+			response.setHeader("Accept-Encoding", maxDecompressedRequestSize > 0 ? ContentEncoding.ACCEPT_ENCODING : "identity");
+			response.setStatus(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+			return;
+		}
+		response.setContentType(responseFormat.isText() ? contentType : responseFormat.getContentType());
+		final ContentEncoding responseEncoding = compressionThreshold < 0 ? null : ContentEncoding.forAcceptEncoding(request.getHeader("Accept-Encoding"));
+		final DeferredOutputStream responses = new DeferredOutputStream(getBufferPool());
 		int result = ErrorResolver.JsonError.PARSE_ERROR.code;
+		InputStream input = getRequestStream(request);
+		BoundedInputStream decompressed = null;
 		try {
-			result = handleRequest(input, output);
+			ContentEncoding requestEncoding = ContentEncoding.forName(contentEncoding);
+			if (requestEncoding != null) input = decompressed = new BoundedInputStream(requestEncoding.decompress(input), maxDecompressedRequestSize);
+			result = handleRequest(input, responses, requestFormat, responseFormat);
 		} catch (Throwable t) {
 			if (StreamEndedException.class.isInstance(t)) {
 				logger.debug("Bad request: empty contents!");
 			}
+		} finally {
+			// gives a pooled Inflater back
+			input.close();
+		}
+		if (decompressed != null && decompressed.isExceeded()) {
+			logger.debug("Compressed request inflates to more than {} bytes", maxDecompressedRequestSize);
+			responses.release();
+			response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			return;
+		}
+		CompletableFuture<Integer> completion = responses.completion(result);
+		if (!responses.hasPending() || !request.isAsyncSupported()) {
+			writeResponse(response, responses, completion.join(), responseEncoding);
+			return;
+		}
+		final AsyncContext context = request.startAsync();
+		context.setTimeout(asyncTimeoutMillis);
+		// the response is written and completed once, by the future or by the container's timeout
+		final AtomicBoolean finished = new AtomicBoolean();
+		final WireFormat errorFormat = responseFormat;
+		context.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				if (finished.compareAndSet(false, true)) {
+					logger.debug("Asynchronous response timed out after {} ms", asyncTimeoutMillis);
+					responses.release();
+					writeErrorAndComplete(context, response, errorFormat, ASYNC_TIMEOUT, responseEncoding);
+				}
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				if (finished.compareAndSet(false, true)) {
+					logger.debug("Asynchronous response failed", event.getThrowable());
+					responses.release();
+					writeErrorAndComplete(context, response, errorFormat, ErrorResolver.JsonError.INTERNAL_ERROR, responseEncoding);
+				}
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+			}
+		});
+		completion.whenComplete(new BiConsumer<Integer, Throwable>() {
+			@Override
+			public void accept(Integer code, Throwable failure) {
+				if (!finished.compareAndSet(false, true)) {
+					// the container gave up on the response already
+					responses.release();
+					return;
+				}
+				try {
+					writeResponse(response, responses, code != null ? code : ErrorResolver.JsonError.INTERNAL_ERROR.code, responseEncoding);
+				} catch (IOException e) {
+					logger.debug("Failed to write asynchronous response", e);
+				} finally {
+					complete(context);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Answers an asynchronous request the container timed out or failed with a JSON-RPC error,
+	 * then completes it.
+	 */
+	private void writeErrorAndComplete(AsyncContext context, HttpServletResponse response, WireFormat format, ErrorResolver.JsonError error, ContentEncoding encoding) {
+		try {
+			if (!response.isCommitted()) {
+				DeferredOutputStream output = new DeferredOutputStream(getBufferPool());
+				writeAndFlushError(output, format, error);
+				writeResponse(response, output, error.code, encoding);
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.debug("Failed to write asynchronous error response", e);
+		} finally {
+			complete(context);
+		}
+	}
+
+	private static void complete(AsyncContext context) {
+		try {
+			context.complete();
+		} catch (IllegalStateException e) {
+			logger.debug("Asynchronous request completed already", e);
 		}
+	}
+
+	private void writeResponse(HttpServletResponse response, DeferredOutputStream responses, int result, ContentEncoding encoding) throws IOException {
 		int httpStatusCode = httpStatusCodeProvider == null ? DefaultHttpStatusCodeProvider.INSTANCE.getHttpStatusCode(result)
 				: httpStatusCodeProvider.getHttpStatusCode(result);
 		response.setStatus(httpStatusCode);
-		output.flush();
+		if (compressionThreshold >= 0 && maxDecompressedRequestSize > 0) {
+			// tells clients they may compress their requests, RFC 7694
+			response.setHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+			response.addHeader("Vary", "Accept-Encoding");
+		}
+		OutputStream output = response.getOutputStream();
+		try {
+			if (encoding != null && responses.size() > compressionThreshold) {
+				response.setHeader("Content-Encoding", encoding.getName());
+				try (OutputStream compressed = encoding.compress(new NoCloseOutputStream(output))) {
+					responses.writeTo(compressed);
+				}
+			} else {
+				responses.writeTo(output);
+			}
+			output.flush();
+			if (getMetrics() != null) getMetrics().bytesWritten(responses.size());
+		} finally {
+			responses.release();
+		}
 	}
 
 	private InputStream getRequestStream(HttpServletRequest request) throws IOException {
@@ -152,8 +308,68 @@ public class JsonRpcServer extends JsonRpcBasicServer {
 		}
 	}
 
+	/**
+	 * @return how long a servlet request waits for the futures of its methods, in milliseconds
+	 */
+	public long getAsyncTimeoutMillis() {
+		return asyncTimeoutMillis;
+	}
+
+	/**
+	 * Sets how long a servlet request put in asynchronous mode waits for the futures of its
+	 * methods, 30 seconds by default.  When it runs out the request is answered with an
+	 * {@code internal error} and the results computed later are dropped.  Zero or less waits
+	 * for ever.
+	 *
+	 * @param asyncTimeoutMillis the timeout in milliseconds
+	 */
+	public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+		this.asyncTimeoutMillis = asyncTimeoutMillis;
+	}
+
 	public void setContentType(String contentType) {
 		this.contentType = contentType;
 	}
 
+	/**
+	 * @return the size in bytes above which servlet responses are compressed
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Sets the size in bytes above which servlet responses are compressed for clients accepting
+	 * gzip or deflate, {@value ContentEncoding#DEFAULT_COMPRESSION_THRESHOLD} by default.  With a
+	 * negative threshold responses are never compressed and clients are not told that they may
+	 * compress their requests, compressed requests are still accepted unless
+	 * {@link #setMaxDecompressedRequestSize(long)} turns them off.
+	 *
+	 * @param compressionThreshold the threshold in bytes
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * @return the size in bytes a compressed servlet request may inflate to
+	 */
+	public long getMaxDecompressedRequestSize() {
+		return maxDecompressedRequestSize;
+	}
+
+	/**
+	 * Sets the size in bytes a compressed servlet request may inflate to,
+	 * {@value #DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE} by default, so that a small body cannot
+	 * expand without bound.  Requests inflating to more are answered with {@code 413 Payload
+	 * Too Large}.  Zero or less turns request decompression off: compressed requests are
+	 * answered with {@code 415 Unsupported Media Type} and clients are not told that they may
+	 * compress their requests.
+	 *
+	 * @param maxDecompressedRequestSize the maximum size in bytes
+	 */
+	public void setMaxDecompressedRequestSize(long maxDecompressedRequestSize) {
+		this.maxDecompressedRequestSize = maxDecompressedRequestSize;
+	}
+
 }
@@ -0,0 +1,232 @@
+package com.googlecode.jsonrpc4j;
+
+import com.googlecode.jsonrpc4j.ResultCache.CachedResult;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pre-computed dispatch information for the methods exported by a handler.
+ * The methods are indexed by their JSON-RPC name once, when the table is
+ * built, and the outcome of overload resolution for a given method name,
+ * parameter count and set of named parameters is remembered so that
+ * subsequent calls with the same shape skip the reflective search.
+ */
+class MethodDispatchTable {
+
+	/**
+	 * Upper bound of remembered resolutions, the keys are partially client
+	 * controlled so the cache must not grow without limits.
+	 */
+	static final int MAX_CACHED_RESOLUTIONS = 1024;
+
+	private final Map<String, List<MethodEntry>> methodsByName;
+	private final ConcurrentMap<DispatchKey, List<MethodEntry>> resolutions = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds the table for the public methods of the given classes.
+	 *
+	 * @param classes the handler classes or interfaces
+	 */
+	MethodDispatchTable(Class<?>[] classes) {
+		Map<String, Set<Method>> methods = new HashMap<>();
+		for (Class<?> clazz : classes) {
+			for (Method method : clazz.getMethods()) {
+				addMethod(methods, method.getName(), method);
+				JsonRpcMethod annotation = ReflectionUtil.getAnnotation(method, JsonRpcMethod.class);
+				if (annotation != null) {
+					addMethod(methods, annotation.value(), method);
+				}
+			}
+		}
+		Map<String, List<MethodEntry>> entries = new HashMap<>();
+		Map<Method, MethodEntry> entryByMethod = new HashMap<>();
+		for (Map.Entry<String, Set<Method>> named : methods.entrySet()) {
+			List<MethodEntry> list = new ArrayList<>(named.getValue().size());
+			for (Method method : named.getValue()) {
+				MethodEntry entry = entryByMethod.get(method);
+				if (entry == null) {
+					entry = new MethodEntry(method);
+					entryByMethod.put(method, entry);
+				}
+				list.add(entry);
+			}
+			entries.put(named.getKey(), Collections.unmodifiableList(list));
+		}
+		this.methodsByName = entries;
+	}
+
+	private static void addMethod(Map<String, Set<Method>> methods, String name, Method method) {
+		Set<Method> set = methods.get(name);
+		if (set == null) {
+			set = new LinkedHashSet<>();
+			methods.put(name, set);
+		}
+		set.add(method);
+	}
+
+	/**
+	 * Returns the methods exported under the given JSON-RPC name.
+	 *
+	 * @param name the method name
+	 * @return the methods, never {@code null}
+	 */
+	List<MethodEntry> getMethods(String name) {
+		List<MethodEntry> methods = methodsByName.get(name);
+		return methods == null ? Collections.<MethodEntry>emptyList() : methods;
+	}
+
+	/**
+	 * Returns a previously remembered resolution.
+	 *
+	 * @param key the dispatch key
+	 * @return the candidates or {@code null} if the key was not resolved yet
+	 */
+	List<MethodEntry> getResolution(DispatchKey key) {
+		return resolutions.get(key);
+	}
+
+	/**
+	 * Remembers the candidates that survived overload resolution for the given key.
+	 *
+	 * @param key        the dispatch key
+	 * @param candidates the remaining candidates
+	 * @return the candidates
+	 */
+	List<MethodEntry> putResolution(DispatchKey key, List<MethodEntry> candidates) {
+		List<MethodEntry> unmodifiable = Collections.unmodifiableList(candidates);
+		if (resolutions.size() < MAX_CACHED_RESOLUTIONS) {
+			resolutions.putIfAbsent(key, unmodifiable);
+		}
+		return unmodifiable;
+	}
+
+	/**
+	 * A single exported method together with the reflective data used during dispatch.
+	 */
+	static class MethodEntry {
+		final Method method;
+		final MethodInvoker invoker;
+		final List<Class<?>> parameterTypes;
+		final List<JsonRpcParam> parameterNames;
+		final boolean async;
+		final ResultCache<CachedResult> resultCache;
+		private volatile ObjectReader[] parameterReaders;
+		private volatile ObjectWriter resultWriter;
+
+		MethodEntry(Method method) {
+			this.method = method;
+			this.invoker = MethodInvoker.create(method);
+			this.parameterTypes = ReflectionUtil.getParameterTypes(method);
+			this.parameterNames = Collections.unmodifiableList(JsonRpcBasicServer.getAnnotatedParameterNames(method));
+			this.async = ReflectionUtil.isAsyncMethod(method);
+			JsonRpcCacheable cacheable = ReflectionUtil.getAnnotation(method, JsonRpcCacheable.class);
+			this.resultCache = cacheable != null ? new ResultCache<CachedResult>(cacheable.unit().toNanos(cacheable.ttl()), 0, cacheable.maxEntries()) : null;
+		}
+
+		/**
+		 * Returns the {@link ObjectReader}s used to bind the parameters of this method, one per
+		 * parameter and bound to its generic type.  The readers are created on first use so that
+		 * the types are resolved and the deserializers looked up once per method.
+		 *
+		 * @param mapper the {@link ObjectMapper}
+		 * @return the readers
+		 */
+		ObjectReader[] getParameterReaders(ObjectMapper mapper) {
+			ObjectReader[] readers = parameterReaders;
+			if (readers == null) {
+				Type[] types = method.getGenericParameterTypes();
+				TypeFactory typeFactory = mapper.getTypeFactory();
+				readers = new ObjectReader[types.length];
+				for (int i = 0; i < types.length; i++) {
+					readers[i] = mapper.readerFor(typeFactory.constructType(types[i]));
+				}
+				parameterReaders = readers;
+			}
+			return readers;
+		}
+
+		/**
+		 * Returns the {@link ObjectWriter} used to serialize results of this method.  The writer
+		 * is created on first use, results of final return types are written with a writer bound
+		 * to the declared type, all others with their runtime type.  The result of an
+		 * asynchronous method is the value of the future it returns.
+		 *
+		 * @param mapper the {@link ObjectMapper}
+		 * @return the writer
+		 */
+		ObjectWriter getResultWriter(ObjectMapper mapper) {
+			ObjectWriter writer = resultWriter;
+			if (writer == null) {
+				JavaType resultType = mapper.getTypeFactory().constructType(async ? ReflectionUtil.getAsyncResultType(method) : method.getGenericReturnType());
+				Class<?> returnType = resultType.getRawClass();
+				if (returnType != void.class && Modifier.isFinal(returnType.getModifiers())) {
+					writer = mapper.writerFor(resultType);
+				} else {
+					writer = mapper.writer();
+				}
+				writer = writer.without(SerializationFeature.WRAP_ROOT_VALUE);
+				resultWriter = writer;
+			}
+			return writer;
+		}
+
+		@Override
+		public String toString() {
+			return method.toString();
+		}
+	}
+
+	/**
+	 * Key of a remembered resolution: the method name, the number of positional
+	 * parameters or the names of the named parameters and the parameter count policy.
+	 */
+	static final class DispatchKey {
+		private final String name;
+		private final int paramCount;
+		private final Set<String> paramNames;
+		private final int policy;
+
+		DispatchKey(String name, int paramCount, Set<String> paramNames, int policy) {
+			this.name = name;
+			this.paramCount = paramCount;
+			this.paramNames = paramNames;
+			this.policy = policy;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = name.hashCode();
+			result = 31 * result + paramCount;
+			result = 31 * result + (paramNames == null ? 0 : paramNames.hashCode());
+			result = 31 * result + policy;
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof DispatchKey)) return false;
+			DispatchKey other = (DispatchKey) obj;
+			return paramCount == other.paramCount && policy == other.policy && name.equals(other.name)
+					&& (paramNames == null ? other.paramNames == null : paramNames.equals(other.paramNames));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes an exported service method.  Invokers are bound to their {@link Method} once,
+ * when the service is registered, so that a call goes through a {@link MethodHandle}
+ * without the access checks {@link Method#invoke(Object, Object...)} makes every time.
+ * Methods that can not be looked up through {@link MethodHandles} are invoked reflectively.
+ * <p>
+ * Both implementations behave exactly like {@link Method#invoke(Object, Object...)}:
+ * exceptions thrown by the service method are wrapped in an {@link InvocationTargetException},
+ * arguments that do not fit the parameters are rejected with an {@link IllegalArgumentException}.
+ */
+abstract class MethodInvoker {
+
+	private static final Logger logger = LoggerFactory.getLogger(MethodInvoker.class);
+
+	private final Method method;
+
+	private MethodInvoker(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * Creates the invoker for the given {@link Method}.
+	 *
+	 * @param method the method
+	 * @return the invoker
+	 */
+	static MethodInvoker create(Method method) {
+		try {
+			return new MethodHandleInvoker(method, bind(method));
+		} catch (IllegalAccessException | RuntimeException e) {
+			logger.debug("Falling back to reflective invocation of {}", method, e);
+			return new ReflectiveInvoker(method);
+		}
+	}
+
+	/**
+	 * Adapts the handle of the given method to the shape {@code (Object target, Object[] arguments)Object}.
+	 *
+	 * @param method the method
+	 * @return the adapted handle
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	private static MethodHandle bind(Method method) throws IllegalAccessException {
+		final int parameterCount = method.getParameterTypes().length;
+		MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+		if (Modifier.isStatic(method.getModifiers())) {
+			handle = MethodHandles.dropArguments(handle, 0, method.getDeclaringClass());
+		}
+		return handle.asType(MethodType.genericMethodType(parameterCount + 1)).asSpreader(Object[].class, parameterCount);
+	}
+
+	/**
+	 * @return the bound method
+	 */
+	Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Invokes the bound method.
+	 *
+	 * @param target    the object the method is invoked on
+	 * @param arguments the converted arguments
+	 * @return the result, {@code null} for {@code void} methods
+	 * @throws IllegalAccessException    if the method is not accessible
+	 * @throws InvocationTargetException if the method threw an exception
+	 */
+	abstract Object invoke(Object target, Object[] arguments) throws IllegalAccessException, InvocationTargetException;
+
+	private static class MethodHandleInvoker extends MethodInvoker {
+
+		private final MethodHandle handle;
+		private final Class<?> targetType;
+		private final Class<?>[] parameterTypes;
+		private final boolean[] primitive;
+
+		MethodHandleInvoker(Method method, MethodHandle handle) {
+			super(method);
+			this.handle = handle;
+			this.targetType = Modifier.isStatic(method.getModifiers()) ? null : method.getDeclaringClass();
+			this.parameterTypes = method.getParameterTypes();
+			this.primitive = new boolean[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				primitive[i] = parameterTypes[i].isPrimitive();
+				parameterTypes[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+			}
+		}
+
+		@Override
+		Object invoke(Object target, Object[] arguments) throws IllegalAccessException, InvocationTargetException {
+			if (!accepts(target, arguments)) {
+				// reflection widens primitives or rejects the arguments with an IllegalArgumentException,
+				// the handle would fail inside invokeExact where it can not be told from the method failing
+				return getMethod().invoke(target, arguments);
+			}
+			try {
+				return handle.invokeExact(target, arguments);
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+
+		/**
+		 * @return {@code true} if the handle takes the target and the arguments as they are
+		 */
+		private boolean accepts(Object target, Object[] arguments) {
+			if (targetType != null && !targetType.isInstance(target)) {
+				return false;
+			}
+			int argumentCount = arguments == null ? 0 : arguments.length;
+			if (argumentCount != parameterTypes.length) {
+				return false;
+			}
+			for (int i = 0; i < argumentCount; i++) {
+				Object argument = arguments[i];
+				if (argument == null ? primitive[i] : !parameterTypes[i].isInstance(argument)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class ReflectiveInvoker extends MethodInvoker {
+
+		ReflectiveInvoker(Method method) {
+			super(method);
+		}
+
+		@Override
+		Object invoke(Object target, Object[] arguments) throws IllegalAccessException, InvocationTargetException {
+			return getMethod().invoke(target, arguments);
+		}
+	}
+}
@@ -0,0 +1,506 @@
+package com.googlecode.jsonrpc4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * A streaming server that uses JSON-RPC over sockets like {@link StreamServer}, but
+ * serves all connections from a single {@link Selector} thread.  Complete JSON values
+ * are framed as the bytes arrive and handed to a pool of worker threads, so idle
+ * connections do not occupy a thread and the number of connections is not limited
+ * by the number of threads.
+ * <p>
+ * Requests of a single connection are handled one after another and their responses
+ * are written in the same order, requests of different connections run concurrently.
+ */
+@SuppressWarnings({ "unused", "WeakerAccess" })
+public class NioStreamServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(NioStreamServer.class);
+
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+	private static final int DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_QUEUED_REQUESTS = 64;
+	private static final long SHUTDOWN_TIMEOUT = 2000;
+
+	private final ThreadPoolExecutor executor;
+	private final ServerSocketChannel serverChannel;
+	private final JsonRpcBasicServer jsonRpcServer;
+	private final AtomicBoolean isStarted = new AtomicBoolean(false);
+	private final AtomicBoolean keepRunning = new AtomicBoolean(false);
+	private final ConcurrentHashMap<Connection, Boolean> connections = new ConcurrentHashMap<>();
+	private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+	private Selector selector;
+	private Thread selectorThread;
+	private int maxClientErrors = 5;
+	private int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+
+	/**
+	 * Creates a {@code NioStreamServer} with the given max number of worker
+	 * threads listening on the given {@code port} and {@link InetAddress}.
+	 *
+	 * @param jsonRpcServer the {@link JsonRpcBasicServer} that will handle requests
+	 * @param maxThreads    the max number of worker threads
+	 * @param port          the port to listen on
+	 * @param backlog       the backlog of the server socket
+	 * @param bindAddress   the address to listen on
+	 * @throws IOException on error
+	 */
+	public NioStreamServer(JsonRpcBasicServer jsonRpcServer, int maxThreads, int port, int backlog, InetAddress bindAddress) throws IOException {
+		this(jsonRpcServer, maxThreads, openServerChannel(port, backlog, bindAddress));
+	}
+
+	/**
+	 * Creates a {@code NioStreamServer} with the given max number of worker
+	 * threads using the given bound {@link ServerSocketChannel} to accept
+	 * client connections.
+	 *
+	 * @param jsonRpcServer the {@link JsonRpcBasicServer} that will handle requests
+	 * @param maxThreads    the max number of worker threads
+	 * @param serverChannel the {@link ServerSocketChannel} used for accepting client connections
+	 */
+	public NioStreamServer(JsonRpcBasicServer jsonRpcServer, int maxThreads, ServerSocketChannel serverChannel) {
+		this.jsonRpcServer = jsonRpcServer;
+		this.serverChannel = serverChannel;
+		executor = new ThreadPoolExecutor(maxThreads, maxThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		jsonRpcServer.setRethrowExceptions(false);
+	}
+
+	private static ServerSocketChannel openServerChannel(int port, int backlog, InetAddress bindAddress) throws IOException {
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.bind(new InetSocketAddress(bindAddress, port), backlog);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * Starts the server.
+	 *
+	 * @throws IOException if the selector can not be opened
+	 */
+	public void start() throws IOException {
+		if (!isStarted.compareAndSet(false, true)) { throw new IllegalStateException("The NioStreamServer is already started"); }
+		logger.debug("NioStreamServer starting {}", serverChannel.getLocalAddress());
+		try {
+			selector = Selector.open();
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			isStarted.set(false);
+			closeQuietly(selector);
+			throw e;
+		}
+		keepRunning.set(true);
+		selectorThread = new Thread(new SelectorLoop(), "jsonrpc4j-nio-" + serverChannel.socket().getLocalPort());
+		selectorThread.start();
+	}
+
+	/**
+	 * Stops the server, closing all client connections.
+	 *
+	 * @throws InterruptedException if a graceful shutdown didn't happen
+	 */
+	public void stop() throws InterruptedException {
+		if (!isStarted.get()) { throw new IllegalStateException("The NioStreamServer is not started"); }
+		keepRunning.set(false);
+		selector.wakeup();
+		executor.shutdownNow();
+		try {
+			selectorThread.join(SHUTDOWN_TIMEOUT);
+			executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			logger.error("InterruptedException while waiting for termination", e);
+			throw e;
+		} finally {
+			isStarted.set(false);
+		}
+	}
+
+	/**
+	 * Closes something quietly.
+	 *
+	 * @param c closable
+	 */
+	private void closeQuietly(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (Throwable t) {
+				logger.warn("Error closing, ignoring", t);
+			}
+		}
+	}
+
+	/**
+	 * Runs the given task on the selector thread.
+	 *
+	 * @param task the task
+	 */
+	private void runOnSelectorThread(Runnable task) {
+		selectorTasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * @return the number of connected clients
+	 */
+	public int getNumberOfConnections() {
+		return connections.size();
+	}
+
+	/**
+	 * @return the maxClientErrors
+	 */
+	public int getMaxClientErrors() {
+		return maxClientErrors;
+	}
+
+	/**
+	 * @param maxClientErrors the maxClientErrors to set
+	 */
+	public void setMaxClientErrors(int maxClientErrors) {
+		this.maxClientErrors = maxClientErrors;
+	}
+
+	/**
+	 * @return the maximum size of a single request in bytes
+	 */
+	public int getMaxRequestSize() {
+		return maxRequestSize;
+	}
+
+	/**
+	 * Sets the maximum size of a single request, connections sending
+	 * larger requests are closed.
+	 *
+	 * @param maxRequestSize the maximum size in bytes
+	 */
+	public void setMaxRequestSize(int maxRequestSize) {
+		this.maxRequestSize = maxRequestSize;
+	}
+
+	/**
+	 * @return the isStarted
+	 */
+	public boolean isStarted() {
+		return isStarted.get();
+	}
+
+	/**
+	 * The selector thread: accepts connections, reads and frames requests and writes responses.
+	 */
+	private class SelectorLoop implements Runnable {
+
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		private final List<byte[]> frames = new ArrayList<>();
+
+		@Override
+		public void run() {
+			try {
+				while (keepRunning.get()) {
+					selector.select();
+					runSelectorTasks();
+					for (SelectionKey key : selector.selectedKeys()) {
+						try {
+							handleKey(key);
+						} catch (CancelledKeyException e) {
+							logger.debug("Key cancelled", e);
+						}
+					}
+					selector.selectedKeys().clear();
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				logger.error("Exception in selector loop, terminating", e);
+			} finally {
+				for (Connection connection : connections.keySet()) {
+					connection.close();
+				}
+				closeQuietly(serverChannel);
+				closeQuietly(selector);
+			}
+		}
+
+		private void runSelectorTasks() {
+			Runnable task;
+			while ((task = selectorTasks.poll()) != null) {
+				task.run();
+			}
+		}
+
+		private void handleKey(SelectionKey key) {
+			if (key.isAcceptable()) {
+				accept();
+				return;
+			}
+			Connection connection = (Connection) key.attachment();
+			if (key.isReadable()) connection.read(readBuffer, frames);
+			if (key.isValid() && key.isWritable()) connection.write();
+		}
+
+		private void accept() {
+			SocketChannel channel;
+			try {
+				channel = serverChannel.accept();
+				if (channel == null) return;
+				channel.configureBlocking(false);
+			} catch (IOException e) {
+				logger.error("Exception while accepting client", e);
+				return;
+			}
+			Connection connection = new Connection(channel);
+			try {
+				connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+			} catch (IOException e) {
+				logger.error("Exception while registering client", e);
+				closeQuietly(channel);
+				return;
+			}
+			connections.put(connection, Boolean.TRUE);
+			logger.debug("Client connected: {}", connection);
+		}
+	}
+
+	/**
+	 * A client connection.  Reading, writing and closing happen on the selector
+	 * thread, requests are handled on the worker threads one at a time.  A method
+	 * returning a {@link java.util.concurrent.CompletionStage} releases the worker,
+	 * the next request is handled once its response has been queued.
+	 */
+	private class Connection implements Runnable {
+
+		private final SocketChannel channel;
+		private final JsonFrameDecoder decoder = new JsonFrameDecoder(maxRequestSize);
+		private final Queue<byte[]> requests = new ArrayDeque<>();
+		private final Queue<PooledByteArrayOutputStream> responses = new ConcurrentLinkedQueue<>();
+		private SelectionKey key;
+		private boolean handling;
+		private boolean inputClosed;
+		private boolean readSuspended;
+		private volatile boolean closed;
+		private int errors;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void read(ByteBuffer readBuffer, List<byte[]> frames) {
+			frames.clear();
+			try {
+				readBuffer.clear();
+				int read = channel.read(readBuffer);
+				readBuffer.flip();
+				if (read < 0) {
+					logger.debug("Client disconnected: {}", this);
+					inputClosed = true;
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+					byte[] remaining = decoder.finish();
+					if (remaining != null) frames.add(remaining);
+				} else {
+					decoder.decode(readBuffer, frames);
+				}
+			} catch (IOException e) {
+				logger.debug("Closing client connection {}", this, e);
+				close();
+				return;
+			}
+			enqueue(frames);
+			closeIfDone();
+		}
+
+		private void enqueue(List<byte[]> frames) {
+			if (frames.isEmpty()) return;
+			synchronized (this) {
+				requests.addAll(frames);
+				if (requests.size() >= MAX_QUEUED_REQUESTS && !inputClosed) {
+					// stop reading until the worker catches up
+					readSuspended = true;
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				}
+				if (handling) return;
+				handling = true;
+			}
+			submit();
+		}
+
+		private void submit() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				logger.debug("Worker pool rejected request of {}", this);
+				close();
+			}
+		}
+
+		/**
+		 * Handles the next queued request on a worker thread.
+		 */
+		@Override
+		public void run() {
+			byte[] request;
+			synchronized (this) {
+				request = requests.poll();
+			}
+			if (request != null && !closed) {
+				handle(request);
+			} else {
+				handled();
+			}
+		}
+
+		/**
+		 * Continues with the next queued request, or closes the connection if it is done.
+		 */
+		private void handled() {
+			boolean more;
+			boolean resume;
+			synchronized (this) {
+				more = !requests.isEmpty() && !closed;
+				handling = more;
+				resume = readSuspended && requests.size() < MAX_QUEUED_REQUESTS / 2;
+				if (resume) readSuspended = false;
+			}
+			if (resume) {
+				runOnSelectorThread(new Runnable() {
+					@Override
+					public void run() {
+						if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+					}
+				});
+			}
+			if (more) {
+				submit();
+			} else {
+				runOnSelectorThread(new Runnable() {
+					@Override
+					public void run() {
+						closeIfDone();
+					}
+				});
+			}
+		}
+
+		private void handle(byte[] request) {
+			final PooledByteArrayOutputStream output = new PooledByteArrayOutputStream(jsonRpcServer.getBufferPool());
+			try {
+				jsonRpcServer.handleRequestAsync(new ByteArrayInputStream(request), output).whenComplete(new BiConsumer<Integer, Throwable>() {
+					@Override
+					public void accept(Integer code, Throwable failure) {
+						if (failure != null) handleError(failure);
+						respond(output);
+						handled();
+					}
+				});
+			} catch (Throwable t) {
+				handleError(t);
+				respond(output);
+				handled();
+			}
+		}
+
+		private void handleError(Throwable t) {
+			errors++;
+			if (errors < maxClientErrors) {
+				logger.error("Exception while handling request", t);
+			} else {
+				logger.error("Closing client connection due to repeated errors", t);
+				runOnSelectorThread(new Runnable() {
+					@Override
+					public void run() {
+						close();
+					}
+				});
+			}
+		}
+
+		private void respond(PooledByteArrayOutputStream output) {
+			if (output.size() == 0) {
+				output.release();
+			} else {
+				responses.add(output);
+				runOnSelectorThread(new Runnable() {
+					@Override
+					public void run() {
+						write();
+					}
+				});
+			}
+		}
+
+		void write() {
+			if (closed) return;
+			try {
+				PooledByteArrayOutputStream response;
+				while ((response = responses.peek()) != null) {
+					ByteBuffer buffer = response.toByteBuffer();
+					channel.write(buffer);
+					if (buffer.hasRemaining()) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+						return;
+					}
+					responses.poll();
+					response.release();
+				}
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			} catch (IOException | CancelledKeyException e) {
+				logger.debug("Closing client connection {}", this, e);
+				close();
+				return;
+			}
+			closeIfDone();
+		}
+
+		/**
+		 * Closes the connection once the client stopped sending and all responses are written.
+		 */
+		private void closeIfDone() {
+			if (!inputClosed || closed) return;
+			synchronized (this) {
+				if (handling || !requests.isEmpty()) return;
+			}
+			if (responses.isEmpty()) close();
+		}
+
+		void close() {
+			if (closed) return;
+			closed = true;
+			connections.remove(this);
+			if (key != null) key.cancel();
+			closeQuietly(channel);
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(channel.socket().getRemoteSocketAddress());
+		}
+	}
+}
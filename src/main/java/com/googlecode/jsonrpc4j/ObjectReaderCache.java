@@ -0,0 +1,43 @@
+package com.googlecode.jsonrpc4j;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers an {@link ObjectReader} per return type so that the clients resolve
+ * the {@link com.fasterxml.jackson.databind.JavaType} of a generic return type and
+ * look up its deserializer once rather than on every response.  Jackson only caches
+ * the types of plain classes itself.
+ */
+class ObjectReaderCache {
+
+	/**
+	 * Upper bound of remembered types, reached only by callers that make up new
+	 * {@link Type} instances for every call.
+	 */
+	private static final int MAX_READERS = 1024;
+
+	private final ObjectMapper mapper;
+	private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+	ObjectReaderCache(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * @param type the type to read
+	 * @return the reader for the type
+	 */
+	ObjectReader forType(Type type) {
+		ObjectReader reader = readers.get(type);
+		if (reader == null) {
+			reader = mapper.readerFor(mapper.getTypeFactory().constructType(type));
+			if (readers.size() < MAX_READERS) readers.putIfAbsent(type, reader);
+		}
+		return reader;
+	}
+}
@@ -0,0 +1,33 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link BufferedInputStream} whose buffer is taken from a {@link BufferPool}
+ * and given back when the stream is closed.
+ */
+class PooledBufferedInputStream extends BufferedInputStream {
+
+	private final BufferPool pool;
+	private final byte[] pooled;
+
+	PooledBufferedInputStream(InputStream input, BufferPool pool) {
+		super(input, 1);
+		this.pool = pool;
+		this.pooled = pool.acquire();
+		this.buf = pooled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		// a mark beyond the buffer size replaces the buffer, only the pooled one goes back
+		boolean release = buf == pooled;
+		super.close();
+		if (release) pool.release(pooled);
+	}
+}
@@ -0,0 +1,47 @@
+package com.googlecode.jsonrpc4j;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteArrayOutputStream} that starts with a buffer taken from a {@link BufferPool}
+ * and gives it back on {@link #release()}.  Content outgrowing the pooled buffer moves to a
+ * larger array as usual, which is then left to the garbage collector.
+ */
+class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+
+	private static final byte[] RELEASED = new byte[0];
+
+	private final BufferPool pool;
+	private ByteBuffer view;
+
+	PooledByteArrayOutputStream(BufferPool pool) {
+		super(0);
+		this.pool = pool;
+		this.buf = pool.acquire();
+	}
+
+	/**
+	 * Wraps the content without copying it.  Later calls return the same buffer, so that its
+	 * position keeps track of what has been consumed, and the stream must not be written to
+	 * once it has been wrapped.
+	 *
+	 * @return the content
+	 */
+	synchronized ByteBuffer toByteBuffer() {
+		if (view == null) view = ByteBuffer.wrap(buf, 0, count);
+		return view;
+	}
+
+	/**
+	 * Returns the buffer to the pool and empties the stream.
+	 */
+	synchronized void release() {
+		if (buf != RELEASED) {
+			pool.release(buf);
+			buf = RELEASED;
+			count = 0;
+			view = null;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.googlecode.jsonrpc4j;
+
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.DefaultBHttpClientConnection;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.pool.BasicConnPool;
+import org.apache.http.impl.pool.BasicPoolEntry;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.pool.ConnFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A {@link JsonRpcHttpTransport} that keeps HTTP/1.1 connections alive and reuses them
+ * for later calls to the same host, so that only the first call pays for the TCP
+ * and TLS handshakes.  It has a dependency on Apache HttpCore.
+ * <p>
+ * The number of connections is limited per route (scheme, host and port) and in total,
+ * a call waits for a free connection when the limit is reached.  Connections idle for
+ * longer than the idle timeout are closed, and connections idle for a shorter while
+ * are checked for having been closed by the server before they are reused.
+ * <p>
+ * HTTPS connections are created with the given {@link SSLContext} and verify the host
+ * name of the server certificate.  Proxies are not supported.
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public class PooledHttpTransport implements JsonRpcHttpTransport, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PooledHttpTransport.class);
+
+	private static final int DEFAULT_MAX_PER_ROUTE = 20;
+	private static final int DEFAULT_MAX_TOTAL = 100;
+	private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 1000;
+	private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final BasicConnPool pool;
+	private final SSLContext sslContext;
+	private final int connectTimeoutMillis;
+	private final int readTimeoutMillis;
+	private final HttpProcessor httpProcessor = new ImmutableHttpProcessor(new RequestContent(), new RequestTargetHost(), new RequestConnControl(), new RequestUserAgent("jsonrpc4j"));
+	private final HttpRequestExecutor requestExecutor = new HttpRequestExecutor();
+	private final ConnectionReuseStrategy reuseStrategy = DefaultConnectionReuseStrategy.INSTANCE;
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong connectionCount = new AtomicLong();
+	private volatile long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+	private volatile long lastEviction = System.currentTimeMillis();
+
+	/**
+	 * Creates a {@code PooledHttpTransport} with the default timeouts of the {@link JsonRpcHttpClient}.
+	 */
+	public PooledHttpTransport() {
+		this(null, 60 * 1000, 60 * 1000 * 2);
+	}
+
+	/**
+	 * Creates a {@code PooledHttpTransport}.
+	 *
+	 * @param sslContext           the {@link SSLContext} used for HTTPS connections, {@code null} for the default
+	 * @param connectTimeoutMillis the connect timeout, also the time a call waits for a free connection
+	 * @param readTimeoutMillis    the socket read timeout
+	 */
+	public PooledHttpTransport(SSLContext sslContext, int connectTimeoutMillis, int readTimeoutMillis) {
+		this.sslContext = sslContext;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis;
+		pool = new BasicConnPool(new ConnectionFactory());
+		pool.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE);
+		pool.setMaxTotal(DEFAULT_MAX_TOTAL);
+		pool.setValidateAfterInactivity(DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Exchange open(URL url, Map<String, String> headers) throws IOException {
+		evictIdleConnections();
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+		HttpHost route = new HttpHost(url.getHost(), port, url.getProtocol());
+		String path = url.getPath().isEmpty() ? "/" : url.getPath();
+		BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", url.getQuery() != null ? path + "?" + url.getQuery() : path);
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			request.setHeader(header.getKey(), header.getValue());
+		}
+		return new PooledExchange(route, request);
+	}
+
+	private void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		if (now - lastEviction > idleTimeoutMillis / 2) {
+			lastEviction = now;
+			closeIdleConnections();
+		}
+	}
+
+	/**
+	 * Closes the connections that have been idle for longer than the idle timeout.
+	 * This also happens on its own while the transport is in use.
+	 */
+	public void closeIdleConnections() {
+		pool.closeExpired();
+		pool.closeIdle(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Closes all connections, the transport must not be used afterwards.
+	 *
+	 * @throws IOException on error
+	 */
+	@Override
+	public void close() throws IOException {
+		pool.shutdown();
+	}
+
+	/**
+	 * @return the time after which an idle connection is closed
+	 */
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	/**
+	 * @param idleTimeoutMillis the time after which an idle connection is closed
+	 */
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 * @param maxPerRoute the maximum number of connections per route, unless set for the route
+	 */
+	public void setDefaultMaxPerRoute(int maxPerRoute) {
+		pool.setDefaultMaxPerRoute(maxPerRoute);
+	}
+
+	/**
+	 * @param url         a URL of the route
+	 * @param maxPerRoute the maximum number of connections to the route
+	 */
+	public void setMaxPerRoute(URL url, int maxPerRoute) {
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+		pool.setMaxPerRoute(new HttpHost(url.getHost(), port, url.getProtocol()), maxPerRoute);
+	}
+
+	/**
+	 * @param maxTotal the maximum number of connections over all routes
+	 */
+	public void setMaxTotal(int maxTotal) {
+		pool.setMaxTotal(maxTotal);
+	}
+
+	/**
+	 * @param validateAfterInactivityMillis the idle time after which a connection is checked before it is reused
+	 */
+	public void setValidateAfterInactivity(int validateAfterInactivityMillis) {
+		pool.setValidateAfterInactivity(validateAfterInactivityMillis);
+	}
+
+	/**
+	 * @return the number of leased, available and pending connections over all routes
+	 */
+	public PoolStats getTotalStats() {
+		return pool.getTotalStats();
+	}
+
+	/**
+	 * @param url a URL of the route
+	 * @return the number of leased, available and pending connections of the route
+	 */
+	public PoolStats getStats(URL url) {
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+		return pool.getStats(new HttpHost(url.getHost(), port, url.getProtocol()));
+	}
+
+	/**
+	 * @return the number of requests sent
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return the number of connections opened
+	 */
+	public long getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	/**
+	 * @return the number of requests sent over a connection opened for an earlier request
+	 */
+	public long getReusedConnectionCount() {
+		return Math.max(0, requestCount.get() - connectionCount.get());
+	}
+
+	private BasicPoolEntry lease(HttpHost route) throws IOException {
+		Future<BasicPoolEntry> future = pool.lease(route, null);
+		try {
+			return future.get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to " + route);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new IOException("Timeout waiting for a connection to " + route);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Failed to connect to " + route, e.getCause());
+		}
+	}
+
+	/**
+	 * Opens the connections of the pool.
+	 */
+	private class ConnectionFactory implements ConnFactory<HttpHost, HttpClientConnection> {
+
+		@Override
+		public HttpClientConnection create(HttpHost route) throws IOException {
+			Socket socket = SocketFactory.getDefault().createSocket();
+			try {
+				socket.setTcpNoDelay(true);
+				socket.setKeepAlive(true);
+				socket.setSoTimeout(readTimeoutMillis);
+				socket.connect(new InetSocketAddress(route.getHostName(), route.getPort()), connectTimeoutMillis);
+				if ("https".equalsIgnoreCase(route.getSchemeName())) {
+					socket = upgradeToTls(socket, route);
+				}
+				DefaultBHttpClientConnection connection = new DefaultBHttpClientConnection(BUFFER_SIZE);
+				connection.bind(socket);
+				connectionCount.incrementAndGet();
+				logger.debug("Opened connection to {}", route);
+				return connection;
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+
+		private Socket upgradeToTls(Socket socket, HttpHost route) throws IOException {
+			SSLSocketFactory socketFactory = sslContext != null ? sslContext.getSocketFactory() : (SSLSocketFactory) SSLSocketFactory.getDefault();
+			SSLSocket sslSocket = (SSLSocket) socketFactory.createSocket(socket, route.getHostName(), route.getPort(), true);
+			SSLParameters parameters = sslSocket.getSSLParameters();
+			parameters.setEndpointIdentificationAlgorithm("HTTPS");
+			sslSocket.setSSLParameters(parameters);
+			sslSocket.startHandshake();
+			return sslSocket;
+		}
+	}
+
+	/**
+	 * An exchange on a pooled connection, the connection is returned to the pool on close
+	 * if the server allows keeping it alive and the response has been read completely.
+	 */
+	private class PooledExchange implements Exchange {
+
+		private final HttpHost route;
+		private final BasicHttpEntityEnclosingRequest request;
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+		private BasicPoolEntry entry;
+		private HttpResponse response;
+		private boolean reusable;
+
+		PooledExchange(HttpHost route, BasicHttpEntityEnclosingRequest request) {
+			this.route = route;
+			this.request = request;
+		}
+
+		@Override
+		public OutputStream getRequestBody() {
+			return body;
+		}
+
+		@Override
+		public int getStatusCode() throws IOException {
+			return execute().getStatusLine().getStatusCode();
+		}
+
+		@Override
+		public String getHeader(String name) throws IOException {
+			Header header = execute().getFirstHeader(name);
+			return header != null ? header.getValue() : null;
+		}
+
+		@Override
+		public InputStream getResponseBody() throws IOException {
+			HttpEntity entity = execute().getEntity();
+			return entity != null ? entity.getContent() : new ByteArrayInputStream(new byte[0]);
+		}
+
+		private HttpResponse execute() throws IOException {
+			if (response != null) {
+				return response;
+			}
+			entry = lease(route);
+			try {
+				HttpCoreContext context = HttpCoreContext.create();
+				context.setTargetHost(route);
+				request.setEntity(new ByteArrayEntity(body.toByteArray()));
+				requestExecutor.preProcess(request, httpProcessor, context);
+				requestCount.incrementAndGet();
+				response = requestExecutor.execute(request, entry.getConnection(), context);
+				requestExecutor.postProcess(response, httpProcessor, context);
+				reusable = reuseStrategy.keepAlive(response, context);
+				return response;
+			} catch (org.apache.http.HttpException e) {
+				release(false);
+				throw new IOException("Invalid HTTP exchange with " + route, e);
+			} catch (IOException | RuntimeException e) {
+				release(false);
+				throw e;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (entry == null) {
+				return;
+			}
+			boolean reuse = reusable;
+			try {
+				if (reuse) {
+					// the rest of the body must be read before the next response can be
+					EntityUtils.consume(response.getEntity());
+				}
+			} catch (IOException e) {
+				reuse = false;
+			} finally {
+				release(reuse);
+			}
+		}
+
+		private void release(boolean reuse) {
+			BasicPoolEntry entry = this.entry;
+			this.entry = null;
+			if (reuse) {
+				entry.updateExpiry(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+			} else {
+				try {
+					entry.getConnection().close();
+				} catch (IOException e) {
+					logger.debug("Failed to close connection to {}", route, e);
+				}
+			}
+			pool.release(entry, reuse);
+		}
+	}
+}
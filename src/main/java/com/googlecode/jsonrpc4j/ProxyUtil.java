@@ -5,6 +5,8 @@ import org.slf4j.LoggerFactory;
 
 import com.googlecode.jsonrpc4j.spring.rest.JsonRpcRestClient;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -121,7 +123,9 @@ public abstract class ProxyUtil {
 
 	/**
 	 * Creates a {@link Proxy} of the given {@code proxyInterface}
-	 * that uses the given {@link JsonRpcClient}.
+	 * that uses the given {@link JsonRpcClient}.  Results of methods annotated
+	 * with {@link JsonRpcCacheable} are cached, stale results are refreshed by
+	 * the calling thread since the streams can't be shared.
 	 * @param <T> the proxy type
 	 * @param classLoader the {@link ClassLoader}
 	 * @param proxyInterface the interface to proxy
@@ -132,25 +136,45 @@ public abstract class ProxyUtil {
 	 */
 	@SuppressWarnings({ "unchecked", "WeakerAccess" })
 	public static <T> T createClientProxy(ClassLoader classLoader, Class<T> proxyInterface, final JsonRpcClient client, final InputStream input, final OutputStream output) {
+		final JsonRpcClientCache cache = createClientCache(proxyInterface, client);
+		if (cache != null) cache.setRefreshExecutor(null);
 
 		// create and return the proxy
 		return (T) Proxy.newProxyInstance(classLoader, new Class<?>[] { proxyInterface }, new InvocationHandler() {
 			@Override
-			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			public Object invoke(Object proxy, final Method method, Object[] args) throws Throwable {
 				if (isDeclaringClassAnObject(method)) return proxyObjectMethods(method, proxy, args);
 
 				final Object arguments = ReflectionUtil.parseArguments(method, args);
 				final String methodName = getMethodName(method);
-				return client.invokeAndReadResponse(methodName, arguments, method.getGenericReturnType(), output, input);
+				JsonRpcClientCache.Call call = new JsonRpcClientCache.Call() {
+					@Override
+					public Object call() throws Throwable {
+						return client.invokeAndReadResponse(methodName, arguments, method.getGenericReturnType(), output, input);
+					}
+				};
+				return cache != null ? cache.invoke(method, args, call) : call.call();
 			}
 		});
 	}
 
+	/**
+	 * Creates the cache of a client proxy, if the proxied interface has {@link JsonRpcCacheable} methods.
+	 *
+	 * @param proxyInterface the interface to proxy
+	 * @param client the client, whose {@link com.fasterxml.jackson.databind.ObjectMapper} makes the keys if it has one
+	 * @return the cache or {@code null}
+	 */
+	private static JsonRpcClientCache createClientCache(Class<?> proxyInterface, Object client) {
+		if (!JsonRpcClientCache.hasCacheableMethods(proxyInterface)) return null;
+		return new JsonRpcClientCache(client instanceof JsonRpcClient ? ((JsonRpcClient) client).getObjectMapper() : new ObjectMapper());
+	}
+
 	private static boolean isDeclaringClassAnObject(Method method) {
 		return method.getDeclaringClass() == Object.class;
 	}
 
-	private static String getMethodName(Method method) {
+	static String getMethodName(Method method) {
 		final JsonRpcMethod jsonRpcMethod = ReflectionUtil.getAnnotation(method, JsonRpcMethod.class);
 		if(jsonRpcMethod == null){
 			return method.getName();
@@ -175,9 +199,49 @@ public abstract class ProxyUtil {
 		return createClientProxy(classLoader, proxyInterface, client, new HashMap<String, String>());
 	}
 
+	/**
+	 * Creates a {@link Proxy} of the given {@code proxyInterface} whose methods
+	 * returning a {@link java.util.concurrent.CompletableFuture},
+	 * {@link java.util.concurrent.CompletionStage} or {@link java.util.concurrent.Future}
+	 * are invoked with the given {@link JsonRpcHttpAsyncClient} without blocking,
+	 * the result is read as the type argument of the future.  All other methods use
+	 * the given {@link IJsonRpcClient}.
+	 * @param <T> the proxy type
+	 * @param classLoader the {@link ClassLoader}
+	 * @param proxyInterface the interface to proxy
+	 * @param client the {@link IJsonRpcClient} for the synchronous methods
+	 * @param asyncClient the {@link JsonRpcHttpAsyncClient} for the asynchronous methods
+	 * @return the proxied interface
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T createClientProxy(ClassLoader classLoader, Class<T> proxyInterface, final IJsonRpcClient client, final JsonRpcHttpAsyncClient asyncClient) {
+		final Map<String, String> extraHeaders = new HashMap<>();
+		final JsonRpcClientCache cache = createClientCache(proxyInterface, client);
+		return (T) Proxy.newProxyInstance(classLoader, new Class<?>[] { proxyInterface }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, final Method method, Object[] args) throws Throwable {
+				if (isDeclaringClassAnObject(method)) return proxyObjectMethods(method, proxy, args);
+
+				final Object arguments = ReflectionUtil.parseArguments(method, args);
+				final String methodName = getMethodName(method);
+				if (ReflectionUtil.isAsyncMethod(method)) {
+					return asyncClient.invokeAsync(methodName, arguments, ReflectionUtil.getAsyncResultType(method), extraHeaders);
+				}
+				JsonRpcClientCache.Call call = new JsonRpcClientCache.Call() {
+					@Override
+					public Object call() throws Throwable {
+						return client.invoke(methodName, arguments, method.getGenericReturnType(), extraHeaders);
+					}
+				};
+				return cache != null ? cache.invoke(method, args, call) : call.call();
+			}
+		});
+	}
+
 	/**
 	 * Creates a {@link Proxy} of the given {@code proxyInterface}
-	 * that uses the given {@link IJsonRpcClient}.
+	 * that uses the given {@link IJsonRpcClient}.  Results of methods annotated
+	 * with {@link JsonRpcCacheable} are cached.
 	 * @param <T> the proxy type
 	 * @param classLoader the {@link ClassLoader}
 	 * @param proxyInterface the interface to proxy
@@ -187,15 +251,21 @@ public abstract class ProxyUtil {
 	 */
 	@SuppressWarnings("unchecked")
 	private static <T> T createClientProxy(ClassLoader classLoader, Class<T> proxyInterface, final IJsonRpcClient client, final Map<String, String> extraHeaders) {
-
+		final JsonRpcClientCache cache = createClientCache(proxyInterface, client);
 		return (T) Proxy.newProxyInstance(classLoader, new Class<?>[] { proxyInterface }, new InvocationHandler() {
 			@Override
-			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			public Object invoke(Object proxy, final Method method, Object[] args) throws Throwable {
 				if (isDeclaringClassAnObject(method)) return proxyObjectMethods(method, proxy, args);
 
 				final Object arguments = ReflectionUtil.parseArguments(method, args);
 				final String methodName = getMethodName(method);
-				return client.invoke(methodName, arguments, method.getGenericReturnType(), extraHeaders);
+				JsonRpcClientCache.Call call = new JsonRpcClientCache.Call() {
+					@Override
+					public Object call() throws Throwable {
+						return client.invoke(methodName, arguments, method.getGenericReturnType(), extraHeaders);
+					}
+				};
+				return cache != null ? cache.invoke(method, args, call) : call.call();
 			}
 		});
 	}
@@ -1,5 +1,6 @@
 package com.googlecode.jsonrpc4j;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -11,18 +12,46 @@ public class ReadContext {
 
 	private final InputStream input;
 	private final ObjectMapper mapper;
+	private final WireFormat format;
 
-	private ReadContext(InputStream input, ObjectMapper mapper) {
+	private ReadContext(InputStream input, ObjectMapper mapper, WireFormat format) {
 		this.input = new NoCloseInputStream(input);
 		this.mapper = mapper;
+		this.format = format;
 	}
 
 	public synchronized static ReadContext getReadContext(InputStream input, ObjectMapper mapper) {
-		return new ReadContext(input, mapper);
+		return new ReadContext(input, mapper, WireFormat.JSON);
+	}
+
+	/**
+	 * Creates a context reading values in the given {@link WireFormat}.
+	 *
+	 * @param input  the {@link InputStream}
+	 * @param mapper the {@link ObjectMapper}
+	 * @param format the {@link WireFormat}
+	 * @return the context
+	 */
+	static ReadContext getReadContext(InputStream input, ObjectMapper mapper, WireFormat format) {
+		return new ReadContext(input, mapper, format);
 	}
 
 	public JsonNode nextValue() throws IOException {
-		return mapper.readValue(input, JsonNode.class);
+		if (format.isText()) return mapper.readValue(input, JsonNode.class);
+		try (JsonParser parser = format.createParser(mapper, input)) {
+			return mapper.readValue(parser, JsonNode.class);
+		}
+	}
+
+	/**
+	 * Creates a {@link JsonParser} reading the next value of the stream token by token.
+	 * Closing the parser does not close the underlying stream.
+	 *
+	 * @return the parser
+	 * @throws IOException on error
+	 */
+	public JsonParser createParser() throws IOException {
+		return format.createParser(mapper, input);
 	}
 
 	public void assertReadable() throws IOException {
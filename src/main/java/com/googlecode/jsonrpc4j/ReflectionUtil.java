@@ -2,6 +2,8 @@ package com.googlecode.jsonrpc4j;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -10,7 +12,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 /**
  * Utilities for reflection.
@@ -167,6 +172,31 @@ public abstract class ReflectionUtil {
 		return annotations;
 	}
 
+	/**
+	 * Checks whether the given method returns its result asynchronously, that is
+	 * whether it returns a {@link CompletableFuture}, {@link CompletionStage} or {@link Future}.
+	 * @param method the method
+	 * @return true if the method is asynchronous
+	 */
+	public static boolean isAsyncMethod(Method method) {
+		Class<?> returnType = method.getReturnType();
+		return returnType == CompletableFuture.class || returnType == CompletionStage.class || returnType == Future.class;
+	}
+
+	/**
+	 * Returns the type of the result of an asynchronous method, the type argument
+	 * of the future it returns.
+	 * @param method the asynchronous method
+	 * @return the result type, {@link Object} if the future is a raw type
+	 */
+	public static Type getAsyncResultType(Method method) {
+		Type returnType = method.getGenericReturnType();
+		if (returnType instanceof ParameterizedType) {
+			return ((ParameterizedType) returnType).getActualTypeArguments()[0];
+		}
+		return Object.class;
+	}
+
 	/**
 	 * Parses the given arguments for the given method optionally
 	 * turning them into named parameters.
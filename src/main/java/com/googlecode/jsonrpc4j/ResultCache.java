@@ -0,0 +1,143 @@
+package com.googlecode.jsonrpc4j;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a method annotated with {@link JsonRpcCacheable}, keyed by its arguments
+ * and evicted when they expire or, least recently used first, when there are more than
+ * {@code maxEntries}.  A result is fresh for the ttl and then kept as stale for
+ * {@code staleNanos}, so that a client can serve it while it fetches a new one.
+ *
+ * @param <V> the type of the results
+ */
+class ResultCache<V> {
+
+	private final long ttlNanos;
+	private final long staleNanos;
+	private final Map<JsonNode, Entry<V>> results;
+
+	ResultCache(long ttlNanos, long staleNanos, final int maxEntries) {
+		this.ttlNanos = ttlNanos;
+		this.staleNanos = staleNanos;
+		this.results = new LinkedHashMap<JsonNode, Entry<V>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<JsonNode, ResultCache.Entry<V>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param arguments the arguments of the call
+	 * @return the fresh result, or {@code null} if none is cached or it is stale
+	 */
+	V get(JsonNode arguments) {
+		Entry<V> entry = getEntry(arguments);
+		return entry != null && entry.isFresh() ? entry.value : null;
+	}
+
+	/**
+	 * @param arguments the arguments of the call
+	 * @return the fresh or stale result, or {@code null} if none is cached or it expired
+	 */
+	synchronized Entry<V> getEntry(JsonNode arguments) {
+		Entry<V> entry = results.get(arguments);
+		if (entry != null && System.nanoTime() - entry.freshUntilNanos >= staleNanos) {
+			results.remove(arguments);
+			return null;
+		}
+		return entry;
+	}
+
+	synchronized void put(JsonNode arguments, V result) {
+		results.put(arguments, new Entry<>(result, System.nanoTime() + ttlNanos));
+	}
+
+	synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * A cached result and the time it turns stale.
+	 *
+	 * @param <V> the type of the result
+	 */
+	static class Entry<V> {
+
+		final V value;
+		private final long freshUntilNanos;
+
+		Entry(V value, long freshUntilNanos) {
+			this.value = value;
+			this.freshUntilNanos = freshUntilNanos;
+		}
+
+		boolean isFresh() {
+			return System.nanoTime() - freshUntilNanos < 0;
+		}
+	}
+
+	/**
+	 * A result serialized into tokens, which can be written in any {@link WireFormat}.
+	 * Its JSON text is rendered on first use and written as is from then on.
+	 */
+	static class CachedResult {
+
+		private final TokenBuffer tokens;
+		private volatile SerializableString json;
+
+		CachedResult(ObjectMapper mapper, ObjectWriter writer, Object result) throws IOException {
+			TokenBuffer buffer = new TokenBuffer(mapper, false);
+			writer.writeValue(buffer, result);
+			this.tokens = buffer;
+		}
+
+		/**
+		 * Writes the result as the next value of the given generator.
+		 *
+		 * @param mapper    the {@link ObjectMapper}
+		 * @param format    the {@link WireFormat} of the generator
+		 * @param generator the {@link JsonGenerator}
+		 * @throws IOException on error
+		 */
+		void writeTo(ObjectMapper mapper, WireFormat format, JsonGenerator generator) throws IOException {
+			if (format.isText() && generator.getPrettyPrinter() == null) {
+				generator.writeRawValue(getJson(mapper));
+			} else {
+				tokens.serialize(generator);
+			}
+		}
+
+		private SerializableString getJson(ObjectMapper mapper) throws IOException {
+			SerializableString text = json;
+			if (text == null) {
+				StringWriter writer = new StringWriter();
+				try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+					tokens.serialize(generator);
+				}
+				text = json = new SerializedString(writer.toString());
+			}
+			return text;
+		}
+
+		/**
+		 * @param mapper the {@link ObjectMapper}
+		 * @return the result as a tree, for the {@link InvocationListener}
+		 * @throws IOException on error
+		 */
+		JsonNode toTree(ObjectMapper mapper) throws IOException {
+			return mapper.readTree(tokens.asParser(mapper));
+		}
+	}
+}
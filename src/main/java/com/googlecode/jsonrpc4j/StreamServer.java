@@ -3,22 +3,34 @@ package com.googlecode.jsonrpc4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import javax.net.ServerSocketFactory;
 import javax.net.ssl.SSLException;
@@ -33,14 +45,23 @@ public class StreamServer {
 	private static final Logger logger = LoggerFactory.getLogger(StreamServer.class);
 
 	private static final long SERVER_SOCKET_SO_TIMEOUT = 5000;
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000 + SERVER_SOCKET_SO_TIMEOUT;
+	private static final int DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+	private static final ErrorResolver.JsonError REQUEST_TIMEOUT = new ErrorResolver.JsonError(ErrorResolver.JsonError.INTERNAL_ERROR.code, "request timed out", null);
 
-	private final ThreadPoolExecutor executor;
+	private static volatile ScheduledThreadPoolExecutor timeoutScheduler;
+
+	private final ExecutorService executor;
 	private final ServerSocket serverSocket;
 	private final JsonRpcBasicServer jsonRpcServer;
 	private final AtomicBoolean isStarted = new AtomicBoolean(false);
 	private final AtomicBoolean keepRunning = new AtomicBoolean(false);
-	private final Set<Server> servers = new HashSet<>();
+	private final Set<Server> servers = Collections.newSetFromMap(new ConcurrentHashMap<Server, Boolean>());
 	private int maxClientErrors = 5;
+	private Executor pipelineExecutor = null;
+	private int maxPipelinedRequests = 64;
+	private int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+	private long pipelinedRequestTimeoutMillis = 30 * 1000;
 
 	/**
 	 * Creates a {@code StreamServer} with the given max number
@@ -69,10 +90,23 @@ public class StreamServer {
 	 * @param serverSocket the {@link ServerSocket} used for accepting client connections
 	 */
 	public StreamServer(JsonRpcBasicServer jsonRpcServer, int maxThreads, ServerSocket serverSocket) {
+		this(jsonRpcServer, maxThreads, serverSocket, ExecutorStrategies.fixedThreadPool());
+	}
+
+	/**
+	 * Creates a {@code StreamServer} using the given {@link ServerSocket} to listen
+	 * for client connections and an executor created by the given {@link ExecutorStrategy}
+	 * to run the accept loop and the client connections, one task per connection.
+	 *
+	 * @param jsonRpcServer the {@link JsonRpcBasicServer} that will handleRequest requests
+	 * @param maxThreads the max number of threads the server will spawn, if the strategy pools threads
+	 * @param serverSocket the {@link ServerSocket} used for accepting client connections
+	 * @param executorStrategy the {@link ExecutorStrategy}, see {@link ExecutorStrategies}
+	 */
+	public StreamServer(JsonRpcBasicServer jsonRpcServer, int maxThreads, ServerSocket serverSocket, ExecutorStrategy executorStrategy) {
 		this.jsonRpcServer = jsonRpcServer;
 		this.serverSocket = serverSocket;
-		executor = new ThreadPoolExecutor(maxThreads + 1, maxThreads + 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
-		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		executor = executorStrategy.createExecutor(maxThreads + 1);
 		jsonRpcServer.setRethrowExceptions(false);
 	}
 
@@ -135,7 +169,7 @@ public class StreamServer {
 
 	private void waitForServerToTerminate() throws InterruptedException {
 		if (!executor.isTerminated()) {
-			executor.awaitTermination(2000 + SERVER_SOCKET_SO_TIMEOUT, TimeUnit.MILLISECONDS);
+			executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
 		}
 	}
 
@@ -174,6 +208,97 @@ public class StreamServer {
 		this.maxClientErrors = maxClientErrors;
 	}
 
+	/**
+	 * Enables pipelining.  When set, every connection keeps reading requests
+	 * while earlier ones are handled on the given {@link Executor}, and the
+	 * responses are written in the order they complete, so the client must
+	 * match them to its requests by {@code id}.  A slow method no longer
+	 * holds up the other calls made on the same socket, and methods returning a
+	 * {@link java.util.concurrent.CompletionStage} release their thread until the
+	 * future completes.  Set to {@code null}
+	 * (the default) to handle one request at a time.
+	 *
+	 * @param pipelineExecutor the {@link Executor} requests are handled on
+	 */
+	public void setPipelineExecutor(Executor pipelineExecutor) {
+		this.pipelineExecutor = pipelineExecutor;
+	}
+
+	/**
+	 * @return the maxPipelinedRequests
+	 */
+	public int getMaxPipelinedRequests() {
+		return maxPipelinedRequests;
+	}
+
+	/**
+	 * Sets the number of requests a pipelined connection may have in flight
+	 * before it stops reading from the socket.
+	 *
+	 * @param maxPipelinedRequests the maxPipelinedRequests to set
+	 */
+	public void setMaxPipelinedRequests(int maxPipelinedRequests) {
+		this.maxPipelinedRequests = Math.max(1, maxPipelinedRequests);
+	}
+
+	/**
+	 * @return the maximum size of a single pipelined request in bytes
+	 */
+	public int getMaxRequestSize() {
+		return maxRequestSize;
+	}
+
+	/**
+	 * @param maxRequestSize the maximum size of a single pipelined request in bytes
+	 */
+	public void setMaxRequestSize(int maxRequestSize) {
+		this.maxRequestSize = maxRequestSize;
+	}
+
+	/**
+	 * @return how long a pipelined request waits for the futures of its methods, in milliseconds
+	 */
+	public long getPipelinedRequestTimeoutMillis() {
+		return pipelinedRequestTimeoutMillis;
+	}
+
+	/**
+	 * Sets how long a pipelined request waits for the futures of its methods, 30 seconds by
+	 * default.  When it runs out the request is answered with an {@code internal error}, its
+	 * place among the requests in flight is freed and the result computed later is dropped.
+	 * Zero or less waits for ever.
+	 *
+	 * @param pipelinedRequestTimeoutMillis the timeout in milliseconds
+	 */
+	public void setPipelinedRequestTimeoutMillis(long pipelinedRequestTimeoutMillis) {
+		this.pipelinedRequestTimeoutMillis = pipelinedRequestTimeoutMillis;
+	}
+
+	private static ScheduledThreadPoolExecutor getTimeoutScheduler() {
+		ScheduledThreadPoolExecutor scheduler = timeoutScheduler;
+		if (scheduler == null) {
+			synchronized (StreamServer.class) {
+				scheduler = timeoutScheduler;
+				if (scheduler == null) {
+					scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "jsonrpc-stream-timeout-" + count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+					// most requests complete long before their timeout
+					scheduler.setRemoveOnCancelPolicy(true);
+					timeoutScheduler = scheduler;
+				}
+			}
+		}
+		return scheduler;
+	}
+
 	/**
 	 * @return the isStarted
 	 */
@@ -186,8 +311,8 @@ public class StreamServer {
 	 */
 	public class Server implements Runnable {
 
-		private int errors;
-		private Throwable lastException;
+		private volatile int errors;
+		private volatile Throwable lastException;
 
 		public int getNumberOfErrors() {
 			return errors;
@@ -225,10 +350,10 @@ public class StreamServer {
 				}
 			}
 			if (clientSocket != null) {
-				BufferedInputStream input;
+				InputStream input;
 				OutputStream output;
 				try {
-					input = new BufferedInputStream(clientSocket.getInputStream());
+					input = new PooledBufferedInputStream(clientSocket.getInputStream(), jsonRpcServer.getBufferPool());
 					output = clientSocket.getOutputStream();
 				} catch (IOException e) {
 					logger.error("Client socket failed", e);
@@ -237,23 +362,11 @@ public class StreamServer {
 
 				servers.add(this);
 				try {
-					while (StreamServer.this.keepRunning.get()) {
-						try {
-							jsonRpcServer.handleRequest(input, output);
-						} catch (Throwable t) {
-							if (StreamEndedException.class.isInstance(t)) {
-								logger.debug("Client disconnected: {}:{}", clientSocket.getInetAddress().getHostAddress(), clientSocket.getPort());
-								break;
-							}
-							errors++;
-							lastException = t;
-							if (errors < maxClientErrors) {
-								logger.error("Exception while handling request", t);
-							} else {
-								logger.error("Closing client connection due to repeated errors", t);
-								break;
-							}
-						}
+					Executor pipelineExecutor = StreamServer.this.pipelineExecutor;
+					if (pipelineExecutor != null) {
+						handlePipelined(clientSocket, input, output, pipelineExecutor);
+					} else {
+						handleSequentially(clientSocket, input, output);
 					}
 				} finally {
 					servers.remove(this);
@@ -264,8 +377,181 @@ public class StreamServer {
 			}
 		}
 
+		private void handleSequentially(Socket clientSocket, InputStream input, OutputStream output) {
+			while (StreamServer.this.keepRunning.get()) {
+				try {
+					jsonRpcServer.handleRequest(input, output);
+				} catch (Throwable t) {
+					if (StreamEndedException.class.isInstance(t)) {
+						logger.debug("Client disconnected: {}:{}", clientSocket.getInetAddress().getHostAddress(), clientSocket.getPort());
+						break;
+					}
+					if (!handleError(t)) {
+						break;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Reads complete requests off the socket with a {@link JsonFrameDecoder}, the parser
+		 * used by {@link JsonRpcBasicServer#handleRequest(InputStream, OutputStream)} reads
+		 * ahead and would swallow the requests following the current one.
+		 */
+		private void handlePipelined(Socket clientSocket, InputStream input, OutputStream output, Executor pipelineExecutor) {
+			final int maxInFlight = maxPipelinedRequests;
+			final Semaphore inFlight = new Semaphore(maxInFlight);
+			JsonFrameDecoder decoder = new JsonFrameDecoder(maxRequestSize);
+			List<byte[]> frames = new ArrayList<>();
+			BufferPool bufferPool = jsonRpcServer.getBufferPool();
+			byte[] chunk = bufferPool.acquire();
+			try {
+				while (StreamServer.this.keepRunning.get() && errors < maxClientErrors) {
+					int read = input.read(chunk);
+					frames.clear();
+					if (read < 0) {
+						byte[] remaining = decoder.finish();
+						if (remaining != null) frames.add(remaining);
+					} else {
+						decoder.decode(ByteBuffer.wrap(chunk, 0, read), frames);
+					}
+					for (byte[] frame : frames) {
+						inFlight.acquire();
+						try {
+							pipelineExecutor.execute(new PipelinedRequest(frame, output, inFlight));
+						} catch (RejectedExecutionException e) {
+							inFlight.release();
+							handleError(e);
+						}
+					}
+					if (read < 0) {
+						logger.debug("Client disconnected: {}:{}", clientSocket.getInetAddress().getHostAddress(), clientSocket.getPort());
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Throwable t) {
+				if (keepRunning.get()) {
+					handleError(t);
+				}
+			} finally {
+				bufferPool.release(chunk);
+			}
+			// let the requests in flight write their responses before the socket is closed, every
+			// request is answered or timed out within its timeout
+			long drainMillis = SHUTDOWN_TIMEOUT_MILLIS + Math.max(0, pipelinedRequestTimeoutMillis);
+			try {
+				if (!inFlight.tryAcquire(maxInFlight, drainMillis, TimeUnit.MILLISECONDS)) {
+					logger.warn("Closing client connection with {} requests in flight", maxInFlight - inFlight.availablePermits());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Records an error.
+		 * @return {@code true} if the connection may keep serving requests
+		 */
+		private synchronized boolean handleError(Throwable t) {
+			errors++;
+			lastException = t;
+			if (errors < maxClientErrors) {
+				logger.error("Exception while handling request", t);
+				return true;
+			}
+			logger.error("Closing client connection due to repeated errors", t);
+			return false;
+		}
+
 		private void handleSocketTimeoutException(SocketTimeoutException e) {
 			// this is expected because of so_timeout
 		}
+
+		/**
+		 * Handles a single request of a pipelined connection and writes its response as one piece.
+		 */
+		private class PipelinedRequest implements Runnable {
+
+			private final byte[] request;
+			private final OutputStream output;
+			private final Semaphore inFlight;
+
+			PipelinedRequest(byte[] request, OutputStream output, Semaphore inFlight) {
+				this.request = request;
+				this.output = output;
+				this.inFlight = inFlight;
+			}
+
+			/**
+			 * {@inheritDoc}
+			 */
+			public void run() {
+				final PooledByteArrayOutputStream response = new PooledByteArrayOutputStream(jsonRpcServer.getBufferPool());
+				// the response is written and the request leaves the flight once, by the future or by the timeout
+				final AtomicBoolean answered = new AtomicBoolean();
+				try {
+					CompletableFuture<Integer> completion = jsonRpcServer.handleRequestAsync(new ByteArrayInputStream(request), response);
+					final ScheduledFuture<?> timeout = completion.isDone() ? null : scheduleTimeout(answered);
+					completion.whenComplete(new BiConsumer<Integer, Throwable>() {
+						@Override
+						public void accept(Integer code, Throwable failure) {
+							if (timeout != null) timeout.cancel(false);
+							if (!answered.compareAndSet(false, true)) {
+								// the request timed out already
+								response.release();
+								return;
+							}
+							try {
+								if (failure != null) throw failure;
+								write(response);
+							} catch (Throwable t) {
+								handleError(t);
+							} finally {
+								response.release();
+								inFlight.release();
+							}
+						}
+					});
+				} catch (Throwable t) {
+					handleError(t);
+					response.release();
+					inFlight.release();
+				}
+			}
+
+			private ScheduledFuture<?> scheduleTimeout(final AtomicBoolean answered) {
+				final long timeoutMillis = pipelinedRequestTimeoutMillis;
+				if (timeoutMillis <= 0) return null;
+				return getTimeoutScheduler().schedule(new Runnable() {
+					@Override
+					public void run() {
+						if (!answered.compareAndSet(false, true)) return;
+						logger.debug("Pipelined request timed out after {} ms", timeoutMillis);
+						PooledByteArrayOutputStream error = new PooledByteArrayOutputStream(jsonRpcServer.getBufferPool());
+						try {
+							jsonRpcServer.writeAndFlushErrorFor(new ByteArrayInputStream(request), error, WireFormat.JSON, REQUEST_TIMEOUT);
+							write(error);
+						} catch (Throwable t) {
+							handleError(t);
+						} finally {
+							error.release();
+							inFlight.release();
+						}
+					}
+				}, timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+
+			private void write(PooledByteArrayOutputStream response) throws IOException {
+				if (response.size() > 0) {
+					synchronized (output) {
+						response.writeTo(output);
+						output.flush();
+					}
+				}
+			}
+		}
 	}
 }
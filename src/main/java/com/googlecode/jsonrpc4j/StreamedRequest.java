@@ -0,0 +1,171 @@
+package com.googlecode.jsonrpc4j;
+
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.ID;
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.JSONRPC;
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.METHOD;
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.PARAMS;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON-RPC request object read token by token from a {@link JsonParser}, without
+ * building a {@link JsonNode} tree of the whole request.  The (small) {@code jsonrpc},
+ * {@code method} and {@code id} members are kept as nodes, every parameter is kept as
+ * a {@link TokenBuffer} so that it can be bound directly to the type of the parameter
+ * of the method that is finally invoked.
+ */
+class StreamedRequest {
+
+	JsonNode jsonRpc;
+	JsonNode method;
+	JsonNode id;
+	/**
+	 * The params member if it is neither an array nor an object.
+	 */
+	JsonNode params;
+	List<TokenBuffer> positionalParams;
+	Map<String, TokenBuffer> namedParams;
+
+	private boolean hasJsonRpc;
+	private boolean hasMethod;
+	private boolean hasId;
+	private boolean hasParams;
+
+	private StreamedRequest() {
+	}
+
+	/**
+	 * Reads the request object the parser is positioned at.  Members other than
+	 * {@code jsonrpc}, {@code method}, {@code id} and {@code params} are skipped.
+	 *
+	 * @param parser the parser, its current token must be {@link JsonToken#START_OBJECT}
+	 * @param mapper the {@link ObjectMapper}
+	 * @return the request
+	 * @throws IOException on error
+	 */
+	static StreamedRequest read(JsonParser parser, ObjectMapper mapper) throws IOException {
+		StreamedRequest request = new StreamedRequest();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			switch (name) {
+				case JSONRPC:
+					request.hasJsonRpc = true;
+					request.jsonRpc = mapper.readTree(parser);
+					break;
+				case METHOD:
+					request.hasMethod = true;
+					request.method = mapper.readTree(parser);
+					break;
+				case ID:
+					request.hasId = true;
+					request.id = mapper.readTree(parser);
+					break;
+				case PARAMS:
+					request.hasParams = true;
+					request.readParams(parser, mapper);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+		return request;
+	}
+
+	private void readParams(JsonParser parser, ObjectMapper mapper) throws IOException {
+		params = null;
+		positionalParams = null;
+		namedParams = null;
+		if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+			positionalParams = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				positionalParams.add(bufferCurrentValue(parser, mapper));
+			}
+		} else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+			namedParams = new LinkedHashMap<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				parser.nextToken();
+				namedParams.put(name, bufferCurrentValue(parser, mapper));
+			}
+		} else {
+			params = mapper.readTree(parser);
+		}
+	}
+
+	private static TokenBuffer bufferCurrentValue(JsonParser parser, ObjectMapper mapper) throws IOException {
+		TokenBuffer buffer = new TokenBuffer(mapper, false);
+		buffer.copyCurrentStructure(parser);
+		return buffer;
+	}
+
+	/**
+	 * @return whether the request has both a {@code jsonrpc} and a {@code method} member
+	 */
+	boolean hasMethodAndVersion() {
+		return hasJsonRpc && hasMethod;
+	}
+
+	/**
+	 * Reads a buffered parameter as a tree.
+	 *
+	 * @param buffer the buffered parameter
+	 * @param mapper the {@link ObjectMapper}
+	 * @return the node
+	 * @throws IOException on error
+	 */
+	static JsonNode toNode(TokenBuffer buffer, ObjectMapper mapper) throws IOException {
+		return mapper.readTree(buffer.asParser(mapper));
+	}
+
+	/**
+	 * Builds the tree representation of the request, used when the request can
+	 * not be dispatched without looking at the parameter values.
+	 *
+	 * @param mapper the {@link ObjectMapper}
+	 * @return the request object
+	 * @throws IOException on error
+	 */
+	ObjectNode toObjectNode(ObjectMapper mapper) throws IOException {
+		ObjectNode node = mapper.createObjectNode();
+		if (hasJsonRpc) node.set(JSONRPC, jsonRpc);
+		if (hasMethod) node.set(METHOD, method);
+		if (hasId) node.set(ID, id);
+		if (positionalParams != null) {
+			ArrayNode array = node.putArray(PARAMS);
+			for (TokenBuffer buffer : positionalParams) {
+				array.add(toNode(buffer, mapper));
+			}
+		} else if (namedParams != null) {
+			ObjectNode object = node.putObject(PARAMS);
+			for (Map.Entry<String, TokenBuffer> entry : namedParams.entrySet()) {
+				object.set(entry.getKey(), toNode(entry.getValue(), mapper));
+			}
+		} else if (hasParams) {
+			node.set(PARAMS, params);
+		}
+		return node;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamedRequest{" +
+				"jsonrpc=" + jsonRpc +
+				", method=" + method +
+				", id=" + id +
+				", params=" + (positionalParams != null ? positionalParams.size() : namedParams != null ? namedParams.keySet() : params) +
+				'}';
+	}
+}
@@ -3,6 +3,11 @@ package com.googlecode.jsonrpc4j;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.util.StringUtils;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Map;
+
 public class Util {
     /**
      * jsonrpc 服务的地址前缀
@@ -34,6 +39,20 @@ public class Util {
         return RPC_PATH_PREFIX.concat(path).replaceAll("/+", "/");
     }
 
+    /**
+     * 服务实例的rpc地址：实例地址 + 元数据中的 context-path + rpc路径
+     *
+     * @param uri         实例地址
+     * @param metadata    实例元数据
+     * @param servicePath rpc 路径
+     * @return rpc地址
+     * @throws MalformedURLException 地址不合法
+     */
+    public static URL serviceInstanceUrl(URI uri, Map<String, String> metadata, String servicePath) throws MalformedURLException {
+        String contextPath = metadata != null ? metadata.get("context-path") : null;
+        return new URL(uri.toURL(), (contextPath != null ? contextPath : "") + addPrefixAndDistinct(servicePath));
+    }
+
     /**
      * 将完整的类路径转换成路径 即.变成/
      *
@@ -0,0 +1,245 @@
+package com.googlecode.jsonrpc4j;
+
+import static com.googlecode.jsonrpc4j.JsonRpcBasicServer.JSONRPC_CONTENT_TYPE;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * The encoding requests and responses are exchanged in.  {@link #JSON} is the default,
+ * {@link #cbor()} and {@link #smile()} are the binary Jackson dataformats, which need
+ * {@code jackson-dataformat-cbor} or {@code jackson-dataformat-smile} on the classpath.
+ * <p>
+ * The values are read and written by the {@link ObjectMapper} of the client or server,
+ * only the parser and generator differ, so every type that can be sent as JSON can be
+ * sent in a binary format.  Over HTTP the format is negotiated with the
+ * {@code Content-Type} and {@code Accept} headers.  The socket servers speak JSON only:
+ * the binary parsers may read ahead of the end of a value and would wait for bytes a
+ * client never sends on a connection that stays open.
+ * <pre>
+ * server.addWireFormat(WireFormat.cbor());
+ * client.setWireFormat(WireFormat.cbor());
+ * </pre>
+ */
+@SuppressWarnings({ "WeakerAccess", "unused" })
+public final class WireFormat {
+
+	/**
+	 * JSON text, written with the factory of the {@link ObjectMapper}.
+	 */
+	public static final WireFormat JSON = new WireFormat("json", JSONRPC_CONTENT_TYPE, null, new byte[] { '[' }, ',', ']', '\n', null);
+
+	public static final String CBOR_CONTENT_TYPE = "application/cbor";
+	public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+	private static final int NONE = -1;
+
+	private static volatile WireFormat cbor;
+	private static volatile WireFormat smile;
+
+	private final String name;
+	private final String contentType;
+	private final JsonFactory factory;
+	private final byte[] batchStart;
+	private final int batchSeparator;
+	private final int batchEnd;
+	private final int terminator;
+	private final WireFormat elements;
+
+	private WireFormat(String name, String contentType, JsonFactory factory, byte[] batchStart, int batchSeparator, int batchEnd, int terminator, WireFormat elements) {
+		this.name = name;
+		this.contentType = contentType;
+		this.factory = factory;
+		this.batchStart = batchStart;
+		this.batchSeparator = batchSeparator;
+		this.batchEnd = batchEnd;
+		this.terminator = terminator;
+		this.elements = elements != null ? elements : this;
+	}
+
+	/**
+	 * Returns the CBOR format.  Batch responses are written as indefinite-length arrays.
+	 *
+	 * @return the CBOR format
+	 * @throws IllegalStateException if {@code jackson-dataformat-cbor} is not on the classpath
+	 */
+	public static WireFormat cbor() {
+		WireFormat format = cbor;
+		if (format == null) {
+			JsonFactory factory = createFactory("com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+			format = cbor = new WireFormat("cbor", CBOR_CONTENT_TYPE, factory, new byte[] { (byte) 0x9F }, NONE, 0xFF, NONE, null);
+		}
+		return format;
+	}
+
+	/**
+	 * Returns the Smile format.  Values are written without back references to shared names
+	 * and strings, so that the responses of a batch can be written one after another into a
+	 * single array behind one Smile header.
+	 *
+	 * @return the Smile format
+	 * @throws IllegalStateException if {@code jackson-dataformat-smile} is not on the classpath
+	 */
+	public static WireFormat smile() {
+		WireFormat format = smile;
+		if (format == null) {
+			WireFormat elements = new WireFormat("smile", SMILE_CONTENT_TYPE, createSmileFactory(false), null, NONE, NONE, NONE, null);
+			// the header of a Smile document without shared names, shared strings and raw binary
+			byte[] batchStart = { ':', ')', '\n', 0, (byte) 0xF8 };
+			format = smile = new WireFormat("smile", SMILE_CONTENT_TYPE, createSmileFactory(true), batchStart, NONE, 0xF9, NONE, elements);
+		}
+		return format;
+	}
+
+	private static JsonFactory createSmileFactory(boolean header) {
+		JsonFactory factory = createFactory("com.fasterxml.jackson.dataformat.smile.SmileFactory");
+		configure(factory, "com.fasterxml.jackson.dataformat.smile.SmileGenerator$Feature", "WRITE_HEADER", header);
+		configure(factory, "com.fasterxml.jackson.dataformat.smile.SmileGenerator$Feature", "CHECK_SHARED_NAMES", false);
+		configure(factory, "com.fasterxml.jackson.dataformat.smile.SmileGenerator$Feature", "CHECK_SHARED_STRING_VALUES", false);
+		configure(factory, "com.fasterxml.jackson.dataformat.smile.SmileParser$Feature", "REQUIRE_HEADER", false);
+		return factory;
+	}
+
+	private static JsonFactory createFactory(String className) {
+		try {
+			return (JsonFactory) Class.forName(className).newInstance();
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(className + " is not on the classpath", e);
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new IllegalStateException("Could not create " + className, e);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void configure(JsonFactory factory, String featureClassName, String feature, boolean state) {
+		try {
+			Class featureClass = Class.forName(featureClassName);
+			factory.getClass().getMethod("configure", featureClass, boolean.class).invoke(factory, Enum.valueOf(featureClass, feature), state);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not configure " + feature, e);
+		}
+	}
+
+	/**
+	 * Finds the format of the given media type among the given formats, parameters such as
+	 * {@code charset} are ignored.  {@link #JSON} matches any JSON media type.
+	 *
+	 * @param mediaType the media type, may be {@code null}
+	 * @param formats   the formats to choose from
+	 * @return the format, or {@code null} if none matches
+	 */
+	static WireFormat forMediaType(String mediaType, Collection<WireFormat> formats) {
+		if (mediaType == null) return null;
+		int parameters = mediaType.indexOf(';');
+		String type = (parameters < 0 ? mediaType : mediaType.substring(0, parameters)).trim().toLowerCase(Locale.ENGLISH);
+		for (WireFormat format : formats) {
+			if (format.contentType.equals(type)) return format;
+		}
+		if (type.equals("application/json") || type.endsWith("+json") || type.equals(JSONRPC_CONTENT_TYPE)) return JSON;
+		return null;
+	}
+
+	/**
+	 * Picks the first of the media types listed in an {@code Accept} header that matches
+	 * one of the given formats.
+	 *
+	 * @param accept  the {@code Accept} header, may be {@code null}
+	 * @param formats the formats to choose from
+	 * @return the format, or {@code null} if none matches
+	 */
+	static WireFormat forAccept(String accept, Collection<WireFormat> formats) {
+		if (accept == null) return null;
+		for (String mediaType : accept.split(",")) {
+			WireFormat format = forMediaType(mediaType, formats);
+			if (format != null) return format;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the name of the format: {@code json}, {@code cbor} or {@code smile}
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the media type of the format
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @return {@code true} for {@link #JSON}
+	 */
+	public boolean isText() {
+		return factory == null;
+	}
+
+	/**
+	 * @param mapper the {@link ObjectMapper} of the client or server
+	 * @return the factory the format is read and written with
+	 */
+	JsonFactory getFactory(ObjectMapper mapper) {
+		return factory != null ? factory : mapper.getFactory();
+	}
+
+	JsonParser createParser(ObjectMapper mapper, InputStream input) throws IOException {
+		return getFactory(mapper).createParser(input);
+	}
+
+	JsonGenerator createGenerator(ObjectMapper mapper, OutputStream output) throws IOException {
+		JsonGenerator generator = getFactory(mapper).createGenerator(output);
+		if (factory == null && mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+			generator.useDefaultPrettyPrinter();
+		}
+		return generator;
+	}
+
+	/**
+	 * Returns the format the responses inside a batch are written in, which differs from
+	 * the format of the batch only for Smile, whose header starts the batch alone.
+	 *
+	 * @return the format of the elements of a batch
+	 */
+	WireFormat getElementFormat() {
+		return elements;
+	}
+
+	void writeBatchStart(OutputStream output) throws IOException {
+		output.write(batchStart);
+	}
+
+	void writeBatchSeparator(OutputStream output) throws IOException {
+		if (batchSeparator != NONE) output.write(batchSeparator);
+	}
+
+	void writeBatchEnd(OutputStream output) throws IOException {
+		output.write(batchEnd);
+	}
+
+	/**
+	 * Ends a response, JSON text responses are followed by a newline.
+	 *
+	 * @param output the {@link OutputStream}
+	 * @throws IOException on error
+	 */
+	void writeTerminator(OutputStream output) throws IOException {
+		if (terminator != NONE) output.write(terminator);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
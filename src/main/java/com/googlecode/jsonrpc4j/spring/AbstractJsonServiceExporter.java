@@ -6,10 +6,12 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.remoting.support.RemoteExporter;
 
+import com.googlecode.jsonrpc4j.ContentEncoding;
 import com.googlecode.jsonrpc4j.ConvertedParameterTransformer;
 import com.googlecode.jsonrpc4j.ErrorResolver;
 import com.googlecode.jsonrpc4j.HttpStatusCodeProvider;
 import com.googlecode.jsonrpc4j.InvocationListener;
+import com.googlecode.jsonrpc4j.JsonRpcMetrics;
 import com.googlecode.jsonrpc4j.JsonRpcServer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,9 +36,13 @@ abstract class AbstractJsonServiceExporter extends RemoteExporter implements Ini
 	private boolean allowLessParams = false;
 	private boolean shouldLogInvocationErrors = true;
 	private InvocationListener invocationListener = null;
+	private JsonRpcMetrics metrics = null;
 	private HttpStatusCodeProvider httpStatusCodeProvider = null;
 	private ConvertedParameterTransformer convertedParameterTransformer = null;
 	private String contentType = null;
+	private int compressionThreshold = ContentEncoding.DEFAULT_COMPRESSION_THRESHOLD;
+	private long asyncTimeoutMillis = 30 * 1000;
+	private long maxDecompressedRequestSize = JsonRpcServer.DEFAULT_MAX_DECOMPRESSED_REQUEST_SIZE;
 
 	/**
 	 * {@inheritDoc}
@@ -71,9 +77,13 @@ abstract class AbstractJsonServiceExporter extends RemoteExporter implements Ini
 		jsonRpcServer.setAllowExtraParams(allowExtraParams);
 		jsonRpcServer.setAllowLessParams(allowLessParams);
 		jsonRpcServer.setInvocationListener(invocationListener);
+		jsonRpcServer.setMetrics(metrics);
 		jsonRpcServer.setHttpStatusCodeProvider(httpStatusCodeProvider);
 		jsonRpcServer.setConvertedParameterTransformer(convertedParameterTransformer);
 		jsonRpcServer.setShouldLogInvocationErrors(shouldLogInvocationErrors);
+		jsonRpcServer.setCompressionThreshold(compressionThreshold);
+		jsonRpcServer.setAsyncTimeoutMillis(asyncTimeoutMillis);
+		jsonRpcServer.setMaxDecompressedRequestSize(maxDecompressedRequestSize);
 
 		if (contentType != null) {
 			jsonRpcServer.setContentType(contentType);
@@ -168,6 +178,13 @@ abstract class AbstractJsonServiceExporter extends RemoteExporter implements Ini
 		this.invocationListener = invocationListener;
 	}
 
+	/**
+	 * @param metrics the {@link JsonRpcMetrics} the server reports to
+	 */
+	public void setMetrics(JsonRpcMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	/**
 	 * @param httpStatusCodeProvider the HttpStatusCodeProvider to set
 	 */
@@ -191,4 +208,28 @@ abstract class AbstractJsonServiceExporter extends RemoteExporter implements Ini
 		this.contentType = contentType;
 	}
 
+	/**
+	 * @param compressionThreshold the size in bytes above which responses are compressed, negative to never compress them
+	 * @see JsonRpcServer#setCompressionThreshold(int)
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * @param asyncTimeoutMillis how long a request waits for the futures of its methods
+	 * @see JsonRpcServer#setAsyncTimeoutMillis(long)
+	 */
+	public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+		this.asyncTimeoutMillis = asyncTimeoutMillis;
+	}
+
+	/**
+	 * @param maxDecompressedRequestSize the size in bytes a compressed request may inflate to, zero or less to refuse compressed requests
+	 * @see JsonRpcServer#setMaxDecompressedRequestSize(long)
+	 */
+	public void setMaxDecompressedRequestSize(long maxDecompressedRequestSize) {
+		this.maxDecompressedRequestSize = maxDecompressedRequestSize;
+	}
+
 }
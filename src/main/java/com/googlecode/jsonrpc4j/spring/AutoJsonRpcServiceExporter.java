@@ -49,6 +49,7 @@ public class AutoJsonRpcServiceExporter implements BeanFactoryPostProcessor {
     private boolean allowExtraParams = false;
     private boolean allowLessParams = false;
     private InvocationListener invocationListener = null;
+    private JsonRpcMetrics metrics = null;
     private HttpStatusCodeProvider httpStatusCodeProvider = null;
     private ConvertedParameterTransformer convertedParameterTransformer = null;
 
@@ -211,6 +212,10 @@ public class AutoJsonRpcServiceExporter implements BeanFactoryPostProcessor {
             builder.addPropertyValue("invocationListener", invocationListener);
         }
 
+        if (metrics != null) {
+            builder.addPropertyValue("metrics", metrics);
+        }
+
         if (registerTraceInterceptor != null) {
             builder.addPropertyValue("registerTraceInterceptor", registerTraceInterceptor);
         }
@@ -310,6 +315,13 @@ public class AutoJsonRpcServiceExporter implements BeanFactoryPostProcessor {
         this.invocationListener = invocationListener;
     }
 
+    /**
+     * @param metrics the {@link JsonRpcMetrics} the server reports to
+     */
+    public void setMetrics(JsonRpcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * @param httpStatusCodeProvider the HttpStatusCodeProvider to set
      */
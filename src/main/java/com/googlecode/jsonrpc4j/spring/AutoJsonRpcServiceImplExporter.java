@@ -18,6 +18,7 @@ import com.googlecode.jsonrpc4j.ConvertedParameterTransformer;
 import com.googlecode.jsonrpc4j.ErrorResolver;
 import com.googlecode.jsonrpc4j.HttpStatusCodeProvider;
 import com.googlecode.jsonrpc4j.InvocationListener;
+import com.googlecode.jsonrpc4j.JsonRpcMetrics;
 import com.googlecode.jsonrpc4j.JsonRpcService;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -70,6 +71,7 @@ public class AutoJsonRpcServiceImplExporter implements BeanFactoryPostProcessor
 	private boolean allowLessParams = false;
 	private boolean shouldLogInvocationErrors = true;
 	private InvocationListener invocationListener = null;
+	private JsonRpcMetrics metrics = null;
 	private HttpStatusCodeProvider httpStatusCodeProvider = null;
 	private ConvertedParameterTransformer convertedParameterTransformer = null;
 	private String contentType = null;
@@ -181,6 +183,10 @@ public class AutoJsonRpcServiceImplExporter implements BeanFactoryPostProcessor
 			builder.addPropertyValue("invocationListener", invocationListener);
 		}
 
+		if (metrics != null) {
+			builder.addPropertyValue("metrics", metrics);
+		}
+
 		if (registerTraceInterceptor != null) {
 			builder.addPropertyValue("registerTraceInterceptor", registerTraceInterceptor);
 		}
@@ -284,6 +290,13 @@ public class AutoJsonRpcServiceImplExporter implements BeanFactoryPostProcessor
 		this.invocationListener = invocationListener;
 	}
 
+	/**
+	 * @param metrics the {@link JsonRpcMetrics} the server reports to
+	 */
+	public void setMetrics(JsonRpcMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	/**
 	 * @param httpStatusCodeProvider the HttpStatusCodeProvider to set
 	 */
@@ -0,0 +1,49 @@
+package com.googlecode.jsonrpc4j.spring;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import com.googlecode.jsonrpc4j.JsonRpcLoadBalancer;
+import com.googlecode.jsonrpc4j.Util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The endpoints of a service registered with a Spring Cloud {@link DiscoveryClient},
+ * for a {@link JsonRpcLoadBalancer} that does not need Ribbon.  The {@code context-path}
+ * metadata of an instance is put in front of the service path, as for Ribbon.
+ */
+@SuppressWarnings("unused")
+public class DiscoveryClientEndpointList implements JsonRpcLoadBalancer.EndpointList {
+
+	private final DiscoveryClient discoveryClient;
+	private final String serviceId;
+	private final String servicePath;
+
+	/**
+	 * @param discoveryClient the {@link DiscoveryClient}
+	 * @param serviceId       the id the service is registered with
+	 * @param servicePath     the path of the JSON-RPC service on each instance
+	 */
+	public DiscoveryClientEndpointList(DiscoveryClient discoveryClient, String serviceId, String servicePath) {
+		this.discoveryClient = discoveryClient;
+		this.serviceId = serviceId;
+		this.servicePath = servicePath;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<URL> getEndpoints() throws IOException {
+		List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+		List<URL> urls = new ArrayList<>(instances.size());
+		for (ServiceInstance instance : instances) {
+			urls.add(Util.serviceInstanceUrl(instance.getUri(), instance.getMetadata(), servicePath));
+		}
+		return urls;
+	}
+}
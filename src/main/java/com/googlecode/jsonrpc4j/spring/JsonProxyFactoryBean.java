@@ -4,10 +4,12 @@ import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.context.ApplicationContext;
@@ -15,18 +17,34 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.remoting.support.UrlBasedRemoteAccessor;
 
 import com.googlecode.jsonrpc4j.JsonRpcClient.RequestListener;
+import com.googlecode.jsonrpc4j.JsonRpcClientCache;
+import com.googlecode.jsonrpc4j.JsonRpcHedging;
+import com.googlecode.jsonrpc4j.JsonRpcHttpAsyncClient;
 import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.JsonRpcIdempotent;
+import com.googlecode.jsonrpc4j.JsonRpcLoadBalancer;
 import com.googlecode.jsonrpc4j.ReflectionUtil;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -36,22 +54,32 @@ import javax.net.ssl.SSLContext;
  * (aka consumer) for accessing an HTTP based JSON-RPC service.
  */
 @SuppressWarnings("unused")
-class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInterceptor, InitializingBean, FactoryBean<Object>, ApplicationContextAware {
+class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInterceptor, InitializingBean, DisposableBean, FactoryBean<Object>, ApplicationContextAware {
+
+    private static final int DEFAULT_ASYNC_THREADS = 16;
+
+    private static volatile ExecutorService defaultExecutor;
 
     private Object proxyObject = null;
     private RequestListener requestListener = null;
     private ObjectMapper objectMapper = null;
     private JsonRpcHttpClient jsonRpcHttpClient = null;
+    private JsonRpcHttpAsyncClient jsonRpcHttpAsyncClient = null;
+    private JsonRpcClientCache clientCache = null;
     private Map<String, String> extraHttpHeaders = new HashMap<>();
     private String contentType;
 
     private SSLContext sslContext = null;
     private HostnameVerifier hostNameVerifier = null;
+    private Executor executor = null;
 
     private ApplicationContext applicationContext;
 
 
     private static LoadBalancerClient loadBalancerClient;
+    private DiscoveryClient discoveryClient;
+    private JsonRpcLoadBalancer loadBalancer;
+    private boolean discoveryLoadBalancing = false;
     //服务名称
     private String serviceId;
 
@@ -91,20 +119,56 @@ class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInter
             if (StringUtils.isEmpty(serviceId)) {
                 jsonRpcHttpClient.setServiceUrl(new URL(getServiceUrl()));
             } else {
+                if (loadBalancer == null && discoveryClient != null && (discoveryLoadBalancing || loadBalancerClient == null)) {
+                    // balances by latency itself, an existing Ribbon setup is kept unless this is asked for
+                    loadBalancer = new JsonRpcLoadBalancer(new DiscoveryClientEndpointList(discoveryClient, serviceId, getServiceUrl()));
+                }
                 jsonRpcHttpClient.setLoadBalancerClient(loadBalancerClient);
                 jsonRpcHttpClient.setServiceId(serviceId);
                 jsonRpcHttpClient.setServicePath(getServiceUrl());
                 jsonRpcHttpClient.setTracer(tracer);
             }
 
+            jsonRpcHttpClient.setLoadBalancer(loadBalancer);
             if (contentType != null) {
                 jsonRpcHttpClient.setContentType(contentType);
             }
+            if (JsonRpcClientCache.hasCacheableMethods(getServiceInterface())) {
+                clientCache = new JsonRpcClientCache(objectMapper);
+            }
+            if (JsonRpcHedging.hasIdempotentMethods(getServiceInterface())) {
+                // registered by the names invoke() calls them with
+                JsonRpcHedging hedging = new JsonRpcHedging();
+                for (Method method : getServiceInterface().getMethods()) {
+                    if (ReflectionUtil.getAnnotation(method, JsonRpcIdempotent.class) != null) {
+                        hedging.addIdempotentMethod(method.getName());
+                    }
+                }
+                jsonRpcHttpClient.setHedging(hedging);
+            }
+            if (StringUtils.isEmpty(serviceId) && hasAsyncMethods()) {
+                jsonRpcHttpAsyncClient = new JsonRpcHttpAsyncClient(objectMapper, new URL(getServiceUrl()), new HashMap<String, String>());
+                jsonRpcHttpAsyncClient.setRequestListener(requestListener);
+                jsonRpcHttpAsyncClient.setSslContext(sslContext);
+                jsonRpcHttpAsyncClient.setHostNameVerifier(hostNameVerifier);
+                if (contentType != null) {
+                    jsonRpcHttpAsyncClient.setContentType(contentType);
+                }
+            }
         } catch (MalformedURLException mue) {
             throw new RuntimeException(mue);
         }
     }
 
+    private boolean hasAsyncMethods() {
+        for (Method method : getServiceInterface().getMethods()) {
+            if (ReflectionUtil.isAsyncMethod(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getServiceId() {
         return serviceId;
     }
@@ -117,26 +181,121 @@ class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInter
         return loadBalancerClient;
     }
 
-    @Autowired
+    @Autowired(required = false)
     public void setLoadBalancerClient(LoadBalancerClient loadBalancerClient) {
         this.loadBalancerClient = loadBalancerClient;
     }
 
+    public DiscoveryClient getDiscoveryClient() {
+        return discoveryClient;
+    }
+
+    /**
+     * @param discoveryClient the {@link DiscoveryClient} the instances of the {@code serviceId}
+     *                        are looked up with for a {@link JsonRpcLoadBalancer}
+     */
+    @Autowired(required = false)
+    public void setDiscoveryClient(DiscoveryClient discoveryClient) {
+        this.discoveryClient = discoveryClient;
+    }
+
+    public boolean isDiscoveryLoadBalancing() {
+        return discoveryLoadBalancing;
+    }
+
+    /**
+     * @param discoveryLoadBalancing {@code true} to call the instances of the {@code serviceId} through a
+     *                               {@link JsonRpcLoadBalancer} over the {@link DiscoveryClient} even when a
+     *                               {@link LoadBalancerClient} is present, by default it is only used without one
+     */
+    public void setDiscoveryLoadBalancing(boolean discoveryLoadBalancing) {
+        this.discoveryLoadBalancing = discoveryLoadBalancing;
+    }
+
+    public JsonRpcLoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    /**
+     * @param loadBalancer the {@link JsonRpcLoadBalancer} choosing the endpoint of each call,
+     *                     by default one over the instances of the {@code serviceId}
+     */
+    public void setLoadBalancer(JsonRpcLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Object invoke(MethodInvocation invocation)
             throws Throwable {
-        Method method = invocation.getMethod();
+        final Method method = invocation.getMethod();
         if (method.getDeclaringClass() == Object.class && method.getName().equals("toString")) {
             return proxyObject.getClass().getName() + "@" + System.identityHashCode(proxyObject);
         }
 
-        Type retType = (invocation.getMethod().getGenericReturnType() != null) ? invocation.getMethod().getGenericReturnType() : invocation.getMethod().getReturnType();
-        Object arguments = ReflectionUtil.parseArguments(invocation.getMethod(), invocation.getArguments());
+        final Type retType = (invocation.getMethod().getGenericReturnType() != null) ? invocation.getMethod().getGenericReturnType() : invocation.getMethod().getReturnType();
+        final Object arguments = ReflectionUtil.parseArguments(invocation.getMethod(), invocation.getArguments());
 
-        return jsonRpcHttpClient.invoke(invocation.getMethod().getName(), arguments, retType, extraHttpHeaders);
+        if (ReflectionUtil.isAsyncMethod(method)) {
+            return invokeAsync(method.getName(), arguments, ReflectionUtil.getAsyncResultType(method));
+        }
+        if (clientCache == null) {
+            return jsonRpcHttpClient.invoke(method.getName(), arguments, retType, extraHttpHeaders);
+        }
+        return clientCache.invoke(method, invocation.getArguments(), new JsonRpcClientCache.Call() {
+            @Override
+            public Object call() throws Throwable {
+                return jsonRpcHttpClient.invoke(method.getName(), arguments, retType, extraHttpHeaders);
+            }
+        });
+    }
+
+    /**
+     * Invokes a method returning a future.  The asynchronous client needs a fixed
+     * service URL, load balanced services block a thread of the {@link #setExecutor executor}
+     * instead.
+     */
+    private CompletableFuture<Object> invokeAsync(final String methodName, final Object arguments, final Type resultType) {
+        if (jsonRpcHttpAsyncClient != null) {
+            return jsonRpcHttpAsyncClient.invokeAsync(methodName, arguments, resultType, extraHttpHeaders);
+        }
+        return CompletableFuture.supplyAsync(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                try {
+                    return jsonRpcHttpClient.invoke(methodName, arguments, resultType, extraHttpHeaders);
+                } catch (Throwable t) {
+                    throw new CompletionException(t);
+                }
+            }
+        }, executor != null ? executor : getDefaultExecutor());
+    }
+
+    private static ExecutorService getDefaultExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (JsonProxyFactoryBean.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "jsonrpc-async-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    defaultExecutor = executor = pool;
+                }
+            }
+        }
+        return executor;
     }
 
     /**
@@ -163,6 +322,19 @@ class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInter
         return true;
     }
 
+    /**
+     * Shuts down the connections of the asynchronous client, which has a pool and an I/O
+     * reactor thread of its own when an {@link SSLContext} or {@link HostnameVerifier} is set.
+     *
+     * @throws IOException on error
+     */
+    @Override
+    public void destroy() throws IOException {
+        if (jsonRpcHttpAsyncClient != null) {
+            jsonRpcHttpAsyncClient.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -206,6 +378,18 @@ class JsonProxyFactoryBean extends UrlBasedRemoteAccessor implements MethodInter
         this.hostNameVerifier = hostNameVerifier;
     }
 
+    /**
+     * Sets the {@link Executor} the calls of methods returning a future block on when the
+     * service is looked up by {@code serviceId}.  By default a pool of
+     * {@value #DEFAULT_ASYNC_THREADS} daemon threads shared by all proxies, the calls
+     * beyond that wait in its queue.
+     *
+     * @param executor the {@link Executor}
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * @param contentType the contentType to pass to JsonRpcClient
      */
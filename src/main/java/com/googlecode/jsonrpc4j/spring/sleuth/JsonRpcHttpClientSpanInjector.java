@@ -1,7 +1,6 @@
 package com.googlecode.jsonrpc4j.spring.sleuth;
 
 import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
-import org.apache.commons.collections.MapUtils;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.SpanExtractor;
 import org.springframework.cloud.sleuth.SpanInjector;
@@ -40,7 +39,7 @@ public class JsonRpcHttpClientSpanInjector implements SpanInjector<JsonRpcHttpCl
     }
 
     public static Span fromHeaders(Map<String, String> headers) {
-        if (StringUtils.isEmpty(MapUtils.getString(headers, Span.SPAN_ID_NAME))) {
+        if (headers == null || StringUtils.isEmpty(headers.get(Span.SPAN_ID_NAME))) {
             return null;
         }
         Span.SpanBuilder builder = Span.builder().traceId(Span.hexToId(headers.get(Span.TRACE_ID_NAME))).name(headers
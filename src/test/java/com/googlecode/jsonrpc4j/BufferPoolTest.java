@@ -0,0 +1,75 @@
+package com.googlecode.jsonrpc4j;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+public class BufferPoolTest {
+
+	@Test
+	public void reusesReleasedBuffers() {
+		BufferPool pool = new BufferPool(16, 2);
+		byte[] buffer = pool.acquire();
+		assertEquals(16, buffer.length);
+		pool.release(buffer);
+		assertEquals(1, pool.getPooledCount());
+		assertSame(buffer, pool.acquire());
+		assertEquals(0, pool.getPooledCount());
+	}
+
+	@Test
+	public void dropsForeignAndSurplusBuffers() {
+		BufferPool pool = new BufferPool(16, 1);
+		pool.release(new byte[32]);
+		assertEquals(0, pool.getPooledCount());
+		pool.release(new byte[16]);
+		pool.release(new byte[16]);
+		assertEquals(1, pool.getPooledCount());
+		BufferPool unpooled = new BufferPool(16, 0);
+		byte[] buffer = unpooled.acquire();
+		unpooled.release(buffer);
+		assertNotSame(buffer, unpooled.acquire());
+	}
+
+	@Test
+	public void outputStreamReturnsItsBuffer() {
+		BufferPool pool = new BufferPool(4, 2);
+		PooledByteArrayOutputStream small = new PooledByteArrayOutputStream(pool);
+		small.write(new byte[] { 1, 2, 3 }, 0, 3);
+		ByteBuffer content = small.toByteBuffer();
+		assertEquals(3, content.remaining());
+		assertSame(content, small.toByteBuffer());
+		small.release();
+		small.release();
+		assertEquals(1, pool.getPooledCount());
+		assertEquals(0, small.size());
+
+		PooledByteArrayOutputStream grown = new PooledByteArrayOutputStream(pool);
+		grown.write(new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6);
+		assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, grown.toByteArray());
+		grown.release();
+		assertEquals(0, pool.getPooledCount());
+	}
+
+	@Test
+	public void inputStreamReturnsItsBufferOnClose() throws Exception {
+		BufferPool pool = new BufferPool(4, 2);
+		PooledBufferedInputStream input = new PooledBufferedInputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6 }), pool);
+		input.mark(1);
+		assertEquals(1, input.read());
+		input.reset();
+		byte[] read = new byte[6];
+		assertEquals(4, input.read(read, 0, 4));
+		assertEquals(2, input.read(read, 4, 2));
+		assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, read);
+		input.close();
+		input.close();
+		assertEquals(1, pool.getPooledCount());
+	}
+}
@@ -0,0 +1,87 @@
+package com.googlecode.jsonrpc4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+public class MethodInvokerTest {
+
+	private final Service service = new Service();
+
+	@Test
+	public void invokesTheMethod() throws Exception {
+		assertEquals("a3", invoker("concat").invoke(service, new Object[]{ "a", 3 }));
+		assertEquals(7L, invoker("twice").invoke(null, new Object[]{ 3.5 }));
+	}
+
+	@Test
+	public void widensPrimitivesLikeReflection() throws Exception {
+		assertEquals("a3", invoker("concat").invoke(service, new Object[]{ "a", (short) 3 }));
+	}
+
+	@Test
+	public void nullPrimitiveIsAnIllegalArgument() throws Exception {
+		assertIllegalArgument(invoker("concat"), service, new Object[]{ "a", null });
+	}
+
+	@Test
+	public void wrongArgumentTypeIsAnIllegalArgument() throws Exception {
+		assertIllegalArgument(invoker("concat"), service, new Object[]{ 1, 3 });
+		assertIllegalArgument(invoker("concat"), service, new Object[]{ "a", "b" });
+		assertIllegalArgument(invoker("concat"), service, new Object[]{ "a" });
+	}
+
+	@Test
+	public void wrongTargetIsAnIllegalArgument() throws Exception {
+		assertIllegalArgument(invoker("concat"), "service", new Object[]{ "a", 3 });
+	}
+
+	@Test
+	public void exceptionOfTheMethodIsWrapped() throws Exception {
+		try {
+			invoker("fail").invoke(service, new Object[]{ "message" });
+			fail();
+		} catch (InvocationTargetException e) {
+			assertSame(ClassCastException.class, e.getCause().getClass());
+			assertEquals("message", e.getCause().getMessage());
+		}
+	}
+
+	private static MethodInvoker invoker(String name) {
+		for (Method method : Service.class.getMethods()) {
+			if (method.getName().equals(name)) {
+				return MethodInvoker.create(method);
+			}
+		}
+		throw new AssertionError(name);
+	}
+
+	private static void assertIllegalArgument(MethodInvoker invoker, Object target, Object[] arguments) throws Exception {
+		try {
+			invoker.invoke(target, arguments);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public static class Service {
+
+		public String concat(String text, int count) {
+			return text + count;
+		}
+
+		public static long twice(double value) {
+			return (long) (value * 2);
+		}
+
+		public void fail(String message) {
+			throw new ClassCastException(message);
+		}
+	}
+}
@@ -1,11 +1,18 @@
 package com.googlecode.jsonrpc4j;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
 
 public class ReflectionUtilTest {
 
@@ -43,6 +50,25 @@ public class ReflectionUtilTest {
 		assertEquals(2, namedParams.get("two"));
 	}
 
+	@Test
+	public void asyncMethods() throws Exception {
+
+		assertFalse(ReflectionUtil.isAsyncMethod(JsonRpcTestService.class.getMethod("noParams")));
+		assertTrue(ReflectionUtil.isAsyncMethod(JsonRpcTestService.class.getMethod("completableFuture")));
+		assertTrue(ReflectionUtil.isAsyncMethod(JsonRpcTestService.class.getMethod("completionStage")));
+		assertTrue(ReflectionUtil.isAsyncMethod(JsonRpcTestService.class.getMethod("future")));
+	}
+
+	@Test
+	public void asyncResultType() throws Exception {
+
+		assertEquals(String.class, ReflectionUtil.getAsyncResultType(JsonRpcTestService.class.getMethod("completableFuture")));
+		ParameterizedType listType = (ParameterizedType) ReflectionUtil.getAsyncResultType(JsonRpcTestService.class.getMethod("completionStage"));
+		assertEquals(List.class, listType.getRawType());
+		assertEquals(Integer.class, listType.getActualTypeArguments()[0]);
+		assertEquals(Object.class, ReflectionUtil.getAsyncResultType(JsonRpcTestService.class.getMethod("future")));
+	}
+
 	private interface JsonRpcTestService {
 
 		void noParams();
@@ -52,5 +78,12 @@ public class ReflectionUtilTest {
 		void someNamedParams(@JsonRpcParam("one") String one, int two);
 
 		void allNamedParams(@JsonRpcParam("one") String one, @JsonRpcParam("two") int two);
+
+		CompletableFuture<String> completableFuture();
+
+		CompletionStage<List<Integer>> completionStage();
+
+		@SuppressWarnings("rawtypes")
+		Future future();
 	}
 }
@@ -0,0 +1,190 @@
+package com.googlecode.jsonrpc4j.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.IJsonRpcClient;
+import com.googlecode.jsonrpc4j.JsonRpcCacheable;
+import com.googlecode.jsonrpc4j.JsonRpcClientCache;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonRpcClientCacheTest {
+
+	private CountingClient client;
+	private Service service;
+
+	@Before
+	public void setUp() {
+		client = new CountingClient();
+		service = ProxyUtil.createClientProxy(getClass().getClassLoader(), Service.class, client);
+	}
+
+	@Test
+	public void cachesAnnotatedMethodsOnly() {
+		assertEquals("eur-1", service.lookup("eur"));
+		assertEquals("eur-1", service.lookup("eur"));
+		assertEquals("usd-2", service.lookup("usd"));
+		assertEquals("eur-3", service.uncached("eur"));
+		assertEquals("eur-4", service.uncached("eur"));
+		assertEquals(4, client.calls.get());
+	}
+
+	@Test
+	public void failedCallsAreNotCached() {
+		for (int i = 0; i < 2; i++) {
+			try {
+				service.lookup("fail");
+				fail();
+			} catch (IllegalStateException e) {
+				assertEquals("fail", e.getMessage());
+			}
+		}
+		assertEquals(2, client.calls.get());
+	}
+
+	@Test
+	public void concurrentCallsShareOneRemoteCall() throws Exception {
+		client.release = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		final List<Object> results = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					String result = service.lookup("eur");
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		Thread.sleep(100);
+		client.release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+		assertEquals(4, results.size());
+		for (Object result : results) {
+			assertSame(results.get(0), result);
+		}
+		assertEquals(1, client.calls.get());
+	}
+
+	@Test
+	public void staleResultIsServedWhileRefreshing() throws Throwable {
+		final List<Runnable> refreshes = new ArrayList<>();
+		JsonRpcClientCache cache = new JsonRpcClientCache(new ObjectMapper());
+		cache.setRefreshExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				refreshes.add(command);
+			}
+		});
+		Method method = Service.class.getMethod("rates", String.class);
+		JsonRpcClientCache.Call call = new JsonRpcClientCache.Call() {
+			@Override
+			public Object call() throws Throwable {
+				return client.invoke("rates", null, String.class);
+			}
+		};
+		Object[] arguments = { "eur" };
+
+		assertEquals("rates-1", cache.invoke(method, arguments, call));
+		Thread.sleep(40);
+		assertEquals("rates-1", cache.invoke(method, arguments, call));
+		assertEquals("rates-1", cache.invoke(method, arguments, call));
+		assertEquals(1, refreshes.size());
+		refreshes.get(0).run();
+		assertEquals("rates-2", cache.invoke(method, arguments, call));
+		Thread.sleep(150);
+		assertEquals("rates-3", cache.invoke(method, arguments, call));
+	}
+
+	@Test
+	public void staleResultIsRefreshedOnDaemonThreads() throws Throwable {
+		final CompletableFuture<Thread> refresh = new CompletableFuture<>();
+		JsonRpcClientCache cache = new JsonRpcClientCache(new ObjectMapper());
+		Method method = Service.class.getMethod("rates", String.class);
+		JsonRpcClientCache.Call call = new JsonRpcClientCache.Call() {
+			@Override
+			public Object call() throws Throwable {
+				if (client.calls.get() > 0) refresh.complete(Thread.currentThread());
+				return client.invoke("rates", null, String.class);
+			}
+		};
+		Object[] arguments = { "eur" };
+
+		cache.invoke(method, arguments, call);
+		Thread.sleep(40);
+		cache.invoke(method, arguments, call);
+		Thread thread = refresh.get(1, TimeUnit.SECONDS);
+		assertTrue(thread.isDaemon());
+		assertTrue(thread.getName(), thread.getName().startsWith("jsonrpc-cache-refresh-"));
+	}
+
+	public interface Service {
+
+		@JsonRpcCacheable(ttl = 1, unit = TimeUnit.MINUTES)
+		String lookup(String code);
+
+		String uncached(String code);
+
+		@JsonRpcCacheable(ttl = 20, staleWhileRevalidate = 100, unit = TimeUnit.MILLISECONDS)
+		String rates(String code);
+	}
+
+	private static class CountingClient implements IJsonRpcClient {
+
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile CountDownLatch release;
+
+		@Override
+		public void invoke(String methodName, Object argument) throws Throwable {
+			invoke(methodName, argument, Object.class);
+		}
+
+		@Override
+		public Object invoke(String methodName, Object argument, Type returnType) throws Throwable {
+			int call = calls.incrementAndGet();
+			if (release != null) release.await(5, TimeUnit.SECONDS);
+			String code = argument instanceof Object[] ? String.valueOf(((Object[]) argument)[0]) : methodName;
+			if (code.equals("fail")) throw new IllegalStateException(code);
+			return code + "-" + call;
+		}
+
+		@Override
+		public Object invoke(String methodName, Object argument, Type returnType, Map<String, String> extraHeaders) throws Throwable {
+			return invoke(methodName, argument, returnType);
+		}
+
+		@Override
+		public <T> T invoke(String methodName, Object argument, Class<T> clazz) throws Throwable {
+			return clazz.cast(invoke(methodName, argument, (Type) clazz));
+		}
+
+		@Override
+		public <T> T invoke(String methodName, Object argument, Class<T> clazz, Map<String, String> extraHeaders) throws Throwable {
+			return invoke(methodName, argument, clazz);
+		}
+	}
+}
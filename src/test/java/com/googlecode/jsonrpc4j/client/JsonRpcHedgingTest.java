@@ -0,0 +1,235 @@
+package com.googlecode.jsonrpc4j.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcHedging;
+import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.JsonRpcIdempotent;
+import com.googlecode.jsonrpc4j.JsonRpcLoadBalancer;
+import com.googlecode.jsonrpc4j.JsonRpcMethod;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonRpcHedgingTest {
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	static {
+		// otherwise every answer waits for a delayed ACK and the fast calls take 40 ms
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private Backend first;
+	private Backend second;
+	private JsonRpcHedging hedging;
+
+	@Before
+	public void setUp() throws Exception {
+		first = new Backend("first");
+		second = new Backend("second");
+		hedging = new JsonRpcHedging();
+		hedging.addIdempotentMethod("name");
+	}
+
+	@After
+	public void tearDown() {
+		first.stop();
+		second.stop();
+	}
+
+	@Test
+	public void stalledCallIsHedgedOnAnotherEndpoint() throws Throwable {
+		JsonRpcHttpClient client = new JsonRpcHttpClient(first.url);
+		client.setLoadBalancer(new JsonRpcLoadBalancer(Arrays.asList(first.url, second.url)));
+		client.setHedging(hedging);
+		for (int i = 0; i < 100; i++) {
+			client.invoke("name", null, String.class);
+		}
+
+		first.delayMillis = 5000;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			assertEquals("second", client.invoke("name", null, String.class));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		}
+	}
+
+	@Test
+	public void hedgesAreLimitedByTheBudget() throws Throwable {
+		JsonRpcHttpClient client = new JsonRpcHttpClient(first.url);
+		client.setHedging(hedging);
+		for (int i = 0; i < 30; i++) {
+			client.invoke("name", null, String.class);
+		}
+
+		first.delayMillis = 100;
+		int before = first.requests.get();
+		for (int i = 0; i < 10; i++) {
+			assertEquals("first", client.invoke("name", null, String.class));
+		}
+		int hedges = first.requests.get() - before - 10;
+		// 40 calls earn 4 hedges at 10%
+		assertTrue("hedges: " + hedges, hedges > 0 && hedges <= 4);
+	}
+
+	@Test
+	public void delayFollowsASteadySlowTail() throws Throwable {
+		// one call in 25 takes 300 ms and another 100 ms, so the 95th percentile is 100 ms
+		long[] cycle = new long[25];
+		cycle[0] = 300;
+		cycle[1] = 100;
+		first.cycleMillis = cycle;
+		hedging.setBudgetPercent(100);
+		hedging.setMinDelayMillis(1);
+		JsonRpcHttpClient client = new JsonRpcHttpClient(first.url);
+		client.setHedging(hedging);
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+		while (System.nanoTime() < end) {
+			client.invoke("name", null, String.class);
+		}
+		// the 300 ms calls are hedged and answered early, but count for as long as they waited
+		long delay = hedging.getDelayMillis("name");
+		assertTrue("delay: " + delay, delay >= 90 && delay < 300);
+	}
+
+	@Test
+	public void otherMethodsAreNotHedged() throws Throwable {
+		JsonRpcHttpClient client = new JsonRpcHttpClient(first.url);
+		client.setHedging(hedging);
+		for (int i = 0; i < 30; i++) {
+			client.invoke("update", null, String.class);
+		}
+		first.delayMillis = 100;
+		int before = first.requests.get();
+		for (int i = 0; i < 5; i++) {
+			client.invoke("update", null, String.class);
+		}
+		assertEquals(5, first.requests.get() - before);
+	}
+
+	@Test
+	public void idempotentMethodsAreRegisteredByTheirCalledName() {
+		JsonRpcHedging registered = new JsonRpcHedging();
+		registered.addIdempotentMethods(Service.class);
+		assertTrue(registered.isIdempotent("name"));
+		assertTrue(registered.isIdempotent("find_user"));
+		assertFalse(registered.isIdempotent("update"));
+		assertTrue(JsonRpcHedging.hasIdempotentMethods(Service.class));
+		assertFalse(JsonRpcHedging.hasIdempotentMethods(Runnable.class));
+	}
+
+	@Test
+	public void proxiesLeaveTheSharedClientUnchanged() {
+		JsonRpcHttpClient client = new JsonRpcHttpClient(first.url);
+		ProxyUtil.createClientProxy(Service.class.getClassLoader(), Service.class, client);
+		assertNull(client.getHedging());
+
+		client.setHedging(hedging);
+		ProxyUtil.createClientProxy(Service.class.getClassLoader(), Service.class, client);
+		assertSame(hedging, client.getHedging());
+		assertFalse(hedging.isIdempotent("find_user"));
+	}
+
+	public interface Service {
+
+		@JsonRpcIdempotent
+		String name();
+
+		@JsonRpcIdempotent
+		@JsonRpcMethod("find_user")
+		String findUser(String name);
+
+		String update();
+	}
+
+	/**
+	 * Answers every call with its own name after a delay.
+	 */
+	private static class Backend implements HttpHandler {
+
+		private final String name;
+		private final HttpServer server;
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+		private final AtomicInteger requests = new AtomicInteger();
+		private final URL url;
+		private volatile long delayMillis;
+		private volatile long[] cycleMillis;
+		private final AtomicInteger calls = new AtomicInteger();
+		private final Set<JsonNode> seen = Collections.newSetFromMap(new ConcurrentHashMap<JsonNode, Boolean>());
+
+		Backend(String name) throws IOException {
+			this.name = name;
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.createContext("/", this);
+			server.setExecutor(executor);
+			server.start();
+			url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			requests.incrementAndGet();
+			JsonNode request;
+			try (InputStream input = exchange.getRequestBody()) {
+				request = mapper.readTree(input);
+			}
+			long delay = delayMillis;
+			long[] cycle = cycleMillis;
+			if (cycle != null) {
+				// the delays follow the cycle call by call, hedges repeat the id and are answered at once
+				delay = seen.add(request.get("id")) ? cycle[calls.getAndIncrement() % cycle.length] : 0;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				exchange.close();
+				return;
+			}
+			ObjectNode response = mapper.createObjectNode();
+			response.put("jsonrpc", "2.0");
+			response.set("id", request.get("id"));
+			response.put("result", name);
+			byte[] body = mapper.writeValueAsBytes(response);
+			exchange.getResponseHeaders().set("Content-Type", "application/json-rpc");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			} catch (IOException e) {
+				// the client gave up on the request
+			}
+		}
+
+		void stop() {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.googlecode.jsonrpc4j.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcLoadBalancer;
+import com.googlecode.jsonrpc4j.JsonRpcLoadBalancer.Endpoint;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonRpcLoadBalancerTest {
+
+	private URL fast;
+	private URL slow;
+	private URL third;
+
+	@Before
+	public void setUp() throws Exception {
+		fast = new URL("http://10.0.0.1:8080/rpc");
+		slow = new URL("http://10.0.0.2:8080/rpc");
+		third = new URL("http://10.0.0.3:8080/rpc");
+	}
+
+	@Test
+	public void slowEndpointGetsLessTraffic() throws Exception {
+		JsonRpcLoadBalancer balancer = new JsonRpcLoadBalancer(Arrays.asList(fast, slow, third));
+		int slowCalls = 0;
+		for (int i = 0; i < 3000; i++) {
+			Endpoint endpoint = balancer.choose();
+			boolean isSlow = endpoint.getUrl().equals(slow);
+			if (isSlow) slowCalls++;
+			balancer.release(endpoint, TimeUnit.MILLISECONDS.toNanos(isSlow ? 500 : 5), true);
+		}
+		assertTrue("slow endpoint got " + slowCalls + " calls", slowCalls < 100);
+	}
+
+	@Test
+	public void callsInFlightSpreadLoad() throws Exception {
+		JsonRpcLoadBalancer balancer = new JsonRpcLoadBalancer(Arrays.asList(fast, slow));
+		Endpoint first = balancer.choose();
+		Endpoint second = balancer.choose();
+		assertNotSame(first, second);
+		assertEquals(1, first.getInFlight());
+		balancer.cancel(first);
+		balancer.cancel(second);
+		assertEquals(0, first.getInFlight());
+	}
+
+	@Test
+	public void failingEndpointIsEjectedAndReturns() throws Exception {
+		JsonRpcLoadBalancer balancer = new JsonRpcLoadBalancer(Arrays.asList(fast, slow));
+		balancer.setConsecutiveFailures(3);
+		balancer.setEjectionMillis(50);
+		Endpoint failing = endpoint(balancer, slow);
+		for (int i = 0; i < 3; i++) {
+			assertFalse(failing.isEjected());
+			balancer.release(chooseAgain(balancer, failing), 1000, false);
+		}
+		assertTrue(failing.isEjected());
+		for (int i = 0; i < 20; i++) {
+			Endpoint endpoint = balancer.choose();
+			assertEquals(fast, endpoint.getUrl());
+			balancer.cancel(endpoint);
+		}
+		Thread.sleep(80);
+		assertFalse(failing.isEjected());
+	}
+
+	@Test
+	public void atMostHalfTheEndpointsAreEjected() throws Exception {
+		JsonRpcLoadBalancer balancer = new JsonRpcLoadBalancer(Arrays.asList(fast, slow));
+		balancer.setConsecutiveFailures(1);
+		Endpoint first = endpoint(balancer, fast);
+		Endpoint second = endpoint(balancer, slow);
+		balancer.release(chooseAgain(balancer, first), 1000, false);
+		balancer.release(chooseAgain(balancer, second), 1000, false);
+		assertTrue(first.isEjected() != second.isEjected());
+	}
+
+	@Test
+	public void endpointsAreCachedAndKeepTheirStatistics() throws Exception {
+		final AtomicInteger fetches = new AtomicInteger();
+		final List<URL> urls = new ArrayList<>(Arrays.asList(fast, slow));
+		JsonRpcLoadBalancer balancer = new JsonRpcLoadBalancer(new JsonRpcLoadBalancer.EndpointList() {
+			@Override
+			public List<URL> getEndpoints() {
+				fetches.incrementAndGet();
+				return new ArrayList<>(urls);
+			}
+		});
+		balancer.setRefreshMillis(TimeUnit.MINUTES.toMillis(1));
+		Endpoint endpoint = balancer.choose();
+		balancer.release(endpoint, TimeUnit.MILLISECONDS.toNanos(20), true);
+		for (int i = 0; i < 10; i++) {
+			balancer.cancel(balancer.choose());
+		}
+		assertEquals(1, fetches.get());
+
+		urls.add(third);
+		balancer.invalidate();
+		assertEquals(3, balancer.getEndpoints().size());
+		assertEquals(2, fetches.get());
+		assertSame(endpoint, endpoint(balancer, endpoint.getUrl()));
+		assertEquals(20, endpoint.getLatencyMillis(), 0.001);
+	}
+
+	@Test
+	public void noEndpoint() {
+		try {
+			new JsonRpcLoadBalancer(Collections.<URL>emptyList()).choose();
+			fail();
+		} catch (IOException e) {
+			assertEquals("No endpoint available", e.getMessage());
+		}
+	}
+
+	private static Endpoint endpoint(JsonRpcLoadBalancer balancer, URL url) throws IOException {
+		for (Endpoint endpoint : balancer.getEndpoints()) {
+			if (endpoint.getUrl().equals(url)) return endpoint;
+		}
+		throw new AssertionError(url);
+	}
+
+	/**
+	 * Chooses until the given endpoint comes up, as a call routed to it would.
+	 */
+	private static Endpoint chooseAgain(JsonRpcLoadBalancer balancer, Endpoint wanted) throws IOException {
+		for (int i = 0; i < 1000; i++) {
+			Endpoint endpoint = balancer.choose();
+			if (endpoint == wanted) return endpoint;
+			balancer.cancel(endpoint);
+		}
+		throw new AssertionError(wanted);
+	}
+}
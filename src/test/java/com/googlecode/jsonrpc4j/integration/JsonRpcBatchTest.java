@@ -0,0 +1,96 @@
+package com.googlecode.jsonrpc4j.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcBatch;
+import com.googlecode.jsonrpc4j.JsonRpcCoalescingClient;
+import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.util.BaseRestTest;
+import com.googlecode.jsonrpc4j.util.FakeServiceInterfaceImpl;
+import com.googlecode.jsonrpc4j.util.JettyServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class JsonRpcBatchTest extends BaseRestTest {
+
+	private JsonRpcHttpClient client;
+
+	@Before
+	public void setUpClient() throws Exception {
+		client = new JsonRpcHttpClient(getServiceUrl(JettyServer.SERVLET));
+	}
+
+	@Test
+	public void batchCompletesCallsById() throws Exception {
+		JsonRpcBatch batch = new JsonRpcBatch(client);
+		CompletableFuture<Integer> first = batch.add("returnPrimitiveInt", new Object[] { 1 }, Integer.class);
+		CompletableFuture<Object> failing = batch.add("throwSomeException", new Object[] { "failed" }, Object.class);
+		batch.addNotification("doSomething", null);
+		CompletableFuture<Integer> second = batch.add("returnPrimitiveInt", new Object[] { 2 }, Integer.class);
+		assertEquals(4, batch.size());
+
+		client.invokeBatch(batch);
+
+		assertEquals(1, first.get(10, TimeUnit.SECONDS).intValue());
+		assertEquals(2, second.get(10, TimeUnit.SECONDS).intValue());
+		try {
+			failing.get(10, TimeUnit.SECONDS);
+			throw new AssertionError("the call should have failed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof UnsupportedOperationException);
+		}
+	}
+
+	@Test
+	public void coalescingClientSendsFullBatches() throws Exception {
+		try (JsonRpcCoalescingClient coalescing = new JsonRpcCoalescingClient(client, 4, 10, TimeUnit.SECONDS)) {
+			List<CompletableFuture<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(coalescing.invokeAsync("returnPrimitiveInt", new Object[] { i }, Integer.class));
+			}
+			for (int i = 0; i < 8; i++) {
+				assertEquals(i, results.get(i).get(10, TimeUnit.SECONDS).intValue());
+			}
+			assertEquals(2, coalescing.getBatchCount());
+		}
+	}
+
+	@Test
+	public void coalescingClientSendsAfterDelay() throws Throwable {
+		try (JsonRpcCoalescingClient coalescing = new JsonRpcCoalescingClient(client, 100, 20, TimeUnit.MILLISECONDS)) {
+			assertEquals(3, coalescing.invoke("returnPrimitiveInt", new Object[] { 3 }, Integer.class).intValue());
+			assertEquals(1, coalescing.getBatchCount());
+		}
+	}
+
+	@Test
+	public void coalescingClientSendsAtOnceWhenTheTimerIsRejected() throws Throwable {
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		scheduler.shutdown();
+		try (JsonRpcCoalescingClient coalescing = new JsonRpcCoalescingClient(client, 100, 10, TimeUnit.SECONDS, scheduler)) {
+			coalescing.setTimeoutMillis(10000);
+			try {
+				coalescing.invoke("returnPrimitiveInt", new Object[] { 3 }, Integer.class);
+				throw new AssertionError("the call should have failed");
+			} catch (RejectedExecutionException e) {
+				// the batch was sent at once, and the shut down scheduler refused it too
+			}
+		}
+	}
+
+	@Override
+	protected Class service() {
+		return FakeServiceInterfaceImpl.class;
+	}
+}
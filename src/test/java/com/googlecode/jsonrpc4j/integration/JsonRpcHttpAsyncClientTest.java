@@ -0,0 +1,117 @@
+package com.googlecode.jsonrpc4j.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcHttpAsyncClient;
+import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+import com.googlecode.jsonrpc4j.util.BaseRestTest;
+import com.googlecode.jsonrpc4j.util.FakeServiceInterface.CustomClass;
+import com.googlecode.jsonrpc4j.util.FakeServiceInterfaceImpl;
+import com.googlecode.jsonrpc4j.util.JettyServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class JsonRpcHttpAsyncClientTest extends BaseRestTest {
+
+	private JsonRpcHttpAsyncClient client;
+
+	@Before
+	public void setUpClient() throws Exception {
+		client = new JsonRpcHttpAsyncClient(getServiceUrl(JettyServer.SERVLET));
+	}
+
+	@Test
+	public void composesCalls() throws Exception {
+		CompletableFuture<Integer> first = client.invokeAsync("returnPrimitiveInt", new Object[] { 1 }, Integer.class);
+		CompletableFuture<Integer> second = client.invokeAsync("returnPrimitiveInt", new Object[] { 2 }, Integer.class);
+		int sum = first.thenCombine(second, (a, b) -> a + b).get(10, TimeUnit.SECONDS);
+		assertEquals(3, sum);
+	}
+
+	@Test
+	public void completesExceptionallyOnError() throws Exception {
+		CompletableFuture<Object> future = client.invokeAsync("throwSomeException", new Object[] { "failed" });
+		try {
+			future.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(future.isCompletedExceptionally());
+			return;
+		}
+		throw new AssertionError("the call should have failed");
+	}
+
+	@Test(expected = CancellationException.class)
+	public void cancelAbortsCall() throws Exception {
+		final CountDownLatch received = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+		try (final ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// never answers, the connection only ends when the client aborts the call
+					try (Socket socket = server.accept()) {
+						InputStream input = socket.getInputStream();
+						if (input.read() != -1) received.countDown();
+						while (input.read() != -1) {
+							// skip the request
+						}
+					} catch (IOException e) {
+						// reset by the client
+					}
+					closed.countDown();
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+
+			JsonRpcHttpAsyncClient silent = new JsonRpcHttpAsyncClient(new URL("http://127.0.0.1:" + server.getLocalPort() + "/"));
+			CompletableFuture<Integer> future = silent.invokeAsync("returnPrimitiveInt", new Object[] { 1 }, Integer.class);
+			assertTrue(received.await(10, TimeUnit.SECONDS));
+			assertTrue(future.cancel(true));
+			assertTrue(future.isCancelled());
+			assertTrue("the connection was not closed", closed.await(10, TimeUnit.SECONDS));
+			future.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void proxyReturnsFutures() throws Exception {
+		AsyncService service = ProxyUtil.createClientProxy(getClass().getClassLoader(), AsyncService.class,
+				new JsonRpcHttpClient(getServiceUrl(JettyServer.SERVLET)), client);
+		CustomClass result = service.returnCustomClass(1, "one").toCompletableFuture().get(10, TimeUnit.SECONDS);
+		assertEquals(1, result.integer);
+		assertEquals("one", result.string);
+		assertEquals(2, service.returnPrimitiveInt(2).get(10, TimeUnit.SECONDS).intValue());
+		service.doSomething();
+	}
+
+	@Override
+	protected Class service() {
+		return FakeServiceInterfaceImpl.class;
+	}
+
+	public interface AsyncService {
+
+		CompletableFuture<Integer> returnPrimitiveInt(int arg);
+
+		CompletionStage<CustomClass> returnCustomClass(int arg1, String arg2);
+
+		void doSomething();
+	}
+}
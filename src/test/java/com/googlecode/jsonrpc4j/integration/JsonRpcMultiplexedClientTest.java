@@ -0,0 +1,167 @@
+package com.googlecode.jsonrpc4j.integration;
+
+import static com.googlecode.jsonrpc4j.util.Util.DEFAULT_LOCAL_HOSTNAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcClientException;
+import com.googlecode.jsonrpc4j.JsonRpcMultiplexedClient;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+import com.googlecode.jsonrpc4j.StreamServer;
+import com.googlecode.jsonrpc4j.integration.StreamServerTest.Service;
+import com.googlecode.jsonrpc4j.integration.StreamServerTest.ServiceImpl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ServerSocketFactory;
+
+public class JsonRpcMultiplexedClientTest {
+
+	private ServerSocket serverSocket;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		serverSocket = ServerSocketFactory.getDefault().createServerSocket(0, 0, InetAddress.getByName(DEFAULT_LOCAL_HOSTNAME));
+		executor = Executors.newFixedThreadPool(8);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		serverSocket.close();
+	}
+
+	private Socket connect() throws IOException {
+		return new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+	}
+
+	@Test
+	public void testThreadsShareOneConnection() throws Exception {
+		ExecutorService pipelineExecutor = Executors.newFixedThreadPool(4);
+		StreamServer streamServer = new StreamServer(new JsonRpcBasicServer(new ServiceImpl(), Service.class), 5, serverSocket);
+		streamServer.setPipelineExecutor(pipelineExecutor);
+		streamServer.start();
+		final JsonRpcMultiplexedClient client = new JsonRpcMultiplexedClient(connect());
+		final Service service = ProxyUtil.createClientProxy(this.getClass().getClassLoader(), Service.class, client);
+
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final int value = i;
+			results.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() {
+					return service.hello(String.valueOf(value));
+				}
+			}));
+		}
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals("hello " + i, results.get(i).get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(0, client.getPendingCallCount());
+		assertEquals(1, streamServer.getNumberOfConnections());
+		client.close();
+		streamServer.stop();
+		pipelineExecutor.shutdown();
+	}
+
+	@Test
+	public void testCallTimesOut() throws Throwable {
+		JsonRpcMultiplexedClient client = new JsonRpcMultiplexedClient(connect());
+		Socket accepted = serverSocket.accept();
+		try {
+			client.invoke("hello", new Object[] { "dude" }, String.class, 100, TimeUnit.MILLISECONDS);
+			fail("the call should have timed out");
+		} catch (SocketTimeoutException e) {
+			assertEquals(0, client.getPendingCallCount());
+		}
+		client.close();
+		accepted.close();
+	}
+
+	@Test
+	public void testErrorWithoutIdFailsWaitingCalls() throws Throwable {
+		for (String id : new String[] { "null", "\"null\"" }) {
+			final JsonRpcMultiplexedClient client = new JsonRpcMultiplexedClient(connect());
+			Socket accepted = serverSocket.accept();
+			Future<Object> result = executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					try {
+						return client.invoke("hello", new Object[] { "dude" }, String.class);
+					} catch (Exception e) {
+						throw e;
+					} catch (Throwable t) {
+						throw new AssertionError(t);
+					}
+				}
+			});
+			// the request is read before the server answers that it could not parse it
+			accepted.getInputStream().read();
+			OutputStream output = accepted.getOutputStream();
+			output.write(("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"error\":{\"code\":-32700,\"message\":\"parse error\"}}\n").getBytes(StandardCharsets.UTF_8));
+			output.flush();
+			try {
+				result.get(10, TimeUnit.SECONDS);
+				fail("the call should have failed");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof JsonRpcClientException);
+				assertEquals(-32700, ((JsonRpcClientException) e.getCause()).getCode());
+			}
+			assertEquals(0, client.getPendingCallCount());
+			assertFalse(client.isClosed());
+			client.close();
+			accepted.close();
+		}
+	}
+
+	@Test
+	public void testPendingCallsFailWhenServerCloses() throws Throwable {
+		final JsonRpcMultiplexedClient client = new JsonRpcMultiplexedClient(connect());
+		Socket accepted = serverSocket.accept();
+		Future<Object> result = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				try {
+					return client.invoke("hello", new Object[] { "dude" }, String.class);
+				} catch (Exception e) {
+					throw e;
+				} catch (Throwable t) {
+					throw new AssertionError(t);
+				}
+			}
+		});
+		while (client.getPendingCallCount() == 0) {
+			Thread.yield();
+		}
+		accepted.close();
+		try {
+			result.get(10, TimeUnit.SECONDS);
+			fail("the call should have failed");
+		} catch (java.util.concurrent.ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertTrue(client.isClosed());
+	}
+}
@@ -0,0 +1,101 @@
+package com.googlecode.jsonrpc4j.integration;
+
+import static com.googlecode.jsonrpc4j.util.Util.DEFAULT_LOCAL_HOSTNAME;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcClient;
+import com.googlecode.jsonrpc4j.NioStreamServer;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+import com.googlecode.jsonrpc4j.integration.StreamServerTest.Service;
+import com.googlecode.jsonrpc4j.integration.StreamServerTest.ServiceImpl;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+
+public class NioStreamServerTest {
+
+	private ServerSocketChannel serverChannel;
+	private JsonRpcClient jsonRpcClient;
+	private NioStreamServer streamServer;
+
+	@Before
+	public void setUp() throws Exception {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(InetAddress.getByName(DEFAULT_LOCAL_HOSTNAME), 0));
+		jsonRpcClient = new JsonRpcClient();
+		streamServer = new NioStreamServer(new JsonRpcBasicServer(new ServiceImpl(), Service.class), 2, serverChannel);
+		streamServer.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		streamServer.stop();
+	}
+
+	private Socket connect() throws IOException {
+		return new Socket(serverChannel.socket().getInetAddress(), serverChannel.socket().getLocalPort());
+	}
+
+	@Test
+	public void testBasicConnection() throws Exception {
+		Socket socket = connect();
+		Service client = ProxyUtil.createClientProxy(this.getClass().getClassLoader(), Service.class, jsonRpcClient, socket);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, client.inc());
+		}
+		assertEquals("hello dude", client.hello("dude"));
+		socket.close();
+	}
+
+	@Test
+	public void testMoreClientsThanWorkerThreads() throws Exception {
+		Socket[] sockets = new Socket[10];
+		Service[] clients = new Service[sockets.length];
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = connect();
+			clients[i] = ProxyUtil.createClientProxy(this.getClass().getClassLoader(), Service.class, jsonRpcClient, sockets[i]);
+		}
+		for (Service client : clients) {
+			assertEquals("hello dude", client.hello("dude"));
+		}
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void testMultipleClientCallsBeforeReadResponse() throws Throwable {
+		Socket socket = connect();
+		InputStream ips = socket.getInputStream();
+		OutputStream ops = socket.getOutputStream();
+
+		for (int i = 0; i < 10; i++) {
+			jsonRpcClient.invoke("inc", null, ops);
+		}
+		socket.shutdownOutput();
+		// every response is terminated by a newline
+		BufferedReader reader = new BufferedReader(new InputStreamReader(ips, StandardCharsets.UTF_8));
+		for (int i = 0; i < 10; i++) {
+			Integer value = jsonRpcClient.readResponse(Integer.class, new ByteArrayInputStream(reader.readLine().getBytes(StandardCharsets.UTF_8)));
+			assertEquals(i, value.intValue());
+		}
+		socket.close();
+		while (streamServer.getNumberOfConnections() > 0) {
+			Thread.yield();
+		}
+	}
+}
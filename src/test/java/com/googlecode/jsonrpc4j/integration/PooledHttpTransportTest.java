@@ -0,0 +1,75 @@
+package com.googlecode.jsonrpc4j.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.PooledHttpTransport;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+import com.googlecode.jsonrpc4j.util.BaseRestTest;
+import com.googlecode.jsonrpc4j.util.FakeServiceInterface;
+import com.googlecode.jsonrpc4j.util.FakeServiceInterfaceImpl;
+import com.googlecode.jsonrpc4j.util.JettyServer;
+
+public class PooledHttpTransportTest extends BaseRestTest {
+
+	private PooledHttpTransport transport;
+	private FakeServiceInterface service;
+
+	@Before
+	public void setUpClient() throws Exception {
+		transport = new PooledHttpTransport();
+		JsonRpcHttpClient client = new JsonRpcHttpClient(getServiceUrl(JettyServer.SERVLET));
+		client.setTransport(transport);
+		service = ProxyUtil.createClientProxy(FakeServiceInterface.class, client);
+	}
+
+	@After
+	public void tearDownClient() throws Exception {
+		transport.close();
+	}
+
+	@Test
+	public void connectionIsReused() {
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, service.returnPrimitiveInt(i));
+		}
+		assertEquals(10, transport.getRequestCount());
+		assertEquals(1, transport.getConnectionCount());
+		assertEquals(9, transport.getReusedConnectionCount());
+		assertEquals(1, transport.getTotalStats().getAvailable());
+		assertEquals(0, transport.getTotalStats().getLeased());
+	}
+
+	@Test
+	public void connectionIsReusedAfterError() {
+		try {
+			service.throwSomeException("failed");
+			fail("an exception was expected");
+		} catch (RuntimeException e) {
+			// the error response is read off the pooled connection
+		}
+		assertEquals(3, service.returnPrimitiveInt(3));
+		assertEquals(1, transport.getConnectionCount());
+	}
+
+	@Test
+	public void idleConnectionsAreClosed() throws Exception {
+		service.doSomething();
+		transport.setIdleTimeoutMillis(0);
+		Thread.sleep(10);
+		transport.closeIdleConnections();
+		assertEquals(0, transport.getTotalStats().getAvailable());
+		service.doSomething();
+		assertEquals(2, transport.getConnectionCount());
+	}
+
+	@Override
+	protected Class service() {
+		return FakeServiceInterfaceImpl.class;
+	}
+}
@@ -3,24 +3,39 @@ package com.googlecode.jsonrpc4j.integration;
 import static com.googlecode.jsonrpc4j.util.Util.DEFAULT_LOCAL_HOSTNAME;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.googlecode.jsonrpc4j.ExecutorStrategies;
 import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
 import com.googlecode.jsonrpc4j.JsonRpcClient;
 import com.googlecode.jsonrpc4j.ProxyUtil;
 import com.googlecode.jsonrpc4j.StreamServer;
 import com.googlecode.jsonrpc4j.StreamServer.Server;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ServerSocketFactory;
 
@@ -54,6 +69,19 @@ public class StreamServerTest {
 		streamServer.stop();
 	}
 
+	@Test
+	public void testBasicConnectionWithVirtualThreadStrategy() throws Exception {
+		StreamServer streamServer = new StreamServer(jsonRpcServer, 5, serverSocket, ExecutorStrategies.virtualThreadPerTask());
+		streamServer.start();
+		Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+		Service client = ProxyUtil.createClientProxy(this.getClass().getClassLoader(), Service.class, jsonRpcClient, socket);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, client.inc());
+		}
+		socket.close();
+		streamServer.stop();
+	}
+
 	private StreamServer createAndStartServer() {
 		StreamServer streamServer = new StreamServer(jsonRpcServer, 5, serverSocket);
 		streamServer.start();
@@ -172,10 +200,95 @@ public class StreamServerTest {
 		streamServer.stop();
 	}
 
+	@Test
+	public void testPipelinedCallsBeforeReadResponse() throws Throwable {
+		ExecutorService pipelineExecutor = Executors.newFixedThreadPool(4);
+		StreamServer streamServer = new StreamServer(jsonRpcServer, 5, serverSocket);
+		streamServer.setPipelineExecutor(pipelineExecutor);
+		streamServer.start();
+		Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+		socket.setSoTimeout(10000);
+
+		OutputStream ops = socket.getOutputStream();
+		StringBuilder requests = new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":-1,\"method\":\"blockingHello\",\"params\":[\"slow\"]}");
+		for (int i = 0; i < 10; i++) {
+			requests.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"hello\",\"params\":[\"").append(i).append("\"]}");
+		}
+		ops.write(requests.toString().getBytes(StandardCharsets.UTF_8));
+		ops.flush();
+
+		// responses arrive in the order they complete, one per line: the fast calls are
+		// answered while the first one is still blocked
+		assertTrue(service.blocked.await(10, TimeUnit.SECONDS));
+		ObjectMapper mapper = new ObjectMapper();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < 10; i++) {
+			JsonNode response = mapper.readTree(reader.readLine());
+			int id = response.get("id").asInt();
+			assertEquals("hello " + id, response.get("result").asText());
+			assertTrue(ids.add(id));
+		}
+		assertEquals(10, ids.size());
+		assertEquals(1, service.release.getCount());
+
+		service.release.countDown();
+		JsonNode slow = mapper.readTree(reader.readLine());
+		assertEquals(-1, slow.get("id").asInt());
+		assertEquals("hello slow", slow.get("result").asText());
+		socket.close();
+		awaitNoConnections(streamServer);
+		streamServer.stop();
+		pipelineExecutor.shutdown();
+	}
+
+	@Test
+	public void testPipelinedCallThatNeverCompletesTimesOut() throws Throwable {
+		ExecutorService pipelineExecutor = Executors.newFixedThreadPool(2);
+		StreamServer streamServer = new StreamServer(jsonRpcServer, 5, serverSocket);
+		streamServer.setPipelineExecutor(pipelineExecutor);
+		streamServer.setPipelinedRequestTimeoutMillis(200);
+		// the second call is only read once the first one has left the flight
+		streamServer.setMaxPipelinedRequests(1);
+		streamServer.start();
+		Socket socket = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+		socket.setSoTimeout(10000);
+
+		OutputStream ops = socket.getOutputStream();
+		ops.write(("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"pendingHello\",\"params\":[\"never\"]}"
+				+ "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"hello\",\"params\":[\"2\"]}").getBytes(StandardCharsets.UTF_8));
+		ops.flush();
+
+		ObjectMapper mapper = new ObjectMapper();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		JsonNode timedOut = mapper.readTree(reader.readLine());
+		assertEquals(1, timedOut.get("id").asInt());
+		assertEquals(-32603, timedOut.get("error").get("code").asInt());
+		JsonNode next = mapper.readTree(reader.readLine());
+		assertEquals(2, next.get("id").asInt());
+		assertEquals("hello 2", next.get("result").asText());
+		socket.close();
+		awaitNoConnections(streamServer);
+		streamServer.stop();
+		pipelineExecutor.shutdown();
+	}
+
+	private static void awaitNoConnections(StreamServer streamServer) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (streamServer.getNumberOfConnections() > 0) {
+			assertTrue("the connection was not closed", System.nanoTime() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
 	@SuppressWarnings("WeakerAccess")
 	public interface Service {
 		String hello(String whatever);
 
+		String blockingHello(String whatever);
+
+		CompletableFuture<String> pendingHello(String whatever);
+
 		int inc();
 
 		void reset();
@@ -184,6 +297,8 @@ public class StreamServerTest {
 	@SuppressWarnings("WeakerAccess")
 	public static class ServiceImpl implements Service {
 
+		private final CountDownLatch blocked = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
 		private int val;
 
 		public String hello(String whatever) {
@@ -191,6 +306,20 @@ public class StreamServerTest {
 			return "hello " + whatever;
 		}
 
+		public String blockingHello(String whatever) {
+			blocked.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return hello(whatever);
+		}
+
+		public CompletableFuture<String> pendingHello(String whatever) {
+			return new CompletableFuture<>();
+		}
+
 		public int inc() {
 			logger.info("server: inc():", val);
 			return val++;
@@ -34,6 +34,7 @@ import org.easymock.Mock;
 import org.easymock.MockType;
 
 import com.googlecode.jsonrpc4j.ConvertedParameterTransformer;
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
 import com.googlecode.jsonrpc4j.InvocationListener;
 import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
 import com.googlecode.jsonrpc4j.util.CustomTestException;
@@ -44,8 +45,13 @@ import com.fasterxml.jackson.databind.JsonNode;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(EasyMockRunner.class)
 public class JsonRpcBasicServerTest {
@@ -180,6 +186,66 @@ public class JsonRpcBasicServerTest {
 		assertEquals(param1 + param2, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
 	}
 
+	@Test
+	public void callOverloadedMethodsWithSameParamCountRepeatedly() throws Exception {
+		EasyMock.expect(mockService.overloadedMethod(param2)).andReturn(param2).times(2);
+		EasyMock.expect(mockService.overloadedMethod(intParam1)).andReturn(param1 + intParam1).times(2);
+		EasyMock.replay(mockService);
+		for (int i = 0; i < 2; i++) {
+			ByteArrayOutputStream stringOutput = new ByteArrayOutputStream();
+			jsonRpcServer.handleRequest(messageWithListParamsStream(1, "overloadedMethod", param2), stringOutput);
+			assertEquals(param2, decodeAnswer(stringOutput).get(JsonRpcBasicServer.RESULT).textValue());
+			ByteArrayOutputStream intOutput = new ByteArrayOutputStream();
+			jsonRpcServer.handleRequest(messageWithListParamsStream(1, "overloadedMethod", intParam1), intOutput);
+			assertEquals(param1 + intParam1, decodeAnswer(intOutput).get(JsonRpcBasicServer.RESULT).textValue());
+		}
+		EasyMock.verify(mockService);
+	}
+
+	@Test
+	public void callMethodWithExtraParameterAfterAllowingThem() throws Exception {
+		EasyMock.expect(mockService.testMethod(param1)).andReturn(param1);
+		EasyMock.replay(mockService);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "testMethod", param1, param2), byteArrayOutputStream);
+		assertEquals(METHOD_PARAMS_INVALID.code, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.ERROR).get(JsonRpcBasicServer.ERROR_CODE).intValue());
+		jsonRpcServer.setAllowExtraParams(true);
+		byteArrayOutputStream.reset();
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "testMethod", param1, param2), byteArrayOutputStream);
+		assertEquals(param1, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
+	}
+
+	@Test
+	public void callMethodWithStreamingRequestParsing() throws Exception {
+		EasyMock.expect(mockService.testMethod(param1)).andReturn(param1);
+		EasyMock.replay(mockService);
+		jsonRpcServer.setStreamingRequestParsing(true);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "testMethod", param1), byteArrayOutputStream);
+		assertEquals(param1, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
+	}
+
+	@Test
+	public void callOverloadedMethodsWithStreamingRequestParsing() throws Exception {
+		EasyMock.expect(mockService.overloadedMethod(param2)).andReturn(param2);
+		EasyMock.expect(mockService.overloadedMethod(intParam1)).andReturn(param1 + intParam1);
+		EasyMock.replay(mockService);
+		jsonRpcServer.setStreamingRequestParsing(true);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "overloadedMethod", param2), byteArrayOutputStream);
+		assertEquals(param2, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
+		byteArrayOutputStream.reset();
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "overloadedMethod", intParam1), byteArrayOutputStream);
+		assertEquals(param1 + intParam1, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
+		EasyMock.verify(mockService);
+	}
+
+	@Test
+	public void callMethodWithTooFewParametersWithStreamingRequestParsing() throws Exception {
+		EasyMock.expect(mockService.testMethod(anyString())).andReturn("fail");
+		EasyMock.replay(mockService);
+		jsonRpcServer.setStreamingRequestParsing(true);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "testMethod"), byteArrayOutputStream);
+		assertEquals(METHOD_PARAMS_INVALID.code, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.ERROR).get(JsonRpcBasicServer.ERROR_CODE).intValue());
+	}
+
 	@Test
 	public void idIntegerType() throws Exception {
 		EasyMock.expect(mockService.testMethod(param1)).andReturn(param1);
@@ -265,6 +331,26 @@ public class JsonRpcBasicServerTest {
 		assertNull(json.get(JsonRpcBasicServer.ERROR));
 	}
 
+	@Test
+	public void callMethodWithInvocationListenerAndStreamingRequestParsing() throws Exception {
+		final InvocationListener invocationListener = EasyMock.niceMock(InvocationListener.class);
+		Method m = ServiceInterface.class.getMethod("throwsMethod", String.class);
+		List<JsonNode> arguments = Collections.<JsonNode>singletonList(Util.mapper.getNodeFactory().textNode(param1));
+		invocationListener.willInvoke(eq(m), eq(arguments));
+		invocationListener.didInvoke(eq(m), eq(arguments), EasyMock.notNull(), EasyMock.<Throwable> isNull(), EasyMock.geq(0L));
+
+		jsonRpcServer.setInvocationListener(invocationListener);
+		jsonRpcServer.setStreamingRequestParsing(true);
+
+		EasyMock.expect(mockService.throwsMethod(param1)).andReturn(param1);
+		EasyMock.replay(mockService, invocationListener);
+
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "throwsMethod", param1), byteArrayOutputStream);
+
+		EasyMock.verify(invocationListener, mockService);
+		assertEquals(param1, decodeAnswer(byteArrayOutputStream).get(JsonRpcBasicServer.RESULT).textValue());
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void callConvertedParameterTransformerShouldBeCalledIfSet() throws Exception {
@@ -318,6 +404,50 @@ public class JsonRpcBasicServerTest {
 		EasyMock.verify(mockService);
 	}
 
+	@Test
+	public void multiMessageWithNotification() throws IOException {
+		EasyMock.expect(mockService.testMethod(param1)).andReturn(param2).times(2);
+		EasyMock.expect(mockService.overloadedMethod(intParam1)).andReturn(param1);
+		EasyMock.replay(mockService);
+
+		InputStream input = multiMessageOfStream(messageWithListParams(1, "testMethod", param1),
+				messageWithListParams(null, "testMethod", param1),
+				messageWithListParams(2, "overloadedMethod", intParam1));
+		jsonRpcServer.handleRequest(input, byteArrayOutputStream);
+		JsonNode json = decodeAnswer(byteArrayOutputStream);
+		assertEquals(2, json.size());
+		assertEquals(getFromArrayWithId(json, 2).get(JsonRpcBasicServer.RESULT).asText(), param1);
+	}
+
+	@Test
+	public void multiMessageWithBatchExecutor() throws Exception {
+		EasyMock.expect(mockService.testMethod(param1)).andReturn(param2);
+		EasyMock.expect(mockService.overloadedMethod(intParam1)).andReturn(param1);
+		EasyMock.expect(mockService.throwsMethod(param3)).andThrow(new CustomTestException(param4));
+		EasyMock.replay(mockService);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			jsonRpcServer.setBatchExecutor(executor);
+			jsonRpcServer.setMaxBatchConcurrency(2);
+			InputStream input = multiMessageOfStream(messageWithListParams(1, "testMethod", param1),
+					messageWithListParams(2, "overloadedMethod", intParam1),
+					messageWithListParams(3, "throwsMethod", param3));
+			jsonRpcServer.handleRequest(input, byteArrayOutputStream);
+		} finally {
+			executor.shutdown();
+		}
+		JsonNode json = decodeAnswer(byteArrayOutputStream);
+		assertTrue(json.isArray());
+		assertEquals(1, json.get(0).get(ID).intValue());
+		assertEquals(2, json.get(1).get(ID).intValue());
+		assertEquals(3, json.get(2).get(ID).intValue());
+		assertEquals(param2, json.get(0).get(JsonRpcBasicServer.RESULT).asText());
+		assertEquals(param1, json.get(1).get(JsonRpcBasicServer.RESULT).asText());
+		assertEquals(param4, json.get(2).get(JsonRpcBasicServer.ERROR).get(JsonRpcBasicServer.DATA).get(JsonRpcBasicServer.ERROR_MESSAGE).asText());
+		EasyMock.verify(mockService);
+	}
+
 	@Test
 	public void multiMessageOneOkOneError() throws IOException {
 		EasyMock.expect(mockService.overloadedMethod(param1)).andReturn(param2);
@@ -337,6 +467,24 @@ public class JsonRpcBasicServerTest {
 		EasyMock.verify(mockService);
 	}
 
+	@Test
+	public void overriddenJsonNodeHandlerSeesEveryRequest() throws Exception {
+		final List<JsonNode> handled = new ArrayList<>();
+		JsonRpcBasicServer server = new JsonRpcBasicServer(Util.mapper, mockService, ServiceInterface.class) {
+			@Override
+			protected JsonError handleJsonNodeRequest(JsonNode node, OutputStream output) throws IOException {
+				handled.add(node);
+				return super.handleJsonNodeRequest(node, output);
+			}
+		};
+		EasyMock.replay(mockService);
+		server.handleRequest(messageWithListParamsStream(1, "testMethod", param1), byteArrayOutputStream);
+		assertEquals(1, handled.size());
+		server.handleRequest(multiMessageOfStream(messageWithListParams(1, "testMethod", param1), messageWithListParams(2, "testMethod", param2)), new ByteArrayOutputStream());
+		// the batch and each of its requests
+		assertEquals(4, handled.size());
+	}
+
 	// Service and service interfaces used in test
 
 	public interface ServiceInterface {
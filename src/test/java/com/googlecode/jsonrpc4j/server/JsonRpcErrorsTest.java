@@ -9,6 +9,7 @@ import static com.googlecode.jsonrpc4j.util.Util.mapper;
 import static com.googlecode.jsonrpc4j.util.Util.messageWithListParamsStream;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,9 +20,11 @@ import com.googlecode.jsonrpc4j.JsonRpcError;
 import com.googlecode.jsonrpc4j.JsonRpcErrors;
 import com.googlecode.jsonrpc4j.util.CustomTestException;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
 /**
  * For testing the @JsonRpcErrors and @JsonRpcError annotations
@@ -95,6 +98,39 @@ public class JsonRpcErrorsTest {
 		assertEquals(CustomTestException.class.getName(), exceptionType(data).textValue());
 	}
 
+	@Test
+	public void unserializableResultWritesOnlyTheError() throws Exception {
+		JsonRpcBasicServer jsonRpcServer = new JsonRpcBasicServer(mapper, new UnserializableService(), UnserializableService.class);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "testMethod"), byteArrayOutputStream);
+
+		// a single response, none of the result written before it failed
+		JsonParser parser = mapper.getFactory().createParser(byteArrayOutputStream.toByteArray());
+		JsonNode response = mapper.readTree(parser);
+		assertNull(parser.nextToken());
+		assertNull(response.get("result"));
+		assertNotNull(response.get("error"));
+	}
+
+	public static class UnserializableService {
+		public Unserializable testMethod() {
+			return new Unserializable();
+		}
+	}
+
+	@SuppressWarnings({ "unused", "WeakerAccess" })
+	public static class Unserializable {
+		public String getLarge() {
+			// larger than the buffer of the generator
+			char[] chars = new char[64 * 1024];
+			Arrays.fill(chars, 'x');
+			return new String(chars);
+		}
+
+		public String getZFailing() {
+			throw new IllegalStateException("can not be serialized");
+		}
+	}
+
 	@SuppressWarnings({ "unused", "WeakerAccess" })
 	public interface ServiceInterfaceWithoutAnnotation {
 		Object testMethod();
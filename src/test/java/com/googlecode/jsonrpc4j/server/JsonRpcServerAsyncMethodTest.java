@@ -0,0 +1,113 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.decodeAnswer;
+import static com.googlecode.jsonrpc4j.util.Util.errorCode;
+import static com.googlecode.jsonrpc4j.util.Util.getFromArrayWithId;
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParams;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParamsStream;
+import static com.googlecode.jsonrpc4j.util.Util.multiMessageOfStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.BufferPool;
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class JsonRpcServerAsyncMethodTest {
+
+	private AsyncService service;
+	private JsonRpcBasicServer jsonRpcServer;
+	private ByteArrayOutputStream byteArrayOutputStream;
+
+	@Before
+	public void setup() {
+		service = new AsyncService();
+		jsonRpcServer = new JsonRpcBasicServer(mapper, service, AsyncService.class);
+		byteArrayOutputStream = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void handleRequestWaitsForTheFuture() throws Exception {
+		service.result.complete("done");
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "pending"), byteArrayOutputStream);
+		assertEquals("done", decodeAnswer(byteArrayOutputStream).get("result").textValue());
+	}
+
+	@Test
+	public void handleRequestAsyncWritesOnCompletion() throws Exception {
+		CompletableFuture<Integer> code = jsonRpcServer.handleRequestAsync(messageWithListParamsStream(1, "pending"), byteArrayOutputStream);
+		assertFalse(code.isDone());
+		assertEquals(0, byteArrayOutputStream.size());
+		service.result.complete("done");
+		assertEquals(JsonError.OK.code, code.get(5, TimeUnit.SECONDS).intValue());
+		assertEquals("done", decodeAnswer(byteArrayOutputStream).get("result").textValue());
+	}
+
+	@Test
+	public void handleRequestAsyncReportsFailure() throws Exception {
+		CompletableFuture<Integer> code = jsonRpcServer.handleRequestAsync(messageWithListParamsStream(1, "pending"), byteArrayOutputStream);
+		service.result.completeExceptionally(new IllegalStateException("failed"));
+		assertEquals(JsonError.ERROR_NOT_HANDLED.code, code.get(5, TimeUnit.SECONDS).intValue());
+		assertEquals(JsonError.ERROR_NOT_HANDLED.code, errorCode(decodeAnswer(byteArrayOutputStream).get("error")).intValue());
+	}
+
+	@Test
+	public void bufferIsReleasedWhenReadingFails() throws Exception {
+		BufferPool pool = new BufferPool(1024, 4);
+		jsonRpcServer.setBufferPool(pool);
+		InputStream input = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("connection reset");
+			}
+		};
+		try {
+			jsonRpcServer.handleRequestAsync(input, byteArrayOutputStream);
+			fail("expected an IOException");
+		} catch (IOException e) {
+			assertEquals("connection reset", e.getMessage());
+		}
+		assertEquals(1, pool.getPooledCount());
+	}
+
+	@Test
+	public void batchKeepsOrderOfRequests() throws Exception {
+		CompletableFuture<Integer> code = jsonRpcServer.handleRequestAsync(multiMessageOfStream(
+				messageWithListParams(1, "pending"),
+				messageWithListParams(2, "immediate")), byteArrayOutputStream);
+		service.result.complete("later");
+		assertEquals(JsonError.OK.code, code.get(5, TimeUnit.SECONDS).intValue());
+		JsonNode answer = decodeAnswer(byteArrayOutputStream);
+		assertTrue(answer.isArray());
+		assertEquals(1, answer.get(0).get("id").intValue());
+		assertEquals("later", getFromArrayWithId(answer, 1).get("result").textValue());
+		assertEquals("now", getFromArrayWithId(answer, 2).get("result").textValue());
+	}
+
+	public static class AsyncService {
+
+		final CompletableFuture<String> result = new CompletableFuture<>();
+
+		public CompletableFuture<String> pending() {
+			return result;
+		}
+
+		public CompletableFuture<String> immediate() {
+			return CompletableFuture.completedFuture("now");
+		}
+	}
+}
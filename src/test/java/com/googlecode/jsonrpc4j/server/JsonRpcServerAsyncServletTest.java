@@ -0,0 +1,82 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.decodeAnswer;
+import static com.googlecode.jsonrpc4j.util.Util.errorCode;
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParams;
+import static com.googlecode.jsonrpc4j.util.Util.toByteArrayOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+import com.googlecode.jsonrpc4j.JsonRpcServer;
+import com.googlecode.jsonrpc4j.server.JsonRpcServerAsyncMethodTest.AsyncService;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+public class JsonRpcServerAsyncServletTest {
+
+	private AsyncService service;
+	private JsonRpcServer jsonRpcServer;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@Before
+	public void setup() throws Exception {
+		service = new AsyncService();
+		jsonRpcServer = new JsonRpcServer(mapper, service, AsyncService.class);
+		request = new MockHttpServletRequest("POST", "/test-post");
+		request.setContent(mapper.writeValueAsBytes(messageWithListParams(1, "pending")));
+		request.setAsyncSupported(true);
+		response = new MockHttpServletResponse();
+	}
+
+	@Test
+	public void responseIsWrittenWhenTheFutureCompletes() throws Exception {
+		jsonRpcServer.handle(request, response);
+		assertTrue(request.isAsyncStarted());
+		assertEquals(0, response.getContentAsByteArray().length);
+
+		service.result.complete("done");
+		assertFalse(request.isAsyncStarted());
+		assertEquals("done", decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue());
+	}
+
+	@Test
+	public void completedFutureIsAnsweredSynchronously() throws Exception {
+		service.result.complete("done");
+		jsonRpcServer.handle(request, response);
+		assertFalse(request.isAsyncStarted());
+		assertEquals("done", decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue());
+	}
+
+	@Test
+	public void timeoutIsAnsweredWithAnErrorOnce() throws Exception {
+		jsonRpcServer.setAsyncTimeoutMillis(1000);
+		jsonRpcServer.handle(request, response);
+		MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+		assertEquals(1000, context.getTimeout());
+
+		for (AsyncListener listener : context.getListeners()) {
+			listener.onTimeout(new AsyncEvent(context));
+		}
+		assertFalse(request.isAsyncStarted());
+		assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.getStatus());
+		byte[] content = response.getContentAsByteArray();
+		assertEquals(JsonError.INTERNAL_ERROR.code, errorCode(decodeAnswer(toByteArrayOutputStream(content)).get("error")).intValue());
+
+		// the result computed after the timeout is dropped
+		service.result.complete("late");
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+}
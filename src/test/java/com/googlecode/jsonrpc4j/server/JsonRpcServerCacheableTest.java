@@ -0,0 +1,170 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.decodeAnswer;
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParamsStream;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithMapParamsStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.InvocationListener;
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcCacheable;
+import com.googlecode.jsonrpc4j.JsonRpcParam;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonRpcServerCacheableTest {
+
+	private Service service;
+	private JsonRpcBasicServer jsonRpcServer;
+	private ByteArrayOutputStream byteArrayOutputStream;
+
+	@Before
+	public void setup() {
+		service = new Service();
+		jsonRpcServer = new JsonRpcBasicServer(mapper, service, Service.class);
+		byteArrayOutputStream = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void repeatedCallsAreAnsweredFromCache() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			JsonNode response = call(messageWithListParamsStream(i, "lookup", "eur"));
+			assertEquals(i, response.get("id").intValue());
+			assertEquals("EUR", response.get("result").get("code").textValue());
+		}
+		assertEquals(1, service.lookups.get());
+		call(messageWithListParamsStream(1, "lookup", "usd"));
+		assertEquals(2, service.lookups.get());
+	}
+
+	@Test
+	public void namedAndPositionalCallsShareResults() throws Exception {
+		jsonRpcServer.setStreamingRequestParsing(false);
+		call(messageWithListParamsStream(1, "lookup", "eur"));
+		JsonNode response = call(messageWithMapParamsStream("lookup", "key", "eur"));
+		assertEquals("EUR", response.get("result").get("code").textValue());
+		assertEquals(1, service.lookups.get());
+	}
+
+	@Test
+	public void objectArgumentsMatchRegardlessOfFieldOrder() throws Exception {
+		Map<String, Object> first = new LinkedHashMap<>();
+		first.put("a", 1);
+		first.put("b", 2);
+		Map<String, Object> second = new LinkedHashMap<>();
+		second.put("b", 2);
+		second.put("a", 1);
+		call(messageWithListParamsStream(1, "sum", first));
+		JsonNode response = call(messageWithListParamsStream(2, "sum", second));
+		assertEquals(3, response.get("result").intValue());
+		assertEquals(1, service.sums.get());
+	}
+
+	@Test
+	public void streamedCallsAreCachedAndSeenByTheListener() throws Exception {
+		final List<List<JsonNode>> invocations = new ArrayList<>();
+		jsonRpcServer.setStreamingRequestParsing(true);
+		jsonRpcServer.setInvocationListener(new InvocationListener() {
+			@Override
+			public void willInvoke(Method method, List<JsonNode> arguments) {
+			}
+
+			@Override
+			public void didInvoke(Method method, List<JsonNode> arguments, Object result, Throwable t, long duration) {
+				invocations.add(arguments);
+			}
+		});
+		Map<String, Object> first = new LinkedHashMap<>();
+		first.put("a", 1);
+		first.put("b", 2);
+		Map<String, Object> second = new LinkedHashMap<>();
+		second.put("b", 2);
+		second.put("a", 1);
+		call(messageWithListParamsStream(1, "sum", first));
+		JsonNode response = call(messageWithListParamsStream(2, "sum", second));
+		assertEquals(3, response.get("result").intValue());
+		assertEquals(1, service.sums.get());
+		assertEquals(2, invocations.size());
+		assertEquals(mapper.valueToTree(first), invocations.get(0).get(0));
+		assertEquals(mapper.valueToTree(second), invocations.get(1).get(0));
+	}
+
+	@Test
+	public void resultsExpire() throws Exception {
+		call(messageWithListParamsStream(1, "now"));
+		Thread.sleep(60);
+		call(messageWithListParamsStream(2, "now"));
+		assertEquals(2, service.clock.get());
+	}
+
+	@Test
+	public void errorsAreNotCached() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			JsonNode response = call(messageWithListParamsStream(1, "lookup", "xxx"));
+			assertTrue(response.has("error"));
+		}
+		assertEquals(2, service.lookups.get());
+	}
+
+	@Test
+	public void leastRecentlyUsedResultIsEvicted() throws Exception {
+		call(messageWithListParamsStream(1, "lookup", "eur"));
+		call(messageWithListParamsStream(2, "lookup", "usd"));
+		call(messageWithListParamsStream(3, "lookup", "eur"));
+		call(messageWithListParamsStream(4, "lookup", "gbp"));
+		assertEquals(3, service.lookups.get());
+		call(messageWithListParamsStream(5, "lookup", "usd"));
+		assertEquals(4, service.lookups.get());
+	}
+
+	private JsonNode call(InputStream request) throws Exception {
+		byteArrayOutputStream.reset();
+		jsonRpcServer.handleRequest(request, byteArrayOutputStream);
+		return decodeAnswer(byteArrayOutputStream);
+	}
+
+	public static class Service {
+
+		private final AtomicInteger lookups = new AtomicInteger();
+		private final AtomicInteger sums = new AtomicInteger();
+		private final AtomicInteger clock = new AtomicInteger();
+
+		@JsonRpcCacheable(ttl = 1, unit = TimeUnit.MINUTES, maxEntries = 2)
+		public Map<String, String> lookup(@JsonRpcParam("key") String key) {
+			lookups.incrementAndGet();
+			if (key.length() != 3 || key.equals("xxx")) throw new IllegalArgumentException(key);
+			return Collections.singletonMap("code", key.toUpperCase());
+		}
+
+		@JsonRpcCacheable(ttl = 1, unit = TimeUnit.MINUTES)
+		public int sum(Map<String, Integer> values) {
+			sums.incrementAndGet();
+			int sum = 0;
+			for (Integer value : values.values()) {
+				sum += value;
+			}
+			return sum;
+		}
+
+		@JsonRpcCacheable(ttl = 20, unit = TimeUnit.MILLISECONDS)
+		public int now() {
+			return clock.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.decodeAnswer;
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParams;
+import static com.googlecode.jsonrpc4j.util.Util.toByteArrayOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.googlecode.jsonrpc4j.ContentEncoding;
+import com.googlecode.jsonrpc4j.JsonRpcServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+public class JsonRpcServerCompressionTest {
+
+	private JsonRpcServer jsonRpcServer;
+
+	@Before
+	public void setup() {
+		jsonRpcServer = new JsonRpcServer(mapper, new Service(), Service.class);
+	}
+
+	@Test
+	public void largeResponseIsCompressed() throws Exception {
+		MockHttpServletRequest request = post(json("repeat", 2000));
+		request.addHeader("Accept-Encoding", "deflate;q=0.5, gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals(ContentEncoding.ACCEPT_ENCODING, response.getHeader("Accept-Encoding"));
+		JsonNode answer = decodeAnswer(toByteArrayOutputStream(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))));
+		assertEquals(2000, answer.get("result").textValue().length());
+	}
+
+	@Test
+	public void smallResponseIsNotCompressed() throws Exception {
+		MockHttpServletRequest request = post(json("repeat", 10));
+		request.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals(10, decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue().length());
+	}
+
+	@Test
+	public void responseIsNotCompressedUnlessAccepted() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(post(json("repeat", 2000)), response);
+		assertNull(response.getHeader("Content-Encoding"));
+
+		MockHttpServletRequest request = post(json("repeat", 2000));
+		request.addHeader("Accept-Encoding", "gzip;q=0");
+		response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertNull(response.getHeader("Content-Encoding"));
+	}
+
+	@Test
+	public void compressedRequestsAreDecompressed() throws Exception {
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (OutputStream output = new GZIPOutputStream(gzip)) {
+			output.write(json("repeat", 3));
+		}
+		MockHttpServletRequest request = post(gzip.toByteArray());
+		request.addHeader("Content-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertEquals("xxx", decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue());
+
+		ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+		try (OutputStream output = new DeflaterOutputStream(deflate)) {
+			output.write(json("repeat", 4));
+		}
+		request = post(deflate.toByteArray());
+		request.addHeader("Content-Encoding", "deflate");
+		response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertEquals("xxxx", decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue());
+	}
+
+	@Test
+	public void requestInflatingBeyondTheLimitIsRefused() throws Exception {
+		jsonRpcServer.setMaxDecompressedRequestSize(1024);
+		byte[] padding = new byte[4096];
+		Arrays.fill(padding, (byte) ' ');
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (OutputStream output = new GZIPOutputStream(gzip)) {
+			output.write(padding);
+			output.write(json("repeat", 3));
+		}
+		MockHttpServletRequest request = post(gzip.toByteArray());
+		request.addHeader("Content-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertEquals(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, response.getStatus());
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	public void requestDecompressionCanBeTurnedOff() throws Exception {
+		jsonRpcServer.setMaxDecompressedRequestSize(0);
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (OutputStream output = new GZIPOutputStream(gzip)) {
+			output.write(json("repeat", 3));
+		}
+		MockHttpServletRequest request = post(gzip.toByteArray());
+		request.addHeader("Content-Encoding", "gzip");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertEquals(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, response.getStatus());
+		assertEquals("identity", response.getHeader("Accept-Encoding"));
+
+		// clients are not told that they may compress their requests
+		response = new MockHttpServletResponse();
+		jsonRpcServer.handle(post(json("repeat", 3)), response);
+		assertEquals("xxx", decodeAnswer(toByteArrayOutputStream(response.getContentAsByteArray())).get("result").textValue());
+		assertNull(response.getHeader("Accept-Encoding"));
+	}
+
+	@Test
+	public void unknownRequestEncodingIsRefused() throws Exception {
+		MockHttpServletRequest request = post(json("repeat", 3));
+		request.addHeader("Content-Encoding", "br");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		jsonRpcServer.handle(request, response);
+		assertEquals(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, response.getStatus());
+	}
+
+	@Test
+	public void encodingsInteroperateWithTheJdk() throws Exception {
+		byte[] content = json("repeat", 50000);
+		for (int i = 0; i < 3; i++) {
+			ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+			try (OutputStream output = ContentEncoding.GZIP.compress(gzip)) {
+				output.write(content);
+			}
+			assertArrayEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))));
+			assertArrayEquals(content, read(ContentEncoding.GZIP.decompress(new ByteArrayInputStream(gzip.toByteArray()))));
+
+			ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+			try (OutputStream output = ContentEncoding.DEFLATE.compress(deflate)) {
+				output.write(content);
+			}
+			assertArrayEquals(content, read(new InflaterInputStream(new ByteArrayInputStream(deflate.toByteArray()))));
+			assertArrayEquals(content, read(ContentEncoding.DEFLATE.decompress(new ByteArrayInputStream(deflate.toByteArray()))));
+		}
+	}
+
+	@Test
+	public void acceptEncodingIsNegotiated() {
+		assertEquals(ContentEncoding.GZIP, ContentEncoding.forAcceptEncoding("gzip, deflate"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.forAcceptEncoding("gzip;q=0.2, deflate"));
+		assertEquals(ContentEncoding.DEFLATE, ContentEncoding.forAcceptEncoding("*, gzip;q=0"));
+		assertNull(ContentEncoding.forAcceptEncoding("br, identity"));
+		assertNull(ContentEncoding.forAcceptEncoding(null));
+	}
+
+	private static byte[] json(String method, int length) throws Exception {
+		return mapper.writeValueAsBytes(messageWithListParams(1, method, length));
+	}
+
+	private static MockHttpServletRequest post(byte[] content) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/test-post");
+		request.setContent(content);
+		return request;
+	}
+
+	private static byte[] read(InputStream input) throws Exception {
+		try (InputStream stream = input) {
+			return toByteArrayOutputStream(stream).toByteArray();
+		}
+	}
+
+	public static class Service {
+
+		public String repeat(int length) {
+			char[] chars = new char[length];
+			Arrays.fill(chars, 'x');
+			return new String(chars);
+		}
+	}
+}
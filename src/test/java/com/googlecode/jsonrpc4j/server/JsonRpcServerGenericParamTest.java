@@ -0,0 +1,76 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.decodeAnswer;
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParamsStream;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithMapParamsStream;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcClient;
+import com.googlecode.jsonrpc4j.JsonRpcParam;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class JsonRpcServerGenericParamTest {
+
+	private JsonRpcBasicServer jsonRpcServer;
+	private ByteArrayOutputStream byteArrayOutputStream;
+
+	@Before
+	public void setup() {
+		jsonRpcServer = new JsonRpcBasicServer(mapper, new Service(), Service.class);
+		byteArrayOutputStream = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void bindsGenericParametersOnEveryCall() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			byteArrayOutputStream.reset();
+			jsonRpcServer.handleRequest(messageWithListParamsStream(1, "sum", Collections.singletonMap("a", Arrays.asList(i, 2, 3))), byteArrayOutputStream);
+			assertEquals(i + 5, decodeAnswer(byteArrayOutputStream).get("result").intValue());
+		}
+	}
+
+	@Test
+	public void bindsGenericParametersFromTree() throws Exception {
+		jsonRpcServer.setStreamingRequestParsing(false);
+		jsonRpcServer.handleRequest(messageWithMapParamsStream("sum", "values", Collections.singletonMap("a", Arrays.asList(1, 2))), byteArrayOutputStream);
+		assertEquals(3, decodeAnswer(byteArrayOutputStream).get("result").intValue());
+	}
+
+	@Test
+	public void clientReadsGenericResults() throws Throwable {
+		JsonRpcClient client = new JsonRpcClient(mapper);
+		TypeReference<Map<String, List<Integer>>> type = new TypeReference<Map<String, List<Integer>>>() {
+		};
+		for (int i = 0; i < 2; i++) {
+			byte[] response = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"a\":[1,2]}}".getBytes("UTF-8");
+			Map<String, List<Integer>> result = (Map<String, List<Integer>>) client.readResponse(type.getType(), new ByteArrayInputStream(response));
+			assertEquals(Integer.valueOf(2), result.get("a").get(1));
+		}
+	}
+
+	public static class Service {
+
+		public int sum(@JsonRpcParam("values") Map<String, List<Integer>> values) {
+			int sum = 0;
+			for (List<Integer> list : values.values()) {
+				for (Integer value : list) {
+					sum += value;
+				}
+			}
+			return sum;
+		}
+	}
+}
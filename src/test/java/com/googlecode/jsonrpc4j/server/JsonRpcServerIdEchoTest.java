@@ -0,0 +1,121 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+import com.googlecode.jsonrpc4j.InvocationListener;
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class JsonRpcServerIdEchoTest {
+
+	private JsonRpcBasicServer jsonRpcServer;
+
+	@Before
+	public void setup() {
+		jsonRpcServer = new JsonRpcBasicServer(mapper, new Service(), Service.class);
+	}
+
+	@Test
+	public void echoesIdsVerbatim() throws Exception {
+		for (String id : new String[] { "1", "-7", "9007199254740993", "123456789012345678901234567890", "1.5", "\"abc\"" }) {
+			assertIdEchoed(id, "echo");
+			assertIdEchoed(id, "missing");
+			assertIdEchoed(id, "fail");
+		}
+	}
+
+	@Test
+	public void echoesIdsVerbatimFromTree() throws Exception {
+		jsonRpcServer.setStreamingRequestParsing(false);
+		assertIdEchoed("9007199254740993", "echo");
+		assertIdEchoed("9007199254740993", "fail");
+	}
+
+	@Test
+	public void echoesIdsVerbatimWithListener() throws Exception {
+		jsonRpcServer.setInvocationListener(new InvocationListener() {
+			@Override
+			public void willInvoke(Method method, List<JsonNode> arguments) {
+			}
+
+			@Override
+			public void didInvoke(Method method, List<JsonNode> arguments, Object result, Throwable t, long duration) {
+			}
+		});
+		assertIdEchoed("9007199254740993", "echo");
+	}
+
+	@Test
+	public void errorResponseHasAllMembers() throws Exception {
+		String response = handle("{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"fail\",\"params\":[\"a\"]}");
+		JsonNode node = mapper.readTree(response);
+		assertEquals("2.0", node.get("jsonrpc").textValue());
+		assertEquals(3, node.get("id").intValue());
+		assertEquals("failed", node.get("error").get("message").textValue());
+		assertEquals(IllegalStateException.class.getName(), node.get("error").get("data").get("exceptionTypeName").textValue());
+	}
+
+	@Test
+	public void erroringNotificationsAreAnsweredWithNullId() throws Exception {
+		assertNullIdError("missing", JsonError.METHOD_NOT_FOUND.code);
+		assertNullIdError("fail", JsonError.ERROR_NOT_HANDLED.code);
+	}
+
+	@Test
+	public void erroringNotificationsAreAnsweredWithNullIdFromTree() throws Exception {
+		jsonRpcServer.setStreamingRequestParsing(false);
+		assertNullIdError("missing", JsonError.METHOD_NOT_FOUND.code);
+		assertNullIdError("fail", JsonError.ERROR_NOT_HANDLED.code);
+	}
+
+	@Test
+	public void erroringNotificationsAreAnsweredWithNullIdAsync() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		String request = "{\"jsonrpc\":\"2.0\",\"method\":\"fail\",\"params\":[\"a\"]}";
+		int code = jsonRpcServer.handleRequestAsync(new ByteArrayInputStream(request.getBytes("UTF-8")), output).get(5, TimeUnit.SECONDS);
+		assertEquals(JsonError.ERROR_NOT_HANDLED.code, code);
+		assertTrue(mapper.readTree(output.toString("UTF-8")).get("id").isNull());
+	}
+
+	private void assertNullIdError(String method, int code) throws Exception {
+		JsonNode node = mapper.readTree(handle("{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":[\"a\"]}"));
+		assertTrue(node.has("id"));
+		assertTrue(node.get("id").isNull());
+		assertEquals(code, node.get("error").get("code").intValue());
+	}
+
+	private void assertIdEchoed(String id, String method) throws Exception {
+		String response = handle("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\",\"params\":[\"a\"]}");
+		assertTrue(response, response.contains("\"id\":" + id + ","));
+	}
+
+	private String handle(String request) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		jsonRpcServer.handleRequest(new ByteArrayInputStream(request.getBytes("UTF-8")), output);
+		return output.toString("UTF-8");
+	}
+
+	public static class Service {
+
+		public String echo(String value) {
+			return value;
+		}
+
+		public void fail(String value) {
+			throw new IllegalStateException("failed");
+		}
+	}
+}
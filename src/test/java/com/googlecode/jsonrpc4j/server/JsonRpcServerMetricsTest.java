@@ -0,0 +1,118 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParams;
+import static com.googlecode.jsonrpc4j.util.Util.messageWithListParamsStream;
+import static com.googlecode.jsonrpc4j.util.Util.multiMessageOfStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.ErrorResolver.JsonError;
+import com.googlecode.jsonrpc4j.Histogram;
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcMetricsRegistry;
+import com.googlecode.jsonrpc4j.JsonRpcMultiServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class JsonRpcServerMetricsTest {
+
+	private JsonRpcMetricsRegistry metrics;
+	private JsonRpcBasicServer jsonRpcServer;
+	private ByteArrayOutputStream byteArrayOutputStream;
+
+	@Before
+	public void setup() {
+		metrics = new JsonRpcMetricsRegistry();
+		jsonRpcServer = new JsonRpcBasicServer(mapper, new Service(), Service.class);
+		jsonRpcServer.setMetrics(metrics);
+		byteArrayOutputStream = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void recordsLatencyPerMethod() throws Exception {
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "echo", "a"), byteArrayOutputStream);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(2, "echo", "b"), byteArrayOutputStream);
+		Histogram latency = metrics.getLatency("echo");
+		assertEquals(2, latency.getCount());
+		assertTrue(latency.getMin() > 0);
+		assertNull(metrics.getLatency("fail"));
+		assertEquals(0, metrics.getInFlight());
+	}
+
+	@Test
+	public void latencyIsKeyedByTheNameOfTheCall() throws Exception {
+		JsonRpcMultiServer multiServer = new JsonRpcMultiServer(mapper);
+		multiServer.addService("a", new Service(), Service.class);
+		multiServer.addService("b", new Service(), Service.class);
+		multiServer.setMetrics(metrics);
+		multiServer.handleRequest(messageWithListParamsStream(1, "a.echo", "a"), byteArrayOutputStream);
+		multiServer.handleRequest(messageWithListParamsStream(2, "b.echo", "b"), byteArrayOutputStream);
+		multiServer.handleRequest(messageWithListParamsStream(3, "b.echo", "b"), byteArrayOutputStream);
+		assertEquals(1, metrics.getLatency("a.echo").getCount());
+		assertEquals(2, metrics.getLatency("b.echo").getCount());
+		assertNull(metrics.getLatency("echo"));
+	}
+
+	@Test
+	public void countsErrorsByCode() throws Exception {
+		jsonRpcServer.handleRequest(messageWithListParamsStream(1, "fail"), byteArrayOutputStream);
+		jsonRpcServer.handleRequest(messageWithListParamsStream(2, "missing"), byteArrayOutputStream);
+		jsonRpcServer.handleRequest(new ByteArrayInputStream("{\"jsonrpc\":".getBytes("UTF-8")), byteArrayOutputStream);
+		assertEquals(1, metrics.getErrorCount(JsonError.ERROR_NOT_HANDLED.code));
+		assertEquals(1, metrics.getErrorCount(JsonError.METHOD_NOT_FOUND.code));
+		assertEquals(1, metrics.getErrorCount(JsonError.PARSE_ERROR.code));
+		assertEquals(1, metrics.getFailedInvocations());
+		assertEquals(1, metrics.getLatency("fail").getCount());
+	}
+
+	@Test
+	public void recordsBatchSizeAndBytes() throws Exception {
+		byte[] request = mapper.writeValueAsBytes(new Object[] {
+				messageWithListParams(1, "echo", "a"),
+				messageWithListParams(2, "echo", "b"),
+				messageWithListParams(3, "echo", "c") });
+		jsonRpcServer.handleRequest(new ByteArrayInputStream(request), byteArrayOutputStream);
+		assertEquals(1, metrics.getBatchSizes().getCount());
+		assertEquals(3, metrics.getBatchSizes().getMax());
+		assertEquals(request.length, metrics.getBytesRead());
+		assertEquals(byteArrayOutputStream.size(), metrics.getBytesWritten());
+	}
+
+	@Test
+	public void countsDeferredResponses() throws Exception {
+		jsonRpcServer.handleRequestAsync(multiMessageOfStream(messageWithListParams(1, "echo", "a")), byteArrayOutputStream).get();
+		assertEquals(byteArrayOutputStream.size(), metrics.getBytesWritten());
+	}
+
+	@Test
+	public void histogramPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(1, histogram.getMin());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertEquals(50000, histogram.getValueAtPercentile(50), 50000 / 32);
+		assertEquals(99000, histogram.getValueAtPercentile(99), 99000 / 32);
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+	}
+
+	public static class Service {
+
+		public String echo(String value) {
+			return value;
+		}
+
+		public void fail() {
+			throw new IllegalStateException("failed");
+		}
+	}
+}
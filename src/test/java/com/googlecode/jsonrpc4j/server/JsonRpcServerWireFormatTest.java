@@ -0,0 +1,89 @@
+package com.googlecode.jsonrpc4j.server;
+
+import static com.googlecode.jsonrpc4j.util.Util.mapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.jsonrpc4j.JsonRpcBasicServer;
+import com.googlecode.jsonrpc4j.JsonRpcClient;
+import com.googlecode.jsonrpc4j.WireFormat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonRpcServerWireFormatTest {
+
+	private JsonRpcBasicServer jsonRpcServer;
+	private ByteArrayOutputStream byteArrayOutputStream;
+
+	@Before
+	public void setup() {
+		jsonRpcServer = new JsonRpcBasicServer(mapper, new Service(), Service.class);
+		jsonRpcServer.addWireFormat(WireFormat.cbor());
+		jsonRpcServer.addWireFormat(WireFormat.smile());
+		byteArrayOutputStream = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void clientAndServerExchangeCbor() throws Throwable {
+		JsonRpcClient client = new JsonRpcClient(mapper);
+		client.setWireFormat(WireFormat.cbor());
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		client.invoke("echo", new Object[] { "ñ", Arrays.asList(1, 2) }, request);
+		assertEquals(0xA0, request.toByteArray()[0] & 0xE0);
+
+		jsonRpcServer.handleRequest(new ByteArrayInputStream(request.toByteArray()), byteArrayOutputStream, WireFormat.cbor(), WireFormat.cbor());
+		Object result = client.readResponse(List.class, new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+		assertEquals(Arrays.asList("ñ", Arrays.asList(1, 2)), result);
+	}
+
+	@Test
+	public void batchIsAnsweredInSmile() throws Exception {
+		ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+		byte[] request = smileMapper.writeValueAsBytes(Arrays.asList(request(1, "a"), request(2, "b")));
+		jsonRpcServer.handleRequest(new ByteArrayInputStream(request), byteArrayOutputStream, WireFormat.smile(), WireFormat.smile());
+
+		JsonNode responses = smileMapper.readTree(byteArrayOutputStream.toByteArray());
+		assertTrue(responses.isArray());
+		assertEquals(2, responses.size());
+		assertEquals("a", responses.get(0).get("result").get(0).textValue());
+		assertEquals(2, responses.get(1).get("id").intValue());
+	}
+
+	@Test
+	public void answersInRequestedFormat() throws Exception {
+		byte[] request = mapper.writeValueAsBytes(request(7, "x"));
+		jsonRpcServer.handleRequest(new ByteArrayInputStream(request), byteArrayOutputStream, WireFormat.JSON, WireFormat.cbor());
+		JsonNode response = new ObjectMapper(new CBORFactory()).readTree(byteArrayOutputStream.toByteArray());
+		assertEquals(7, response.get("id").intValue());
+		assertEquals("x", response.get("result").get(0).textValue());
+	}
+
+	private static Map<String, Object> request(int id, String value) {
+		Map<String, Object> request = new HashMap<>();
+		request.put("jsonrpc", "2.0");
+		request.put("id", id);
+		request.put("method", "echo");
+		request.put("params", Arrays.asList(value, Arrays.asList(id)));
+		return request;
+	}
+
+	public static class Service {
+
+		public List<Object> echo(String text, List<Integer> values) {
+			return Arrays.<Object>asList(text, values);
+		}
+	}
+}
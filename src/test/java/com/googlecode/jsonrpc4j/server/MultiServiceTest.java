@@ -47,6 +47,23 @@ public class MultiServiceTest {
 		assertEquals("success", decodeAnswer(byteArrayOutputStream).get(RESULT).textValue());
 	}
 
+	@Test
+	public void callMethodOfReplacedService() throws Exception {
+		OtherServiceInterface otherService = EasyMock.createMock(OtherServiceInterface.class);
+		EasyMock.expect(otherService.otherMethod(param1)).andReturn("replaced");
+		EasyMock.replay(otherService);
+		multiServer.addService(serviceName, otherService, OtherServiceInterface.class);
+
+		multiServer.handleRequest(messageWithMapParamsStream(serviceName + JsonRpcMultiServer.DEFAULT_SEPARATOR + "otherMethod", param1, param1), byteArrayOutputStream);
+
+		assertEquals("replaced", decodeAnswer(byteArrayOutputStream).get(RESULT).textValue());
+		EasyMock.verify(otherService);
+	}
+
+	public interface OtherServiceInterface {
+		String otherMethod(@JsonRpcParam("param1") String param1);
+	}
+
 	public interface ServiceInterfaceWithParamNameAnnotation {
 		String testMethod(@JsonRpcParam("param1") String param1);
 	}
@@ -36,7 +36,11 @@ public abstract class BaseRestTest {
 	}
 
 	protected JsonRpcRestClient getClient(final String servlet) throws MalformedURLException {
-		return new JsonRpcRestClient(new URL(jettyServer.getCustomServerUrlString(servlet)));
+		return new JsonRpcRestClient(getServiceUrl(servlet));
+	}
+
+	protected URL getServiceUrl(final String servlet) throws MalformedURLException {
+		return new URL(jettyServer.getCustomServerUrlString(servlet));
 	}
 
 	@After